@@ -52,4 +52,11 @@ public class EumServerConfiguration {
     @Valid
     private ResourceTimingSettings resourceTiming;
 
+    /**
+     * The settings for the views buffering observations over a time window.
+     */
+    @Valid
+    @NotNull
+    private EumTimeWindowViewsSettings timeWindowViews = new EumTimeWindowViewsSettings();
+
 }
@@ -0,0 +1,29 @@
+package rocks.inspectit.oce.eum.server.configuration.model;
+
+import lombok.Data;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for the views buffering observations over a time window, e.g. views with the QUANTILES aggregation.
+ */
+@Data
+@Validated
+public class EumTimeWindowViewsSettings {
+
+    /**
+     * Defines where the observations buffered by the views are stored.
+     */
+    @NotNull
+    private PercentilesSettings.BufferStorage bufferStorage = PercentilesSettings.BufferStorage.HEAP;
+
+    /**
+     * The maximum amount of memory which the buffers of all views may use in off-heap mode.
+     * If this budget is exhausted, further buffers are allocated on the heap.
+     */
+    @NotNull
+    private DataSize offHeapMemoryBudget = DataSize.ofMegabytes(64);
+}
@@ -0,0 +1,80 @@
+package rocks.inspectit.oce.eum.server.metrics;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rocks.inspectit.oce.eum.server.configuration.model.EumServerConfiguration;
+import rocks.inspectit.oce.eum.server.configuration.model.EumTimeWindowViewsSettings;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+import rocks.inspectit.oce.eum.server.metrics.percentiles.TimeWindowViewManager;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the buffer storage settings to the {@link TimeWindowViewManager} and periodically records
+ * the memory used by the off-heap buffers of the views as self-monitoring metric.
+ */
+@Component
+@Slf4j
+public class TimeWindowViewMemoryMonitor {
+
+    private static final String MEASURE_NAME = "time_window_views_off_heap_memory";
+
+    private static final String STATE_TAG = "state";
+
+    private static final Duration REPORTING_INTERVAL = Duration.ofSeconds(15);
+
+    @Autowired
+    private EumServerConfiguration configuration;
+
+    @Autowired
+    private TimeWindowViewManager timeWindowViewManager;
+
+    @Autowired
+    private SelfMonitoringMetricManager selfMonitoring;
+
+    @Autowired
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> reportingTask;
+
+    @PostConstruct
+    private void init() {
+        EumTimeWindowViewsSettings settings = configuration.getTimeWindowViews();
+        timeWindowViewManager.setBufferStorage(settings.getBufferStorage(), settings.getOffHeapMemoryBudget());
+        if (settings.getBufferStorage() == PercentilesSettings.BufferStorage.OFF_HEAP) {
+            long intervalMillis = REPORTING_INTERVAL.toMillis();
+            reportingTask = executor.scheduleWithFixedDelay(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (reportingTask != null) {
+            reportingTask.cancel(false);
+        }
+    }
+
+    /**
+     * Records the currently used and reserved off-heap memory and its limit.
+     */
+    @VisibleForTesting
+    void report() {
+        try {
+            OffHeapMemoryBudget budget = timeWindowViewManager.getOffHeapBudget();
+            selfMonitoring.record(MEASURE_NAME, budget.getUsedBytes(), Collections.singletonMap(STATE_TAG, "used"));
+            selfMonitoring.record(MEASURE_NAME, budget.getReservedBytes(), Collections.singletonMap(STATE_TAG, "reserved"));
+            selfMonitoring.record(MEASURE_NAME, budget.getLimitBytes(), Collections.singletonMap(STATE_TAG, "limit"));
+        } catch (Exception e) {
+            log.error("Error recording the off-heap memory of the time window views", e);
+        }
+    }
+}
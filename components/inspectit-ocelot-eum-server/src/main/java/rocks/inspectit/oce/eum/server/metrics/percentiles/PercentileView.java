@@ -6,6 +6,7 @@ import io.opencensus.metrics.LabelKey;
 import io.opencensus.metrics.export.MetricDescriptor;
 import lombok.Getter;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
 
 import java.lang.reflect.Array;
 import java.text.DecimalFormat;
@@ -72,7 +73,25 @@ public class PercentileView extends TimeWindowView {
      * @param bufferLimit      the maximum number of measurements to be buffered by this view
      */
     PercentileView(boolean includeMin, boolean includeMax, Set<Double> percentiles, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit) {
-        super(tags, timeWindowMillis, viewName, unit, description, bufferLimit);
+        this(includeMin, includeMax, percentiles, tags, timeWindowMillis, viewName, unit, description, bufferLimit, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param includeMin       true, if the minimum value should be exposed as metric
+     * @param includeMax       true, if the maximum value should be exposed as metric
+     * @param percentiles      the set of percentiles in the range (0,1) which shall be provided as metrics
+     * @param tags             the tags to use for this view
+     * @param timeWindowMillis the time range in milliseconds to use for computing minimum / maximum and percentile values
+     * @param viewName         the prefix to use for the names of all exposed metrics
+     * @param unit             the unit of the measure
+     * @param description      the description of this view
+     * @param bufferLimit      the maximum number of measurements to be buffered by this view
+     * @param offHeapBudget    if not null, the buffered measurements are stored off-heap using memory of this budget
+     */
+    PercentileView(boolean includeMin, boolean includeMax, Set<Double> percentiles, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit, OffHeapMemoryBudget offHeapBudget) {
+        super(tags, timeWindowMillis, viewName, unit, description, bufferLimit, offHeapBudget);
         validateConfiguration(includeMin, includeMax, percentiles);
 
         this.percentiles = new HashSet<>(percentiles);
@@ -5,6 +5,7 @@ import io.opencensus.metrics.LabelKey;
 import io.opencensus.metrics.export.MetricDescriptor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
 
 import java.util.*;
 
@@ -40,7 +41,24 @@ public class SmoothedAverageView extends TimeWindowView {
      * @param bufferLimit      the maximum number of measurements to be buffered by this view
      */
     SmoothedAverageView(double dropUpper, double dropLower, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit) {
-        super(tags, timeWindowMillis, viewName, unit, description, bufferLimit);
+        this(dropUpper, dropLower, tags, timeWindowMillis, viewName, unit, description, bufferLimit, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dropUpper        value in percentage in the range (0,1) which indicates how many metrics in the upper range shall be dropped
+     * @param dropLower        value in percentage in the range (0,1) which indicates how many metrics in the lower range shall be dropped
+     * @param tags             the tags to use for this view
+     * @param timeWindowMillis the time range in milliseconds to use for computing minimum / maximum and percentile values
+     * @param viewName         the prefix to use for the names of all exposed metrics
+     * @param unit             the unit of the measure
+     * @param description      the description of this view
+     * @param bufferLimit      the maximum number of measurements to be buffered by this view
+     * @param offHeapBudget    if not null, the buffered measurements are stored off-heap using memory of this budget
+     */
+    SmoothedAverageView(double dropUpper, double dropLower, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit, OffHeapMemoryBudget offHeapBudget) {
+        super(tags, timeWindowMillis, viewName, unit, description, bufferLimit, offHeapBudget);
         validateConfiguration(dropUpper, dropLower);
 
         this.dropUpper = dropUpper;
@@ -10,6 +10,7 @@ import io.opencensus.tags.TagContext;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
 
 import java.time.Duration;
 import java.util.*;
@@ -77,6 +78,17 @@ public abstract class TimeWindowView {
 
     private boolean overflowWarningPrinted = false;
 
+    /**
+     * If not null, the buffers of this view are stored off-heap using memory of this budget.
+     */
+    @Getter
+    private OffHeapMemoryBudget offHeapBudget;
+
+    /**
+     * Set when this view is not used anymore, the buffers are released and no more points are accepted.
+     */
+    private volatile boolean released = false;
+
     /**
      * The current number of points stored in this view, limited by {@link #bufferLimit}.
      */
@@ -98,6 +110,21 @@ public abstract class TimeWindowView {
      * @param bufferLimit      the maximum number of measurements to be buffered by this view
      */
     TimeWindowView(Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit) {
+        this(tags, timeWindowMillis, viewName, unit, description, bufferLimit, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tags             the tags to use for this view
+     * @param timeWindowMillis the time range in milliseconds to use for computing minimum / maximum and percentile values
+     * @param viewName         the prefix to use for the names of all exposed metrics
+     * @param unit             the unit of the measure
+     * @param description      the description of this view
+     * @param bufferLimit      the maximum number of measurements to be buffered by this view
+     * @param offHeapBudget    if not null, the buffered measurements are stored off-heap using memory of this budget
+     */
+    TimeWindowView(Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit, OffHeapMemoryBudget offHeapBudget) {
         validateConfiguration(timeWindowMillis, viewName, unit, description, bufferLimit);
         assignTagIndices(tags);
         seriesValues = new ConcurrentHashMap<>();
@@ -106,6 +133,7 @@ public abstract class TimeWindowView {
         this.unit = unit;
         this.description = description;
         this.bufferLimit = bufferLimit;
+        this.offHeapBudget = offHeapBudget;
         numberOfPoints = new AtomicInteger(0);
         lastCleanupTimeMs = new AtomicLong(0);
     }
@@ -149,12 +177,16 @@ public abstract class TimeWindowView {
     boolean insertValue(double value, Timestamp time, TagContext tagContext) {
         removeStalePointsIfTimeThresholdExceeded(time);
         List<String> tags = getTagsList(tagContext);
-        WindowedDoubleQueue queue = seriesValues.computeIfAbsent(tags, (key) -> new WindowedDoubleQueue(timeWindowMillis));
+        WindowedDoubleQueue queue = seriesValues.computeIfAbsent(tags, (key) -> new WindowedDoubleQueue(timeWindowMillis, offHeapBudget));
         synchronized (queue) {
             long timeMillis = getInMillis(time);
             int removed = queue.removeStaleValues(timeMillis);
             int currentSize = numberOfPoints.addAndGet(-removed);
-            if (currentSize < bufferLimit) {
+            if (released) {
+                // the queue might have been created after the view has been released
+                queue.release();
+                return false;
+            } else if (currentSize < bufferLimit) {
                 numberOfPoints.incrementAndGet();
                 queue.insert(value, timeMillis);
             } else {
@@ -168,6 +200,21 @@ public abstract class TimeWindowView {
         return true;
     }
 
+    /**
+     * Releases the buffers of this view, returning their off-heap memory to the budget.
+     * Afterwards the view does not accept any points anymore.
+     * This method must be called when the view is not used anymore.
+     */
+    void release() {
+        released = true;
+        for (WindowedDoubleQueue queue : seriesValues.values()) {
+            synchronized (queue) {
+                queue.release();
+            }
+        }
+        numberOfPoints.set(0);
+    }
+
     /**
      * Returns the name of the series exposed by this view.
      * This can be up to three series, depending on whether min/max and quantiles are enabled.
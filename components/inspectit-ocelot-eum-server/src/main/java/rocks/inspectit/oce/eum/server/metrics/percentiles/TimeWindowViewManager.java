@@ -8,7 +8,11 @@ import io.opencensus.metrics.export.MetricProducer;
 import io.opencensus.stats.MeasureMap;
 import io.opencensus.tags.TagContext;
 import io.opencensus.tags.Tags;
+import lombok.Getter;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -61,6 +65,18 @@ public class TimeWindowViewManager {
     @VisibleForTesting
     AsyncMetricRecorder worker = new AsyncMetricRecorder(this::recordSynchronous);
 
+    /**
+     * The budget for the off-heap buffers of all views, only used in {@link PercentilesSettings.BufferStorage#OFF_HEAP} mode.
+     */
+    @Getter
+    private final OffHeapMemoryBudget offHeapBudget = new OffHeapMemoryBudget(0);
+
+    /**
+     * Defines whether the buffers of newly created views are stored on the heap or off-heap.
+     */
+    @Getter
+    private volatile PercentilesSettings.BufferStorage bufferStorage = PercentilesSettings.BufferStorage.HEAP;
+
     public TimeWindowViewManager() {
         this(System::currentTimeMillis);
     }
@@ -107,6 +123,35 @@ public class TimeWindowViewManager {
         }
     }
 
+    /**
+     * Changes where the buffers of the views are stored.
+     * If the storage changes, all existing views are recreated, so that all buffered observations are lost.
+     *
+     * @param bufferStorage the storage of the buffers
+     * @param offHeapLimit  the maximum amount of memory which may be allocated off-heap by all views
+     */
+    public synchronized void setBufferStorage(PercentilesSettings.BufferStorage bufferStorage, DataSize offHeapLimit) {
+        offHeapBudget.setLimitBytes(offHeapLimit.toBytes());
+        if (this.bufferStorage != bufferStorage) {
+            this.bufferStorage = bufferStorage;
+            measuresToViewsMap.values().forEach(views -> views.replaceAll(view -> {
+                view.release();
+                if (view instanceof PercentileView) {
+                    PercentileView percentileView = (PercentileView) view;
+                    return createView(PercentileView.class, view.getViewName(), view.getUnit(), view.getDescription(), percentileView.isMinEnabled(), percentileView
+                            .isMaxEnabled(), percentileView.getPercentiles(), -1, -1, view.getTimeWindowMillis(), view.getTagKeys(), view.getBufferLimit());
+                } else {
+                    SmoothedAverageView saView = (SmoothedAverageView) view;
+                    return createView(SmoothedAverageView.class, view.getViewName(), view.getUnit(), view.getDescription(), false, false, null, saView
+                            .getDropUpper(), saView.getDropLower(), view.getTimeWindowMillis(), view.getTagKeys(), view.getBufferLimit());
+                }
+            }));
+            if (bufferStorage == PercentilesSettings.BufferStorage.HEAP) {
+                offHeapBudget.releasePooledBuffers();
+            }
+        }
+    }
+
     /**
      * Creates a new smoothed_average view if no view with the given name exists for the given measure.
      * If a view with the given name already exists for the given measure, it is updated instead.
@@ -158,7 +203,10 @@ public class TimeWindowViewManager {
             updatedView = Optional.of(createView(viewType, viewName, unit, description, minEnabled, maxEnabled, percentiles, dropUpper, dropLower, timeWindowMillis, tags, bufferLimit));
         }
         if (updatedView.isPresent()) {
-            existingView.ifPresent(views::remove);
+            existingView.ifPresent(view -> {
+                views.remove(view);
+                view.release();
+            });
             views.add(updatedView.get());
         }
         seriesToMeasuresCache = null;
@@ -200,6 +248,7 @@ public class TimeWindowViewManager {
                     .findFirst();
             if (existingView.isPresent()) {
                 views.remove(existingView.get());
+                existingView.get().release();
                 if (views.isEmpty()) {
                     measuresToViewsMap.remove(measureName);
                 }
@@ -301,10 +350,11 @@ public class TimeWindowViewManager {
     }
 
     private <T extends TimeWindowView> T createView(Class<T> viewType, String viewName, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, double dropUpper, double dropLower, long timeWindowMillis, Collection<String> tags, int bufferLimit) {
+        OffHeapMemoryBudget budget = bufferStorage == PercentilesSettings.BufferStorage.OFF_HEAP ? offHeapBudget : null;
         if (PercentileView.class.equals(viewType)) {
-            return (T) new PercentileView(minEnabled, maxEnabled, new HashSet<>(percentiles), new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit);
+            return (T) new PercentileView(minEnabled, maxEnabled, new HashSet<>(percentiles), new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit, budget);
         } else {
-            return (T) new SmoothedAverageView(dropUpper, dropLower, new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit);
+            return (T) new SmoothedAverageView(dropUpper, dropLower, new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit, budget);
         }
     }
 
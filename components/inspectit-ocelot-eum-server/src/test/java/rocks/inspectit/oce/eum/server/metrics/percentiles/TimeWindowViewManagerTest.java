@@ -17,6 +17,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
 
 import java.util.*;
 import java.util.function.Supplier;
@@ -371,6 +373,51 @@ public class TimeWindowViewManagerTest {
         }
     }
 
+    @Nested
+    class OffHeapStorage {
+
+        @Test
+        void buffersAllocatedOffHeap() {
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofMegabytes(1));
+            viewManager.createOrUpdatePercentileView("my/measure", "my/view", "ms", "foo",
+                    true, true, Arrays.asList(0.5), 15000, Collections.emptyList(), 100);
+            viewManager.createOrUpdateSmoothedAverageView("my/measure", "my/further_view_smoothed_average", "ms", "foo",
+                    0.2, 0.2, 15000, Collections.emptyList(), 100);
+
+            for (int i = 1; i < 100; i++) {
+                doReturn((long) i).when(clock).get();
+                viewManager.recordMeasurement("my/measure", i);
+            }
+            awaitMetricsProcessing();
+
+            doReturn(10000L).when(clock).get();
+            Collection<Metric> result = viewManager.computeMetrics();
+
+            assertContainsMetric(result, "my/view_min", 1);
+            assertContainsMetric(result, "my/view_max", 99);
+            assertContainsMetric(result, "my/further_view_smoothed_average", 50.0);
+            assertContainsMetric(result, "my/view", 50, "quantile", "0.5");
+            assertThat(viewManager.getOffHeapBudget().getUsedBytes()).isPositive();
+        }
+
+        @Test
+        void memoryReleasedWhenStorageChanged() {
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofMegabytes(1));
+            viewManager.createOrUpdatePercentileView("my/measure", "my/view", "ms", "foo",
+                    true, false, Collections.emptyList(), 15000, Collections.emptyList(), 100);
+            viewManager.recordMeasurement("my/measure", 42);
+            awaitMetricsProcessing();
+
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.HEAP, DataSize.ofMegabytes(1));
+            viewManager.recordMeasurement("my/measure", 7);
+            awaitMetricsProcessing();
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertContainsMetric(result, "my/view_min", 7);
+            assertThat(viewManager.getOffHeapBudget().getUsedBytes()).isZero();
+        }
+    }
+
     @Nested
     class CreateOrUpdateView {
 
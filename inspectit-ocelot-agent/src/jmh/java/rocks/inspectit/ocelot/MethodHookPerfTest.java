@@ -3,6 +3,7 @@ package rocks.inspectit.ocelot;
 import org.openjdk.jmh.annotations.*;
 import rocks.inspectit.ocelot.bootstrap.Instances;
 import rocks.inspectit.ocelot.bootstrap.context.InternalInspectitContext;
+import rocks.inspectit.ocelot.bootstrap.instrumentation.IMethodHook;
 import rocks.inspectit.ocelot.target.MethodHookTarget;
 import rocks.inspectit.ocelot.utils.TestUtils;
 
@@ -62,4 +63,13 @@ public class MethodHookPerfTest {
         target.methodResponseTime();
     }
 
+    /**
+     * Tests the class and signature based hook lookup, which was performed by the advices before hook ids were introduced.
+     * Serves as a reference for the dispatch cost saved in {@link #methodNoAction()}.
+     */
+    @Benchmark
+    public IMethodHook hookLookupBySignature() {
+        return Instances.hookManager.getHook(MethodHookTarget.class, "methodNoAction()");
+    }
+
 }
@@ -14,4 +14,14 @@ public interface IHookManager {
      */
     IMethodHook getHook(Class<?> clazz, String methodSignature);
 
+    /**
+     * Returns the currently configured hook for the method with the given id.
+     * The id of a method is assigned when the method gets instrumented and is compiled into its bytecode.
+     * This method never returns null, if no Hook is configured a {@link NoopMethodHook} is returned.
+     *
+     * @param hookId the id of the method to query the hook for
+     * @return the configured hook or a no-operation hook
+     */
+    IMethodHook getHook(int hookId);
+
 }
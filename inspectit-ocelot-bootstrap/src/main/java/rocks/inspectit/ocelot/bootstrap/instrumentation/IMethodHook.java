@@ -7,7 +7,7 @@ public interface IMethodHook {
     /**
      * Called when the hooked method is entered.
      *
-     * @param instrumentedMethodArgs the arguments passed to the method for which the hook is executed
+     * @param instrumentedMethodArgs the arguments passed to the method for which the hook is executed, null if they are not used by the hook
      * @param thiz                   the "this" instance of the invoked method, null if the invoked method is static
      * @return the opened context, will be passed to onExit
      */
@@ -16,9 +16,10 @@ public interface IMethodHook {
     /**
      * Called when the hooked method exits.
      *
-     * @param instrumentedMethodArgs the arguments passed to the method for which the hook is executed
+     * @param instrumentedMethodArgs the arguments passed to the method for which the hook is executed, null if they are not used by the hook
      * @param thiz                   the "this" instance of the invoked method, null if the invoked method is static
-     * @param returnValue            the return value returned by the target method, if this hook is executed at the end and no exception was thrown
+     * @param returnValue            the return value returned by the target method, if this hook is executed at the end and no exception was thrown,
+     *                               null if it is not used by the hook
      * @param thrown                 the exception thrown by the instrumented method, null otherwise
      * @param context                the context returned by the onEnter call
      */
@@ -15,4 +15,9 @@ public class NoopHookManager implements IHookManager {
     public IMethodHook getHook(Class<?> clazz, String methodSignature) {
         return NoopMethodHook.INSTANCE;
     }
+
+    @Override
+    public IMethodHook getHook(int hookId) {
+        return NoopMethodHook.INSTANCE;
+    }
 }
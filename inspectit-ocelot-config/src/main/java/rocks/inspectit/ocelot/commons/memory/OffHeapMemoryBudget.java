@@ -0,0 +1,252 @@
+package rocks.inspectit.ocelot.commons.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Limits the total amount of memory which the buffers of percentile views may allocate outside of the Java heap.
+ * <p>
+ * The buffers are allocated via {@link ByteBuffer#allocateDirect(int)}, so that large time windows do not increase the heap
+ * and therefore the garbage collection effort of the instrumented application.
+ * If an allocation would exceed the budget, no buffer is allocated and the caller is expected to fall back to heap memory.
+ * <p>
+ * The native memory of a direct buffer is only freed when the buffer is garbage collected.
+ * Therefore, released buffers are kept in a pool and are reused by subsequent allocations of the same size,
+ * which is the common case as the buffers grow and shrink by powers of two.
+ * Pooled buffers are only dropped if the budget has to make room for a buffer of a different size.
+ * Dropped buffers are still accounted for by the budget until they have been garbage collected, so that the
+ * native memory actually held never exceeds the budget and the JVM does not have to trigger a garbage collection
+ * to reclaim direct memory.
+ */
+@Slf4j
+public class OffHeapMemoryBudget {
+
+    /**
+     * The maximum number of bytes which may be allocated.
+     */
+    private volatile long limitBytes;
+
+    /**
+     * The number of bytes of all buffers which have been allocated and not yet been garbage collected.
+     * This includes the buffers which are in use, the pooled buffers and the dropped buffers.
+     */
+    private volatile long reservedBytes = 0;
+
+    /**
+     * The number of bytes of the buffers which are currently in use, meaning they are neither pooled nor dropped.
+     */
+    private volatile long usedBytes = 0;
+
+    /**
+     * The number of bytes of the buffers in {@link #pooledBuffers}.
+     */
+    private volatile long pooledBytes = 0;
+
+    /**
+     * Released buffers which can be reused, grouped by their capacity.
+     */
+    private final Map<Integer, Deque<ByteBuffer>> pooledBuffers = new HashMap<>();
+
+    /**
+     * References to the dropped buffers which have not yet been garbage collected.
+     * The references have to be kept strongly reachable, otherwise they would not be enqueued.
+     */
+    private final Set<DroppedBufferReference> droppedBuffers = new HashSet<>();
+
+    /**
+     * Receives the references of {@link #droppedBuffers} as soon as their buffers have been garbage collected.
+     */
+    private final ReferenceQueue<ByteBuffer> collectedBuffers = new ReferenceQueue<>();
+
+    private volatile boolean exhaustedWarningPrinted = false;
+
+    /**
+     * Constructor.
+     *
+     * @param limitBytes the maximum number of bytes which may be allocated
+     */
+    public OffHeapMemoryBudget(long limitBytes) {
+        setLimitBytes(limitBytes);
+    }
+
+    /**
+     * Changes the limit of this budget.
+     * If the limit is decreased below the currently reserved memory, pooled buffers are dropped but buffers in use are kept.
+     *
+     * @param limitBytes the maximum number of bytes which may be allocated
+     */
+    public synchronized void setLimitBytes(long limitBytes) {
+        if (limitBytes < 0) {
+            throw new IllegalArgumentException("The off-heap memory budget must not be negative!");
+        }
+        this.limitBytes = limitBytes;
+        dropPooledBuffers(reservedBytes - limitBytes);
+    }
+
+    /**
+     * @return the maximum number of bytes which may be allocated
+     */
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    /**
+     * @return the number of bytes currently allocated by the buffers of this budget which are in use
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the number of bytes of released buffers which are kept for reuse
+     */
+    public long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * @return the number of bytes of all buffers which have not yet been freed, including pooled buffers and
+     * dropped buffers which have not been garbage collected yet
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Allocates a direct buffer in the native byte order, if the budget allows it.
+     * Pooled buffers of the same size are reused.
+     *
+     * @param bytes the size of the buffer
+     *
+     * @return the allocated buffer or null, if the budget is exhausted
+     */
+    public synchronized ByteBuffer allocate(int bytes) {
+        expungeCollectedBuffers();
+        ByteBuffer pooled = takePooledBuffer(bytes);
+        if (pooled != null) {
+            usedBytes += bytes;
+            return pooled;
+        }
+        if (reservedBytes + bytes > limitBytes) {
+            // the dropped buffers can only be reused after they have been garbage collected
+            dropPooledBuffers(reservedBytes + bytes - limitBytes);
+            printExhaustedWarning();
+            return null;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        } catch (OutOfMemoryError e) {
+            // the direct memory of the JVM is exhausted (-XX:MaxDirectMemorySize)
+            printExhaustedWarning();
+            return null;
+        }
+        reservedBytes += bytes;
+        usedBytes += bytes;
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer previously allocated via {@link #allocate(int)} to this budget, so that it can be reused.
+     * The buffer must not be used anymore afterwards.
+     *
+     * @param buffer the buffer to release
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        usedBytes -= capacity;
+        if (reservedBytes > limitBytes) {
+            // the limit has been decreased, so the buffer is not kept
+            dropBuffer(buffer);
+        } else {
+            buffer.clear();
+            pooledBuffers.computeIfAbsent(capacity, (c) -> new ArrayDeque<>()).push(buffer);
+            pooledBytes += capacity;
+        }
+    }
+
+    /**
+     * Drops all pooled buffers, so that their memory is freed by the next garbage collection.
+     * Should be called if the buffers are not stored off-heap anymore.
+     */
+    public synchronized void releasePooledBuffers() {
+        dropPooledBuffers(Long.MAX_VALUE);
+    }
+
+    private ByteBuffer takePooledBuffer(int bytes) {
+        Deque<ByteBuffer> buffers = pooledBuffers.get(bytes);
+        if (buffers == null) {
+            return null;
+        }
+        ByteBuffer buffer = buffers.pop();
+        if (buffers.isEmpty()) {
+            pooledBuffers.remove(bytes);
+        }
+        pooledBytes -= bytes;
+        return buffer;
+    }
+
+    /**
+     * Drops pooled buffers until at least the given number of bytes have been dropped or the pool is empty.
+     */
+    private void dropPooledBuffers(long bytesToDrop) {
+        long dropped = 0;
+        Iterator<Deque<ByteBuffer>> buffersIterator = pooledBuffers.values().iterator();
+        while (dropped < bytesToDrop && buffersIterator.hasNext()) {
+            Deque<ByteBuffer> buffers = buffersIterator.next();
+            while (dropped < bytesToDrop && !buffers.isEmpty()) {
+                ByteBuffer buffer = buffers.pop();
+                pooledBytes -= buffer.capacity();
+                dropped += buffer.capacity();
+                dropBuffer(buffer);
+            }
+            if (buffers.isEmpty()) {
+                buffersIterator.remove();
+            }
+        }
+    }
+
+    private void dropBuffer(ByteBuffer buffer) {
+        droppedBuffers.add(new DroppedBufferReference(buffer, collectedBuffers));
+    }
+
+    /**
+     * Frees the reservations of all dropped buffers which have been garbage collected.
+     */
+    private void expungeCollectedBuffers() {
+        Reference<? extends ByteBuffer> reference;
+        while ((reference = collectedBuffers.poll()) != null) {
+            DroppedBufferReference dropped = (DroppedBufferReference) reference;
+            if (droppedBuffers.remove(dropped)) {
+                reservedBytes -= dropped.capacity;
+            }
+        }
+    }
+
+    private void printExhaustedWarning() {
+        if (!exhaustedWarningPrinted) {
+            exhaustedWarningPrinted = true;
+            log.warn("The off-heap memory budget of {} bytes for percentile views has been exhausted, buffers will be kept on the heap instead." +
+                    " This warning will not be shown again!", limitBytes);
+        }
+    }
+
+    /**
+     * Tracks when a dropped buffer has been garbage collected and therefore its native memory has been freed.
+     */
+    private static class DroppedBufferReference extends PhantomReference<ByteBuffer> {
+
+        private final int capacity;
+
+        private DroppedBufferReference(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue) {
+            super(buffer, queue);
+            capacity = buffer.capacity();
+        }
+    }
+}
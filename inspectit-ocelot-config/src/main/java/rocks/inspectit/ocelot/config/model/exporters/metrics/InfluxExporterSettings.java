@@ -3,6 +3,7 @@ package rocks.inspectit.ocelot.config.model.exporters.metrics;
 import lombok.Data;
 import org.hibernate.validator.constraints.time.DurationMin;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import java.time.Duration;
@@ -70,4 +71,10 @@ public class InfluxExporterSettings {
      */
     @Min(1)
     private int bufferSize;
+
+    /**
+     * Settings for writing the metrics using the streaming line protocol writer.
+     */
+    @Valid
+    private InfluxStreamingSettings streaming = new InfluxStreamingSettings();
 }
@@ -0,0 +1,34 @@
+package rocks.inspectit.ocelot.config.model.exporters.metrics;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.unit.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for the streaming writer of the InfluxDB metrics exporter.
+ * <p>
+ * If enabled, the metrics are serialized directly into the line protocol and written in chunks,
+ * instead of being converted into intermediate point objects on each export.
+ */
+@Data
+@NoArgsConstructor
+public class InfluxStreamingSettings {
+
+    /**
+     * If true, the streaming writer is used instead of the InfluxDB client.
+     */
+    private boolean enabled;
+
+    /**
+     * If true, the requests are compressed using gzip.
+     */
+    private boolean compression;
+
+    /**
+     * The maximum size of the line protocol data sent in a single request.
+     */
+    @NotNull
+    private DataSize maxRequestSize;
+}
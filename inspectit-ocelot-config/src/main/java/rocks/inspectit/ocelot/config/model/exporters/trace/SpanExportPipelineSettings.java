@@ -0,0 +1,59 @@
+package rocks.inspectit.ocelot.config.model.exporters.trace;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.unit.DataSize;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * Settings for the agent-side pipeline through which spans are sent to a trace backend.
+ * <p>
+ * If enabled, spans are collected in a bounded buffer and sent in batches by a background task.
+ * Batches which cannot be sent because the backend is unavailable are kept in memory or spilled to disk and sent once the backend is available again.
+ */
+@Data
+@NoArgsConstructor
+public class SpanExportPipelineSettings {
+
+    /**
+     * If true, spans are sent through the pipeline instead of being sent directly by the exporter.
+     */
+    private boolean enabled;
+
+    /**
+     * The maximum number of spans sent in a single request.
+     */
+    @Min(1)
+    private int batchSize;
+
+    /**
+     * The interval in which the buffered spans are sent, even if the batch size has not been reached.
+     */
+    @NotNull
+    private Duration flushInterval;
+
+    /**
+     * If true, the batches are compressed using gzip.
+     */
+    private boolean compression;
+
+    /**
+     * The timeout used when sending a batch.
+     */
+    @NotNull
+    private Duration timeout;
+
+    /**
+     * The maximum amount of memory used for buffering spans and batches which have not been sent yet.
+     * If this limit is reached, batches are spilled to disk if enabled, otherwise further spans are dropped.
+     */
+    @NotNull
+    private DataSize maxBufferedBytes;
+
+    @Valid
+    private SpanSpillSettings spill = new SpanSpillSettings();
+}
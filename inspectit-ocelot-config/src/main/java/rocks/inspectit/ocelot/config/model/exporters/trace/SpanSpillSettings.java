@@ -0,0 +1,33 @@
+package rocks.inspectit.ocelot.config.model.exporters.trace;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.unit.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for spilling batches of spans to disk, see {@link SpanExportPipelineSettings}.
+ * <p>
+ * The spilled batches are stored in a memory-mapped ring buffer file, so that they also survive a restart of the JVM.
+ */
+@Data
+@NoArgsConstructor
+public class SpanSpillSettings {
+
+    /**
+     * If true, batches which cannot be kept in memory are stored on disk.
+     */
+    private boolean enabled;
+
+    /**
+     * The file used for storing the batches.
+     */
+    private String path;
+
+    /**
+     * The maximum size of the file. If the file is full, further batches are dropped.
+     */
+    @NotNull
+    private DataSize maxSize;
+}
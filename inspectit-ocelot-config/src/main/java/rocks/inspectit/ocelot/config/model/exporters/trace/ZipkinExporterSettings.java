@@ -3,6 +3,8 @@ package rocks.inspectit.ocelot.config.model.exporters.trace;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.Valid;
+
 @Data
 @NoArgsConstructor
 public class ZipkinExporterSettings {
@@ -19,4 +21,9 @@ public class ZipkinExporterSettings {
      */
     private String serviceName;
 
+    /**
+     * Settings for sending the spans through the agent-side export pipeline.
+     */
+    @Valid
+    private SpanExportPipelineSettings pipeline = new SpanExportPipelineSettings();
 }
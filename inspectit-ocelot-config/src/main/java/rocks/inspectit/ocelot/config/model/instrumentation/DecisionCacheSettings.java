@@ -0,0 +1,32 @@
+package rocks.inspectit.ocelot.config.model.instrumentation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * Settings for persisting the classes which do not require any instrumentation, so that they can be skipped after a restart.
+ * These settings are only evaluated when the agent starts.
+ */
+@Data
+@NoArgsConstructor
+public class DecisionCacheSettings {
+
+    /**
+     * If true, the decisions are stored on disk and reused after a restart.
+     */
+    private boolean enabled;
+
+    /**
+     * The file used for storing the decisions.
+     */
+    private String path;
+
+    /**
+     * The interval in which new decisions are written to the file.
+     */
+    @NotNull
+    private Duration saveInterval = Duration.ofMinutes(1);
+}
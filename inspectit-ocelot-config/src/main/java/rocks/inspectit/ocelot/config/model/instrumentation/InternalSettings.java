@@ -3,6 +3,7 @@ package rocks.inspectit.ocelot.config.model.instrumentation;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import java.time.Duration;
 
@@ -34,6 +35,13 @@ public class InternalSettings {
     // The actual default value is defined in the default.yml
     private int classRetransformBatchSize = 1; //default value for testing
 
+    /**
+     * Defines the number of threads used for analysing which classes require a retransformation or new hooks.
+     * The retransformation itself is always performed sequentially. A value of 1 disables the parallel analysis.
+     */
+    @Min(1)
+    private int classAnalysisParallelism = 1;
+
     /**
      * Defines how often the Agent should check if new classes have been defined.
      * This check is only performed if Classloader.defineClass was called less than {@link #maxClassDefinitionDelay} ago.
@@ -45,6 +53,19 @@ public class InternalSettings {
      */
     private int numClassDiscoveryTrials;
 
+    /**
+     * If true, new classes are discovered based on the class definitions reported to the ClassFileTransformer
+     * instead of scanning all loaded classes. A full scan is then only performed every {@link #classDiscoveryFullScanInterval}
+     * as consistency check.
+     */
+    private boolean eventDrivenClassDiscovery = false;
+
+    /**
+     * Defines how often all loaded classes are scanned when {@link #eventDrivenClassDiscovery} is enabled.
+     * The scan is only performed if new classes have been defined since the last scan.
+     */
+    private Duration classDiscoveryFullScanInterval;
+
     /**
      * "Actions" are defined by injecting classes into existing classloaders.
      * When a security manager is enabled, it is important that these classes have a {@link java.security.ProtectionDomain}
@@ -57,4 +78,17 @@ public class InternalSettings {
      */
     private boolean recyclingOldActionClasses = true;
 
+    /**
+     * If true, the inspectIT contexts and the execution contexts of the hooks are taken from per-thread pools
+     * and recycled when the instrumented method exits, instead of being allocated for each method invocation.
+     * Contexts which are captured for a propagation to other threads are excluded from recycling.
+     */
+    private boolean contextPooling = false;
+
+    /**
+     * Settings for persisting the classes which do not require any instrumentation.
+     */
+    @Valid
+    private DecisionCacheSettings decisionCache = new DecisionCacheSettings();
+
 }
@@ -59,6 +59,13 @@ public class GenericActionSettings {
     @Setter(AccessLevel.NONE)
     private boolean isVoid = false;
 
+    /**
+     * If true, the action has no observable effect besides its return value.
+     * Such actions may be skipped by the agent if their result is only used for spans which are not recorded.
+     * Actions which modify the instrumented object, its arguments or any other state must not be marked as side effect free.
+     */
+    private boolean sideEffectFree = false;
+
     /**
      * Defines the input variables used by this action.
      * The key is the name of the variable, the value is the type of the corresponding variable.
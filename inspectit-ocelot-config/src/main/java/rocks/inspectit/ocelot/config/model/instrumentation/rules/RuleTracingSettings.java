@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import rocks.inspectit.ocelot.config.model.instrumentation.actions.ConditionalActionSettings;
 
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.util.Collections;
@@ -92,6 +93,14 @@ public class RuleTracingSettings {
      */
     private String sampleProbability;
 
+    /**
+     * If not null, limits the number of traces started by this rule to the given number per second and span name.
+     * Spans whose parent has been sampled do not count towards this limit.
+     * If a {@link #sampleProbability} is defined as well, it is applied before the limit.
+     */
+    @DecimalMin(value = "0", inclusive = false)
+    private Double maxSpansPerSecond;
+
     /**
      * The kind of the span, e.g. SERVER or CLIENT.
      * Can be null, in which case it is a span of unspecified kind.
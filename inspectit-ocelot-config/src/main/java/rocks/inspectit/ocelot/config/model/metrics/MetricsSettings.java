@@ -41,6 +41,13 @@ public class MetricsSettings {
     @NotNull
     private Map<@NotBlank String, @NotNull @Valid MetricDefinitionSettings> definitions = Collections.emptyMap();
 
+    /**
+     * Settings for the recording of percentile views.
+     */
+    @Valid
+    @NotNull
+    private PercentilesSettings percentiles = new PercentilesSettings();
+
     /**
      * Settings for {@link rocks.inspectit.ocelot.core.metrics.system.DiskMetricsRecorder}
      */
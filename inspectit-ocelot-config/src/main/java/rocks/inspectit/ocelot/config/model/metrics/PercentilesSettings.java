@@ -0,0 +1,60 @@
+package rocks.inspectit.ocelot.config.model.metrics;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.unit.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for the recording of views with the {@link rocks.inspectit.ocelot.config.model.metrics.definition.ViewDefinitionSettings.Aggregation#QUANTILES} aggregation.
+ */
+@Data
+@NoArgsConstructor
+public class PercentilesSettings {
+
+    /**
+     * Defines how observations are passed to the percentile views.
+     */
+    @NotNull
+    private RecordingMode recordingMode = RecordingMode.ASYNC;
+
+    /**
+     * Defines where the observations buffered by the views are stored.
+     */
+    @NotNull
+    private BufferStorage bufferStorage = BufferStorage.HEAP;
+
+    /**
+     * The maximum amount of memory which the buffers of all views may use in {@link BufferStorage#OFF_HEAP} mode.
+     * If this budget is exhausted, further buffers are allocated on the heap.
+     */
+    @NotNull
+    private DataSize offHeapMemoryBudget = DataSize.ofMegabytes(64);
+
+    public enum RecordingMode {
+        /**
+         * Observations are recorded directly in the application threads.
+         * Each series is split into shards, so that threads recording the same series usually do not contend for a lock.
+         * The shards are merged when the metrics are computed.
+         */
+        SHARDED,
+        /**
+         * Observations are passed to a single background thread via a bounded queue.
+         * Observations are dropped if the queue is full.
+         */
+        ASYNC
+    }
+
+    public enum BufferStorage {
+        /**
+         * The buffers are stored in arrays on the Java heap.
+         */
+        HEAP,
+        /**
+         * The buffers are stored in direct byte buffers outside of the Java heap, limited by the {@code offHeapMemoryBudget}.
+         * This reduces the heap usage and therefore the garbage collection effort for large time windows.
+         */
+        OFF_HEAP
+    }
+}
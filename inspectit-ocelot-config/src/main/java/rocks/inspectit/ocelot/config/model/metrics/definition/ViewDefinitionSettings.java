@@ -32,6 +32,22 @@ public class ViewDefinitionSettings {
         private String readableName;
     }
 
+    /**
+     * Defines how the observations of a QUANTILES view are stored for computing the quantiles.
+     */
+    public enum QuantileMode {
+        /**
+         * All observations within the time window are buffered, quantiles are computed exactly.
+         * The memory usage grows with the number of observations and is limited by {@link #maxBufferedPoints}.
+         */
+        EXACT,
+        /**
+         * Observations are aggregated in a sketch, quantiles are computed with the relative accuracy {@link #sketchRelativeAccuracy}.
+         * The memory usage per series is constant and no observations are rejected.
+         */
+        SKETCH
+    }
+
     @Builder.Default
     private boolean enabled = true;
 
@@ -96,6 +112,23 @@ public class ViewDefinitionSettings {
     @Builder.Default
     private int maxBufferedPoints = 16384;
 
+    /**
+     * Only relevant if aggregation is "QUANTILES".
+     * Defines whether the quantiles are computed exactly from the buffered observations or estimated using a sketch.
+     */
+    @NotNull
+    @Builder.Default
+    private QuantileMode quantileMode = QuantileMode.EXACT;
+
+    /**
+     * Only relevant if aggregation is "QUANTILES" and the {@link #quantileMode} is SKETCH.
+     * The maximum relative error of the computed quantiles, e.g. 0.01 means that the quantiles are accurate to 1%.
+     */
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax(value = "1.0", inclusive = false)
+    @Builder.Default
+    private double sketchRelativeAccuracy = 0.01;
+
     /**
      * Defines if this view should by default include all common tags.
      * Individual tags can still be disabled via {@link #tags}.
@@ -0,0 +1,38 @@
+package rocks.inspectit.ocelot.config.model.tracing;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import java.time.Duration;
+
+/**
+ * Settings for adapting the frequency of the stack trace sampling to its overhead.
+ * <p>
+ * If enabled, the sampler measures the time it takes to capture the stack traces and lowers the frequency
+ * as soon as the time spent on sampling exceeds the {@link #overheadBudget}.
+ * If even the {@link #maximumPeriod} exceeds the budget, only a rotating subset of the threads is sampled on each tick.
+ * When the load drops, the frequency is raised again up to {@link AutoTracingSettings#getFrequency()}.
+ */
+@Data
+@NoArgsConstructor
+public class AutoTracingAdaptiveSettings {
+
+    /**
+     * If false, the stack traces are always sampled with {@link AutoTracingSettings#getFrequency()}.
+     */
+    private boolean enabled;
+
+    /**
+     * The fraction of time which may be spent on capturing stack traces, e.g. 0.01 for 1%.
+     */
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax(value = "1.0")
+    private double overheadBudget;
+
+    /**
+     * The longest time between two samples, meaning the lowest frequency the sampling may be reduced to.
+     */
+    private Duration maximumPeriod;
+}
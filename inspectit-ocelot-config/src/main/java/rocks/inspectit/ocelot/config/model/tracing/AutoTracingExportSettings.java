@@ -0,0 +1,53 @@
+package rocks.inspectit.ocelot.config.model.tracing;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Defines how traces recorded via stack trace sampling are post-processed and exported.
+ * Before exporting, the spans of a trace have to be reconstructed from the samples, which is done by a dedicated pool of worker threads.
+ */
+@Data
+@NoArgsConstructor
+public class AutoTracingExportSettings {
+
+    /**
+     * The action to take when a finished trace cannot be added to the export queue because it is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The finished trace is dropped.
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest trace in the queue is dropped to make room for the finished trace.
+         */
+        DROP_OLDEST,
+        /**
+         * The finished trace is processed and exported by the application thread which finished it.
+         * No traces are lost, but the application is slowed down when the workers cannot keep up.
+         */
+        EXPORT_IN_CALLER
+    }
+
+    /**
+     * The number of worker threads processing and exporting the finished traces.
+     */
+    @Min(1)
+    private int threads;
+
+    /**
+     * The maximum number of finished traces waiting to be processed.
+     */
+    @Min(1)
+    private int queueCapacity;
+
+    /**
+     * Defines what happens when a trace finishes while the queue is full.
+     */
+    @NotNull
+    private OverflowPolicy overflowPolicy;
+}
@@ -3,6 +3,8 @@ package rocks.inspectit.ocelot.config.model.tracing;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 import java.time.Duration;
 
 /**
@@ -12,6 +14,23 @@ import java.time.Duration;
 @NoArgsConstructor
 public class AutoTracingSettings {
 
+    /**
+     * The backends which can be used for capturing stack trace samples.
+     */
+    public enum SamplingBackend {
+        /**
+         * Captures the stack traces of all sampled threads at once via the ThreadMXBean.
+         * This requires a global safepoint for each sample, stopping all threads of the JVM.
+         */
+        THREAD_MX_BEAN,
+        /**
+         * Captures the stack traces of the sampled threads individually via Thread#getStackTrace.
+         * If the JVM walks the stack of another thread using a handshake, only the sampled threads are stopped.
+         * Otherwise each thread requires a separate global safepoint.
+         */
+        PER_THREAD
+    }
+
     /**
      * Defines the frequency at which stack trace samples are taken.
      * The higher the frequency, the greater the accuracy of the resulting trace.
@@ -28,4 +47,22 @@ public class AutoTracingSettings {
      * If a span requests sampling after the timer has shutdown, it will restart it.
      */
     private Duration shutdownDelay;
+
+    /**
+     * The backend used for capturing the stack trace samples.
+     */
+    @NotNull
+    private SamplingBackend samplingBackend;
+
+    /**
+     * Settings for the post-processing and exporting of the sampled traces.
+     */
+    @Valid
+    private AutoTracingExportSettings export = new AutoTracingExportSettings();
+
+    /**
+     * Settings for adapting the sampling frequency to the overhead of the sampling.
+     */
+    @Valid
+    private AutoTracingAdaptiveSettings adaptive = new AutoTracingAdaptiveSettings();
 }
@@ -0,0 +1,65 @@
+package rocks.inspectit.ocelot.config.model.tracing;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for the tail-based sampling of traces.
+ * <p>
+ * If enabled, the finished spans of a trace are buffered in the agent until all spans of the trace started in this JVM have ended.
+ * Only then it is decided whether the spans are exported, based on their latency, status and attributes.
+ * Note that only spans which have been sampled when they were started are considered.
+ */
+@Data
+@NoArgsConstructor
+public class TailSamplingSettings {
+
+    /**
+     * If true, the spans are buffered and exported depending on the tail sampling decision.
+     */
+    private boolean enabled;
+
+    /**
+     * The maximum number of spans kept in the buffer.
+     * If the buffer is full, the decision for a trace is made as soon as further spans of it end.
+     */
+    @Min(1)
+    private int maxBufferedSpans;
+
+    /**
+     * The maximum time a trace is buffered. If not all of its spans have ended within this time, the decision is made with the spans ended so far.
+     */
+    @NotNull
+    private Duration maxTraceDuration;
+
+    /**
+     * Traces containing a span with at least this duration are kept. If null, the latency is not considered.
+     */
+    private Duration latencyThreshold;
+
+    /**
+     * If true, traces containing a span with a non-OK status are kept.
+     */
+    private boolean keepErrors;
+
+    /**
+     * Traces containing a span with one of the given attributes are kept, if the value of the attribute matches the given regular expression.
+     */
+    @NotNull
+    private Map<@NotBlank String, @NotNull String> keepAttributes = new HashMap<>();
+
+    /**
+     * The probability with which traces are kept which do not fulfill any of the other criteria.
+     */
+    @Max(1)
+    @Min(0)
+    private double keepProbability;
+}
@@ -56,6 +56,12 @@ public class TracingSettings {
     @Valid
     private AutoTracingSettings autoTracing;
 
+    /**
+     * Settings for deciding on the export of traces after they have finished.
+     */
+    @Valid
+    private TailSamplingSettings tailSampling = new TailSamplingSettings();
+
     /**
      * The propagation format to use.
      */
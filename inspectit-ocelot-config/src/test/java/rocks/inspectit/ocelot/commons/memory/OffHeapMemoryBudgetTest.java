@@ -0,0 +1,103 @@
+package rocks.inspectit.ocelot.commons.memory;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapMemoryBudgetTest {
+
+    @Nested
+    class Allocate {
+
+        @Test
+        void allocatedWithinBudget() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024);
+
+            ByteBuffer buffer = budget.allocate(256);
+
+            assertThat(buffer.isDirect()).isTrue();
+            assertThat(buffer.capacity()).isEqualTo(256);
+            assertThat(budget.getUsedBytes()).isEqualTo(256);
+            assertThat(budget.getReservedBytes()).isEqualTo(256);
+        }
+
+        @Test
+        void exhaustedBudget() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(256);
+            budget.allocate(256);
+
+            ByteBuffer buffer = budget.allocate(16);
+
+            assertThat(buffer).isNull();
+            assertThat(budget.getUsedBytes()).isEqualTo(256);
+        }
+
+        @Test
+        void releasedBufferReused() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(256);
+            ByteBuffer first = budget.allocate(256);
+            budget.release(first);
+
+            ByteBuffer second = budget.allocate(256);
+
+            assertThat(second).isSameAs(first);
+            assertThat(budget.getUsedBytes()).isEqualTo(256);
+            assertThat(budget.getPooledBytes()).isZero();
+            assertThat(budget.getReservedBytes()).isEqualTo(256);
+        }
+
+        @Test
+        void droppedBufferStillReserved() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(256);
+            budget.release(budget.allocate(256));
+
+            // the pooled buffer is dropped, but its memory is only freed after it has been garbage collected
+            ByteBuffer buffer = budget.allocate(128);
+
+            assertThat(buffer).isNull();
+            assertThat(budget.getUsedBytes()).isZero();
+            assertThat(budget.getPooledBytes()).isZero();
+            assertThat(budget.getReservedBytes()).isEqualTo(256);
+        }
+    }
+
+    @Nested
+    class Release {
+
+        @Test
+        void releasedBufferPooled() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024);
+
+            budget.release(budget.allocate(256));
+
+            assertThat(budget.getUsedBytes()).isZero();
+            assertThat(budget.getPooledBytes()).isEqualTo(256);
+            assertThat(budget.getReservedBytes()).isEqualTo(256);
+        }
+
+        @Test
+        void releasePooledBuffers() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024);
+            budget.release(budget.allocate(256));
+
+            budget.releasePooledBuffers();
+
+            assertThat(budget.getPooledBytes()).isZero();
+        }
+
+        @Test
+        void decreasedLimitDropsPooledBuffers() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024);
+            ByteBuffer inUse = budget.allocate(256);
+            budget.release(budget.allocate(512));
+
+            budget.setLimitBytes(256);
+
+            assertThat(budget.getPooledBytes()).isZero();
+            assertThat(budget.getUsedBytes()).isEqualTo(256);
+        }
+    }
+}
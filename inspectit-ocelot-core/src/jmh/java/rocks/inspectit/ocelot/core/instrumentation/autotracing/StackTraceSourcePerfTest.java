@@ -0,0 +1,118 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the impact of stack trace sampling on the application threads.
+ * <p>
+ * Four benchmark threads execute a workload while a separate thread samples two of them every millisecond using the configured backend.
+ * The backend NONE disables the sampling and acts as baseline.
+ * <p>
+ * The throughput only shows the overall slowdown. To measure the time-to-safepoint and the time the threads
+ * spend stopped, run the benchmark with the safepoint profiler: {@code -PjmhInclude=StackTraceSourcePerfTest -PjmhProfiler=safepoints}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class StackTraceSourcePerfTest {
+
+    private static final long SAMPLING_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The number of benchmark threads which are sampled, the remaining threads are only affected by safepoints.
+     */
+    private static final int SAMPLED_THREADS = 2;
+
+    public enum Backend {
+        NONE,
+        THREAD_MX_BEAN,
+        PER_THREAD
+    }
+
+    @State(Scope.Benchmark)
+    public static class Sampling {
+
+        @Param({"NONE", "THREAD_MX_BEAN", "PER_THREAD"})
+        Backend backend;
+
+        final Set<Thread> sampledThreads = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean running;
+
+        private Thread samplerThread;
+
+        @Setup(Level.Iteration)
+        public void startSampling() {
+            StackTraceSource source;
+            switch (backend) {
+                case THREAD_MX_BEAN:
+                    source = new ThreadMXBeanStackTraceSource();
+                    break;
+                case PER_THREAD:
+                    source = new PerThreadStackTraceSource();
+                    break;
+                default:
+                    return;
+            }
+            running = true;
+            samplerThread = new Thread(() -> {
+                while (running) {
+                    if (!sampledThreads.isEmpty()) {
+                        source.sample(sampledThreads);
+                    }
+                    LockSupport.parkNanos(SAMPLING_INTERVAL_NANOS);
+                }
+            });
+            samplerThread.setDaemon(true);
+            samplerThread.start();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stopSampling() throws InterruptedException {
+            if (samplerThread != null) {
+                running = false;
+                samplerThread.join();
+                samplerThread = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Workload {
+
+        private double[] values;
+
+        @Setup(Level.Trial)
+        public void registerThread(Sampling sampling) {
+            synchronized (sampling) {
+                if (sampling.sampledThreads.size() < SAMPLED_THREADS) {
+                    sampling.sampledThreads.add(Thread.currentThread());
+                }
+            }
+            values = new double[1024];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void unregisterThread(Sampling sampling) {
+            sampling.sampledThreads.remove(Thread.currentThread());
+        }
+    }
+
+    @Benchmark
+    public void workload(Workload workload, Blackhole blackhole) {
+        double sum = 0;
+        for (double value : workload.values) {
+            sum += Math.sqrt(value);
+        }
+        blackhole.consume(sum);
+    }
+}
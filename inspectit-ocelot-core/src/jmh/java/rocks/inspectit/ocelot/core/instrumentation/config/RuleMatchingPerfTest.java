@@ -0,0 +1,174 @@
+package rocks.inspectit.ocelot.core.instrumentation.config;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.StubMethod;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.ElementDescriptionMatcherSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.InstrumentationScopeSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.MatcherMode;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.MethodMatcherSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.NameMatcherSettings;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationRule;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationScope;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the scopes matching a type by evaluating the type matchers of all scopes
+ * with evaluating only the candidates returned by the scope index of the {@link InstrumentationConfiguration}.
+ * <p>
+ * The synthetic corpus consists of classes spread over multiple packages, each one extending one of a few base classes
+ * and implementing one of a few interfaces. The scopes use exact names, interfaces, superclasses, annotations, prefixes
+ * and (not indexable) suffixes.
+ * <p>
+ * Run with {@code -PjmhInclude=RuleMatchingPerfTest}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class RuleMatchingPerfTest {
+
+    private static final int SUPER_TYPE_COUNT = 20;
+
+    private static final int PACKAGE_COUNT = 50;
+
+    @Param({"5000"})
+    private int classCount;
+
+    @Param({"100", "1000"})
+    private int ruleCount;
+
+    private List<TypeDescription> types;
+
+    private InstrumentationConfiguration configuration;
+
+    @Setup
+    public void init() {
+        Random random = new Random(42);
+        ByteBuddy byteBuddy = new ByteBuddy();
+
+        List<TypeDescription> baseClasses = new ArrayList<>();
+        List<TypeDescription> interfaces = new ArrayList<>();
+        for (int i = 0; i < SUPER_TYPE_COUNT; i++) {
+            baseClasses.add(byteBuddy.subclass(Object.class).name("com.example.base.Base" + i).make().getTypeDescription());
+            interfaces.add(byteBuddy.makeInterface().name("com.example.api.Service" + i).make().getTypeDescription());
+        }
+
+        types = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            DynamicType.Builder<?> builder = byteBuddy.subclass(baseClasses.get(random.nextInt(SUPER_TYPE_COUNT)))
+                    .implement(interfaces.get(random.nextInt(SUPER_TYPE_COUNT)))
+                    .name(getClassName(i))
+                    .defineMethod("run", void.class, Visibility.PUBLIC)
+                    .intercept(StubMethod.INSTANCE);
+            if (i % 10 == 0) {
+                builder = builder.annotateType(AnnotationDescription.Builder.ofType(Deprecated.class).build());
+            }
+            types.add(builder.make().getTypeDescription());
+        }
+
+        InstrumentationSettings settings = new InstrumentationSettings();
+        Map<String, InstrumentationScopeSettings> scopes = new HashMap<>();
+        for (int i = 0; i < ruleCount; i++) {
+            scopes.put("s_" + i, createScope(i, random));
+        }
+        settings.setScopes(scopes);
+
+        Map<String, InstrumentationScope> scopeMap = new InstrumentationScopeResolver().resolve(settings);
+        List<InstrumentationRule> rules = new ArrayList<>();
+        for (Map.Entry<String, InstrumentationScope> scope : scopeMap.entrySet()) {
+            rules.add(InstrumentationRule.builder().name("r" + scope.getKey()).scope(scope.getValue()).build());
+        }
+        configuration = InstrumentationConfiguration.builder().source(settings).rules(rules).build();
+    }
+
+    private String getClassName(int index) {
+        return "com.example.p" + (index % PACKAGE_COUNT) + ".Type" + index;
+    }
+
+    private InstrumentationScopeSettings createScope(int index, Random random) {
+        InstrumentationScopeSettings scope = new InstrumentationScopeSettings();
+        int target = random.nextInt(classCount);
+        switch (index % 10) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+                scope.setType(matcher(getClassName(target), MatcherMode.EQUALS_FULLY));
+                break;
+            case 4:
+            case 5:
+                scope.setInterfaces(Collections.singletonList(matcher("com.example.api.Service" + random.nextInt(SUPER_TYPE_COUNT), MatcherMode.EQUALS_FULLY)));
+                break;
+            case 6:
+                scope.setSuperclass(matcher("com.example.base.Base" + random.nextInt(SUPER_TYPE_COUNT), MatcherMode.EQUALS_FULLY));
+                break;
+            case 7:
+                ElementDescriptionMatcherSettings type = matcher("com.example.p" + random.nextInt(PACKAGE_COUNT) + ".", MatcherMode.STARTS_WITH);
+                NameMatcherSettings annotation = new NameMatcherSettings();
+                annotation.setName(Deprecated.class.getName());
+                type.setAnnotations(Collections.singletonList(annotation));
+                scope.setType(type);
+                break;
+            case 8:
+                scope.setType(matcher(getClassName(target), MatcherMode.STARTS_WITH));
+                break;
+            default:
+                scope.setType(matcher("Type" + target, MatcherMode.ENDS_WITH));
+        }
+        MethodMatcherSettings method = new MethodMatcherSettings();
+        method.setName("run");
+        scope.setMethods(Collections.singletonList(method));
+        return scope;
+    }
+
+    private ElementDescriptionMatcherSettings matcher(String name, MatcherMode mode) {
+        ElementDescriptionMatcherSettings result = new ElementDescriptionMatcherSettings();
+        result.setName(name);
+        result.setMatcherMode(mode);
+        return result;
+    }
+
+    /**
+     * Evaluates the type matchers of all scopes of all rules for each type of the corpus.
+     */
+    @Benchmark
+    public void allScopes(Blackhole blackhole) {
+        for (TypeDescription type : types) {
+            int matches = 0;
+            for (InstrumentationRule rule : configuration.getRules()) {
+                for (InstrumentationScope scope : rule.getScopes()) {
+                    if (scope.getTypeMatcher().matches(type)) {
+                        matches++;
+                    }
+                }
+            }
+            blackhole.consume(matches);
+        }
+    }
+
+    /**
+     * Evaluates only the type matchers of the scopes returned by the scope index for each type of the corpus.
+     */
+    @Benchmark
+    public void indexedScopes(Blackhole blackhole) {
+        int[] matches = new int[1];
+        for (TypeDescription type : types) {
+            matches[0] = 0;
+            configuration.getScopeIndex().forEachCandidate(type, candidate -> {
+                if (candidate.getKey().getTypeMatcher().matches(type)) {
+                    matches[0] += candidate.getValue().size();
+                }
+            });
+            blackhole.consume(matches[0]);
+        }
+    }
+}
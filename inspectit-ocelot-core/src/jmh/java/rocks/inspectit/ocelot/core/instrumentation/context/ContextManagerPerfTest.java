@@ -2,11 +2,18 @@ package rocks.inspectit.ocelot.core.instrumentation.context;
 
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.InternalSettings;
 import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.propagation.PropagationMetaData;
 import rocks.inspectit.ocelot.core.tags.CommonTagsManager;
 
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Run with {@code -PjmhInclude=ContextManagerPerfTest -PjmhProfiler=gc} to report the allocation rate of pooled and unpooled contexts.
+ */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
 @State(Scope.Benchmark)
@@ -16,10 +23,28 @@ public class ContextManagerPerfTest {
 
     private Thread thread;
 
+    @Param(value = {"false", "true"})
+    private boolean contextPooling;
+
     @Setup
     public void init() {
         CommonTagsManager commonTagsManager = new CommonTagsManager();
-        InstrumentationConfigurationResolver configurationResolver = new InstrumentationConfigurationResolver();
+
+        InternalSettings internalSettings = new InternalSettings();
+        internalSettings.setContextPooling(contextPooling);
+        InstrumentationSettings instrumentationSettings = new InstrumentationSettings();
+        instrumentationSettings.setInternal(internalSettings);
+        InstrumentationConfiguration configuration = InstrumentationConfiguration.builder()
+                .source(instrumentationSettings)
+                .propagationMetaData(PropagationMetaData.builder().build())
+                .build();
+
+        InstrumentationConfigurationResolver configurationResolver = new InstrumentationConfigurationResolver() {
+            @Override
+            public InstrumentationConfiguration getCurrentConfig() {
+                return configuration;
+            }
+        };
 
         myContextManager = new ContextManager(commonTagsManager, configurationResolver);
         thread = Thread.currentThread();
@@ -36,4 +61,18 @@ public class ContextManagerPerfTest {
         blackhole.consume(myContextManager.wrap(() -> "test"));
     }
 
+    @Benchmark
+    public void enterNewContext_depth10() {
+        enterNested(10);
+    }
+
+    private void enterNested(int depth) {
+        InspectitContextImpl context = myContextManager.enterNewContext();
+        context.makeActive();
+        if (depth > 1) {
+            enterNested(depth - 1);
+        }
+        context.close();
+    }
+
 }
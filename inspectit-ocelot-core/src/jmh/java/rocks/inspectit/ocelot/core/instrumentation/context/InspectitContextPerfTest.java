@@ -9,6 +9,10 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Compares pooled and unpooled contexts.
+ * Run with {@code -PjmhInclude=InspectitContextPerfTest -PjmhProfiler=gc} to report the allocation rate.
+ */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
 @State(Scope.Benchmark)
@@ -21,6 +25,11 @@ public class InspectitContextPerfTest {
     @Param(value = {"false", "true"})
     private boolean interactWithAppTagContext;
 
+    @Param(value = {"false", "true"})
+    private boolean pooled;
+
+    private InspectitContextPool pool;
+
     @Setup
     public void init() {
         commonTags = new HashMap<>();
@@ -31,11 +40,18 @@ public class InspectitContextPerfTest {
                 .setUpPropagation("propagate-1", PropagationMode.JVM_LOCAL)
                 .setUpPropagation("propagate-2", PropagationMode.JVM_LOCAL)
                 .build();
+
+        pool = pooled ? new InspectitContextPool() : null;
+
+        // data keys are registered when the configuration is resolved
+        for (String key : new String[]{"data-1", "data-2", "propagate-1", "propagate-2", "propagate-3", "propagate-4"}) {
+            DataSlots.getOrCreateSlot(key);
+        }
     }
 
     @Benchmark
     public void rootOnly() {
-        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), dataProperties, interactWithAppTagContext);
+        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), dataProperties, interactWithAppTagContext, pool);
 
         fromCurrent.makeActive();
         fromCurrent.close();
@@ -43,7 +59,7 @@ public class InspectitContextPerfTest {
 
     @Benchmark
     public void rootOnly_with2CommonTags() {
-        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), dataProperties, interactWithAppTagContext);
+        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), dataProperties, interactWithAppTagContext, pool);
 
         fromCurrent.makeActive();
         fromCurrent.close();
@@ -51,7 +67,7 @@ public class InspectitContextPerfTest {
 
     @Benchmark
     public void rootOnly_with2Tags() {
-        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), dataProperties, interactWithAppTagContext);
+        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), dataProperties, interactWithAppTagContext, pool);
         fromCurrent.setData("data-1", "data-1");
         fromCurrent.setData("data-2", "data-2");
         fromCurrent.makeActive();
@@ -60,10 +76,10 @@ public class InspectitContextPerfTest {
 
     @Benchmark
     public void rootPlusOne() {
-        InspectitContextImpl parent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext);
+        InspectitContextImpl parent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext, pool);
         parent.makeActive();
 
-        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext);
+        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext, pool);
         fromCurrent.makeActive();
         fromCurrent.close();
 
@@ -72,10 +88,10 @@ public class InspectitContextPerfTest {
 
     @Benchmark
     public void rootPlusOne_with2UpPropagatedTags() {
-        InspectitContextImpl parent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext);
+        InspectitContextImpl parent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext, pool);
         parent.makeActive();
 
-        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext);
+        InspectitContextImpl fromCurrent = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext, pool);
         fromCurrent.setData("propagate-3", "propagate-3");
         fromCurrent.setData("propagate-4", "propagate-4");
         fromCurrent.makeActive();
@@ -84,5 +100,20 @@ public class InspectitContextPerfTest {
         parent.close();
     }
 
+    @Benchmark
+    public void callTreeDepth10_with2UpPropagatedTags() {
+        enterNested(10);
+    }
+
+    private void enterNested(int depth) {
+        InspectitContextImpl context = InspectitContextImpl.createFromCurrent(commonTags, dataProperties, interactWithAppTagContext, pool);
+        context.setData("propagate-1", depth);
+        context.setData("propagate-2", "propagate-2");
+        context.makeActive();
+        if (depth > 1) {
+            enterNested(depth - 1);
+        }
+        context.close();
+    }
 
 }
@@ -0,0 +1,75 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import io.opencensus.common.Timestamp;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.Tags;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import rocks.inspectit.ocelot.config.model.metrics.definition.ViewDefinitionSettings;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the buffering percentile views with the sketch based percentile views.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class PercentileViewPerfTest {
+
+    /**
+     * The number of points recorded per (simulated) second.
+     */
+    private static final int POINTS_PER_SECOND = 10000;
+
+    /**
+     * The time window of the view, the view contains 150k points at its peak.
+     */
+    private static final long TIME_WINDOW_MILLIS = 15000;
+
+    @Param({"EXACT", "SKETCH"})
+    ViewDefinitionSettings.QuantileMode mode;
+
+    private PercentileView view;
+
+    private TagContext tags;
+
+    private double[] values;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        HashSet<Double> percentiles = new HashSet<>(Arrays.asList(0.5, 0.9, 0.95, 0.99));
+        int bufferLimit = (int) (POINTS_PER_SECOND * TIME_WINDOW_MILLIS / 1000);
+        if (mode == ViewDefinitionSettings.QuantileMode.SKETCH) {
+            view = new SketchPercentileView(true, true, percentiles, Collections.emptySet(), TIME_WINDOW_MILLIS, "view", "ms", "description", bufferLimit, 0.01);
+        } else {
+            view = new PercentileView(true, true, percentiles, Collections.emptySet(), TIME_WINDOW_MILLIS, "view", "ms", "description", bufferLimit);
+        }
+        tags = Tags.getTagger().empty();
+        Random random = new Random(42);
+        values = new double[POINTS_PER_SECOND];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() + 3);
+        }
+    }
+
+    /**
+     * Records the points of 30 seconds, computing the metrics after each 15 seconds.
+     */
+    @Benchmark
+    public void recordAndCompute(Blackhole blackhole) {
+        for (int second = 0; second < 30; second++) {
+            for (int i = 0; i < POINTS_PER_SECOND; i++) {
+                long timeMillis = second * 1000L + i * 1000L / POINTS_PER_SECOND;
+                view.insertValue(values[i], Timestamp.fromMillis(timeMillis), tags);
+            }
+            if ((second + 1) % 15 == 0) {
+                blackhole.consume(view.computeMetrics(Timestamp.fromMillis((second + 1) * 1000L)));
+            }
+        }
+    }
+}
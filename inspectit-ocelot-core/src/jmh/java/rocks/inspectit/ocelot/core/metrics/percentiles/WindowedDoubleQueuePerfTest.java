@@ -1,11 +1,15 @@
 package rocks.inspectit.ocelot.core.metrics.percentiles;
 
-import org.openjdk.jmh.annotations.Benchmark;
-import org.openjdk.jmh.annotations.BenchmarkMode;
-import org.openjdk.jmh.annotations.Mode;
-import org.openjdk.jmh.annotations.OutputTimeUnit;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagKey;
+import io.opencensus.tags.TagValue;
+import io.opencensus.tags.Tags;
+import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 @BenchmarkMode(Mode.AverageTime)
@@ -50,4 +54,42 @@ public class WindowedDoubleQueuePerfTest {
             time += msPerPoint;
         }
     }
+
+    /**
+     * Records points from 8 threads concurrently into a single percentile view.
+     * Compares the throughput of recording into per-thread shards with handing the points over to the async worker.
+     */
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void concurrentRecording(ConcurrentRecordingState state) {
+        state.viewManager.recordMeasurement("my/measure", 42, state.tags);
+    }
+
+    @State(Scope.Benchmark)
+    public static class ConcurrentRecordingState {
+
+        @Param({"SHARDED", "ASYNC"})
+        PercentilesSettings.RecordingMode recordingMode;
+
+        PercentileViewManager viewManager;
+
+        TagContext tags;
+
+        @Setup
+        public void setup() {
+            viewManager = new PercentileViewManager(System::currentTimeMillis);
+            viewManager.init();
+            viewManager.setRecordingMode(recordingMode);
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "", true, true, Arrays.asList(0.5, 0.95), 15000, Collections
+                    .singletonList("tag"), 1000000);
+            tags = Tags.getTagger().emptyBuilder().putLocal(TagKey.create("tag"), TagValue.create("value")).build();
+        }
+
+        @TearDown
+        public void tearDown() {
+            viewManager.destroy();
+        }
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import rocks.inspectit.ocelot.config.model.InspectitConfig;
 import rocks.inspectit.ocelot.config.model.exporters.metrics.InfluxExporterSettings;
+import rocks.inspectit.ocelot.core.exporter.influx.StreamingInfluxExporter;
 import rocks.inspectit.ocelot.core.metrics.percentiles.PercentileViewManager;
 import rocks.inspectit.ocelot.core.service.DynamicallyActivatableService;
 import rocks.inspectit.opencensus.influx.InfluxExporter;
@@ -16,6 +17,7 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Uses the {@link InfluxExporter} to directly push metrics into a given InfluxDB version 1.x .
+ * If the streaming writer is enabled, the {@link StreamingInfluxExporter} is used instead.
  */
 @Slf4j
 @Component
@@ -33,7 +35,12 @@ public class InfluxExporterService extends DynamicallyActivatableService {
     private InfluxExporter activeExporter;
 
     /**
-     * A task regularly invoking activeExporter.export() at the configured interval.
+     * The currently active streaming influx exporter, null if none is active.
+     */
+    private StreamingInfluxExporter activeStreamingExporter;
+
+    /**
+     * A task regularly invoking the export of the active exporter at the configured interval.
      */
     private Future exporterTask;
 
@@ -56,18 +63,25 @@ public class InfluxExporterService extends DynamicallyActivatableService {
         InfluxExporterSettings influx = configuration.getExporters().getMetrics().getInflux();
         log.info("Starting InfluxDB Exporter to '{}:{}' on '{}'", influx.getDatabase(), influx.getRetentionPolicy(), influx
                 .getUrl());
-        activeExporter = InfluxExporter.builder()
-                .url(influx.getUrl())
-                .database(influx.getDatabase())
-                .retention(influx.getRetentionPolicy())
-                .user(influx.getUser())
-                .password(influx.getPassword())
-                .createDatabase(influx.isCreateDatabase())
-                .exportDifference(influx.isCountersAsDifferences())
-                .measurementNameProvider(percentileViewManager::getMeasureNameForSeries)
-                .bufferSize(influx.getBufferSize())
-                .build();
-        exporterTask = executor.scheduleAtFixedRate(activeExporter::export, 0, influx.getExportInterval()
+        Runnable exportTask;
+        if (influx.getStreaming().isEnabled()) {
+            activeStreamingExporter = new StreamingInfluxExporter(influx, percentileViewManager::getMeasureNameForSeries);
+            exportTask = activeStreamingExporter::export;
+        } else {
+            activeExporter = InfluxExporter.builder()
+                    .url(influx.getUrl())
+                    .database(influx.getDatabase())
+                    .retention(influx.getRetentionPolicy())
+                    .user(influx.getUser())
+                    .password(influx.getPassword())
+                    .createDatabase(influx.isCreateDatabase())
+                    .exportDifference(influx.isCountersAsDifferences())
+                    .measurementNameProvider(percentileViewManager::getMeasureNameForSeries)
+                    .bufferSize(influx.getBufferSize())
+                    .build();
+            exportTask = activeExporter::export;
+        }
+        exporterTask = executor.scheduleAtFixedRate(exportTask, 0, influx.getExportInterval()
                 .toMillis(), TimeUnit.MILLISECONDS);
         return true;
     }
@@ -82,6 +96,10 @@ public class InfluxExporterService extends DynamicallyActivatableService {
             activeExporter.close();
             activeExporter = null;
         }
+        if (activeStreamingExporter != null) {
+            activeStreamingExporter.close();
+            activeStreamingExporter = null;
+        }
         return true;
     }
 }
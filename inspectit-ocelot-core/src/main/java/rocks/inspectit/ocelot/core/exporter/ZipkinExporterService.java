@@ -4,21 +4,50 @@ import io.opencensus.exporter.trace.zipkin.ZipkinExporterConfiguration;
 import io.opencensus.exporter.trace.zipkin.ZipkinTraceExporter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import rocks.inspectit.ocelot.config.model.InspectitConfig;
+import rocks.inspectit.ocelot.config.model.exporters.trace.SpanExportPipelineSettings;
+import rocks.inspectit.ocelot.config.model.exporters.trace.SpanSpillSettings;
 import rocks.inspectit.ocelot.config.model.exporters.trace.ZipkinExporterSettings;
+import rocks.inspectit.ocelot.core.exporter.pipeline.*;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
 import rocks.inspectit.ocelot.core.service.DynamicallyActivatableService;
 
 import javax.validation.Valid;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for the ZipKin OpenCensus exporter.
  * Can be dynamically started and stopped using the exporters.trace.zipkin.enabled configuration.
+ * <p>
+ * If the export pipeline is enabled, the spans are sent through a {@link SpanExportPipeline} whose statistics are reported to the {@link SelfMonitoringService}.
  */
 @Component
 @Slf4j
 public class ZipkinExporterService extends DynamicallyActivatableService {
 
+    private static final String OUTCOME_TAG = "outcome";
+
+    private static final String STORAGE_TAG = "storage";
+
+    @Autowired
+    private SelfMonitoringService selfMonitoringService;
+
+    @Autowired
+    private ScheduledExecutorService executor;
+
+    /**
+     * The pipeline used by the exporter, null if the exporter sends the spans directly.
+     */
+    private volatile SpanExportPipeline pipeline;
+
+    private ScheduledFuture<?> reportingTask;
+
     public ZipkinExporterService() {
         super("exporters.tracing.zipkin", "tracing.enabled");
     }
@@ -34,11 +63,20 @@ public class ZipkinExporterService extends DynamicallyActivatableService {
         try {
             ZipkinExporterSettings settings = configuration.getExporters().getTracing().getZipkin();
             log.info("Starting Zipkin Exporter with url '{}'", settings.getUrl());
-            ZipkinTraceExporter.createAndRegister(
-                    ZipkinExporterConfiguration.builder().setV2Url(settings.getUrl()).setServiceName(settings.getServiceName()).build());
+            ZipkinExporterConfiguration.Builder builder = ZipkinExporterConfiguration.builder()
+                    .setV2Url(settings.getUrl())
+                    .setServiceName(settings.getServiceName());
+            if (settings.getPipeline().isEnabled()) {
+                pipeline = createPipeline(settings);
+                builder.setSender(new PipelineZipkinSender(pipeline));
+                long frequencyMillis = configuration.getMetrics().getFrequency().toMillis();
+                reportingTask = executor.scheduleWithFixedDelay(this::reportPipelineStatistics, frequencyMillis, frequencyMillis, TimeUnit.MILLISECONDS);
+            }
+            ZipkinTraceExporter.createAndRegister(builder.build());
             return true;
         } catch (Throwable t) {
             log.error("Error creating Zipkin exporter", t);
+            stopPipeline();
             return false;
         }
     }
@@ -51,6 +89,62 @@ public class ZipkinExporterService extends DynamicallyActivatableService {
         } catch (Throwable t) {
             log.error("Error disabling Zipkin exporter", t);
         }
+        stopPipeline();
         return true;
     }
+
+    private SpanExportPipeline createPipeline(ZipkinExporterSettings settings) {
+        SpanExportPipelineSettings pipelineSettings = settings.getPipeline();
+        DiskSpillBuffer spillBuffer = null;
+        SpanSpillSettings spill = pipelineSettings.getSpill();
+        if (spill.isEnabled()) {
+            try {
+                spillBuffer = new DiskSpillBuffer(Paths.get(spill.getPath()), spill.getMaxSize().toBytes());
+            } catch (Exception e) {
+                log.error("Could not open the spill file '{}', spans will only be buffered in memory", spill.getPath(), e);
+            }
+        }
+        HttpBatchSender sender = new HttpBatchSender(settings.getUrl(), pipelineSettings.getTimeout());
+        return new SpanExportPipeline(pipelineSettings, sender, spillBuffer);
+    }
+
+    private void stopPipeline() {
+        if (reportingTask != null) {
+            reportingTask.cancel(false);
+            reportingTask = null;
+        }
+        if (pipeline != null) {
+            try {
+                pipeline.close();
+                reportPipelineStatistics();
+            } catch (Throwable t) {
+                log.error("Error stopping the Zipkin export pipeline", t);
+            }
+            pipeline = null;
+        }
+    }
+
+    private void reportPipelineStatistics() {
+        SpanExportPipeline currentPipeline = pipeline;
+        if (currentPipeline != null) {
+            try {
+                recordSpans("exported", currentPipeline.getAndResetExportedSpans());
+                recordSpans("dropped", currentPipeline.getAndResetDroppedSpans());
+                recordSpans("spilled", currentPipeline.getAndResetSpilledSpans());
+                selfMonitoringService.recordMeasurement("span-export-pipeline-sent-bytes", currentPipeline.getAndResetSentBytes());
+                recordBufferedBytes("memory", currentPipeline.getBufferedBytes());
+                recordBufferedBytes("disk", currentPipeline.getSpilledBytes());
+            } catch (Exception e) {
+                log.error("Error reporting the statistics of the Zipkin export pipeline", e);
+            }
+        }
+    }
+
+    private void recordSpans(String outcome, long count) {
+        selfMonitoringService.recordMeasurement("span-export-pipeline-spans", count, Collections.singletonMap(OUTCOME_TAG, outcome));
+    }
+
+    private void recordBufferedBytes(String storage, long bytes) {
+        selfMonitoringService.recordMeasurement("span-export-pipeline-buffered-bytes", bytes, Collections.singletonMap(STORAGE_TAG, storage));
+    }
 }
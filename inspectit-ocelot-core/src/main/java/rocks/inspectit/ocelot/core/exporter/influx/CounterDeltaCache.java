@@ -0,0 +1,106 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import io.opencensus.metrics.LabelValue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the last exported value of each counter series, so that only the increase since the previous export is written.
+ * <p>
+ * Only the label values identifying a series and its last value are kept, not the exported metrics themselves.
+ * Series which have not been seen during an export are removed at the end of it.
+ * <p>
+ * This class is not thread safe!
+ */
+public class CounterDeltaCache {
+
+    /**
+     * Maps metric names to the series of the metric, identified by their label values.
+     */
+    private final Map<String, Map<List<LabelValue>, SeriesState>> seriesPerMetric = new HashMap<>();
+
+    /**
+     * Incremented on each export, used for detecting series which have not been seen during an export.
+     */
+    private long generation;
+
+    /**
+     * Marks the start of an export.
+     */
+    public void startExport() {
+        generation++;
+    }
+
+    /**
+     * Removes all series which have not been updated since the last invocation of {@link #startExport()}.
+     */
+    public void finishExport() {
+        Iterator<Map<List<LabelValue>, SeriesState>> metrics = seriesPerMetric.values().iterator();
+        while (metrics.hasNext()) {
+            Map<List<LabelValue>, SeriesState> series = metrics.next();
+            series.values().removeIf(state -> state.generation != generation);
+            if (series.isEmpty()) {
+                metrics.remove();
+            }
+        }
+    }
+
+    /**
+     * Updates the value of a long counter.
+     *
+     * @param metricName  the name of the metric
+     * @param labelValues the label values of the series
+     * @param value       the current value of the counter
+     *
+     * @return the increase since the last export, the value itself if the series is new or the counter has been reset
+     */
+    public long updateAndGetDelta(String metricName, List<LabelValue> labelValues, long value) {
+        SeriesState state = getState(metricName, labelValues);
+        long previous = state.value;
+        state.value = value;
+        return value >= previous ? value - previous : value;
+    }
+
+    /**
+     * Updates the value of a double counter.
+     *
+     * @param metricName  the name of the metric
+     * @param labelValues the label values of the series
+     * @param value       the current value of the counter
+     *
+     * @return the increase since the last export, the value itself if the series is new or the counter has been reset
+     */
+    public double updateAndGetDelta(String metricName, List<LabelValue> labelValues, double value) {
+        SeriesState state = getState(metricName, labelValues);
+        double previous = Double.longBitsToDouble(state.value);
+        state.value = Double.doubleToRawLongBits(value);
+        return value >= previous ? value - previous : value;
+    }
+
+    /**
+     * @return the number of series currently remembered
+     */
+    public int size() {
+        return seriesPerMetric.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private SeriesState getState(String metricName, List<LabelValue> labelValues) {
+        SeriesState state = seriesPerMetric.computeIfAbsent(metricName, name -> new HashMap<>())
+                .computeIfAbsent(labelValues, labels -> new SeriesState());
+        state.generation = generation;
+        return state;
+    }
+
+    private static class SeriesState {
+
+        /**
+         * The last value, for double counters as raw long bits. Zero for new series, which is also 0.0 as double.
+         */
+        private long value;
+
+        private long generation;
+    }
+}
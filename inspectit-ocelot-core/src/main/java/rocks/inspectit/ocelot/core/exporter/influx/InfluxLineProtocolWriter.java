@@ -0,0 +1,316 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import io.opencensus.common.Function;
+import io.opencensus.common.Functions;
+import io.opencensus.metrics.LabelKey;
+import io.opencensus.metrics.LabelValue;
+import io.opencensus.metrics.export.*;
+import io.opencensus.stats.View;
+import io.opencensus.stats.ViewManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializes OpenCensus {@link Metric}s directly into the InfluxDB line protocol.
+ * <p>
+ * Each metric is written into the measurement named after the measure of its view and into a field named after the remainder of the view name.
+ * E.g. the view "my/measure/sum" of the measure "my/measure" is written into the field "sum" of the measurement "my_measure".
+ * Distributions are written as "count" and "sum" fields and as additional lines per bucket, tagged with their upper bound ("le").
+ * <p>
+ * If counters are exported as differences, only the increase of cumulative series since the previous export is written,
+ * and no line is written if a counter has not changed.
+ * <p>
+ * This class is not thread safe!
+ */
+public class InfluxLineProtocolWriter {
+
+    private static final String DEFAULT_FIELD_NAME = "value";
+
+    private static final String COUNT_SUFFIX = "_count";
+
+    private static final String SUM_SUFFIX = "_sum";
+
+    private static final String BUCKET_SUFFIX = "_bucket";
+
+    private static final String BUCKET_TAG = "le";
+
+    private final boolean countersAsDifferences;
+
+    /**
+     * Provides the measure name for series which do not originate from an OpenCensus view, e.g. the series of percentile views.
+     * Returns null for unknown series.
+     */
+    private final java.util.function.Function<String, String> measurementNameProvider;
+
+    private final ViewManager viewManager;
+
+    private final CounterDeltaCache deltaCache = new CounterDeltaCache();
+
+    /**
+     * The exported views for which {@link #viewMeasureNames} has been computed.
+     */
+    private Set<View> exportedViews = Collections.emptySet();
+
+    /**
+     * Maps the names of the exported views to the names of their measures.
+     */
+    private Map<String, String> viewMeasureNames = Collections.emptyMap();
+
+    // state of the line which is currently written, used by the functions for matching the point values
+
+    private LineProtocolBuffer buffer;
+
+    private Metric metric;
+
+    private TimeSeries series;
+
+    private String measurement;
+
+    private String field;
+
+    private long timestamp;
+
+    private final Function<Double, Boolean> writeDouble = this::writeDouble;
+
+    private final Function<Long, Boolean> writeLong = this::writeLong;
+
+    private final Function<Distribution, Boolean> writeDistribution = this::writeDistribution;
+
+    private final Function<Summary, Boolean> writeSummary = this::writeSummary;
+
+    private final Function<Object, Boolean> writeNothing = Functions.returnConstant(false);
+
+    /**
+     * Constructor.
+     *
+     * @param countersAsDifferences   if true, cumulative series are written as the increase since the last export
+     * @param measurementNameProvider provides the measure name for series which are not exported by OpenCensus views, returns null for unknown series
+     * @param viewManager             the view manager used for resolving the measure names of views
+     */
+    public InfluxLineProtocolWriter(boolean countersAsDifferences, java.util.function.Function<String, String> measurementNameProvider, ViewManager viewManager) {
+        this.countersAsDifferences = countersAsDifferences;
+        this.measurementNameProvider = measurementNameProvider;
+        this.viewManager = viewManager;
+    }
+
+    /**
+     * Must be called before the metrics of an export are written.
+     */
+    public void startExport() {
+        deltaCache.startExport();
+        Set<View> currentViews = viewManager.getAllExportedViews();
+        if (currentViews != exportedViews) {
+            Map<String, String> measureNames = new HashMap<>();
+            for (View view : currentViews) {
+                measureNames.put(view.getName().asString(), view.getMeasure().getName());
+            }
+            viewMeasureNames = measureNames;
+            exportedViews = currentViews;
+        }
+    }
+
+    /**
+     * Must be called after all metrics of an export have been written.
+     */
+    public void finishExport() {
+        deltaCache.finishExport();
+        buffer = null;
+        metric = null;
+        series = null;
+    }
+
+    /**
+     * Writes the most recent point of each series of the given metric.
+     *
+     * @param metric          the metric to write
+     * @param timestampMillis the timestamp of the lines in milliseconds
+     * @param buffer          the buffer to write to
+     * @param lineListener    invoked after each completed line, e.g. for sending the buffer if it is full
+     */
+    public void write(Metric metric, long timestampMillis, LineProtocolBuffer buffer, Runnable lineListener) {
+        String metricName = metric.getMetricDescriptor().getName();
+        String measureName = measurementNameProvider.apply(metricName);
+        if (measureName == null) {
+            measureName = viewMeasureNames.get(metricName);
+        }
+        if (measureName != null) {
+            measurement = sanitizeName(measureName);
+            field = sanitizeName(metricName.startsWith(measureName) ? metricName.substring(measureName.length()) : metricName);
+        } else {
+            measurement = sanitizeName(metricName);
+            field = "";
+        }
+        if (field.isEmpty()) {
+            field = DEFAULT_FIELD_NAME;
+        }
+        this.buffer = buffer;
+        this.metric = metric;
+        timestamp = timestampMillis;
+
+        for (TimeSeries timeSeries : metric.getTimeSeriesList()) {
+            List<Point> points = timeSeries.getPoints();
+            if (!points.isEmpty()) {
+                series = timeSeries;
+                int lineStart = buffer.size();
+                writeSeriesKey();
+                boolean written = points.get(points.size() - 1)
+                        .getValue()
+                        .match(writeDouble, writeLong, writeDistribution, writeSummary, writeNothing);
+                if (written) {
+                    lineListener.run();
+                } else {
+                    buffer.truncate(lineStart);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of counter series for which the last value is remembered
+     */
+    public int getCachedCounterSeries() {
+        return deltaCache.size();
+    }
+
+    /**
+     * Converts the given name into a name usable for measurements and fields:
+     * all characters except letters, digits and underscores are replaced by underscores, leading and trailing underscores are removed.
+     */
+    static String sanitizeName(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            result.append(valid ? c : '_');
+        }
+        int start = 0;
+        int end = result.length();
+        while (start < end && result.charAt(start) == '_') {
+            start++;
+        }
+        while (end > start && result.charAt(end - 1) == '_') {
+            end--;
+        }
+        return result.substring(start, end);
+    }
+
+    /**
+     * Writes the measurement and the tags of the current series, followed by the separator to the fields.
+     */
+    private void writeSeriesKey() {
+        writeMeasurementAndTags();
+        buffer.append(' ');
+    }
+
+    /**
+     * Writes the measurement and the tags of the current series including the tag for the given bucket bound,
+     * followed by the separator to the fields.
+     */
+    private void writeBucketSeriesKey(double bound) {
+        writeMeasurementAndTags();
+        buffer.append(',').append(BUCKET_TAG).append('=');
+        if (Double.isInfinite(bound)) {
+            buffer.append("+Inf");
+        } else {
+            buffer.floatValue(bound);
+        }
+        buffer.append(' ');
+    }
+
+    private void writeMeasurementAndTags() {
+        buffer.measurement(measurement);
+        List<LabelKey> keys = metric.getMetricDescriptor().getLabelKeys();
+        List<LabelValue> values = series.getLabelValues();
+        for (int i = 0; i < keys.size() && i < values.size(); i++) {
+            String value = values.get(i).getValue();
+            if (value != null && !value.isEmpty()) {
+                buffer.append(',').key(keys.get(i).getKey()).append('=').key(value);
+            }
+        }
+    }
+
+    private void finishLine() {
+        buffer.append(' ').append(timestamp).append('\n');
+    }
+
+    private boolean isCumulative() {
+        MetricDescriptor.Type type = metric.getMetricDescriptor().getType();
+        return type == MetricDescriptor.Type.CUMULATIVE_INT64 || type == MetricDescriptor.Type.CUMULATIVE_DOUBLE;
+    }
+
+    private Boolean writeDouble(Double boxedValue) {
+        double value = boxedValue;
+        if (countersAsDifferences && isCumulative()) {
+            value = deltaCache.updateAndGetDelta(metric.getMetricDescriptor().getName(), series.getLabelValues(), value);
+            if (value == 0) {
+                return false;
+            }
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return false;
+        }
+        buffer.key(field).append('=').floatValue(value);
+        finishLine();
+        return true;
+    }
+
+    private Boolean writeLong(Long boxedValue) {
+        long value = boxedValue;
+        if (countersAsDifferences && isCumulative()) {
+            value = deltaCache.updateAndGetDelta(metric.getMetricDescriptor().getName(), series.getLabelValues(), value);
+            if (value == 0) {
+                return false;
+            }
+        }
+        buffer.key(field).append('=').integerValue(value);
+        finishLine();
+        return true;
+    }
+
+    private Boolean writeDistribution(Distribution distribution) {
+        buffer.key(field).append(COUNT_SUFFIX).append('=').integerValue(distribution.getCount());
+        double sum = distribution.getSum();
+        if (!Double.isNaN(sum) && !Double.isInfinite(sum)) {
+            buffer.append(',').key(field).append(SUM_SUFFIX).append('=').floatValue(sum);
+        }
+        finishLine();
+
+        Distribution.BucketOptions bucketOptions = distribution.getBucketOptions();
+        List<Distribution.Bucket> buckets = distribution.getBuckets();
+        if (bucketOptions instanceof Distribution.BucketOptions.ExplicitOptions && !buckets.isEmpty()) {
+            List<Double> bounds = ((Distribution.BucketOptions.ExplicitOptions) bucketOptions).getBucketBoundaries();
+            long cumulativeCount = 0;
+            for (int i = 0; i < buckets.size(); i++) {
+                cumulativeCount += buckets.get(i).getCount();
+                writeBucketSeriesKey(i < bounds.size() ? bounds.get(i) : Double.POSITIVE_INFINITY);
+                buffer.key(field).append(BUCKET_SUFFIX).append('=').integerValue(cumulativeCount);
+                finishLine();
+            }
+        }
+        return true;
+    }
+
+    private Boolean writeSummary(Summary summary) {
+        Long count = summary.getCount();
+        Double sum = summary.getSum();
+        boolean validSum = sum != null && !Double.isNaN(sum) && !Double.isInfinite(sum);
+        if (count == null && !validSum) {
+            return false;
+        }
+        if (count != null) {
+            buffer.key(field).append(COUNT_SUFFIX).append('=').integerValue(count);
+        }
+        if (validSum) {
+            if (count != null) {
+                buffer.append(',');
+            }
+            buffer.key(field).append(SUM_SUFFIX).append('=').floatValue(sum);
+        }
+        finishLine();
+        return true;
+    }
+}
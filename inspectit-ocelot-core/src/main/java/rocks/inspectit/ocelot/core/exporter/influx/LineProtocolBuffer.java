@@ -0,0 +1,194 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growing byte buffer for serializing data in the InfluxDB line protocol.
+ * <p>
+ * Strings are written UTF-8 encoded and escaped according to the element of the line they are used for.
+ * Numbers are written without creating intermediate strings where possible.
+ * <p>
+ * This class is not thread safe!
+ */
+public class LineProtocolBuffer {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Doubles with an integral value below this limit are written like longs.
+     */
+    private static final double MAX_INTEGRAL_DOUBLE = 1e15;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Temporary storage for the digits of a number, which are generated from right to left.
+     */
+    private final byte[] digits = new byte[20];
+
+    /**
+     * @return the number of bytes written since the last {@link #reset()}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all bytes written after the given position, e.g. for discarding an incomplete line.
+     *
+     * @param position the new size of the buffer
+     */
+    public void truncate(int position) {
+        size = position;
+    }
+
+    /**
+     * Clears the buffer, the allocated memory is kept for reuse.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * @return the internal array holding the written bytes, only the first {@link #size()} bytes are valid
+     */
+    byte[] array() {
+        return data;
+    }
+
+    /**
+     * Writes a measurement name, escaping commas and spaces.
+     */
+    public LineProtocolBuffer measurement(String name) {
+        writeEscaped(name, false);
+        return this;
+    }
+
+    /**
+     * Writes a tag key, tag value or field key, escaping commas, equal signs and spaces.
+     */
+    public LineProtocolBuffer key(String key) {
+        writeEscaped(key, true);
+        return this;
+    }
+
+    /**
+     * Writes a single ASCII character.
+     */
+    public LineProtocolBuffer append(char character) {
+        ensureCapacity(1);
+        data[size++] = (byte) character;
+        return this;
+    }
+
+    /**
+     * Writes a plain ASCII string without escaping.
+     */
+    public LineProtocolBuffer append(String ascii) {
+        ensureCapacity(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            data[size++] = (byte) ascii.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the decimal representation of the given long.
+     */
+    public LineProtocolBuffer append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        int length = digits.length - position;
+        ensureCapacity(length);
+        System.arraycopy(digits, position, data, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes the given long as integer field value, e.g. "42i".
+     */
+    public LineProtocolBuffer integerValue(long value) {
+        return append(value).append('i');
+    }
+
+    /**
+     * Writes the given finite double as float field value.
+     */
+    public LineProtocolBuffer floatValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL_DOUBLE) {
+            return append((long) value);
+        }
+        return append(Double.toString(value));
+    }
+
+    private void writeEscaped(String value, boolean escapeEquals) {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == ' ' || (escapeEquals && c == '=')) {
+                ensureCapacity(2 + length - i);
+                data[size++] = '\\';
+                data[size++] = (byte) c;
+            } else if (c == '\n' || c == '\r') {
+                // line breaks cannot be escaped in the line protocol
+                ensureCapacity(2 + length - i);
+                data[size++] = '\\';
+                data[size++] = ' ';
+            } else if (c < 0x80) {
+                data[size++] = (byte) c;
+            } else {
+                i = writeNonAscii(value, i);
+                ensureCapacity(length - i);
+            }
+        }
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the non-ASCII character at the given index.
+     *
+     * @return the index of the last character consumed
+     */
+    private int writeNonAscii(String value, int index) {
+        int codePoint = value.codePointAt(index);
+        ensureCapacity(4);
+        if (codePoint < 0x800) {
+            data[size++] = (byte) (0xC0 | (codePoint >> 6));
+        } else if (codePoint < 0x10000) {
+            data[size++] = (byte) (0xE0 | (codePoint >> 12));
+            data[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        } else {
+            data[size++] = (byte) (0xF0 | (codePoint >> 18));
+            data[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            data[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        }
+        data[size++] = (byte) (0x80 | (codePoint & 0x3F));
+        return index + Character.charCount(codePoint) - 1;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (size + additionalBytes > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + additionalBytes));
+        }
+    }
+}
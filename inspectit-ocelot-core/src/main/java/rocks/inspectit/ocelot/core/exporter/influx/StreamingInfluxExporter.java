@@ -0,0 +1,294 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.opencensus.metrics.Metrics;
+import io.opencensus.metrics.export.Metric;
+import io.opencensus.metrics.export.MetricProducer;
+import io.opencensus.metrics.export.MetricProducerManager;
+import io.opencensus.stats.Stats;
+import io.opencensus.stats.ViewManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import rocks.inspectit.ocelot.config.model.exporters.metrics.InfluxExporterSettings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports all metrics of the OpenCensus {@link MetricProducer}s to an InfluxDB 1.x, without using the InfluxDB client.
+ * <p>
+ * The metrics are serialized by a {@link InfluxLineProtocolWriter} into a single reusable {@link LineProtocolBuffer}.
+ * Whenever the buffer exceeds the maximum request size, its content is sent as a separate request, optionally gzip compressed.
+ * Chunks which cannot be written because the InfluxDB is not available are kept (up to the configured buffer size) and written with the next export.
+ */
+@Slf4j
+public class StreamingInfluxExporter implements AutoCloseable {
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final MetricProducerManager metricProducerManager;
+
+    private final InfluxLineProtocolWriter writer;
+
+    private final CloseableHttpClient httpClient;
+
+    private final URI writeUri;
+
+    private final URI queryUri;
+
+    private final String database;
+
+    /**
+     * The value of the authorization header, null if no user is configured.
+     */
+    private final String authorization;
+
+    private final boolean compression;
+
+    private final int maxRequestSize;
+
+    private final int maxFailedChunks;
+
+    private final LineProtocolBuffer buffer = new LineProtocolBuffer();
+
+    /**
+     * Invoked by the writer after each line.
+     */
+    private final Runnable sendChunkIfFull = this::sendChunkIfFull;
+
+    /**
+     * Reused for compressing the chunks.
+     */
+    private final ExposedByteArrayOutputStream compressedBuffer = new ExposedByteArrayOutputStream();
+
+    /**
+     * Chunks which could not be written because the InfluxDB was not available, the oldest one first.
+     */
+    private final Deque<byte[]> failedChunks = new ArrayDeque<>();
+
+    /**
+     * True, if the database does not have to be created (anymore).
+     */
+    private boolean databaseCreated;
+
+    /**
+     * False if writing the last chunk failed. In this case no further attempts are made during the current export.
+     */
+    private boolean available;
+
+    /**
+     * Constructor.
+     *
+     * @param settings                the settings of the exporter
+     * @param measurementNameProvider provides the measure name for series which are not exported by OpenCensus views
+     */
+    public StreamingInfluxExporter(InfluxExporterSettings settings, Function<String, String> measurementNameProvider) {
+        this(settings, measurementNameProvider, Metrics.getExportComponent().getMetricProducerManager(), Stats.getViewManager());
+    }
+
+    @VisibleForTesting
+    StreamingInfluxExporter(InfluxExporterSettings settings, Function<String, String> measurementNameProvider, MetricProducerManager metricProducerManager, ViewManager viewManager) {
+        this.metricProducerManager = metricProducerManager;
+        writer = new InfluxLineProtocolWriter(settings.isCountersAsDifferences(), measurementNameProvider, viewManager);
+        database = settings.getDatabase();
+        compression = settings.getStreaming().isCompression();
+        maxRequestSize = (int) Math.min(Integer.MAX_VALUE, settings.getStreaming().getMaxRequestSize().toBytes());
+        maxFailedChunks = settings.getBufferSize();
+        databaseCreated = !settings.isCreateDatabase();
+        try {
+            String url = StringUtils.removeEnd(settings.getUrl(), "/");
+            writeUri = new URIBuilder(url + "/write")
+                    .addParameter("db", database)
+                    .addParameter("rp", settings.getRetentionPolicy())
+                    .addParameter("precision", "ms")
+                    .build();
+            queryUri = new URIBuilder(url + "/query").build();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid InfluxDB URL: " + settings.getUrl(), e);
+        }
+        if (StringUtils.isNotEmpty(settings.getUser())) {
+            String credentials = settings.getUser() + ":" + StringUtils.defaultString(settings.getPassword());
+            authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        } else {
+            authorization = null;
+        }
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(TIMEOUT_MILLIS)
+                .setConnectionRequestTimeout(TIMEOUT_MILLIS)
+                .setSocketTimeout(TIMEOUT_MILLIS)
+                .build();
+        httpClient = HttpClientBuilder.create().setDefaultRequestConfig(config).build();
+    }
+
+    /**
+     * Writes the current values of all metrics to the InfluxDB.
+     */
+    public synchronized void export() {
+        try {
+            available = true;
+            if (!databaseCreated) {
+                createDatabase();
+            }
+            retryFailedChunks();
+            long timestamp = System.currentTimeMillis();
+            writer.startExport();
+            try {
+                for (MetricProducer producer : metricProducerManager.getAllMetricProducer()) {
+                    for (Metric metric : producer.getMetrics()) {
+                        writer.write(metric, timestamp, buffer, sendChunkIfFull);
+                    }
+                }
+                sendChunk();
+            } finally {
+                writer.finishExport();
+                buffer.reset();
+            }
+        } catch (Exception e) {
+            log.error("Error exporting metrics to InfluxDB", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.error("Error closing the InfluxDB HTTP client", e);
+        }
+    }
+
+    /**
+     * @return the number of chunks kept for being written with the next export
+     */
+    @VisibleForTesting
+    synchronized int getFailedChunkCount() {
+        return failedChunks.size();
+    }
+
+    private void sendChunkIfFull() {
+        if (buffer.size() >= maxRequestSize) {
+            sendChunk();
+        }
+    }
+
+    /**
+     * Sends the content of the buffer and clears it afterwards. If the InfluxDB is not available, a copy of the content is kept.
+     */
+    private void sendChunk() {
+        if (buffer.size() == 0) {
+            return;
+        }
+        if (!available || !trySend(buffer.array(), buffer.size())) {
+            keepFailedChunk(buffer.toByteArray());
+        }
+        buffer.reset();
+    }
+
+    private void retryFailedChunks() {
+        while (available && !failedChunks.isEmpty()) {
+            byte[] chunk = failedChunks.peekFirst();
+            if (trySend(chunk, chunk.length)) {
+                failedChunks.pollFirst();
+            }
+        }
+    }
+
+    private void keepFailedChunk(byte[] chunk) {
+        if (failedChunks.size() >= maxFailedChunks) {
+            failedChunks.pollFirst();
+            log.warn("Dropping metrics because the InfluxDB is not available and the buffer is full");
+        }
+        failedChunks.addLast(chunk);
+    }
+
+    /**
+     * Writes the given line protocol data.
+     *
+     * @return true if the data has been written or has been rejected by the InfluxDB, false if it is not available
+     */
+    private boolean trySend(byte[] data, int length) {
+        try {
+            HttpPost post = new HttpPost(writeUri);
+            ByteArrayEntity entity;
+            if (compression) {
+                compressedBuffer.reset();
+                try (OutputStream out = new GZIPOutputStream(compressedBuffer)) {
+                    out.write(data, 0, length);
+                }
+                entity = new ByteArrayEntity(compressedBuffer.getBuffer(), 0, compressedBuffer.size(), ContentType.TEXT_PLAIN);
+                entity.setContentEncoding("gzip");
+            } else {
+                entity = new ByteArrayEntity(data, 0, length, ContentType.TEXT_PLAIN);
+            }
+            post.setEntity(entity);
+            int statusCode = execute(post);
+            if (statusCode >= 500) {
+                throw new IOException("InfluxDB responded with status code " + statusCode);
+            }
+            if (statusCode >= 300) {
+                log.warn("InfluxDB rejected the metrics with status code {}", statusCode);
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Error writing metrics to InfluxDB: {}", e.getMessage());
+            available = false;
+            return false;
+        }
+    }
+
+    private void createDatabase() {
+        try {
+            HttpPost post = new HttpPost(queryUri);
+            String query = "q=" + URLEncoder.encode("CREATE DATABASE \"" + database.replace("\"", "\\\"") + "\"", "UTF-8");
+            post.setEntity(new ByteArrayEntity(query.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_FORM_URLENCODED));
+            int statusCode = execute(post);
+            if (statusCode >= 200 && statusCode < 300) {
+                databaseCreated = true;
+            } else {
+                log.error("Could not create the InfluxDB database '{}', status code: {}", database, statusCode);
+            }
+        } catch (IOException e) {
+            log.error("Could not create the InfluxDB database '{}': {}", database, e.getMessage());
+        }
+    }
+
+    private int execute(HttpPost post) throws IOException {
+        if (authorization != null) {
+            post.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    /**
+     * Gives access to the internal array, so that the compressed data does not have to be copied.
+     */
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Transport used by the {@link SpanExportPipeline} for delivering batches to a trace backend.
+ */
+public interface BatchSender extends Closeable {
+
+    /**
+     * Sends the given batch to the backend.
+     *
+     * @param batch the batch to send
+     *
+     * @return true if the batch was accepted, false if it was rejected by the backend and should not be sent again
+     *
+     * @throws IOException if the backend is not available, in this case the batch is sent again later
+     */
+    boolean send(SpanBatch batch) throws IOException;
+}
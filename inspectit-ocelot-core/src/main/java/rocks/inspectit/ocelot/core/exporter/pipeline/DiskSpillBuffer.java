@@ -0,0 +1,295 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A FIFO-queue of {@link SpanBatch}es, stored in a memory-mapped file which is used as ring buffer.
+ * <p>
+ * The file starts with a header holding the state of the queue, followed by the data region containing the records.
+ * Each record consists of the payload length, the span count, a flags byte and the payload itself.
+ * If a record does not fit into the remaining space at the end of the data region, a wrap marker is written and the record is stored at the beginning.
+ * <p>
+ * As the header is part of the mapped file, the stored batches survive a restart of the JVM.
+ * If the file cannot be restored (e.g. because the configured size has changed), its content is discarded.
+ * <p>
+ * This class is thread safe.
+ */
+@Slf4j
+public class DiskSpillBuffer implements Closeable {
+
+    private static final int MAGIC = 0x4F435342;
+
+    @VisibleForTesting
+    static final int HEADER_SIZE = 32;
+
+    private static final int CAPACITY_OFFSET = 4;
+
+    private static final int READ_POSITION_OFFSET = 8;
+
+    private static final int WRITE_POSITION_OFFSET = 12;
+
+    private static final int BATCH_COUNT_OFFSET = 16;
+
+    private static final int SPAN_COUNT_OFFSET = 20;
+
+    private static final int USED_BYTES_OFFSET = 24;
+
+    /**
+     * The size of the record header: the payload length, the span count and the flags.
+     */
+    @VisibleForTesting
+    static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES + 1;
+
+    private static final int WRAP_MARKER = -1;
+
+    private static final byte FLAG_COMPRESSED = 1;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The size of the data region in bytes.
+     */
+    private final int capacity;
+
+    /**
+     * The offset of the oldest record within the data region.
+     */
+    private int readPosition;
+
+    /**
+     * The offset within the data region at which the next record is written.
+     */
+    private int writePosition;
+
+    private int batchCount;
+
+    private int spanCount;
+
+    /**
+     * The number of bytes occupied by the stored records, including their headers.
+     */
+    private int usedBytes;
+
+    private boolean closed;
+
+    /**
+     * Opens the buffer stored in the given file. The file and its parent directories are created if they do not exist.
+     *
+     * @param path    the file to use
+     * @param maxSize the maximum size of the file in bytes, at most {@link Integer#MAX_VALUE}
+     *
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public DiskSpillBuffer(Path path, long maxSize) throws IOException {
+        long fileSize = Math.min(maxSize, Integer.MAX_VALUE);
+        if (fileSize < HEADER_SIZE + RECORD_HEADER_SIZE + 1) {
+            throw new IllegalArgumentException("The size of the spill file is too small: " + maxSize + " bytes");
+        }
+        capacity = (int) fileSize - HEADER_SIZE;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > fileSize) {
+                channel.truncate(fileSize);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (!restoreHeader()) {
+            readPosition = 0;
+            writePosition = 0;
+            batchCount = 0;
+            spanCount = 0;
+            usedBytes = 0;
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            writeHeader();
+        } else if (batchCount > 0) {
+            log.info("Restored {} spans from spill file '{}'", spanCount, path);
+        }
+    }
+
+    /**
+     * Stores the given batch at the end of the queue.
+     *
+     * @param batch the batch to store
+     *
+     * @return true if the batch was stored, false if there is not enough space left or the buffer has been closed
+     */
+    public synchronized boolean offer(SpanBatch batch) {
+        if (closed) {
+            return false;
+        }
+        byte[] payload = batch.getPayload();
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        int position = reserve(recordSize);
+        if (position < 0) {
+            return false;
+        }
+        int offset = HEADER_SIZE + position;
+        buffer.putInt(offset, payload.length);
+        buffer.putInt(offset + Integer.BYTES, batch.getSpanCount());
+        buffer.put(offset + 2 * Integer.BYTES, batch.isCompressed() ? FLAG_COMPRESSED : 0);
+        ByteBuffer payloadBuffer = buffer.duplicate();
+        payloadBuffer.position(offset + RECORD_HEADER_SIZE);
+        payloadBuffer.put(payload);
+        writePosition = position + recordSize;
+        batchCount++;
+        spanCount += batch.getSpanCount();
+        usedBytes += recordSize;
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * @return the oldest batch in the queue without removing it, null if the queue is empty or the buffer has been closed
+     */
+    public synchronized SpanBatch peek() {
+        if (closed || batchCount == 0) {
+            return null;
+        }
+        int offset = HEADER_SIZE + getRecordPosition();
+        int length = buffer.getInt(offset);
+        int spans = buffer.getInt(offset + Integer.BYTES);
+        boolean compressed = (buffer.get(offset + 2 * Integer.BYTES) & FLAG_COMPRESSED) != 0;
+        byte[] payload = new byte[length];
+        ByteBuffer payloadBuffer = buffer.duplicate();
+        payloadBuffer.position(offset + RECORD_HEADER_SIZE);
+        payloadBuffer.get(payload);
+        return new SpanBatch(payload, spans, compressed);
+    }
+
+    /**
+     * Removes the oldest batch from the queue.
+     */
+    public synchronized void remove() {
+        if (closed || batchCount == 0) {
+            return;
+        }
+        int position = getRecordPosition();
+        int recordSize = RECORD_HEADER_SIZE + buffer.getInt(HEADER_SIZE + position);
+        spanCount -= buffer.getInt(HEADER_SIZE + position + Integer.BYTES);
+        usedBytes -= recordSize;
+        batchCount--;
+        if (batchCount == 0) {
+            readPosition = 0;
+            writePosition = 0;
+        } else {
+            readPosition = position + recordSize;
+        }
+        writeHeader();
+    }
+
+    /**
+     * @return the number of batches in the queue
+     */
+    public synchronized int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return the number of spans contained in the stored batches
+     */
+    public synchronized int getSpanCount() {
+        return spanCount;
+    }
+
+    /**
+     * @return the number of bytes occupied by the stored batches
+     */
+    public synchronized int getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Writes the content of the buffer to the file and releases the file. The stored batches remain in the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Finds the position for a new record of the given size.
+     * If the record has to be stored at the beginning of the data region, the wrap marker is written.
+     *
+     * @param recordSize the size of the record including its header
+     *
+     * @return the position within the data region, -1 if there is not enough space
+     */
+    private int reserve(int recordSize) {
+        if (batchCount == 0) {
+            readPosition = 0;
+            writePosition = 0;
+            return recordSize <= capacity ? 0 : -1;
+        }
+        if (writePosition > readPosition) {
+            if (capacity - writePosition >= recordSize) {
+                return writePosition;
+            }
+            if (readPosition >= recordSize) {
+                if (capacity - writePosition >= Integer.BYTES) {
+                    buffer.putInt(HEADER_SIZE + writePosition, WRAP_MARKER);
+                }
+                return 0;
+            }
+            return -1;
+        }
+        // the free space lies between the write and the read position, if they are equal the buffer is full
+        return readPosition - writePosition >= recordSize ? writePosition : -1;
+    }
+
+    /**
+     * @return the position of the oldest record, taking a wrap marker or the end of the data region into account
+     */
+    private int getRecordPosition() {
+        if (capacity - readPosition < RECORD_HEADER_SIZE || buffer.getInt(HEADER_SIZE + readPosition) == WRAP_MARKER) {
+            return 0;
+        }
+        return readPosition;
+    }
+
+    private boolean restoreHeader() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(CAPACITY_OFFSET) != capacity) {
+            return false;
+        }
+        readPosition = buffer.getInt(READ_POSITION_OFFSET);
+        writePosition = buffer.getInt(WRITE_POSITION_OFFSET);
+        batchCount = buffer.getInt(BATCH_COUNT_OFFSET);
+        spanCount = buffer.getInt(SPAN_COUNT_OFFSET);
+        usedBytes = buffer.getInt(USED_BYTES_OFFSET);
+        return readPosition >= 0 && readPosition <= capacity
+                && writePosition >= 0 && writePosition <= capacity
+                && batchCount >= 0 && spanCount >= 0 && usedBytes >= 0 && usedBytes <= capacity;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(READ_POSITION_OFFSET, readPosition);
+        buffer.putInt(WRITE_POSITION_OFFSET, writePosition);
+        buffer.putInt(BATCH_COUNT_OFFSET, batchCount);
+        buffer.putInt(SPAN_COUNT_OFFSET, spanCount);
+        buffer.putInt(USED_BYTES_OFFSET, usedBytes);
+    }
+}
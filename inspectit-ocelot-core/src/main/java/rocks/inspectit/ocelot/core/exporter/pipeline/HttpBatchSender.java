@@ -0,0 +1,69 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sends batches as JSON via HTTP POST requests to a fixed URL.
+ * Compressed batches are sent with the "gzip" content encoding.
+ */
+public class HttpBatchSender implements BatchSender {
+
+    private final String url;
+
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Constructor.
+     *
+     * @param url     the URL to which the batches are sent
+     * @param timeout the timeout used for connecting and for waiting for the response
+     */
+    public HttpBatchSender(String url, Duration timeout) {
+        this.url = url;
+        int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .setSocketTimeout(timeoutMillis)
+                .build();
+        httpClient = HttpClientBuilder.create().setDefaultRequestConfig(config).build();
+    }
+
+    @Override
+    public boolean send(SpanBatch batch) throws IOException {
+        HttpPost post = new HttpPost(url);
+        ByteArrayEntity entity = new ByteArrayEntity(batch.getPayload(), ContentType.APPLICATION_JSON);
+        if (batch.isCompressed()) {
+            entity.setContentEncoding("gzip");
+        }
+        post.setEntity(entity);
+
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode >= 200 && statusCode < 300) {
+                return true;
+            }
+            if (statusCode >= 500 || statusCode == HttpStatus.SC_REQUEST_TIMEOUT || statusCode == 429) {
+                throw new IOException("The backend is not available, it responded with status code " + statusCode);
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
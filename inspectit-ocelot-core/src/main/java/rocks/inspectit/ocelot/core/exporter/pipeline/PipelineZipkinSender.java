@@ -0,0 +1,43 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import zipkin2.Call;
+import zipkin2.codec.Encoding;
+import zipkin2.reporter.Sender;
+
+import java.util.List;
+
+/**
+ * Zipkin {@link Sender} which passes the spans encoded by the Zipkin exporter to a {@link SpanExportPipeline}
+ * instead of sending them directly.
+ */
+public class PipelineZipkinSender extends Sender {
+
+    private final SpanExportPipeline pipeline;
+
+    public PipelineZipkinSender(SpanExportPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public Encoding encoding() {
+        return Encoding.JSON;
+    }
+
+    @Override
+    public int messageMaxBytes() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int messageSizeInBytes(List<byte[]> encodedSpans) {
+        return Encoding.JSON.listSizeInBytes(encodedSpans);
+    }
+
+    @Override
+    public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+        for (byte[] span : encodedSpans) {
+            pipeline.add(span);
+        }
+        return Call.create(null);
+    }
+}
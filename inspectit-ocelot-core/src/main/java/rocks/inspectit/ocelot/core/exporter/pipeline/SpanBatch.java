@@ -0,0 +1,25 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import lombok.Value;
+
+/**
+ * A batch of spans encoded as a single message, ready for being sent to a trace backend.
+ */
+@Value
+public class SpanBatch {
+
+    /**
+     * The encoded message.
+     */
+    private byte[] payload;
+
+    /**
+     * The number of spans contained in the message.
+     */
+    private int spanCount;
+
+    /**
+     * True, if the payload is compressed using gzip.
+     */
+    private boolean compressed;
+}
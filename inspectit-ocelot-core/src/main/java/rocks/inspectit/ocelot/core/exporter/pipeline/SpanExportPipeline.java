@@ -0,0 +1,384 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import rocks.inspectit.ocelot.config.model.exporters.trace.SpanExportPipelineSettings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Agent-side pipeline for sending JSON encoded spans to a trace backend.
+ * <p>
+ * Spans are collected in memory and periodically combined into batches (JSON arrays), which are optionally compressed and sent via a {@link BatchSender}.
+ * A flush is triggered early when a full batch is available.
+ * The memory used for spans and batches which have not been sent yet is bounded.
+ * <p>
+ * If the backend is not available, the batches are kept and sent again with the next flush.
+ * If a {@link DiskSpillBuffer} is given, these batches are moved to disk instead, as well as batches which do not fit into memory anymore.
+ * Spilled batches are replayed as soon as the backend is available again.
+ * Spans which can neither be kept in memory nor on disk are dropped, the exporting threads are never blocked.
+ * <p>
+ * The flushes are executed by a dedicated thread owned by the pipeline, so that a slow backend does not block the shared agent executor.
+ */
+@Slf4j
+public class SpanExportPipeline implements Closeable {
+
+    private final BatchSender sender;
+
+    /**
+     * The buffer for spilling batches to disk, null if spilling is disabled.
+     */
+    private final DiskSpillBuffer spillBuffer;
+
+    private final ScheduledExecutorService executor;
+
+    private final int batchSize;
+
+    private final boolean compression;
+
+    private final long maxBufferedBytes;
+
+    /**
+     * Guards {@link #pendingSpans}, {@link #queuedBatches} and {@link #bufferedBytes}.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Ensures that only one flush is executed at a time.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * The spans which have not been combined into a batch yet.
+     */
+    private final List<byte[]> pendingSpans = new ArrayList<>();
+
+    /**
+     * The batches kept in memory which have not been sent yet, the oldest one first.
+     */
+    private final Deque<SpanBatch> queuedBatches = new ArrayDeque<>();
+
+    /**
+     * The memory used by the pending spans, the queued batches and the batch which is currently being sent.
+     */
+    private long bufferedBytes;
+
+    /**
+     * True if a flush has been submitted to the executor due to a full batch but not started yet.
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * False if the last attempt to send a batch failed, used for logging changes of the availability only once.
+     */
+    private boolean backendAvailable = true;
+
+    private volatile boolean closed;
+
+    private final ScheduledFuture<?> flushTask;
+
+    private final LongAdder exportedSpans = new LongAdder();
+
+    private final LongAdder droppedSpans = new LongAdder();
+
+    private final LongAdder spilledSpans = new LongAdder();
+
+    private final LongAdder sentBytes = new LongAdder();
+
+    /**
+     * Creates and starts a new pipeline, which flushes using its own thread.
+     *
+     * @param settings    the settings to use
+     * @param sender      the sender used for delivering the batches, closed together with this pipeline
+     * @param spillBuffer the buffer used for storing batches on disk, closed together with this pipeline. Can be null.
+     */
+    public SpanExportPipeline(SpanExportPipelineSettings settings, BatchSender sender, DiskSpillBuffer spillBuffer) {
+        this(settings, sender, spillBuffer, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setDaemon(true);
+            thread.setName("inspectit-span-export-pipeline");
+            return thread;
+        }));
+    }
+
+    /**
+     * Creates and starts a new pipeline. Package private for testing.
+     *
+     * @param settings    the settings to use
+     * @param sender      the sender used for delivering the batches, closed together with this pipeline
+     * @param spillBuffer the buffer used for storing batches on disk, closed together with this pipeline. Can be null.
+     * @param executor    the executor used for flushing, shut down together with this pipeline
+     */
+    SpanExportPipeline(SpanExportPipelineSettings settings, BatchSender sender, DiskSpillBuffer spillBuffer, ScheduledExecutorService executor) {
+        this.sender = sender;
+        this.spillBuffer = spillBuffer;
+        this.executor = executor;
+        batchSize = settings.getBatchSize();
+        compression = settings.isCompression();
+        maxBufferedBytes = settings.getMaxBufferedBytes().toBytes();
+        long intervalMillis = settings.getFlushInterval().toMillis();
+        flushTask = executor.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a JSON encoded span to the pipeline.
+     *
+     * @param encodedSpan the span to add
+     *
+     * @return true if the span was added, false if it was dropped because there is no space left
+     */
+    public boolean add(byte[] encodedSpan) {
+        boolean batchFull;
+        synchronized (lock) {
+            if (closed || (bufferedBytes + encodedSpan.length > maxBufferedBytes && !makeRoom(encodedSpan.length))) {
+                droppedSpans.increment();
+                return false;
+            }
+            pendingSpans.add(encodedSpan);
+            bufferedBytes += encodedSpan.length;
+            batchFull = pendingSpans.size() >= batchSize;
+        }
+        if (batchFull && flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // the pipeline is being closed, the remaining spans are handled by the closing flush
+                flushScheduled.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends all buffered spans and afterwards the spilled batches.
+     * If the backend is not available, the remaining batches are spilled to disk if enabled or kept in memory otherwise.
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        synchronized (flushLock) {
+            if (closed) {
+                return;
+            }
+            synchronized (lock) {
+                sealPendingSpans();
+            }
+            SpanBatch batch;
+            while ((batch = pollQueuedBatch()) != null) {
+                boolean sent = trySend(batch);
+                synchronized (lock) {
+                    if (sent) {
+                        bufferedBytes -= batch.getPayload().length;
+                    } else {
+                        queuedBatches.addFirst(batch);
+                        spillQueuedBatches();
+                        return;
+                    }
+                }
+            }
+            if (spillBuffer != null) {
+                while ((batch = spillBuffer.peek()) != null && trySend(batch)) {
+                    spillBuffer.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the pipeline. The buffered spans are sent a last time, spans which cannot be sent are spilled to disk if enabled.
+     */
+    @Override
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        executor.shutdown();
+        flush();
+        synchronized (flushLock) {
+            synchronized (lock) {
+                closed = true;
+                sealPendingSpans();
+                spillQueuedBatches();
+                droppedSpans.add(queuedBatches.stream().mapToLong(SpanBatch::getSpanCount).sum());
+                queuedBatches.clear();
+                bufferedBytes = 0;
+            }
+            try {
+                sender.close();
+                if (spillBuffer != null) {
+                    spillBuffer.close();
+                }
+            } catch (IOException e) {
+                log.error("Error closing the span export pipeline", e);
+            }
+        }
+    }
+
+    /**
+     * @return the memory currently used by spans which have not been sent yet
+     */
+    public long getBufferedBytes() {
+        synchronized (lock) {
+            return bufferedBytes;
+        }
+    }
+
+    /**
+     * @return the disk space currently used by spilled batches, 0 if spilling is disabled
+     */
+    public long getSpilledBytes() {
+        return spillBuffer == null ? 0 : spillBuffer.getUsedBytes();
+    }
+
+    /**
+     * @return the number of spans which have been accepted by the backend since the last invocation
+     */
+    public long getAndResetExportedSpans() {
+        return exportedSpans.sumThenReset();
+    }
+
+    /**
+     * @return the number of spans which have been dropped since the last invocation
+     */
+    public long getAndResetDroppedSpans() {
+        return droppedSpans.sumThenReset();
+    }
+
+    /**
+     * @return the number of spans which have been spilled to disk since the last invocation
+     */
+    public long getAndResetSpilledSpans() {
+        return spilledSpans.sumThenReset();
+    }
+
+    /**
+     * @return the number of bytes which have been sent to the backend since the last invocation
+     */
+    public long getAndResetSentBytes() {
+        return sentBytes.sumThenReset();
+    }
+
+    private SpanBatch pollQueuedBatch() {
+        synchronized (lock) {
+            return queuedBatches.pollFirst();
+        }
+    }
+
+    /**
+     * Sends the given batch and updates the statistics accordingly.
+     *
+     * @return false if the backend is not available, true otherwise
+     */
+    private boolean trySend(SpanBatch batch) {
+        try {
+            if (sender.send(batch)) {
+                exportedSpans.add(batch.getSpanCount());
+                sentBytes.add(batch.getPayload().length);
+            } else {
+                log.warn("The trace backend rejected a batch of {} spans", batch.getSpanCount());
+                droppedSpans.add(batch.getSpanCount());
+            }
+            if (!backendAvailable) {
+                log.info("The trace backend is available again");
+                backendAvailable = true;
+            }
+            return true;
+        } catch (Exception e) {
+            if (backendAvailable) {
+                log.warn("The trace backend is not available, buffering spans until it is available again: {}", e.getMessage());
+                backendAvailable = false;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Tries to free the given amount of memory by spilling batches to disk. Must be called while holding {@link #lock}.
+     *
+     * @return true if enough memory is available afterwards
+     */
+    private boolean makeRoom(int requiredBytes) {
+        if (spillBuffer == null) {
+            return false;
+        }
+        sealPendingSpans();
+        while (bufferedBytes + requiredBytes > maxBufferedBytes && !queuedBatches.isEmpty()) {
+            if (!spill(queuedBatches.peekFirst())) {
+                return false;
+            }
+            bufferedBytes -= queuedBatches.pollFirst().getPayload().length;
+        }
+        return bufferedBytes + requiredBytes <= maxBufferedBytes;
+    }
+
+    /**
+     * Moves the queued batches to disk, starting with the oldest one, until the disk is full.
+     * Must be called while holding {@link #lock}.
+     */
+    private void spillQueuedBatches() {
+        if (spillBuffer != null) {
+            while (!queuedBatches.isEmpty() && spill(queuedBatches.peekFirst())) {
+                bufferedBytes -= queuedBatches.pollFirst().getPayload().length;
+            }
+        }
+    }
+
+    private boolean spill(SpanBatch batch) {
+        if (spillBuffer.offer(batch)) {
+            spilledSpans.add(batch.getSpanCount());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Combines the pending spans into batches and appends them to the queue. Must be called while holding {@link #lock}.
+     */
+    private void sealPendingSpans() {
+        while (!pendingSpans.isEmpty()) {
+            List<byte[]> spans = pendingSpans.subList(0, Math.min(batchSize, pendingSpans.size()));
+            SpanBatch batch = encode(spans);
+            for (byte[] span : spans) {
+                bufferedBytes -= span.length;
+            }
+            bufferedBytes += batch.getPayload().length;
+            queuedBatches.addLast(batch);
+            spans.clear();
+        }
+    }
+
+    private SpanBatch encode(List<byte[]> spans) {
+        int size = 1 + spans.size();
+        for (byte[] span : spans) {
+            size += span.length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (OutputStream out = compression ? new GZIPOutputStream(bytes) : bytes) {
+            out.write('[');
+            for (int i = 0; i < spans.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(spans.get(i));
+            }
+            out.write(']');
+        } catch (IOException e) {
+            // cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return new SpanBatch(bytes.toByteArray(), spans.size(), compression);
+    }
+}
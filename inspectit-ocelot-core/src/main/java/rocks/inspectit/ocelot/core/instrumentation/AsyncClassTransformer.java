@@ -22,10 +22,13 @@ import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigu
 import rocks.inspectit.ocelot.core.instrumentation.config.model.ClassInstrumentationConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationRule;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationScope;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.MethodHookConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.event.ClassInstrumentedEvent;
 import rocks.inspectit.ocelot.core.instrumentation.event.IClassDefinitionListener;
 import rocks.inspectit.ocelot.core.instrumentation.event.TransformerShutdownEvent;
+import rocks.inspectit.ocelot.core.instrumentation.hook.CapturedValues;
 import rocks.inspectit.ocelot.core.instrumentation.hook.DispatchHookAdvices;
+import rocks.inspectit.ocelot.core.instrumentation.hook.HookManager;
 import rocks.inspectit.ocelot.core.instrumentation.injection.JigsawModuleInstrumenter;
 import rocks.inspectit.ocelot.core.instrumentation.special.ClassLoaderDelegation;
 import rocks.inspectit.ocelot.core.instrumentation.special.SpecialSensor;
@@ -73,6 +76,9 @@ public class AsyncClassTransformer implements ClassFileTransformer {
     @Autowired
     private ClassLoaderDelegation classLoaderDelegation;
 
+    @Autowired
+    private HookManager hookManager;
+
     /**
      * Detects if the instrumenter is in the process of shutting down.
      * When it is shutting down, no new instrumentations are added anymore, instead all existing instrumentations are removed.
@@ -96,7 +102,7 @@ public class AsyncClassTransformer implements ClassFileTransformer {
     @Override
     public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] bytecode) throws IllegalClassFormatException {
         if (classBeingRedefined == null) { // class is not loaded yet! we only redefine only loaded classes to prevent blocking
-            classDefinitionListeners.forEach(lis -> lis.onNewClassDefined(className, loader));
+            classDefinitionListeners.forEach(lis -> lis.onNewClassDefined(className, loader, bytecode));
             return bytecode; //leave the class unchanged for now
 
         }
@@ -196,6 +202,7 @@ public class AsyncClassTransformer implements ClassFileTransformer {
             if (classConf.isNoInstrumentation()) {
                 // we do not want to instrument this class -> we return the original bytecode
                 instrumentedBytecode = bytecode;
+                hookManager.setCapturedValues(targetClass, Collections.emptyMap());
             } else {
                 if (log.isDebugEnabled()) {
                     log.debug("Redefining class: {}", type.getName());
@@ -212,14 +219,20 @@ public class AsyncClassTransformer implements ClassFileTransformer {
                 }
 
                 // Apply the instrumentation hook
+                Map<String, CapturedValues> capturedValues = new HashMap<>();
                 ElementMatcher.Junction<MethodDescription> methodMatcher = getCombinedMethodMatcher(targetClass, classConf);
                 if (methodMatcher != null) {
-                    builder = DispatchHookAdvices.adviceOn(builder, methodMatcher);
+                    Map<String, MethodHookConfiguration> hookConfigs = getHookConfigurationsBySignature(targetClass);
+                    builder = DispatchHookAdvices.adviceOn(builder, methodMatcher,
+                            method -> hookManager.getHookId(targetClass, CoreUtils.getSignature(method)),
+                            method -> capturedValues.computeIfAbsent(CoreUtils.getSignature(method),
+                                    signature -> hookManager.getValuesToCapture(targetClass, signature, hookConfigs.get(signature))));
                 }
 
                 // "Compile" the builder to bytecode
                 DynamicType.Unloaded<?> instrumentedClass = builder.make();
                 instrumentedBytecode = instrumentedClass.getBytes();
+                hookManager.setCapturedValues(targetClass, capturedValues);
             }
 
             if (!shuttingDown) {
@@ -235,6 +248,17 @@ public class AsyncClassTransformer implements ClassFileTransformer {
         }
     }
 
+    /**
+     * Resolves the hook configurations of all methods of the given class, which are used to decide which values
+     * the instrumentation has to capture for each method.
+     */
+    private Map<String, MethodHookConfiguration> getHookConfigurationsBySignature(Class<?> clazz) {
+        Map<String, MethodHookConfiguration> result = new HashMap<>();
+        configResolver.getHookConfigurations(clazz)
+                .forEach((method, config) -> result.put(CoreUtils.getSignature(method), config));
+        return result;
+    }
+
     /**
      * Combining all method matchers of the matching rules in order to prevent multiple injections of the advice.
      */
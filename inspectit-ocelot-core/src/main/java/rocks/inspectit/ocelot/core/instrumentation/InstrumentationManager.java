@@ -48,12 +48,29 @@ public class InstrumentationManager {
     public boolean doesClassRequireRetransformation(Class<?> clazz) {
         try (val sm = selfMonitoring.withDurationSelfMonitoring("InstrumentationManager")) {
             ClassInstrumentationConfiguration requestedConfig = configResolver.getClassInstrumentationConfiguration(clazz);
-            val activeConfig = activeInstrumentations.getIfPresent(clazz);
-            if (activeConfig == null) {
-                return !requestedConfig.isNoInstrumentation();
-            } else {
-                return !activeConfig.isSameAs(clazz, requestedConfig);
-            }
+            return isRetransformationRequired(clazz, requestedConfig);
+        }
+    }
+
+    /**
+     * Same as {@link #doesClassRequireRetransformation(Class)}, but using an already resolved instrumentation configuration.
+     *
+     * @param clazz           the class to check
+     * @param requestedConfig the instrumentation configuration resolved for the class
+     * @return true, if the applied instrumentation differs from the given one
+     */
+    public boolean doesClassRequireRetransformation(Class<?> clazz, ClassInstrumentationConfiguration requestedConfig) {
+        try (val sm = selfMonitoring.withDurationSelfMonitoring("InstrumentationManager")) {
+            return isRetransformationRequired(clazz, requestedConfig);
+        }
+    }
+
+    private boolean isRetransformationRequired(Class<?> clazz, ClassInstrumentationConfiguration requestedConfig) {
+        val activeConfig = activeInstrumentations.getIfPresent(clazz);
+        if (activeConfig == null) {
+            return !requestedConfig.isNoInstrumentation();
+        } else {
+            return !activeConfig.isSameAs(clazz, requestedConfig);
         }
     }
 
@@ -8,6 +8,8 @@ import io.opencensus.common.Scope;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,8 @@ import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
 import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
 import rocks.inspectit.ocelot.core.instrumentation.config.event.InstrumentationConfigurationChangedEvent;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.ClassInstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfigurationDiff;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.MethodHookConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.event.ClassInstrumentedEvent;
 import rocks.inspectit.ocelot.core.instrumentation.event.IClassDiscoveryListener;
 import rocks.inspectit.ocelot.core.instrumentation.event.TransformerShutdownEvent;
@@ -32,7 +36,7 @@ import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Field;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 /**
  * This class is responsible for making sure that for every class the instrumentation and hooking
@@ -41,11 +45,26 @@ import java.util.concurrent.TimeUnit;
  * Whenever a classes instrumentation configuration might have changes, this class gets put into this services working queue.
  * This service is then responsible for filtering out the classes whose instrumentation actually has
  * changed and triggers the retransform for these.
+ * <p>
+ * If a {@link InternalSettings#getClassAnalysisParallelism()} greater than one is configured, the instrumentation and hook
+ * configurations of the classes of a batch are resolved concurrently by a {@link ForkJoinPool}.
+ * Applying the results, i.e. updating the hooks and retransforming the classes, is always done sequentially.
  */
 @Service
 @Slf4j
 public class InstrumentationTriggerer implements IClassDiscoveryListener {
 
+    /**
+     * The number of classes analysed per thread before the results are applied.
+     */
+    private static final int CHUNK_SIZE_PER_THREAD = 16;
+
+    private static final ForkJoinPool.ForkJoinWorkerThreadFactory ANALYSIS_THREAD_FACTORY = pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("inspectit-class-analysis-" + thread.getPoolIndex());
+        return thread;
+    };
+
     @Autowired
     private BatchJobExecutorService executor;
 
@@ -85,6 +104,11 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
 
     private BatchJobExecutorService.BatchJob<BatchSize> classInstrumentationJob;
 
+    /**
+     * The pool used for analysing the classes of a batch concurrently, null if the classes are analysed sequentially.
+     */
+    private volatile ForkJoinPool analysisPool;
+
 
     @PostConstruct
     private void init() {
@@ -92,6 +116,7 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
         val batchSizes = new BatchSize(conf.getClassConfigurationCheckBatchSize(), conf.getClassRetransformBatchSize());
         Duration delay = conf.getInterBatchDelay();
 
+        updateAnalysisPool(conf.getClassAnalysisParallelism());
         classInstrumentationJob = executor.startJob(this::checkClassesForConfigurationUpdates, batchSizes, delay, delay);
     }
 
@@ -99,6 +124,7 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
     @PreDestroy
     private void destroy() {
         classInstrumentationJob.cancel();
+        updateAnalysisPool(1);
     }
 
     @Override
@@ -128,12 +154,43 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
         val batchSizes = new BatchSize(newInternal.getClassConfigurationCheckBatchSize(), newInternal.getClassRetransformBatchSize());
         classInstrumentationJob.setBatchSizes(batchSizes);
         classInstrumentationJob.setInterBatchDelay(newInternal.getInterBatchDelay());
+        updateAnalysisPool(newInternal.getClassAnalysisParallelism());
+    }
+
+    /**
+     * Replaces the pool used for analysing classes if the parallelism has changed.
+     * Package-private for testing.
+     *
+     * @param parallelism the number of threads to use, 1 for analysing the classes sequentially
+     */
+    @VisibleForTesting
+    synchronized void updateAnalysisPool(int parallelism) {
+        ForkJoinPool currentPool = analysisPool;
+        int currentParallelism = currentPool == null ? 1 : currentPool.getParallelism();
+        if (parallelism != currentParallelism) {
+            analysisPool = parallelism > 1 ? new ForkJoinPool(parallelism, ANALYSIS_THREAD_FACTORY, null, false) : null;
+            if (currentPool != null) {
+                currentPool.shutdown();
+            }
+        }
     }
 
+    /**
+     * Queues all classes which might be affected by the configuration change.
+     * If only rules have changed, only the classes matched by the scopes of these rules are queued.
+     */
     @EventListener
     private void instrumentationConfigEventListener(InstrumentationConfigurationChangedEvent ev) {
+        InstrumentationConfigurationDiff diff = ev.getDiff();
+        int queuedClassesCount = 0;
         for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
-            pendingClasses.put(clazz, Boolean.TRUE);
+            if (diff == null || diff.isGlobal() || diff.affects(TypeDescription.ForLoadedType.of(clazz))) {
+                pendingClasses.put(clazz, Boolean.TRUE);
+                queuedClassesCount++;
+            }
+        }
+        if (diff != null && !diff.isGlobal()) {
+            log.debug("Rules {} have changed, {} classes are affected", diff.getAffectedRuleNames(), queuedClassesCount);
         }
         recordPendingClassesQueueSize();
     }
@@ -209,21 +266,12 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
             val watch = Stopwatch.createStarted();
             try {
 
-                int checkedClassesCount = 0;
-
-                Iterator<Class<?>> queueIterator = pendingClasses.asMap().keySet().iterator();
-                while (queueIterator.hasNext()) {
-
-                    Class<?> clazz = queueIterator.next();
-                    queueIterator.remove();
-                    checkedClassesCount++;
-
-                    updateClass(clazz, classesToRetransform);
-
-                    if (checkedClassesCount >= batchSize.maxClassesToCheck
-                            || classesToRetransform.size() >= batchSize.maxClassesToRetransform) {
-                        break;
-                    }
+                ForkJoinPool pool = analysisPool;
+                int checkedClassesCount;
+                if (pool == null) {
+                    checkedClassesCount = updateClassesSequentially(batchSize, classesToRetransform);
+                } else {
+                    checkedClassesCount = updateClassesInParallel(pool, batchSize, classesToRetransform);
                 }
                 if (checkedClassesCount > 0) {
                     log.debug("Checked configuration of {} classes in {} ms, {} classes left to check",
@@ -241,6 +289,109 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
         }
     }
 
+    /**
+     * Takes classes from {@link #pendingClasses} and updates them one after the other.
+     *
+     * @param batchSize            the configured batch sizes
+     * @param classesToRetransform the set to which the classes which need retransformation are added
+     * @return the number of checked classes
+     */
+    private int updateClassesSequentially(BatchSize batchSize, Set<Class<?>> classesToRetransform) {
+        int checkedClassesCount = 0;
+
+        Iterator<Class<?>> queueIterator = pendingClasses.asMap().keySet().iterator();
+        while (queueIterator.hasNext()) {
+
+            Class<?> clazz = queueIterator.next();
+            queueIterator.remove();
+            checkedClassesCount++;
+
+            updateClass(clazz, null, classesToRetransform);
+
+            if (checkedClassesCount >= batchSize.maxClassesToCheck
+                    || classesToRetransform.size() >= batchSize.maxClassesToRetransform) {
+                break;
+            }
+        }
+        return checkedClassesCount;
+    }
+
+    /**
+     * Takes classes from {@link #pendingClasses} in chunks, analyses each chunk using the given pool and
+     * afterwards updates the classes of the chunk sequentially based on the analysis results.
+     * The chunks are small compared to the batch, so that only few classes have to be analysed again
+     * if the retransformation limit is reached in the middle of a chunk.
+     *
+     * @param pool                 the pool to use for the analysis
+     * @param batchSize            the configured batch sizes
+     * @param classesToRetransform the set to which the classes which need retransformation are added
+     * @return the number of checked classes
+     */
+    private int updateClassesInParallel(ForkJoinPool pool, BatchSize batchSize, Set<Class<?>> classesToRetransform) {
+        int chunkSize = pool.getParallelism() * CHUNK_SIZE_PER_THREAD;
+        int checkedClassesCount = 0;
+
+        Iterator<Class<?>> queueIterator = pendingClasses.asMap().keySet().iterator();
+        while (queueIterator.hasNext()
+                && checkedClassesCount < batchSize.maxClassesToCheck
+                && classesToRetransform.size() < batchSize.maxClassesToRetransform) {
+
+            List<Class<?>> chunk = new ArrayList<>();
+            while (queueIterator.hasNext() && chunk.size() < Math.min(chunkSize, batchSize.maxClassesToCheck - checkedClassesCount)) {
+                chunk.add(queueIterator.next());
+                queueIterator.remove();
+            }
+
+            ClassAnalysis[] analyses = analyzeClasses(pool, chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                Class<?> clazz = chunk.get(i);
+                if (classesToRetransform.size() >= batchSize.maxClassesToRetransform) {
+                    // the class will be checked again with the next batch
+                    pendingClasses.put(clazz, Boolean.TRUE);
+                } else {
+                    checkedClassesCount++;
+                    updateClass(clazz, analyses[i], classesToRetransform);
+                }
+            }
+        }
+        return checkedClassesCount;
+    }
+
+    /**
+     * Resolves the instrumentation and hook configurations of the given classes concurrently.
+     *
+     * @param pool    the pool to use
+     * @param classes the classes to analyse
+     * @return the results in the order of the given classes, the result is null for classes which could not be analysed
+     */
+    private ClassAnalysis[] analyzeClasses(ForkJoinPool pool, List<Class<?>> classes) {
+        ClassAnalysis[] results = new ClassAnalysis[classes.size()];
+        List<Callable<Void>> tasks = new ArrayList<>(classes.size());
+        for (int i = 0; i < classes.size(); i++) {
+            int index = i;
+            tasks.add(() -> {
+                results[index] = analyzeClass(classes.get(index));
+                return null;
+            });
+        }
+        try {
+            pool.invokeAll(tasks);
+        } catch (RejectedExecutionException e) {
+            // the pool has been replaced due to a configuration change, the classes will be analysed sequentially
+            log.debug("Class analysis pool has been shut down, analysing classes sequentially");
+        }
+        return results;
+    }
+
+    private ClassAnalysis analyzeClass(Class<?> clazz) {
+        try {
+            return new ClassAnalysis(configResolver.getClassInstrumentationConfiguration(clazz), configResolver.getHookConfigurations(clazz));
+        } catch (Throwable t) {
+            log.debug("Could not analyse class {} concurrently, it will be analysed sequentially", clazz.getName(), t);
+            return null;
+        }
+    }
+
     /**
      * Checks the given class for updates.
      * This method first makes sure that our bootstrap classes are accessible by the given class.
@@ -248,10 +399,17 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
      * are used to update the instrumentation and the hooks of the class.
      *
      * @param clazz                the class whose instrumentation should be checked
+     * @param analysis             the configurations resolved for the class in advance, null if they have to be resolved
      * @param classesToRetransform if the class does require a change of the bytecode, it will be added to this set.
      */
-    private void updateClass(Class<?> clazz, Set<Class<?>> classesToRetransform) {
-        if (instrumentationManager.doesClassRequireRetransformation(clazz)) {
+    private void updateClass(Class<?> clazz, ClassAnalysis analysis, Set<Class<?>> classesToRetransform) {
+        boolean retransformationRequired;
+        if (analysis == null) {
+            retransformationRequired = instrumentationManager.doesClassRequireRetransformation(clazz);
+        } else {
+            retransformationRequired = instrumentationManager.doesClassRequireRetransformation(clazz, analysis.instrumentationConfiguration);
+        }
+        if (retransformationRequired) {
             applyClassLoaderDelegation(clazz, classesToRetransform);
             classesToRetransform.add(clazz);
         }
@@ -261,7 +419,16 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
             if (currentHookUpdate == null) {
                 currentHookUpdate = hookManager.startUpdate();
             }
-            currentHookUpdate.updateHooksForClass(clazz);
+            boolean hooksRequireRetransformation;
+            if (analysis == null) {
+                hooksRequireRetransformation = currentHookUpdate.updateHooksForClass(clazz);
+            } else {
+                hooksRequireRetransformation = currentHookUpdate.updateHooksForClass(clazz, analysis.hookConfigurations);
+            }
+            if (hooksRequireRetransformation) {
+                //the instrumentation does not capture all values required by the new hooks
+                classesToRetransform.add(clazz);
+            }
         } catch (Throwable t) {
             log.error("Error adding hooks to clazz {}", clazz.getName(), t);
         }
@@ -299,4 +466,13 @@ public class InstrumentationTriggerer implements IClassDiscoveryListener {
         private int maxClassesToCheck;
         private int maxClassesToRetransform;
     }
+
+    /**
+     * The configurations resolved for a class by the concurrent analysis.
+     */
+    @Value
+    private static class ClassAnalysis {
+        private ClassInstrumentationConfiguration instrumentationConfiguration;
+        private Map<MethodDescription, MethodHookConfiguration> hookConfigurations;
+    }
 }
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import rocks.inspectit.ocelot.config.model.instrumentation.InternalSettings;
 import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
 import rocks.inspectit.ocelot.core.instrumentation.event.IClassDefinitionListener;
 import rocks.inspectit.ocelot.core.instrumentation.event.IClassDiscoveryListener;
@@ -14,13 +15,24 @@ import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Notifies the {@link IClassDiscoveryListener}s about newly loaded classes.
+ * <p>
+ * By default, new classes are found by periodically scanning all loaded classes for a short time after a new class has been defined.
+ * If {@link InternalSettings#isEventDrivenClassDiscovery()} is enabled, the class definitions reported via {@link #onNewClassDefined(String, ClassLoader, byte[])}
+ * are collected instead and resolved in batches using {@link Instrumentation#getInitiatedClasses(ClassLoader)} of their classloaders.
+ * In this mode, all loaded classes are only scanned every {@link InternalSettings#getClassDiscoveryFullScanInterval()} as consistency check.
+ */
 @Service
 @Slf4j
 public class NewClassDiscoveryService implements IClassDefinitionListener {
@@ -58,27 +70,41 @@ public class NewClassDiscoveryService implements IClassDefinitionListener {
      */
     private AtomicLong numTrialsSinceLastClassDefinition = new AtomicLong(0);
 
+    /**
+     * Class definitions reported via {@link #onNewClassDefined(String, ClassLoader, byte[])} which have not been resolved yet.
+     * Only populated if the event driven discovery is enabled.
+     */
+    private final Queue<PendingDefinition> pendingDefinitions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Caches {@link InternalSettings#isEventDrivenClassDiscovery()}, as it is accessed from within the class definition.
+     */
+    private volatile boolean eventDrivenDiscovery = false;
+
+    /**
+     * True, if a class has been defined since the last scan of all loaded classes.
+     */
+    private final AtomicBoolean definitionsSinceLastFullScan = new AtomicBoolean(false);
+
+    /**
+     * The {@link System#nanoTime()} of the last scan of all loaded classes.
+     */
+    private long lastFullScanTimestamp;
+
     private Runnable updateCheckTask = () -> {
         try (val sm = selfMonitoring.withDurationSelfMonitoring("class-discovery")) {
-            long maxTrials = env.getCurrentConfig().getInstrumentation().getInternal().getNumClassDiscoveryTrials();
-            if (numTrialsSinceLastClassDefinition.incrementAndGet() <= maxTrials) {
-                val watch = Stopwatch.createStarted();
-
-                log.debug("Checking for new classes...");
-                Set<Class<?>> newClasses = new HashSet<>();
-                for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
-                    if (!knownClasses.contains(clazz)) {
-                        knownClasses.add(clazz);
-                        newClasses.add(clazz);
-                    }
-                }
-                long elapsedMS = watch.elapsed(TimeUnit.MILLISECONDS);
-                if (!newClasses.isEmpty()) {
-                    log.debug("{} new classes found, check took {} ms", newClasses.size(), elapsedMS);
-                    listeners.forEach(lis -> lis.onNewClassesDiscovered(newClasses));
-                } else {
-                    log.debug("No new classes found, check took {} ms", elapsedMS);
+            InternalSettings conf = env.getCurrentConfig().getInstrumentation().getInternal();
+            long maxTrials = conf.getNumClassDiscoveryTrials();
+            updateDiscoveryMode(conf);
+            if (eventDrivenDiscovery) {
+                Duration fullScanInterval = conf.getClassDiscoveryFullScanInterval();
+                boolean fullScanDue = fullScanInterval != null && System.nanoTime() - lastFullScanTimestamp >= fullScanInterval.toNanos();
+                if (fullScanDue && definitionsSinceLastFullScan.getAndSet(false)) {
+                    scanAllClasses();
                 }
+                resolvePendingDefinitions(maxTrials);
+            } else if (numTrialsSinceLastClassDefinition.incrementAndGet() <= maxTrials) {
+                scanAllClasses();
             }
             if (!isShuttingDown) {
                 scheduleUpdateCheck();
@@ -86,10 +112,15 @@ public class NewClassDiscoveryService implements IClassDefinitionListener {
         }
     };
 
-
     @Override
-    public void onNewClassDefined(String className, ClassLoader loader) {
+    public void onNewClassDefined(String className, ClassLoader loader, byte[] bytecode) {
         numTrialsSinceLastClassDefinition.lazySet(0L);
+        if (eventDrivenDiscovery) {
+            definitionsSinceLastFullScan.lazySet(true);
+            if (className != null) {
+                pendingDefinitions.add(new PendingDefinition(className.replace('/', '.'), loader));
+            }
+        }
     }
 
     /**
@@ -97,6 +128,8 @@ public class NewClassDiscoveryService implements IClassDefinitionListener {
      */
     @PostConstruct
     void init() {
+        updateDiscoveryMode(env.getCurrentConfig().getInstrumentation().getInternal());
+        lastFullScanTimestamp = System.nanoTime();
         Set<Class<?>> allClasses = new HashSet<>(Arrays.<Class<?>>asList(instrumentation.getAllLoadedClasses()));
         knownClasses.addAll(allClasses);
         listeners.forEach(lis -> lis.onNewClassesDiscovered(allClasses));
@@ -112,9 +145,131 @@ public class NewClassDiscoveryService implements IClassDefinitionListener {
         updateCheckFuture.cancel(false);
     }
 
+    private void updateDiscoveryMode(InternalSettings conf) {
+        boolean eventDriven = conf.isEventDrivenClassDiscovery();
+        if (eventDriven != eventDrivenDiscovery) {
+            eventDrivenDiscovery = eventDriven;
+            if (!eventDriven) {
+                pendingDefinitions.clear();
+            }
+        }
+    }
+
+    /**
+     * Compares all loaded classes against the {@link #knownClasses} and notifies the listeners about the new ones.
+     */
+    private void scanAllClasses() {
+        val watch = Stopwatch.createStarted();
+        lastFullScanTimestamp = System.nanoTime();
+
+        log.debug("Checking for new classes...");
+        Set<Class<?>> newClasses = new HashSet<>();
+        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            if (!knownClasses.contains(clazz)) {
+                knownClasses.add(clazz);
+                newClasses.add(clazz);
+            }
+        }
+        long elapsedMS = watch.elapsed(TimeUnit.MILLISECONDS);
+        if (!newClasses.isEmpty()) {
+            log.debug("{} new classes found, check took {} ms", newClasses.size(), elapsedMS);
+            listeners.forEach(lis -> lis.onNewClassesDiscovered(newClasses));
+        } else {
+            log.debug("No new classes found, check took {} ms", elapsedMS);
+        }
+    }
+
+    /**
+     * Resolves the pending class definitions into the actual classes and notifies the listeners about the new ones.
+     * The classes are looked up via the classes initiated by the defining classloader, so that no class loading is triggered.
+     * A definition can be reported before the class is actually defined, therefore definitions which cannot be resolved
+     * are retried in the next runs until they have been attempted for the given number of times.
+     * Definitions which are never resolved (e.g. because the definition failed) are dropped, they would be found by the next full scan.
+     *
+     * @param maxAttempts the number of times a definition is attempted to be resolved
+     */
+    private void resolvePendingDefinitions(long maxAttempts) {
+        if (pendingDefinitions.isEmpty()) {
+            return;
+        }
+        val watch = Stopwatch.createStarted();
+
+        Map<ClassLoader, Map<String, PendingDefinition>> definitionsByLoader = new IdentityHashMap<>();
+        PendingDefinition definition;
+        while ((definition = pendingDefinitions.poll()) != null) {
+            ClassLoader loader = definition.getLoader();
+            // definitions of collected classloaders are dropped
+            if (loader != null || definition.isBootstrap()) {
+                definitionsByLoader.computeIfAbsent(loader, l -> new HashMap<>()).put(definition.getClassName(), definition);
+            }
+        }
+
+        Set<Class<?>> newClasses = new HashSet<>();
+        List<PendingDefinition> unresolved = new ArrayList<>();
+        for (Map.Entry<ClassLoader, Map<String, PendingDefinition>> entry : definitionsByLoader.entrySet()) {
+            ClassLoader loader = entry.getKey();
+            Map<String, PendingDefinition> definitions = entry.getValue();
+            for (Class<?> clazz : instrumentation.getInitiatedClasses(loader)) {
+                if (clazz.getClassLoader() == loader && definitions.remove(clazz.getName()) != null && knownClasses.add(clazz)) {
+                    newClasses.add(clazz);
+                }
+            }
+            for (PendingDefinition remaining : definitions.values()) {
+                if (remaining.incrementAttempts() < maxAttempts) {
+                    unresolved.add(remaining);
+                }
+            }
+        }
+        pendingDefinitions.addAll(unresolved);
+
+        long elapsedMS = watch.elapsed(TimeUnit.MILLISECONDS);
+        log.debug("{} new classes resolved from class definitions, {} definitions pending, check took {} ms", newClasses.size(), unresolved.size(), elapsedMS);
+        if (!newClasses.isEmpty()) {
+            listeners.forEach(lis -> lis.onNewClassesDiscovered(newClasses));
+        }
+    }
+
     private void scheduleUpdateCheck() {
         Duration delay = env.getCurrentConfig().getInstrumentation().getInternal().getNewClassDiscoveryInterval();
         updateCheckFuture = exec.schedule(updateCheckTask, delay.toNanos(), TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * A class definition reported by the {@link AsyncClassTransformer} which has not been resolved into a class yet.
+     */
+    private static class PendingDefinition {
+
+        /**
+         * The fully qualified name of the defined class.
+         */
+        @Getter
+        private final String className;
+
+        /**
+         * The defining classloader, null for the bootstrap loader.
+         */
+        private final WeakReference<ClassLoader> loaderReference;
+
+        /**
+         * The number of times resolving this definition has failed.
+         */
+        private int attempts;
+
+        PendingDefinition(String className, ClassLoader loader) {
+            this.className = className;
+            loaderReference = loader == null ? null : new WeakReference<>(loader);
+        }
+
+        ClassLoader getLoader() {
+            return loaderReference == null ? null : loaderReference.get();
+        }
+
+        boolean isBootstrap() {
+            return loaderReference == null;
+        }
+
+        int incrementAttempts() {
+            return ++attempts;
+        }
+    }
 }
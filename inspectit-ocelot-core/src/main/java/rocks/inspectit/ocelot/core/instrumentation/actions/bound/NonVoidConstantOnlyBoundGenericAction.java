@@ -1,6 +1,7 @@
 package rocks.inspectit.ocelot.core.instrumentation.actions.bound;
 
 import rocks.inspectit.ocelot.core.instrumentation.config.model.GenericActionConfig;
+import rocks.inspectit.ocelot.core.instrumentation.context.DataSlots;
 import rocks.inspectit.ocelot.core.instrumentation.injection.InjectedClass;
 
 import java.util.Map;
@@ -11,18 +12,21 @@ import java.util.Map;
  */
 class NonVoidConstantOnlyBoundGenericAction extends AbstractConstantOnlyBoundGenericAction {
 
-    private final String dataKey;
+    /**
+     * The slot of the data key under which the result of the action is stored, see {@link DataSlots}.
+     */
+    private final int dataSlot;
 
     NonVoidConstantOnlyBoundGenericAction(String dataKey, String callName, GenericActionConfig actionConfig,
                                           InjectedClass<?> action, Map<String, Object> constantAssignments) {
         super(callName, actionConfig, action, constantAssignments);
-        this.dataKey = dataKey;
+        dataSlot = DataSlots.getOrCreateSlot(dataKey);
     }
 
     @Override
     public void execute(ExecutionContext context) {
         Object result = action.get().execute(context.getMethodArguments(), context.getThiz(),
                 context.getReturnValue(), context.getThrown(), arguments);
-        context.getInspectitContext().setData(dataKey, result);
+        context.getInspectitContext().setData(dataSlot, result);
     }
 }
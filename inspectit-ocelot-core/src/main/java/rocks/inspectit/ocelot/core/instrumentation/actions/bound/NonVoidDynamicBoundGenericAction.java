@@ -1,6 +1,7 @@
 package rocks.inspectit.ocelot.core.instrumentation.actions.bound;
 
 import rocks.inspectit.ocelot.core.instrumentation.config.model.GenericActionConfig;
+import rocks.inspectit.ocelot.core.instrumentation.context.DataSlots;
 import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
 import rocks.inspectit.ocelot.core.instrumentation.injection.InjectedClass;
 
@@ -13,13 +14,16 @@ import java.util.Map;
  */
 class NonVoidDynamicBoundGenericAction extends AbstractDynamicBoundGenericAction {
 
-    private final String dataKey;
+    /**
+     * The slot of the data key under which the result of the action is stored, see {@link DataSlots}.
+     */
+    private final int dataSlot;
 
     NonVoidDynamicBoundGenericAction(String callName, String dataKey, GenericActionConfig actionConfig,
                                      InjectedClass<?> action, Map<String, Object> constantAssignments,
                                      Map<String, VariableAccessor> dynamicAssignments) {
         super(callName, actionConfig, action, constantAssignments, dynamicAssignments);
-        this.dataKey = dataKey;
+        dataSlot = DataSlots.getOrCreateSlot(dataKey);
     }
 
     @Override
@@ -27,6 +31,6 @@ class NonVoidDynamicBoundGenericAction extends AbstractDynamicBoundGenericAction
         Object[] args = buildAdditionalArguments(context);
         Object result = action.get().execute(context.getMethodArguments(), context.getThiz(),
                 context.getReturnValue(), context.getThrown(), args);
-        context.getInspectitContext().setData(dataKey, result);
+        context.getInspectitContext().setData(dataSlot, result);
     }
 }
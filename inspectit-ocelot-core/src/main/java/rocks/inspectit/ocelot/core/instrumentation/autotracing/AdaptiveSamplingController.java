@@ -0,0 +1,115 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import rocks.inspectit.ocelot.config.model.tracing.AutoTracingAdaptiveSettings;
+import rocks.inspectit.ocelot.config.model.tracing.AutoTracingSettings;
+
+/**
+ * Computes the period and the number of threads to sample per tick for the {@link StackTraceSampler},
+ * so that the time spent on capturing stack traces stays within the configured {@link AutoTracingAdaptiveSettings#getOverheadBudget()}.
+ * <p>
+ * The controller keeps a moving average of the time it takes to sample a single thread.
+ * Based on this cost and the number of threads with an active sampling, the shortest period which stays within the budget is chosen,
+ * bounded by {@link AutoTracingSettings#getFrequency()} and {@link AutoTracingAdaptiveSettings#getMaximumPeriod()}.
+ * If sampling all threads would exceed the budget even with the maximum period, the number of threads sampled per tick is limited instead.
+ * <p>
+ * If adaptive sampling is disabled, the period is always {@link AutoTracingSettings#getFrequency()} and all threads are sampled.
+ */
+public class AdaptiveSamplingController {
+
+    /**
+     * The weight of the most recent measurement in the moving average of the sampling cost.
+     */
+    private static final double SMOOTHING_FACTOR = 0.2;
+
+    private boolean enabled;
+
+    private long minimumPeriodNanos;
+
+    private long maximumPeriodNanos;
+
+    private double overheadBudget;
+
+    /**
+     * The moving average of the nanoseconds required to sample a single thread, negative if no sample has been taken yet.
+     */
+    private double costPerThreadNanos = -1;
+
+    /**
+     * The number of threads with an active sampling on the last tick.
+     */
+    private int activeThreads = 0;
+
+    private long periodNanos;
+
+    private int threadLimit = Integer.MAX_VALUE;
+
+    /**
+     * Applies the given settings.
+     *
+     * @param settings the auto-tracing settings
+     */
+    public synchronized void configure(AutoTracingSettings settings) {
+        AutoTracingAdaptiveSettings adaptive = settings.getAdaptive();
+        minimumPeriodNanos = settings.getFrequency().toNanos();
+        enabled = adaptive.isEnabled();
+        if (enabled) {
+            maximumPeriodNanos = Math.max(minimumPeriodNanos, adaptive.getMaximumPeriod().toNanos());
+            overheadBudget = adaptive.getOverheadBudget();
+        } else {
+            costPerThreadNanos = -1;
+        }
+        adapt();
+    }
+
+    /**
+     * Updates the period and thread limit based on the cost of a sampling tick.
+     *
+     * @param costNanos      the time spent on the tick
+     * @param sampledThreads the number of threads which have been sampled on the tick
+     * @param activeThreads  the number of threads which would have been sampled without a thread limit
+     */
+    public synchronized void recordSample(long costNanos, int sampledThreads, int activeThreads) {
+        this.activeThreads = activeThreads;
+        if (!enabled || sampledThreads == 0) {
+            return;
+        }
+        double cost = (double) costNanos / sampledThreads;
+        if (costPerThreadNanos < 0) {
+            costPerThreadNanos = cost;
+        } else {
+            costPerThreadNanos = SMOOTHING_FACTOR * cost + (1 - SMOOTHING_FACTOR) * costPerThreadNanos;
+        }
+        adapt();
+    }
+
+    /**
+     * @return the period with which the stack traces should be sampled
+     */
+    public synchronized long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * @return the maximum number of threads to sample on a single tick
+     */
+    public synchronized int getThreadLimit() {
+        return threadLimit;
+    }
+
+    private void adapt() {
+        if (!enabled || costPerThreadNanos < 0) {
+            periodNanos = minimumPeriodNanos;
+            threadLimit = Integer.MAX_VALUE;
+            return;
+        }
+        double costForAllThreads = costPerThreadNanos * Math.max(1, activeThreads);
+        double requiredPeriod = costForAllThreads / overheadBudget;
+        if (requiredPeriod <= maximumPeriodNanos) {
+            periodNanos = Math.max(minimumPeriodNanos, (long) Math.ceil(requiredPeriod));
+            threadLimit = Integer.MAX_VALUE;
+        } else {
+            periodNanos = maximumPeriodNanos;
+            threadLimit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, overheadBudget * maximumPeriodNanos / costPerThreadNanos));
+        }
+    }
+}
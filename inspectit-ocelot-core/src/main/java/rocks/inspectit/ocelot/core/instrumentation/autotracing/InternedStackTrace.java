@@ -0,0 +1,64 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+/**
+ * A stack trace stored as a sequence of frame ids of a {@link StackFrameDictionary}, starting at the root frame (e.g. Thread.run()).
+ * <p>
+ * The array of frame ids may be shared with other stack traces of the same dictionary, only the first {@link #size()} elements belong to this trace.
+ */
+public class InternedStackTrace {
+
+    private final StackFrameDictionary dictionary;
+
+    private final int[] frameIds;
+
+    private final int size;
+
+    InternedStackTrace(StackFrameDictionary dictionary, int[] frameIds, int size) {
+        this.dictionary = dictionary;
+        this.frameIds = frameIds;
+        this.size = size;
+    }
+
+    /**
+     * @param indexFromRoot the depth of the frame, counted from the root
+     *
+     * @return the id of the frame at the given depth
+     */
+    public int getFrameId(int indexFromRoot) {
+        return frameIds[indexFromRoot];
+    }
+
+    /**
+     * @param indexFromRoot the depth of the frame, counted from the root
+     *
+     * @return the id of the method executed at the given depth
+     */
+    public int getMethodId(int indexFromRoot) {
+        return dictionary.getMethodId(frameIds[indexFromRoot]);
+    }
+
+    /**
+     * @param indexFromRoot the depth of the frame, counted from the root
+     *
+     * @return the frame at the given depth
+     */
+    public StackTraceElement get(int indexFromRoot) {
+        return dictionary.getFrame(frameIds[indexFromRoot]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a stack trace from this trace by returning the elements from the root up to the given depth.
+     * The frame ids are shared with this trace.
+     *
+     * @param size the depth of the sub-stack trace to return.
+     *
+     * @return the new stack trace
+     */
+    public InternedStackTrace createSubTrace(int size) {
+        return new InternedStackTrace(dictionary, frameIds, size);
+    }
+}
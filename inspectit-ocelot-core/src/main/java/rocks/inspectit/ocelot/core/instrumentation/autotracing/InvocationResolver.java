@@ -63,7 +63,7 @@ public class InvocationResolver {
                         .filter(event -> event.getStackTraceElementAt(startDepth) != null) //find an element which has a stack trace
                         .findFirst();
                 if (firstWithStackTrace.isPresent()) {
-                    StackTrace trace = firstWithStackTrace.get().getStackTrace();
+                    InternedStackTrace trace = firstWithStackTrace.get().getStackTrace();
                     int currentDepth = startDepth;
                     while (currentDepth < trace.size() && !isSameMethod(trace.get(currentDepth), entryEvent)) {
                         currentDepth++;
@@ -73,7 +73,7 @@ public class InvocationResolver {
                     // This can happen because the timings of stack trace samples are inaccurate, leading to samples "sliding" in
                     // ATM, we just accept this and use the invalid stack trace as parent, leading to potential inaccuracies
                     // In the future, we should remove such "invalid" samples from the list of events to prevent this.
-                    StackTrace cutTrace = trace.createSubTrace(currentDepth);
+                    InternedStackTrace cutTrace = trace.createSubTrace(currentDepth);
                     MethodEntryEvent newEntry = entryEvent.copyWithNewStackTrace(cutTrace);
                     MethodExitEvent newExit = new MethodExitEvent(newEntry, exitEvent.getTimestamp());
 
@@ -159,6 +159,10 @@ public class InvocationResolver {
     /**
      * Walks the list of events in time, searching for the first event which does not have the same method at the given stack trace depth.
      * As soon as such an event is encountered, the index of the last matching event is returned.
+     * <p>
+     * Two events are considered to be within the same invocation if they execute the same method at the given depth
+     * and their parent frames (depth - 1) are identical, meaning that the method was called from the same line.
+     * As all stack traces of a trace are interned in the same {@link StackFrameDictionary}, this is checked by comparing ids.
      *
      * @param events       the list of events to scan
      * @param compareIndex we search for the last element relative to this index which is equal to events[compareIndex]
@@ -167,19 +171,17 @@ public class InvocationResolver {
      * @return the index of the last matching event (which is potentially equal to compareIndex).
      */
     private static int findLastEqualEvent(List<TraceEvent> events, int compareIndex, int depth) {
-        TraceEvent compareTo = events.get(compareIndex);
-        StackTraceElement cmpParent = compareTo.getStackTraceElementAt(depth - 1);
-        StackTraceElement cmpElement = compareTo.getStackTraceElementAt(depth);
+        InternedStackTrace compareTo = events.get(compareIndex).getStackTrace();
+        int cmpParentFrame = compareTo.getFrameId(depth - 1);
+        int cmpMethod = compareTo.getMethodId(depth);
         int lastMatchingIndex = compareIndex;
         for (int i = compareIndex + 1; i < events.size(); i++) {
-            TraceEvent other = events.get(i);
-            if (other.getStackTrace() != null) { //ignore events without stacktraces
-                StackTraceElement parent = other.getStackTraceElementAt(depth - 1);
-                StackTraceElement element = other.getStackTraceElementAt(depth);
-                if (element == null) { //stack trace is not deep enough
+            InternedStackTrace other = events.get(i).getStackTrace();
+            if (other != null) { //ignore events without stacktraces
+                if (other.size() <= depth) { //stack trace is not deep enough
                     return lastMatchingIndex;
                 }
-                if (!stackTraceElementsEqual(cmpElement, cmpParent, element, parent)) {
+                if (other.getMethodId(depth) != cmpMethod || other.getFrameId(depth - 1) != cmpParentFrame) {
                     return lastMatchingIndex;
                 } else {
                     lastMatchingIndex = i;
@@ -214,22 +216,6 @@ public class InvocationResolver {
         return newEnd;
     }
 
-    private static boolean stackTraceElementsEqual(StackTraceElement first, StackTraceElement parentOfFirst, StackTraceElement second, StackTraceElement parentOfSecond) {
-        if (!Objects.equals(first.getMethodName(), second.getMethodName())) {
-            return false;
-        }
-        if (!Objects.equals(first.getClassName(), second.getClassName())) {
-            return false;
-        }
-        if (!Objects.equals(parentOfFirst.getFileName(), parentOfSecond.getFileName())) {
-            return false;
-        }
-        if (parentOfFirst.getLineNumber() != parentOfSecond.getLineNumber()) {
-            return false;
-        }
-        return true;
-    }
-
     private static int findMethodExitEvent(List<TraceEvent> events, int methodEntryIndex) {
         MethodEntryEvent entry = (MethodEntryEvent) events.get(methodEntryIndex);
         for (int i = methodEntryIndex + 1; i < events.size(); i++) {
@@ -0,0 +1,30 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Captures the stack traces of the sampled threads one after another using {@link Thread#getStackTrace()}.
+ * <p>
+ * If the JVM implements {@link Thread#getStackTrace()} using a handshake with the target thread, only the sampled thread
+ * is stopped while its stack is walked, so that no global safepoint is required.
+ * Whether this is the case depends on the JVM version and vendor. Otherwise, each call requires a separate safepoint,
+ * making this source more expensive than the {@link ThreadMXBeanStackTraceSource} when many threads are sampled.
+ * <p>
+ * Note that the stack traces of the individual threads are not captured at exactly the same point in time.
+ */
+public class PerThreadStackTraceSource implements StackTraceSource {
+
+    @Override
+    public Map<Thread, StackTrace> sample(Collection<Thread> threads) {
+        Map<Thread, StackTrace> result = new HashMap<>();
+        for (Thread thread : threads) {
+            StackTraceElement[] stackTrace = thread.getStackTrace();
+            if (stackTrace.length > 0) {
+                result.put(thread, new StackTrace(stackTrace));
+            }
+        }
+        return result;
+    }
+}
@@ -70,10 +70,17 @@ public class SampledTrace {
      */
     private ArrayList<TraceEvent> events;
 
+    /**
+     * The dictionary used for interning the stack trace samples of this trace.
+     * The samples are only kept in their interned form to reduce the memory required until the trace is exported.
+     */
+    private StackFrameDictionary frameDictionary;
+
     public SampledTrace(Span rootSpan, Supplier<StackTrace> rootStackTraceProvider) {
         this.rootStackTraceProvider = rootStackTraceProvider;
         this.rootSpan = rootSpan;
         events = new ArrayList<>();
+        frameDictionary = new StackFrameDictionary();
         isFinished = false;
         isPaused = false;
     }
@@ -111,7 +118,7 @@ public class SampledTrace {
      */
     public synchronized void addStackTrace(StackTrace stackTrace, long timestamp) {
         if (!isFinished) {
-            events.add(new StackTraceSampledEvent(stackTrace, timestamp));
+            events.add(new StackTraceSampledEvent(frameDictionary.intern(stackTrace), timestamp));
         }
     }
 
@@ -0,0 +1,197 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.config.model.tracing.AutoTracingExportSettings;
+import rocks.inspectit.ocelot.core.config.InspectitConfigChangedEvent;
+import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reconstructs and exports the traces recorded via stack trace sampling.
+ * <p>
+ * The reconstruction of the spans from the samples is expensive, therefore finished traces are queued and processed
+ * by a dedicated pool of worker threads. The number of workers, the capacity of the queue and the behaviour when the queue is full
+ * are defined via {@link AutoTracingExportSettings}.
+ * <p>
+ * The size of the queue, the number of dropped traces and the latency from finishing a trace until it has been exported
+ * are exposed to the {@link SelfMonitoringService}.
+ */
+@Component
+@Slf4j
+public class SampledTraceExporter {
+
+    private static final String QUEUE_SIZE_MEASURE = "auto-tracing-export-queue-size";
+
+    private static final String DROPS_MEASURE = "auto-tracing-export-drops";
+
+    private static final String LATENCY_MEASURE = "auto-tracing-export-latency";
+
+    @Autowired
+    private InspectitEnvironment env;
+
+    @Autowired
+    private SelfMonitoringService selfMonitoring;
+
+    @Autowired
+    private ScheduledExecutorService executor;
+
+    /**
+     * The pool of workers currently processing the traces.
+     */
+    private volatile ThreadPoolExecutor workers;
+
+    /**
+     * The settings with which {@link #workers} was created.
+     */
+    private AutoTracingExportSettings activeSettings;
+
+    /**
+     * The number of traces dropped since the last metrics report.
+     */
+    private final LongAdder drops = new LongAdder();
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private volatile boolean dropWarningPrinted = false;
+
+    private ScheduledFuture<?> reportingTask;
+
+    @PostConstruct
+    void init() {
+        updateWorkers();
+        long frequencyMillis = env.getCurrentConfig().getMetrics().getFrequency().toMillis();
+        reportingTask = executor.scheduleWithFixedDelay(this::reportMetrics, frequencyMillis, frequencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replaces the worker pool if its settings have changed.
+     * Traces which are already queued in the previous pool are still exported by it.
+     */
+    @EventListener(InspectitConfigChangedEvent.class)
+    synchronized void updateWorkers() {
+        AutoTracingExportSettings settings = env.getCurrentConfig().getTracing().getAutoTracing().getExport();
+        if (!settings.equals(activeSettings)) {
+            ThreadPoolExecutor previousWorkers = workers;
+            workers = createWorkers(settings);
+            activeSettings = settings;
+            if (previousWorkers != null) {
+                previousWorkers.shutdown();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reportingTask.cancel(false);
+        workers.shutdown();
+    }
+
+    /**
+     * Queues a finished trace for being exported.
+     * If the queue is full, the configured {@link AutoTracingExportSettings.OverflowPolicy} is applied.
+     *
+     * @param trace the finished trace
+     */
+    public void export(SampledTrace trace) {
+        workers.execute(new ExportTask(trace, System.nanoTime()));
+    }
+
+    private ThreadPoolExecutor createWorkers(AutoTracingExportSettings settings) {
+        AutoTracingExportSettings.OverflowPolicy policy = settings.getOverflowPolicy();
+        return new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.getQueueCapacity()), runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setDaemon(true);
+            thread.setName("inspectit-auto-tracing-export-" + threadCount.getAndIncrement());
+            return thread;
+        }, (task, rejectingWorkers) -> handleOverflow(task, rejectingWorkers, policy));
+    }
+
+    private void handleOverflow(Runnable task, ThreadPoolExecutor rejectingWorkers, AutoTracingExportSettings.OverflowPolicy policy) {
+        if (rejectingWorkers.isShutdown()) {
+            // the workers have been replaced concurrently
+            ThreadPoolExecutor currentWorkers = workers;
+            if (currentWorkers != rejectingWorkers) {
+                currentWorkers.execute(task);
+            } else {
+                recordDrop();
+            }
+            return;
+        }
+        switch (policy) {
+            case DROP_OLDEST:
+                // the queue only overflows if all workers have been started, so it is safe to enqueue directly
+                BlockingQueue<Runnable> queue = rejectingWorkers.getQueue();
+                if (queue.poll() != null) {
+                    recordDrop();
+                }
+                if (!queue.offer(task)) {
+                    recordDrop();
+                }
+                break;
+            case EXPORT_IN_CALLER:
+                task.run();
+                break;
+            default:
+                recordDrop();
+        }
+    }
+
+    private void recordDrop() {
+        drops.increment();
+        if (!dropWarningPrinted) {
+            dropWarningPrinted = true;
+            log.warn("Dropping sampled-spans! Please reduce your auto-tracing scope or increase the export capacity." +
+                    " The number of dropped traces is exposed via self-monitoring. This warning will not be shown again!");
+        }
+    }
+
+    /**
+     * Reports the current queue size and the number of traces dropped since the last invocation.
+     */
+    @VisibleForTesting
+    void reportMetrics() {
+        try {
+            selfMonitoring.recordMeasurement(QUEUE_SIZE_MEASURE, (long) workers.getQueue().size());
+            long dropCount = drops.sumThenReset();
+            if (dropCount > 0) {
+                selfMonitoring.recordMeasurement(DROPS_MEASURE, dropCount);
+            }
+        } catch (Exception e) {
+            log.error("Error reporting the auto-tracing export metrics", e);
+        }
+    }
+
+    private class ExportTask implements Runnable {
+
+        private final SampledTrace trace;
+
+        private final long queuedNanos;
+
+        ExportTask(SampledTrace trace, long queuedNanos) {
+            this.trace = trace;
+            this.queuedNanos = queuedNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                trace.export();
+            } catch (Exception e) {
+                log.error("Error exporting sampled trace", e);
+            }
+            double latencyMillis = (System.nanoTime() - queuedNanos) / 1_000_000.0;
+            selfMonitoring.recordMeasurement(LATENCY_MEASURE, latencyMillis);
+        }
+    }
+}
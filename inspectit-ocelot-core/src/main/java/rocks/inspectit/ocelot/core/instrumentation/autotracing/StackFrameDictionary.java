@@ -0,0 +1,128 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the stack frames of the stack trace samples recorded for a {@link SampledTrace}.
+ * <p>
+ * Every distinct {@link StackTraceElement} (class, method, file and line) is assigned a frame id, every distinct method (class and method) a method id.
+ * The samples are then stored as {@link InternedStackTrace}s, which are arrays of frame ids instead of arrays of {@link StackTraceElement}s.
+ * In addition, consecutive samples share the same array as long as one is a prefix of the other, which is the case
+ * whenever a sampled method calls further methods.
+ * <p>
+ * This data structure is not thread safe!
+ */
+public class StackFrameDictionary {
+
+    /**
+     * The number of additional frame ids reserved when a new path array is allocated,
+     * so that following samples with a deeper stack can still share it.
+     */
+    private static final int PATH_HEADROOM = 16;
+
+    /**
+     * Maps each interned frame to its id.
+     */
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+
+    /**
+     * The interned frames, the frame with id i is found at index i.
+     */
+    private final ArrayList<StackTraceElement> frames = new ArrayList<>();
+
+    /**
+     * Maps the fully qualified name of each method to its id.
+     */
+    private final Map<String, Integer> methodIds = new HashMap<>();
+
+    /**
+     * The method id of each frame, the method id of the frame with id i is found at index i.
+     */
+    private int[] methodIdsOfFrames = new int[64];
+
+    /**
+     * The path array of the most recently interned stack trace, which is reused by the next one if possible.
+     */
+    private int[] lastPath = new int[0];
+
+    /**
+     * The number of elements of {@link #lastPath} which have already been written.
+     * Elements beyond this index are not used by any stack trace and can therefore be populated by a following sample.
+     */
+    private int lastPathLength = 0;
+
+    /**
+     * Converts the given stack trace to its interned representation.
+     *
+     * @param stackTrace the stack trace to intern
+     *
+     * @return the interned stack trace, which does not reference the {@link StackTraceElement}s of the given trace anymore
+     */
+    public InternedStackTrace intern(StackTrace stackTrace) {
+        int size = stackTrace.size();
+        int commonPrefix = 0;
+        while (commonPrefix < size && commonPrefix < lastPathLength && lastPath[commonPrefix] == getFrameId(stackTrace.get(commonPrefix))) {
+            commonPrefix++;
+        }
+        if (commonPrefix < size) {
+            if (commonPrefix < lastPathLength || size > lastPath.length) {
+                int[] newPath = new int[size + PATH_HEADROOM];
+                System.arraycopy(lastPath, 0, newPath, 0, commonPrefix);
+                lastPath = newPath;
+            }
+            for (int i = commonPrefix; i < size; i++) {
+                lastPath[i] = getFrameId(stackTrace.get(i));
+            }
+            lastPathLength = size;
+        }
+        return new InternedStackTrace(this, lastPath, size);
+    }
+
+    /**
+     * @param frameId the id of the frame
+     *
+     * @return the frame with the given id
+     */
+    public StackTraceElement getFrame(int frameId) {
+        return frames.get(frameId);
+    }
+
+    /**
+     * @param frameId the id of the frame
+     *
+     * @return the id of the method executed by the frame with the given id
+     */
+    public int getMethodId(int frameId) {
+        return methodIdsOfFrames[frameId];
+    }
+
+    /**
+     * @return the number of distinct frames interned by this dictionary
+     */
+    public int size() {
+        return frames.size();
+    }
+
+    private int getFrameId(StackTraceElement frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = frames.size();
+            frames.add(frame);
+            frameIds.put(frame, id);
+            if (id == methodIdsOfFrames.length) {
+                methodIdsOfFrames = Arrays.copyOf(methodIdsOfFrames, id * 2);
+            }
+            String methodName = frame.getClassName() + "." + frame.getMethodName();
+            Integer methodId = methodIds.get(methodName);
+            if (methodId == null) {
+                methodId = methodIds.size();
+                methodIds.put(methodName, methodId);
+            }
+            methodIdsOfFrames[id] = methodId;
+        }
+        return id;
+    }
+}
@@ -1,7 +1,5 @@
 package rocks.inspectit.ocelot.core.instrumentation.autotracing;
 
-import com.google.common.annotations.VisibleForTesting;
-
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
@@ -30,18 +28,12 @@ public class StackTrace {
 
     private int size;
 
-    @VisibleForTesting
     StackTrace(StackTraceElement[] stackTrace) {
         data = stackTrace;
         size = stackTrace.length;
         cleanup();
     }
 
-    private StackTrace(StackTraceElement[] data, int size) {
-        this.data = data;
-        this.size = size;
-    }
-
     /**
      * Creates a stack trace based on the stack trace of a given throwable.
      *
@@ -72,6 +64,9 @@ public class StackTrace {
         Map<Thread, StackTrace> result = new HashMap<>();
 
         for (int i = 0; i < threadInfos.length; i++) {
+            if (threadInfos[i] == null) { //the thread has terminated
+                continue;
+            }
             Thread thread = idsToThreads.get(ids[i]);
             StackTraceElement[] stackTrace = threadInfos[i].getStackTrace();
             if (stackTrace != null && stackTrace.length > 0) {
@@ -122,15 +117,4 @@ public class StackTrace {
     public int size() {
         return size;
     }
-
-    /**
-     * Creates a stack trace from this trace by returning the elements from the root up to the given depth.
-     *
-     * @param size the depth of the sub-stack trace t oreturn.
-     *
-     * @return the new stack trace
-     */
-    public StackTrace createSubTrace(int size) {
-        return new StackTrace(data, size);
-    }
 }
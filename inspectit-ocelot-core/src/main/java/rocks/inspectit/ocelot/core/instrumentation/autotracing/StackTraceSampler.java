@@ -11,14 +11,18 @@ import rocks.inspectit.ocelot.config.model.tracing.AutoTracingSettings;
 import rocks.inspectit.ocelot.core.config.InspectitConfigChangedEvent;
 import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
 import rocks.inspectit.ocelot.core.instrumentation.hook.MethodReflectionInformation;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
 import rocks.inspectit.ocelot.core.utils.HighPrecisionTimer;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -28,13 +32,6 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StackTraceSampler {
 
-    /**
-     * Stack-trace samples require a post-processing before being exported as traces.
-     * This happens asynchronously to the application to minimize the performance impact in a periodicalyl executed task.
-     * This value defines the frequency at which the queue is checked.
-     */
-    public static final int EXPORT_INTERVAL_MILLIS = 200;
-
     /**
      * The change to apply to the state of the sampler when invoking {@link #createAndEnterSpan(String, SpanContext, Sampler, Span.Kind, MethodReflectionInformation, Mode)}
      * or {@link #continueSpan(Span, MethodReflectionInformation, Mode)}.
@@ -57,18 +54,18 @@ public class StackTraceSampler {
     @Autowired
     private InspectitEnvironment env;
 
-    @Autowired
-    private ScheduledExecutorService executor;
-
     /**
-     * The task periodicalyl executed for ptocessing the {@link #tracesToExport} queue.
+     * Stack-trace samples require a post-processing before being exported as traces.
+     * This happens asynchronously to the application to minimize the performance impact.
      */
-    private Future<?> exportTask;
+    @Autowired
+    private SampledTraceExporter exporter;
 
-    /**
-     * A bounded queue containing all traces which have finished but need to be processed for exporting.
-     */
-    private ArrayBlockingQueue<SampledTrace> tracesToExport = new ArrayBlockingQueue<>(4096);
+    @Autowired
+    private SelfMonitoringService selfMonitoring;
+
+    @Autowired
+    private ScheduledExecutorService executor;
 
     /**
      * Global map which stores all threads for which stack-trace sampling is currently active.
@@ -81,6 +78,37 @@ public class StackTraceSampler {
      */
     private HighPrecisionTimer sampleTimer;
 
+    /**
+     * The backend used for capturing the stack traces, selected via {@link AutoTracingSettings#getSamplingBackend()}.
+     */
+    private volatile StackTraceSource stackTraceSource;
+
+    /**
+     * Decides on the period and the number of threads sampled per tick, if adaptive sampling is enabled.
+     */
+    private AdaptiveSamplingController adaptiveController = new AdaptiveSamplingController();
+
+    /**
+     * The period last applied to the {@link #sampleTimer}.
+     * Initialized on startup and afterwards only written by the timer thread, but read when reporting the self-monitoring metrics.
+     */
+    private volatile long appliedPeriodNanos;
+
+    /**
+     * If the number of threads sampled per tick is limited, the threads are sampled in a round robin fashion starting at this offset.
+     * Only accessed by the timer thread.
+     */
+    private int rotationOffset = 0;
+
+    /**
+     * The time spent on sampling since the last self-monitoring report.
+     */
+    private final LongAdder samplingNanos = new LongAdder();
+
+    private long lastReportNanos;
+
+    private ScheduledFuture<?> reportingTask;
+
     /**
      * The clock used for timing the stack-traces.
      * This clock must be the same as used for OpenCensus {@link Span}s, to make sure that the timings are consistent.
@@ -89,22 +117,36 @@ public class StackTraceSampler {
 
     @PostConstruct
     void init() {
-        exportTask = executor.scheduleWithFixedDelay(this::doExportTraces, EXPORT_INTERVAL_MILLIS, EXPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
         AutoTracingSettings settings = env.getCurrentConfig().getTracing().getAutoTracing();
+        stackTraceSource = createStackTraceSource(settings.getSamplingBackend());
+        adaptiveController.configure(settings);
+        appliedPeriodNanos = settings.getFrequency().toNanos();
         sampleTimer = new HighPrecisionTimer("Ocelot stack trace sampler", settings.getFrequency(),
                 settings.getShutdownDelay(), this::doSample);
+        lastReportNanos = System.nanoTime();
+        long frequencyMillis = env.getCurrentConfig().getMetrics().getFrequency().toMillis();
+        reportingTask = executor.scheduleWithFixedDelay(this::reportMetrics, frequencyMillis, frequencyMillis, TimeUnit.MILLISECONDS);
     }
 
     @EventListener(InspectitConfigChangedEvent.class)
     void updateTimer() {
         AutoTracingSettings settings = env.getCurrentConfig().getTracing().getAutoTracing();
-        sampleTimer.setPeriod(settings.getFrequency());
+        adaptiveController.configure(settings);
+        sampleTimer.setPeriod(Duration.ofNanos(adaptiveController.getPeriodNanos()));
         sampleTimer.setMaximumInactivity(settings.getShutdownDelay());
+        stackTraceSource = createStackTraceSource(settings.getSamplingBackend());
+    }
+
+    private StackTraceSource createStackTraceSource(AutoTracingSettings.SamplingBackend backend) {
+        if (backend == AutoTracingSettings.SamplingBackend.PER_THREAD) {
+            return new PerThreadStackTraceSource();
+        }
+        return new ThreadMXBeanStackTraceSource();
     }
 
     @PreDestroy
     void shutdown() {
-        exportTask.cancel(false);
+        reportingTask.cancel(false);
         sampleTimer.destroy();
     }
 
@@ -233,7 +275,7 @@ public class StackTraceSampler {
                 spanScope.close();
                 activeSamplings.remove(selfThread);
                 sampledTrace.finish();
-                addToExportQueue(sampledTrace);
+                exporter.export(sampledTrace);
             };
         }
     }
@@ -273,15 +315,17 @@ public class StackTraceSampler {
      * Returns true, if any sampling was performed
      */
     private boolean doSample() {
+        long samplingStart = System.nanoTime();
         //copy the map to avoid concurrent modifications due to the starting and ending of sampling traces
         Map<Thread, SampledTrace> samplingsCopy = new HashMap<>(activeSamplings);
 
-        Set<Thread> threadsToSample = samplingsCopy.keySet().stream()
+        List<Thread> activeThreads = samplingsCopy.keySet().stream()
                 .filter(trace -> !samplingsCopy.get(trace).isPaused())
-                .collect(Collectors.toSet());
+                .collect(Collectors.toList());
+        List<Thread> threadsToSample = selectThreadsToSample(activeThreads, adaptiveController.getThreadLimit());
 
         long timestamp = clock.nowNanos();
-        Map<Thread, StackTrace> stackTraces = StackTrace.createFor(threadsToSample);
+        Map<Thread, StackTrace> stackTraces = stackTraceSource.sample(threadsToSample);
 
         boolean anySampled = false;
 
@@ -294,22 +338,56 @@ public class StackTraceSampler {
             }
         }
 
+        long samplingCost = System.nanoTime() - samplingStart;
+        samplingNanos.add(samplingCost);
+        adaptiveController.recordSample(samplingCost, threadsToSample.size(), activeThreads.size());
+        long periodNanos = adaptiveController.getPeriodNanos();
+        if (periodNanos != appliedPeriodNanos) {
+            appliedPeriodNanos = periodNanos;
+            sampleTimer.setPeriod(Duration.ofNanos(periodNanos));
+        }
+
         return anySampled;
     }
 
-    private void addToExportQueue(SampledTrace sampledTrace) {
-        if (!tracesToExport.offer(sampledTrace)) {
-            log.warn("Dropping sampled-spans! Please reduce your auto-tracing scope!");
+    /**
+     * Selects the threads to sample on the current tick.
+     * If there are more active threads than the limit, a rotating subset of the threads is selected,
+     * so that all threads are sampled with the same frequency.
+     *
+     * @param activeThreads all threads with an active, not paused sampling
+     * @param limit         the maximum number of threads to select
+     *
+     * @return the threads to sample
+     */
+    private List<Thread> selectThreadsToSample(List<Thread> activeThreads, int limit) {
+        if (activeThreads.size() <= limit) {
+            return activeThreads;
+        }
+        activeThreads.sort(Comparator.comparingLong(Thread::getId));
+        List<Thread> selected = new ArrayList<>(limit);
+        int startIndex = rotationOffset % activeThreads.size();
+        for (int i = 0; i < limit; i++) {
+            selected.add(activeThreads.get((startIndex + i) % activeThreads.size()));
         }
+        rotationOffset = (startIndex + limit) % activeThreads.size();
+        return selected;
     }
 
-    private void doExportTraces() {
-        while (!tracesToExport.isEmpty()) {
-            try {
-                tracesToExport.poll().export();
-            } catch (Exception e) {
-                log.error("Error exporting sampled trace", e);
+    /**
+     * Reports the effective sampling period and the fraction of time spent on sampling since the last invocation.
+     */
+    private void reportMetrics() {
+        try {
+            long now = System.nanoTime();
+            double overheadPercentage = 100.0 * samplingNanos.sumThenReset() / (now - lastReportNanos);
+            lastReportNanos = now;
+            selfMonitoring.recordMeasurement("auto-tracing-sampling-overhead", overheadPercentage);
+            if (sampleTimer.isStarted()) {
+                selfMonitoring.recordMeasurement("auto-tracing-sampling-period", appliedPeriodNanos / 1_000_000.0);
             }
+        } catch (Exception e) {
+            log.error("Error reporting the auto-tracing sampling metrics", e);
         }
     }
 
@@ -0,0 +1,23 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A backend used by the {@link StackTraceSampler} for capturing the stack traces of the sampled threads.
+ * <p>
+ * Implementations differ in how the JVM needs to stop the sampled threads, which determines the impact of
+ * auto-tracing on threads which are not sampled at all.
+ */
+public interface StackTraceSource {
+
+    /**
+     * Captures the current stack traces of the given threads.
+     * Threads for which no stack trace could be captured (e.g. because they have terminated) are not contained in the result.
+     *
+     * @param threads the threads to capture the stack traces of
+     *
+     * @return the captured stack traces
+     */
+    Map<Thread, StackTrace> sample(Collection<Thread> threads);
+}
@@ -0,0 +1,18 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Captures the stack traces of all sampled threads with a single call to the {@link java.lang.management.ThreadMXBean}.
+ * <p>
+ * All threads are captured at the same global safepoint. Therefore the JVM has to bring all threads to a halt,
+ * including the threads which are not sampled, but only once per sample regardless of the number of sampled threads.
+ */
+public class ThreadMXBeanStackTraceSource implements StackTraceSource {
+
+    @Override
+    public Map<Thread, StackTrace> sample(Collection<Thread> threads) {
+        return StackTrace.createFor(threads);
+    }
+}
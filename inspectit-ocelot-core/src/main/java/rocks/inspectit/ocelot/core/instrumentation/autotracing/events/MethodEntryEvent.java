@@ -3,7 +3,7 @@ package rocks.inspectit.ocelot.core.instrumentation.autotracing.events;
 import io.opencensus.trace.Span;
 import lombok.Value;
 import rocks.inspectit.ocelot.core.instrumentation.autotracing.PlaceholderSpan;
-import rocks.inspectit.ocelot.core.instrumentation.autotracing.StackTrace;
+import rocks.inspectit.ocelot.core.instrumentation.autotracing.InternedStackTrace;
 
 /**
  * This event represents the start of an instrumented and traced method.
@@ -55,7 +55,7 @@ public class MethodEntryEvent implements TraceEvent {
      * Instead the {@link rocks.inspectit.ocelot.core.instrumentation.autotracing.InvocationResolver}
      * will attempt to create this stackTrace based on stack-trace-samples which have fallen into this methods execution.
      */
-    private StackTrace stackTrace;
+    private InternedStackTrace stackTrace;
 
     /**
      * Creates an exact copy of this event but replaces the stackTraces with the given one.
@@ -64,7 +64,7 @@ public class MethodEntryEvent implements TraceEvent {
      *
      * @return the copy with the stack trace replaced.
      */
-    public MethodEntryEvent copyWithNewStackTrace(StackTrace stackTrace) {
+    public MethodEntryEvent copyWithNewStackTrace(InternedStackTrace stackTrace) {
         return new MethodEntryEvent(placeholderSpan, continuedSpan, timestamp, className, methodName, stackTrace);
     }
 
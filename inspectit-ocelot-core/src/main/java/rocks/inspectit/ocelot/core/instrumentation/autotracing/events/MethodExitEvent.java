@@ -1,7 +1,7 @@
 package rocks.inspectit.ocelot.core.instrumentation.autotracing.events;
 
 import lombok.Value;
-import rocks.inspectit.ocelot.core.instrumentation.autotracing.StackTrace;
+import rocks.inspectit.ocelot.core.instrumentation.autotracing.InternedStackTrace;
 
 /**
  * This event represents the end (=return or throw) of an instrumented and traced method.
@@ -22,7 +22,7 @@ public class MethodExitEvent implements TraceEvent {
     private long timestamp;
 
     @Override
-    public StackTrace getStackTrace() {
+    public InternedStackTrace getStackTrace() {
         return null; //exit events never have a stack trace
     }
 }
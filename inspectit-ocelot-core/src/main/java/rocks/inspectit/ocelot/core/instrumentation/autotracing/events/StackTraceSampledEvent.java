@@ -1,7 +1,7 @@
 package rocks.inspectit.ocelot.core.instrumentation.autotracing.events;
 
 import lombok.Value;
-import rocks.inspectit.ocelot.core.instrumentation.autotracing.StackTrace;
+import rocks.inspectit.ocelot.core.instrumentation.autotracing.InternedStackTrace;
 
 /**
  * This event represents a captured stack-trace of the target thread at a given timestamp.
@@ -12,7 +12,7 @@ public class StackTraceSampledEvent implements TraceEvent {
     /**
      * The captured stack trace.
      */
-    private StackTrace stackTrace;
+    private InternedStackTrace stackTrace;
 
     /**
      * The time at which the stack trace was captured.
@@ -1,6 +1,6 @@
 package rocks.inspectit.ocelot.core.instrumentation.autotracing.events;
 
-import rocks.inspectit.ocelot.core.instrumentation.autotracing.StackTrace;
+import rocks.inspectit.ocelot.core.instrumentation.autotracing.InternedStackTrace;
 
 /**
  * Base interface for all events required for the reconstruction of a trace from stack-trace samples and instrumented method executions.
@@ -18,7 +18,7 @@ public interface TraceEvent {
      * @return the element if available, otherwise null.
      */
     default StackTraceElement getStackTraceElementAt(int depth) {
-        StackTrace st = getStackTrace();
+        InternedStackTrace st = getStackTrace();
         if (st != null && st.size() > depth) {
             return st.get(depth);
         }
@@ -31,7 +31,7 @@ public interface TraceEvent {
      *
      * @return the stack trace or null if unavailable.
      */
-    StackTrace getStackTrace();
+    InternedStackTrace getStackTrace();
 
     /**
      * @return the time at which this event occured.
@@ -27,6 +27,7 @@ public class GenericActionConfigurationResolver {
             val result = GenericActionConfig.builder()
                     .name(name)
                     .isVoid(conf.getIsVoid())
+                    .sideEffectFree(conf.isSideEffectFree())
                     .importedPackages(conf.getImports());
 
             resolveSpecialVariables(additionalInputs, result);
@@ -6,7 +6,6 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
-import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.event.EventListener;
@@ -19,6 +18,7 @@ import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
 import rocks.inspectit.ocelot.core.instrumentation.AsyncClassTransformer;
 import rocks.inspectit.ocelot.core.instrumentation.config.event.InstrumentationConfigurationChangedEvent;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.*;
+import rocks.inspectit.ocelot.core.instrumentation.context.DataSlots;
 import rocks.inspectit.ocelot.core.instrumentation.special.SpecialSensor;
 import rocks.inspectit.ocelot.core.utils.CoreUtils;
 
@@ -26,6 +26,7 @@ import javax.annotation.PostConstruct;
 import java.lang.instrument.Instrumentation;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class is responsible for deriving the {@link InstrumentationConfiguration} from
@@ -61,6 +62,9 @@ public class InstrumentationConfigurationResolver {
     @Autowired
     private PropagationMetaDataResolver propagationMetaDataResolver;
 
+    @Autowired
+    private InstrumentationDecisionCache decisionCache;
+
 
     /**
      * Holds the currently active instrumentation configuration.
@@ -72,11 +76,13 @@ public class InstrumentationConfigurationResolver {
     private void init() {
         InspectitConfig conf = env.getCurrentConfig();
         currentConfig = resolveConfiguration(conf);
+        decisionCache.setActiveConfiguration(currentConfig);
     }
 
     /**
      * Builds the {@link ClassInstrumentationConfiguration} based on the currently active global instrumentation configuration
      * for the given class.
+     * Classes which are known by the {@link InstrumentationDecisionCache} to not require any instrumentation are not evaluated.
      *
      * @param clazz the class for which the configuration shal lbe queried
      * @return the configuration or {@link ClassInstrumentationConfiguration#NO_INSTRUMENTATION} if this class should not be instrumented
@@ -84,7 +90,7 @@ public class InstrumentationConfigurationResolver {
     public ClassInstrumentationConfiguration getClassInstrumentationConfiguration(Class<?> clazz) {
         val config = currentConfig;
         try {
-            if (isIgnoredClass(clazz, config)) {
+            if (isIgnoredClass(clazz, config) || decisionCache.isUninstrumented(clazz, config)) {
                 return ClassInstrumentationConfiguration.NO_INSTRUMENTATION;
 
             } else {
@@ -95,7 +101,9 @@ public class InstrumentationConfigurationResolver {
 
                 Set<InstrumentationRule> narrowedRules = getNarrowedRulesFor(description, config);
 
-                return new ClassInstrumentationConfiguration(activeSensors, narrowedRules, config);
+                ClassInstrumentationConfiguration result = new ClassInstrumentationConfiguration(activeSensors, narrowedRules, config);
+                decisionCache.recordDecision(clazz, config, result.isNoInstrumentation());
+                return result;
 
             }
         } catch (NoClassDefFoundError e) {
@@ -114,7 +122,7 @@ public class InstrumentationConfigurationResolver {
      */
     public Map<MethodDescription, MethodHookConfiguration> getHookConfigurations(Class<?> clazz) {
         val config = currentConfig;
-        if (isIgnoredClass(clazz, config)) {
+        if (isIgnoredClass(clazz, config) || decisionCache.isUninstrumented(clazz, config)) {
             return Collections.emptyMap();
         }
         try {
@@ -122,12 +130,21 @@ public class InstrumentationConfigurationResolver {
             Set<InstrumentationRule> narrowedRules = getNarrowedRulesFor(type, config);
 
             if (!narrowedRules.isEmpty()) {
+                // each scope is evaluated only once per method, even if it is used by multiple rules
+                Map<InstrumentationScope, List<InstrumentationRule>> rulesByScope = new IdentityHashMap<>();
+                for (InstrumentationRule rule : narrowedRules) {
+                    for (InstrumentationScope scope : rule.getScopes()) {
+                        rulesByScope.computeIfAbsent(scope, s -> new ArrayList<>()).add(rule);
+                    }
+                }
                 Map<MethodDescription, MethodHookConfiguration> result = new HashMap<>();
                 for (MethodDescription method : type.getDeclaredMethods()) {
-                    Set<InstrumentationRule> rulesMatchingOnMethod = narrowedRules.stream()
-                            .filter(rule -> rule.getScopes().stream()
-                                    .anyMatch(scope -> scope.getMethodMatcher().matches(method)))
-                            .collect(Collectors.toSet());
+                    Set<InstrumentationRule> rulesMatchingOnMethod = new HashSet<>();
+                    for (Map.Entry<InstrumentationScope, List<InstrumentationRule>> entry : rulesByScope.entrySet()) {
+                        if (entry.getKey().getMethodMatcher().matches(method)) {
+                            rulesMatchingOnMethod.addAll(entry.getValue());
+                        }
+                    }
                     if (!rulesMatchingOnMethod.isEmpty()) {
                         try {
                             Set<InstrumentationRule> matchedAndIncludedRules = resolveIncludes(config, rulesMatchingOnMethod);
@@ -178,21 +195,24 @@ public class InstrumentationConfigurationResolver {
     /**
      * Narrows a rule for a specific type. The rules existing in the returned set are containing only {@link InstrumentationScope}s
      * which are matching for the given type. This prevents that method matchers will be applied to the wrong types.
+     * Only the type matchers of the scopes returned by the scope index of the configuration are evaluated.
      *
      * @param typeDescription the class which are the rules targeting
      * @param config          the configuration which is used as basis for the rules
      * @return Returns a set containing rules with scopes targeting only the given type.
      */
     private Set<InstrumentationRule> getNarrowedRulesFor(TypeDescription typeDescription, InstrumentationConfiguration config) {
-        return config.getRules().stream()
-                .map(rule -> Pair.of(
-                        rule,
-                        rule.getScopes()
-                                .stream()
-                                .filter(s -> s.getTypeMatcher().matches(typeDescription))
-                                .collect(Collectors.toSet())))
-                .filter(p -> !p.getRight().isEmpty())
-                .map(p -> p.getLeft().toBuilder().clearScopes().scopes(p.getRight()).build())
+        Map<InstrumentationRule, Set<InstrumentationScope>> matchedScopes = new IdentityHashMap<>();
+        config.getScopeIndex().forEachCandidate(typeDescription, candidate -> {
+            InstrumentationScope scope = candidate.getKey();
+            if (scope.getTypeMatcher().matches(typeDescription)) {
+                for (InstrumentationRule rule : candidate.getValue()) {
+                    matchedScopes.computeIfAbsent(rule, r -> new HashSet<>()).add(scope);
+                }
+            }
+        });
+        return matchedScopes.entrySet().stream()
+                .map(e -> e.getKey().toBuilder().clearScopes().scopes(e.getValue()).build())
                 .collect(Collectors.toSet());
     }
 
@@ -202,15 +222,17 @@ public class InstrumentationConfigurationResolver {
         InstrumentationConfiguration oldConfig = currentConfig;
         InstrumentationConfiguration newConfig = resolveConfiguration(ev.getNewConfig());
         if (!Objects.equals(oldConfig, newConfig)) {
+            decisionCache.setActiveConfiguration(newConfig);
             currentConfig = newConfig;
-            val event = new InstrumentationConfigurationChangedEvent(this, oldConfig, currentConfig);
+            val diff = InstrumentationConfigurationDiff.between(oldConfig, newConfig);
+            val event = new InstrumentationConfigurationChangedEvent(this, oldConfig, currentConfig, diff);
             ctx.publishEvent(event);
         }
     }
 
     private InstrumentationConfiguration resolveConfiguration(InspectitConfig config) {
         val genericActions = genericActionConfigurationResolver.resolveActions(config.getInstrumentation());
-        return InstrumentationConfiguration.builder()
+        InstrumentationConfiguration result = InstrumentationConfiguration.builder()
                 .metricsEnabled(config.getMetrics().isEnabled())
                 .tracingEnabled(config.getTracing().isEnabled())
                 .tracingSettings(config.getTracing())
@@ -218,6 +240,25 @@ public class InstrumentationConfigurationResolver {
                 .rules(ruleResolver.resolve(config.getInstrumentation(), genericActions))
                 .propagationMetaData(propagationMetaDataResolver.resolve(config))
                 .build();
+        registerDataSlots(result);
+        return result;
+    }
+
+    /**
+     * Registers all data keys which are configured or written by the rules of the given configuration in {@link DataSlots}.
+     * Slots of keys which have been registered for previous configurations remain unchanged.
+     *
+     * @param config the resolved configuration
+     */
+    private void registerDataSlots(InstrumentationConfiguration config) {
+        config.getSource().getData().keySet().forEach(DataSlots::getOrCreateSlot);
+        config.getRules()
+                .stream()
+                .flatMap(rule -> Stream.of(rule.getPreEntryActions(), rule.getEntryActions(), rule.getPostEntryActions(), rule.getPreExitActions(), rule
+                        .getExitActions(), rule.getPostExitActions()))
+                .flatMap(Collection::stream)
+                .map(ActionCallConfig::getName)
+                .forEach(DataSlots::getOrCreateSlot);
     }
 
     /**
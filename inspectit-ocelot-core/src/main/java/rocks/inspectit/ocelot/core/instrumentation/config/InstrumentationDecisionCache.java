@@ -0,0 +1,479 @@
+package rocks.inspectit.ocelot.core.instrumentation.config;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.bootstrap.AgentManager;
+import rocks.inspectit.ocelot.bootstrap.instrumentation.DoNotInstrumentMarker;
+import rocks.inspectit.ocelot.config.model.instrumentation.DecisionCacheSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.event.IClassDefinitionListener;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the classes for which the {@link InstrumentationConfigurationResolver} has decided that they do not require any instrumentation
+ * and stores them on disk, so that these classes can be skipped without evaluating the rules after a restart of the JVM.
+ * <p>
+ * Each class is identified by its name, the type of its class loader, its code source and a hash of its bytecode.
+ * The bytecode hash is computed when the class is defined, therefore only classes defined after the agent has been started are cached.
+ * No hashes are computed for classes in ignored packages, and hashes which are not looked up within {@link #DEFINED_CLASS_EXPIRY} are discarded.
+ * The decisions are only valid for the instrumentation configuration they have been made for:
+ * the file contains a hash of the configuration and its content is not used if the configuration has changed.
+ * <p>
+ * Note that rules can also match on the super types of a class. Changes of super types are only detected if they change the bytecode of the class itself.
+ */
+@Component
+@Slf4j
+public class InstrumentationDecisionCache implements IClassDefinitionListener {
+
+    private static final int MAGIC = 0x49444331;
+
+    /**
+     * The number of agent starts after which decisions which have not been used anymore are removed from the file.
+     */
+    @VisibleForTesting
+    static final int MAX_UNUSED_STARTS = 5;
+
+    private static final String MEASURE_NAME = "instrumentation-decision-cache";
+
+    private static final String EVENT_TAG = "event";
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * The time after which the bytecode hash of a defined class is discarded if the class has not been looked up.
+     */
+    private static final Duration DEFINED_CLASS_EXPIRY = Duration.ofMinutes(30);
+
+    /**
+     * The maximum number of bytecode hashes kept per class loader for classes which have not been looked up yet.
+     */
+    private static final int MAX_DEFINED_CLASSES_PER_LOADER = 100_000;
+
+    @Autowired
+    private InspectitEnvironment env;
+
+    @Autowired
+    private SelfMonitoringService selfMonitoring;
+
+    @Autowired
+    private ScheduledExecutorService executor;
+
+    private boolean enabled;
+
+    private Path path;
+
+    /**
+     * Counts the starts of the agent, used for removing decisions which have not been used for a long time.
+     */
+    private int generation = 1;
+
+    /**
+     * The bytecode hashes of the classes which have been defined but not been looked up yet, grouped by their class loader.
+     * The classes are identified by their name in the internal form.
+     */
+    private final Cache<ClassLoader, Cache<String, Long>> definedClasses = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * The same as {@link #definedClasses} for the bootstrap class loader.
+     */
+    private final Cache<String, Long> definedBootstrapClasses = createDefinedClassesCache();
+
+    /**
+     * The prefixes of the ignored packages of the active configuration in the internal form (using '/' as separator).
+     * Classes in these packages are never looked up, therefore their bytecode is not hashed.
+     */
+    private volatile String[] ignoredPrefixes = new String[0];
+
+    /**
+     * The same as {@link #ignoredPrefixes} for the packages which are only ignored on the bootstrap class loader.
+     */
+    private volatile String[] ignoredBootstrapPrefixes = new String[0];
+
+    /**
+     * The keys identifying the classes which have been looked up.
+     */
+    private final Cache<Class<?>, Long> classKeys = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * The decisions for the currently active instrumentation configuration, null if the cache is disabled.
+     */
+    private volatile Decisions activeDecisions;
+
+    /**
+     * The decisions contained in the file, null if there are none.
+     */
+    private Decisions storedDecisions;
+
+    private final AtomicBoolean modified = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private ScheduledFuture<?> saveTask;
+
+    @PostConstruct
+    void init() {
+        DecisionCacheSettings settings = env.getCurrentConfig().getInstrumentation().getInternal().getDecisionCache();
+        enabled = settings.isEnabled() && StringUtils.isNotBlank(settings.getPath());
+        if (enabled) {
+            path = Paths.get(settings.getPath());
+            load();
+            long intervalMillis = settings.getSaveInterval().toMillis();
+            saveTask = executor.scheduleWithFixedDelay(this::saveAndReport, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (enabled) {
+            saveTask.cancel(false);
+            saveAndReport();
+        }
+    }
+
+    @Override
+    public void onNewClassDefined(String className, ClassLoader loader, byte[] bytecode) {
+        if (enabled && className != null && bytecode != null && !isIgnored(className, loader)) {
+            long bytecodeHash = HASH_FUNCTION.hashBytes(bytecode).asLong();
+            if (loader == null) {
+                definedBootstrapClasses.put(className, bytecodeHash);
+            } else {
+                definedClasses.asMap().computeIfAbsent(loader, l -> createDefinedClassesCache()).put(className, bytecodeHash);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given class is ignored by the instrumentation, so that its decision does not need to be cached.
+     *
+     * @param className the name of the class in the internal form
+     * @param loader    the defining class loader
+     */
+    private boolean isIgnored(String className, ClassLoader loader) {
+        if (loader instanceof DoNotInstrumentMarker || startsWithAny(className, ignoredPrefixes)) {
+            return true;
+        }
+        return loader == null && startsWithAny(className, ignoredBootstrapPrefixes);
+    }
+
+    private static boolean startsWithAny(String className, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] getInternalPrefixes(Map<String, Boolean> packages) {
+        if (packages == null) {
+            return new String[0];
+        }
+        return packages.entrySet().stream()
+                .filter(e -> Boolean.TRUE.equals(e.getValue()))
+                .map(e -> e.getKey().replace('.', '/'))
+                .toArray(String[]::new);
+    }
+
+    private static Cache<String, Long> createDefinedClassesCache() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_DEFINED_CLASSES_PER_LOADER)
+                .expireAfterWrite(DEFINED_CLASS_EXPIRY.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @return the number of bytecode hashes of defined classes which have not been looked up yet
+     */
+    @VisibleForTesting
+    long getDefinedClassesCount() {
+        long count = definedBootstrapClasses.size();
+        for (Cache<String, Long> hashes : definedClasses.asMap().values()) {
+            count += hashes.size();
+        }
+        return count;
+    }
+
+    /**
+     * Activates the decisions for the given configuration. If the stored decisions have been made for an equal configuration, they are reused.
+     * Must be invoked before the configuration is used for resolving the instrumentation of classes.
+     *
+     * @param configuration the new instrumentation configuration
+     */
+    public synchronized void setActiveConfiguration(InstrumentationConfiguration configuration) {
+        if (!enabled) {
+            return;
+        }
+        InstrumentationSettings source = configuration.getSource();
+        if (source != null) {
+            ignoredPrefixes = getInternalPrefixes(source.getIgnoredPackages());
+            ignoredBootstrapPrefixes = getInternalPrefixes(source.getIgnoredBootstrapPackages());
+        }
+        long configHash = hashConfiguration(configuration);
+        Decisions current = activeDecisions;
+        if (current != null && current.configHash == configHash) {
+            activeDecisions = new Decisions(configuration, configHash, current.uninstrumentedClasses);
+        } else if (storedDecisions != null && storedDecisions.configHash == configHash) {
+            activeDecisions = new Decisions(configuration, configHash, storedDecisions.uninstrumentedClasses);
+        } else {
+            activeDecisions = new Decisions(configuration, configHash, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Checks if it is known that the given class does not require any instrumentation with the given configuration.
+     *
+     * @param clazz         the class to check
+     * @param configuration the configuration used for resolving the instrumentation of the class
+     *
+     * @return true, if the class does not require any instrumentation, false if this is unknown
+     */
+    public boolean isUninstrumented(Class<?> clazz, InstrumentationConfiguration configuration) {
+        Decisions decisions = activeDecisions;
+        if (decisions == null) {
+            return false;
+        }
+        if (decisions.configuration == configuration) {
+            Long key = getClassKey(clazz);
+            if (key != null) {
+                Integer lastUsed = decisions.uninstrumentedClasses.replace(key, generation);
+                if (lastUsed != null) {
+                    if (lastUsed != generation) {
+                        modified.set(true);
+                    }
+                    hits.increment();
+                    return true;
+                }
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Remembers whether the given class requires an instrumentation with the given configuration.
+     *
+     * @param clazz          the class for which the decision has been made
+     * @param configuration  the configuration used for resolving the instrumentation of the class
+     * @param uninstrumented true, if the class does not require any instrumentation
+     */
+    public void recordDecision(Class<?> clazz, InstrumentationConfiguration configuration, boolean uninstrumented) {
+        Decisions decisions = activeDecisions;
+        if (decisions != null && decisions.configuration == configuration) {
+            Long key = getClassKey(clazz);
+            if (key != null) {
+                boolean changed;
+                if (uninstrumented) {
+                    changed = decisions.uninstrumentedClasses.put(key, generation) == null;
+                } else {
+                    changed = decisions.uninstrumentedClasses.remove(key) != null;
+                }
+                if (changed) {
+                    modified.set(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of classes known to not require any instrumentation with the active configuration
+     */
+    public int size() {
+        Decisions decisions = activeDecisions;
+        return decisions == null ? 0 : decisions.uninstrumentedClasses.size();
+    }
+
+    /**
+     * Writes the decisions to the file if they have changed and reports the hits and misses since the last invocation.
+     */
+    @VisibleForTesting
+    void saveAndReport() {
+        try {
+            save();
+            report("hit", hits.sumThenReset());
+            report("miss", misses.sumThenReset());
+        } catch (Exception e) {
+            log.error("Error saving the instrumentation decisions", e);
+        }
+    }
+
+    /**
+     * @return the key identifying the given class, null if the bytecode of the class is unknown
+     */
+    private Long getClassKey(Class<?> clazz) {
+        Long key = classKeys.getIfPresent(clazz);
+        if (key == null) {
+            ClassLoader loader = clazz.getClassLoader();
+            Cache<String, Long> bytecodeHashes = loader == null ? definedBootstrapClasses : definedClasses.getIfPresent(loader);
+            Long bytecodeHash = bytecodeHashes == null ? null : bytecodeHashes.asMap().remove(clazz.getName().replace('.', '/'));
+            if (bytecodeHash == null) {
+                return null;
+            }
+            Hasher hasher = HASH_FUNCTION.newHasher();
+            putString(hasher, clazz.getName());
+            putString(hasher, loader == null ? "" : loader.getClass().getName());
+            putString(hasher, getCodeSourceLocation(clazz));
+            key = hasher.putLong(bytecodeHash).hash().asLong();
+            classKeys.put(clazz, key);
+        }
+        return key;
+    }
+
+    private String getCodeSourceLocation(Class<?> clazz) {
+        try {
+            ProtectionDomain protectionDomain = clazz.getProtectionDomain();
+            CodeSource codeSource = protectionDomain == null ? null : protectionDomain.getCodeSource();
+            URL location = codeSource == null ? null : codeSource.getLocation();
+            return location == null ? "" : location.toString();
+        } catch (SecurityException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Computes a hash of all settings which influence whether a class is instrumented.
+     */
+    @VisibleForTesting
+    static long hashConfiguration(InstrumentationConfiguration configuration) {
+        InstrumentationSettings source = configuration.getSource();
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putString(hasher, AgentManager.getAgentVersion());
+        putString(hasher, String.valueOf(configuration.isMetricsEnabled()));
+        putString(hasher, String.valueOf(configuration.isTracingEnabled()));
+        putString(hasher, String.valueOf(configuration.getTracingSettings()));
+        putString(hasher, String.valueOf(source.isExcludeLambdas()));
+        putString(hasher, String.valueOf(source.getSpecial()));
+        putString(hasher, String.valueOf(source.getIgnoredBootstrapPackages()));
+        putString(hasher, String.valueOf(source.getIgnoredPackages()));
+        putString(hasher, String.valueOf(source.getScopes()));
+        putString(hasher, String.valueOf(source.getRules()));
+        return hasher.hash().asLong();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                log.warn("Ignoring the instrumentation decisions stored in '{}' because the file has an unknown format", path);
+                return;
+            }
+            int storedGeneration = in.readInt();
+            long configHash = in.readLong();
+            int count = in.readInt();
+            ConcurrentHashMap<Long, Integer> uninstrumentedClasses = new ConcurrentHashMap<>();
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                int lastUsed = in.readInt();
+                if (storedGeneration - lastUsed < MAX_UNUSED_STARTS) {
+                    uninstrumentedClasses.put(key, lastUsed);
+                }
+            }
+            generation = storedGeneration + 1;
+            storedDecisions = new Decisions(null, configHash, uninstrumentedClasses);
+            log.info("Loaded {} instrumentation decisions from '{}'", uninstrumentedClasses.size(), path);
+        } catch (IOException e) {
+            log.warn("Could not load the instrumentation decisions from '{}': {}", path, e.getMessage());
+        }
+    }
+
+    private synchronized void save() throws IOException {
+        Decisions decisions = activeDecisions;
+        if (decisions == null || !modified.getAndSet(false)) {
+            return;
+        }
+        // copy the decisions, as their number is written before the decisions themselves
+        Map<Long, Integer> snapshot = new HashMap<>(decisions.uninstrumentedClasses);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(generation);
+                out.writeLong(decisions.configHash);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Long, Integer> entry : snapshot.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(entry.getValue());
+                }
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            storedDecisions = decisions;
+        } catch (IOException e) {
+            modified.set(true);
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private void report(String event, long count) {
+        if (count > 0) {
+            selfMonitoring.recordMeasurement(MEASURE_NAME, count, Collections.singletonMap(EVENT_TAG, event));
+        }
+    }
+
+    /**
+     * The classes known to not require any instrumentation with a specific configuration.
+     */
+    private static class Decisions {
+
+        /**
+         * The configuration for which the decisions have been made, null for decisions loaded from the file.
+         */
+        private final InstrumentationConfiguration configuration;
+
+        private final long configHash;
+
+        /**
+         * Maps the keys of the classes to the generation in which the decision has been used the last time.
+         */
+        private final ConcurrentHashMap<Long, Integer> uninstrumentedClasses;
+
+        Decisions(InstrumentationConfiguration configuration, long configHash, ConcurrentHashMap<Long, Integer> uninstrumentedClasses) {
+            this.configuration = configuration;
+            this.configHash = configHash;
+            this.uninstrumentedClasses = uninstrumentedClasses;
+        }
+    }
+}
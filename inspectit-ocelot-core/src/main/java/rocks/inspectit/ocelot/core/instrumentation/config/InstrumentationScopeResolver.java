@@ -13,6 +13,7 @@ import rocks.inspectit.ocelot.config.model.instrumentation.scope.MethodMatcherSe
 import rocks.inspectit.ocelot.config.model.instrumentation.scope.NameMatcherSettings;
 import rocks.inspectit.ocelot.core.instrumentation.config.matcher.MatcherChainBuilder;
 import rocks.inspectit.ocelot.core.instrumentation.config.matcher.SpecialElementMatchers;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndexKey;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationScope;
 
 import java.util.HashMap;
@@ -46,6 +47,7 @@ public class InstrumentationScopeResolver {
             if (log.isDebugEnabled()) {
                 log.debug("|> Type scope: {}", scopeMap.get(scopeName).getTypeMatcher().toString());
                 log.debug("|> Method scope: {}", scopeMap.get(scopeName).getMethodMatcher().toString());
+                log.debug("|> Index key: {}", scopeMap.get(scopeName).getIndexKey());
             }
 
         }
@@ -91,7 +93,7 @@ public class InstrumentationScopeResolver {
         // we ensure that we only match types which contain at least one matched method
         typeMatcher = typeMatcher.and(declaresMethod(methodMatcher));
 
-        cache.put(name, new InstrumentationScope(typeMatcher, methodMatcher));
+        cache.put(name, new InstrumentationScope(typeMatcher, methodMatcher, TypeIndexKey.of(scopeSettings)));
     }
 
     /**
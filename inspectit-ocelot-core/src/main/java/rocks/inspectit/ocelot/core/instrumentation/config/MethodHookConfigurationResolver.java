@@ -1,5 +1,6 @@
 package rocks.inspectit.ocelot.core.instrumentation.config;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultiset;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
@@ -8,13 +9,16 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import rocks.inspectit.ocelot.config.model.instrumentation.actions.ConditionalActionSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.actions.GenericActionSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.RuleTracingSettings;
 import rocks.inspectit.ocelot.core.instrumentation.config.callsorting.CyclicDataDependencyException;
 import rocks.inspectit.ocelot.core.instrumentation.config.callsorting.GenericActionCallSorter;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.ActionCallConfig;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.GenericActionConfig;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationRule;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.MethodHookConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.propagation.PropagationMetaData;
 
 import java.util.*;
 import java.util.function.Function;
@@ -57,7 +61,109 @@ public class MethodHookConfigurationResolver {
             resolveTracing(result, matchedRules);
         }
 
-        return result.build();
+        MethodHookConfiguration hookConfiguration = result.build();
+        Set<String> spanOnlyDataKeys = resolveSpanOnlyDataKeys(hookConfiguration, allSettings.getPropagationMetaData());
+        if (spanOnlyDataKeys.isEmpty()) {
+            return hookConfiguration;
+        }
+        return result.spanOnlyDataKeys(spanOnlyDataKeys).build();
+    }
+
+    /**
+     * Determines the data keys which are only used for writing span attributes or the span status of the given hook,
+     * so that the actions providing them can be skipped if the span is not recorded.
+     * <p>
+     * A data key qualifies if it is only written by non-void actions which are executed while the span is active
+     * (post-entry, pre-exit and exit actions), which are explicitly marked as side effect free
+     * and which do not access the context or object attachments.
+     * In addition, the data key must neither be propagated nor be used as tag, and it may only be read by span related settings
+     * or by actions which themselves provide qualifying data keys.
+     *
+     * @param hookConfiguration the resolved configuration of the hook
+     * @param propagation       the propagation settings of all data keys, if null no data key qualifies
+     *
+     * @return the qualifying data keys
+     */
+    @VisibleForTesting
+    Set<String> resolveSpanOnlyDataKeys(MethodHookConfiguration hookConfiguration, PropagationMetaData propagation) {
+        RuleTracingSettings tracing = hookConfiguration.getTracing();
+        boolean spanEntered = Boolean.TRUE.equals(tracing.getStartSpan()) || tracing.getContinueSpan() != null;
+        if (propagation == null || !spanEntered) {
+            return Collections.emptySet();
+        }
+
+        Set<String> spanReads = new HashSet<>(tracing.getAttributes().values());
+        spanReads.add(tracing.getErrorStatus());
+        addConditionDataKeys(tracing.getAttributeConditions(), spanReads);
+
+        Set<String> otherReads = new HashSet<>();
+        otherReads.add(tracing.getName());
+        otherReads.add(tracing.getSampleProbability());
+        otherReads.add(tracing.getContinueSpan());
+        otherReads.add(tracing.getStoreSpan());
+        addConditionDataKeys(tracing.getStartSpanConditions(), otherReads);
+        addConditionDataKeys(tracing.getContinueSpanConditions(), otherReads);
+        addConditionDataKeys(tracing.getEndSpanConditions(), otherReads);
+        hookConfiguration.getMetrics().forEach(metric -> {
+            otherReads.add(metric.getValue());
+            if (metric.getDataTags() != null) {
+                otherReads.addAll(metric.getDataTags().values());
+            }
+        });
+
+        List<ActionCallConfig> spanActiveCalls = new ArrayList<>();
+        spanActiveCalls.addAll(hookConfiguration.getPostEntryActions());
+        spanActiveCalls.addAll(hookConfiguration.getPreExitActions());
+        spanActiveCalls.addAll(hookConfiguration.getExitActions());
+        List<ActionCallConfig> otherCalls = new ArrayList<>();
+        otherCalls.addAll(hookConfiguration.getPreEntryActions());
+        otherCalls.addAll(hookConfiguration.getEntryActions());
+        otherCalls.addAll(hookConfiguration.getPostExitActions());
+
+        Predicate<ActionCallConfig> isSkippable = call -> {
+            GenericActionConfig action = call.getAction();
+            return !action.isVoid()
+                    && action.isSideEffectFree()
+                    && !action.getAdditionalArgumentTypes().containsKey(GenericActionSettings.CONTEXT_VARIABLE)
+                    && !action.getAdditionalArgumentTypes().containsKey(GenericActionSettings.OBJECT_ATTACHMENTS_VARIABLE);
+        };
+        Set<String> candidates = spanActiveCalls.stream()
+                .map(ActionCallConfig::getName)
+                .filter(key -> !propagation.isPropagatedUpWithinJVM(key) && !propagation.isPropagatedDownWithinJVM(key) && !propagation.isTag(key))
+                .collect(Collectors.toSet());
+        // data keys written by any action which can not be skipped are always required
+        spanActiveCalls.stream()
+                .filter(isSkippable.negate())
+                .forEach(call -> candidates.remove(call.getName()));
+        otherCalls.forEach(call -> candidates.remove(call.getName()));
+
+        // remove candidates until only data keys remain which are read exclusively by span settings or other candidates
+        boolean changed = true;
+        while (changed) {
+            Set<String> requiredReads = new HashSet<>(otherReads);
+            Set<String> spanOnlyReads = new HashSet<>(spanReads);
+            for (ActionCallConfig call : spanActiveCalls) {
+                Set<String> callReads = candidates.contains(call.getName()) ? spanOnlyReads : requiredReads;
+                addCallDataKeys(call, callReads);
+            }
+            otherCalls.forEach(call -> addCallDataKeys(call, requiredReads));
+            changed = candidates.removeIf(key -> requiredReads.contains(key) || !spanOnlyReads.contains(key));
+        }
+        return candidates;
+    }
+
+    private void addCallDataKeys(ActionCallConfig call, Set<String> dataKeys) {
+        dataKeys.addAll(call.getCallSettings().getDataInput().values());
+        addConditionDataKeys(call.getCallSettings(), dataKeys);
+    }
+
+    private void addConditionDataKeys(ConditionalActionSettings conditions, Set<String> dataKeys) {
+        if (conditions != null) {
+            dataKeys.add(conditions.getOnlyIfTrue());
+            dataKeys.add(conditions.getOnlyIfFalse());
+            dataKeys.add(conditions.getOnlyIfNull());
+            dataKeys.add(conditions.getOnlyIfNotNull());
+        }
     }
 
     private void resolveTracing(MethodHookConfiguration.MethodHookConfigurationBuilder result, Set<InstrumentationRule> matchedRules) throws ConflictingDefinitionsException {
@@ -82,7 +188,17 @@ public class MethodHookConfigurationResolver {
 
             resolveSpanAttributeWriting(tracingRules, builder);
 
-            result.tracing(builder.build());
+            RuleTracingSettings tracing = builder.build();
+            result.tracing(tracing);
+            if (tracing.getMaxSpansPerSecond() != null) {
+                // multiple rules can define the same limit, the first name is used so that the choice is deterministic
+                tracingRules.stream()
+                        .filter(r -> r.getTracing().getMaxSpansPerSecond() != null)
+                        .map(InstrumentationRule::getName)
+                        .sorted()
+                        .findFirst()
+                        .ifPresent(result::rateLimitingRule);
+            }
         }
 
     }
@@ -153,13 +269,15 @@ public class MethodHookConfigurationResolver {
         if (startSpan) {
             builder.startSpanConditions(getAndDetectConflicts(rulesDefiningStartSpan, r -> r.getTracing()
                     .getStartSpanConditions(), ALWAYS_TRUE, "start span conditions"));
-            //name, kind and sample probability can be defined by rules which do not start a span themselves
+            //name, kind, sample probability and rate limit can be defined by rules which do not start a span themselves
             builder.name(getAndDetectConflicts(matchedRules, r -> r.getTracing()
                     .getName(), n -> !StringUtils.isEmpty(n), "the span name"));
             builder.kind(getAndDetectConflicts(matchedRules, r -> r.getTracing()
                     .getKind(), Objects::nonNull, "the span kind"));
             builder.sampleProbability(getAndDetectConflicts(matchedRules, r -> r.getTracing()
                     .getSampleProbability(), n -> !StringUtils.isEmpty(n), "the trace sample probability"));
+            builder.maxSpansPerSecond(getAndDetectConflicts(matchedRules, r -> r.getTracing()
+                    .getMaxSpansPerSecond(), Objects::nonNull, "the maximum spans per second"));
         }
     }
 
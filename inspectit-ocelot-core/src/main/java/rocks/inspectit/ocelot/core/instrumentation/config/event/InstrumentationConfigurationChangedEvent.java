@@ -6,6 +6,7 @@ import rocks.inspectit.ocelot.core.config.InspectitConfigChangedEvent;
 import rocks.inspectit.ocelot.config.model.InspectitConfig;
 import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfigurationDiff;
 
 /**
  * This event is fired when the {@link InstrumentationConfigurationResolver} has resolved a new {@link InstrumentationConfiguration}.
@@ -27,9 +28,15 @@ public class InstrumentationConfigurationChangedEvent extends ApplicationEvent {
      */
     private final InstrumentationConfiguration newConfig;
 
-    public InstrumentationConfigurationChangedEvent(Object source, InstrumentationConfiguration oldConfig, InstrumentationConfiguration newConfig) {
+    /**
+     * Describes which classes are affected by the change from {@link #oldConfig} to {@link #newConfig}.
+     */
+    private final InstrumentationConfigurationDiff diff;
+
+    public InstrumentationConfigurationChangedEvent(Object source, InstrumentationConfiguration oldConfig, InstrumentationConfiguration newConfig, InstrumentationConfigurationDiff diff) {
         super(source);
         this.oldConfig = oldConfig;
         this.newConfig = newConfig;
+        this.diff = diff;
     }
 }
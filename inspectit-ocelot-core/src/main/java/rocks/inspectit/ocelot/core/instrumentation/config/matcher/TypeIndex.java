@@ -0,0 +1,180 @@
+package rocks.inspectit.ocelot.core.instrumentation.config.matcher;
+
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Index for looking up the elements (e.g. scopes) which can match a given type, based on their {@link TypeIndexKey}.
+ * The index only narrows down the candidates: the returned elements still have to be checked using their actual matchers.
+ * Elements without a key can match any type and are therefore always returned.
+ * <p>
+ * Instances are not thread safe during population, but can be queried concurrently afterwards.
+ *
+ * @param <T> the type of the indexed elements
+ */
+public class TypeIndex<T> {
+
+    private final Map<String, List<T>> byTypeName = new HashMap<>();
+
+    private final Map<String, List<T>> bySuperTypeName = new HashMap<>();
+
+    private final Map<String, List<T>> byAnnotationName = new HashMap<>();
+
+    private final PrefixMap<T> byTypeNamePrefix = new PrefixMap<>();
+
+    private final PrefixMap<T> bySuperTypeNamePrefix = new PrefixMap<>();
+
+    private final List<T> unindexed = new ArrayList<>();
+
+    private int size;
+
+    /**
+     * Adds the given element to the index.
+     *
+     * @param key     the key of the element, null if the element can match any type
+     * @param element the element to add
+     */
+    public void add(TypeIndexKey key, T element) {
+        size++;
+        if (key == null) {
+            unindexed.add(element);
+            return;
+        }
+        switch (key.getKind()) {
+            case TYPE_NAME:
+                byTypeName.computeIfAbsent(key.getValue(), k -> new ArrayList<>()).add(element);
+                break;
+            case SUPER_TYPE_NAME:
+                bySuperTypeName.computeIfAbsent(key.getValue(), k -> new ArrayList<>()).add(element);
+                break;
+            case ANNOTATION_NAME:
+                byAnnotationName.computeIfAbsent(key.getValue(), k -> new ArrayList<>()).add(element);
+                break;
+            case TYPE_NAME_PREFIX:
+                byTypeNamePrefix.add(key.getValue(), element);
+                break;
+            case SUPER_TYPE_NAME_PREFIX:
+                bySuperTypeNamePrefix.add(key.getValue(), element);
+                break;
+            default:
+                throw new IllegalArgumentException("Unhandled key kind: " + key.getKind());
+        }
+    }
+
+    /**
+     * @return the total number of elements in this index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes each element which can match the given type to the given consumer. Each element is passed at most once.
+     *
+     * @param type     the type to look up
+     * @param consumer the consumer receiving the candidates
+     */
+    public void forEachCandidate(TypeDescription type, Consumer<? super T> consumer) {
+        unindexed.forEach(consumer);
+
+        String name = type.getActualName();
+        forEach(byTypeName.get(name), consumer);
+        byTypeNamePrefix.forEachMatch(Collections.singleton(name), consumer);
+
+        if (!byAnnotationName.isEmpty()) {
+            for (AnnotationDescription annotation : type.getDeclaredAnnotations()) {
+                forEach(byAnnotationName.get(annotation.getAnnotationType().getActualName()), consumer);
+            }
+        }
+
+        if (!bySuperTypeName.isEmpty() || !bySuperTypeNamePrefix.isEmpty()) {
+            Set<String> hierarchy = getHierarchyNames(type);
+            for (String superTypeName : hierarchy) {
+                forEach(bySuperTypeName.get(superTypeName), consumer);
+            }
+            bySuperTypeNamePrefix.forEachMatch(hierarchy, consumer);
+        }
+    }
+
+    /**
+     * Collects the names of the given type, all of its superclasses and all interfaces implemented by any of them.
+     */
+    private Set<String> getHierarchyNames(TypeDescription type) {
+        Set<String> names = new HashSet<>();
+        Deque<TypeDefinition> pending = new ArrayDeque<>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            TypeDescription current = pending.poll().asErasure();
+            if (names.add(current.getActualName())) {
+                TypeDescription.Generic superClass = current.getSuperClass();
+                if (superClass != null) {
+                    pending.add(superClass);
+                }
+                pending.addAll(current.getInterfaces());
+            }
+        }
+        return names;
+    }
+
+    private static <T> void forEach(List<T> elements, Consumer<? super T> consumer) {
+        if (elements != null) {
+            elements.forEach(consumer);
+        }
+    }
+
+    /**
+     * Maps name prefixes to elements. A lookup probes each distinct prefix length once.
+     */
+    private static class PrefixMap<T> {
+
+        private final Map<String, List<T>> byPrefix = new HashMap<>();
+
+        /**
+         * The distinct lengths of all prefixes in ascending order.
+         */
+        private int[] lengths = new int[0];
+
+        void add(String prefix, T element) {
+            byPrefix.computeIfAbsent(prefix, k -> new ArrayList<>()).add(element);
+            int index = Arrays.binarySearch(lengths, prefix.length());
+            if (index < 0) {
+                int insertAt = -index - 1;
+                int[] newLengths = new int[lengths.length + 1];
+                System.arraycopy(lengths, 0, newLengths, 0, insertAt);
+                newLengths[insertAt] = prefix.length();
+                System.arraycopy(lengths, insertAt, newLengths, insertAt + 1, lengths.length - insertAt);
+                lengths = newLengths;
+            }
+        }
+
+        boolean isEmpty() {
+            return byPrefix.isEmpty();
+        }
+
+        /**
+         * Passes the elements of all prefixes which match at least one of the given names to the consumer.
+         */
+        void forEachMatch(Collection<String> names, Consumer<? super T> consumer) {
+            if (byPrefix.isEmpty()) {
+                return;
+            }
+            Set<String> matchedPrefixes = names.size() > 1 ? new HashSet<>() : null;
+            for (String name : names) {
+                for (int length : lengths) {
+                    if (length > name.length()) {
+                        break;
+                    }
+                    String prefix = name.substring(0, length);
+                    List<T> elements = byPrefix.get(prefix);
+                    if (elements != null && (matchedPrefixes == null || matchedPrefixes.add(prefix))) {
+                        elements.forEach(consumer);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package rocks.inspectit.ocelot.core.instrumentation.config.matcher;
+
+import lombok.Value;
+import org.apache.commons.lang3.StringUtils;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.ElementDescriptionMatcherSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.InstrumentationScopeSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.MatcherMode;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.NameMatcherSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A condition which is necessarily fulfilled by every type matched by the type matcher of a scope.
+ * It is used by the {@link TypeIndex} to look up the scopes which can match a type without evaluating their matchers.
+ */
+@Value
+public class TypeIndexKey {
+
+    public enum Kind {
+        /**
+         * The name of the type is equal to the value.
+         */
+        TYPE_NAME,
+        /**
+         * The type or one of its superclasses or interfaces has the value as name.
+         */
+        SUPER_TYPE_NAME,
+        /**
+         * The type is annotated with the annotation with the value as name.
+         */
+        ANNOTATION_NAME,
+        /**
+         * The name of the type starts with the value.
+         */
+        TYPE_NAME_PREFIX,
+        /**
+         * The name of the type or one of its superclasses or interfaces starts with the value.
+         */
+        SUPER_TYPE_NAME_PREFIX
+    }
+
+    private Kind kind;
+
+    private String value;
+
+    /**
+     * Derives the most selective key from the given scope settings.
+     * Exact names are preferred over annotations, annotations are preferred over prefixes.
+     *
+     * @param settings the settings of the scope
+     * @return the key or null if the type matcher of the scope cannot be indexed
+     */
+    public static TypeIndexKey of(InstrumentationScopeSettings settings) {
+        ElementDescriptionMatcherSettings type = settings.getType();
+        List<ElementDescriptionMatcherSettings> superTypes = new ArrayList<>();
+        if (settings.getSuperclass() != null) {
+            superTypes.add(settings.getSuperclass());
+        }
+        if (settings.getInterfaces() != null) {
+            superTypes.addAll(settings.getInterfaces());
+        }
+
+        if (hasName(type, MatcherMode.EQUALS_FULLY)) {
+            return new TypeIndexKey(Kind.TYPE_NAME, type.getName());
+        }
+        for (ElementDescriptionMatcherSettings superType : superTypes) {
+            if (hasName(superType, MatcherMode.EQUALS_FULLY)) {
+                return new TypeIndexKey(Kind.SUPER_TYPE_NAME, superType.getName());
+            }
+        }
+        if (type != null && type.getAnnotations() != null) {
+            for (NameMatcherSettings annotation : type.getAnnotations()) {
+                if (hasName(annotation, MatcherMode.EQUALS_FULLY)) {
+                    return new TypeIndexKey(Kind.ANNOTATION_NAME, annotation.getName());
+                }
+            }
+        }
+        if (hasName(type, MatcherMode.STARTS_WITH)) {
+            return new TypeIndexKey(Kind.TYPE_NAME_PREFIX, type.getName());
+        }
+        for (ElementDescriptionMatcherSettings superType : superTypes) {
+            if (hasName(superType, MatcherMode.STARTS_WITH)) {
+                return new TypeIndexKey(Kind.SUPER_TYPE_NAME_PREFIX, superType.getName());
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasName(NameMatcherSettings settings, MatcherMode mode) {
+        return settings != null && settings.getMatcherMode() == mode && StringUtils.isNotEmpty(settings.getName());
+    }
+}
@@ -7,6 +7,7 @@ import rocks.inspectit.ocelot.core.instrumentation.special.SpecialSensor;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Defines the actual or requested state of the instrumentation of a single class.
@@ -43,6 +44,7 @@ public class ClassInstrumentationConfiguration {
     /**
      * Compares this instrumentation configuration against another.
      * Two instrumentations are considered to be the "same" if they result in the same bytecode changes.
+     * Only the scopes of the active rules influence the bytecode, changed actions of a rule are applied by replacing the hooks.
      * To check if a given configuration represents "no instrumentation" you should rather use {@link #isNoInstrumentation()}
      * isntead of comparing against {@link #NO_INSTRUMENTATION}.
      *
@@ -54,7 +56,7 @@ public class ClassInstrumentationConfiguration {
         if (!ConfigUtils.contentsEqual(activeSpecialSensors, other.activeSpecialSensors)) {
             return false;
         }
-        if (!ConfigUtils.contentsEqual(getActiveRules(), other.getActiveRules())) {
+        if (!ConfigUtils.contentsEqual(getActiveScopes(), other.getActiveScopes())) {
             return false;
         }
         for (SpecialSensor sensor : activeSpecialSensors) {
@@ -65,6 +67,15 @@ public class ClassInstrumentationConfiguration {
         return true;
     }
 
+    /**
+     * @return the scopes of all active rules
+     */
+    private Set<InstrumentationScope> getActiveScopes() {
+        return activeRules.stream()
+                .flatMap(rule -> rule.getScopes().stream())
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Checks if this configuration induces no bytecode changes to the target class.
      * This is the same as invoking {@link #isSameAs(Class, ClassInstrumentationConfiguration)}
@@ -25,6 +25,11 @@ public class GenericActionConfig {
      */
     private boolean isVoid;
 
+    /**
+     * See {@link GenericActionSettings#sideEffectFree}
+     */
+    private boolean sideEffectFree;
+
     /**
      * The name uniquely identifying this generic action.
      */
@@ -1,16 +1,22 @@
 package rocks.inspectit.ocelot.core.instrumentation.config.model;
 
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Singular;
+import lombok.ToString;
 import lombok.Value;
 import lombok.experimental.NonFinal;
 import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
 import rocks.inspectit.ocelot.config.model.metrics.MetricsSettings;
 import rocks.inspectit.ocelot.config.model.tracing.TracingSettings;
 import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndex;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.propagation.PropagationMetaData;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -49,6 +55,14 @@ public class InstrumentationConfiguration {
      */
     private Map<String, InstrumentationRule> rulesMap;
 
+    /**
+     * Indexes the distinct scopes of all active rules, each one together with the rules using it.
+     * Used for finding the rules which can match a type without evaluating the matchers of all scopes.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private TypeIndex<Map.Entry<InstrumentationScope, List<InstrumentationRule>>> scopeIndex;
+
     /**
      * Constructor
      *
@@ -72,6 +86,21 @@ public class InstrumentationConfiguration {
         this.propagationMetaData = propagationMetaData;
         this.tracingSettings = tracingSettings;
         rulesMap = rules.stream().collect(Collectors.toMap(InstrumentationRule::getName, rule -> rule));
+        scopeIndex = buildScopeIndex(rules);
+    }
+
+    private static TypeIndex<Map.Entry<InstrumentationScope, List<InstrumentationRule>>> buildScopeIndex(Collection<InstrumentationRule> rules) {
+        Map<InstrumentationScope, List<InstrumentationRule>> rulesByScope = new LinkedHashMap<>();
+        for (InstrumentationRule rule : rules) {
+            for (InstrumentationScope scope : rule.getScopes()) {
+                rulesByScope.computeIfAbsent(scope, s -> new ArrayList<>()).add(rule);
+            }
+        }
+        TypeIndex<Map.Entry<InstrumentationScope, List<InstrumentationRule>>> index = new TypeIndex<>();
+        for (Map.Entry<InstrumentationScope, List<InstrumentationRule>> entry : rulesByScope.entrySet()) {
+            index.add(entry.getKey().getIndexKey(), entry);
+        }
+        return index;
     }
 
     /**
@@ -0,0 +1,143 @@
+package rocks.inspectit.ocelot.core.instrumentation.config.model;
+
+import lombok.Getter;
+import net.bytebuddy.description.type.TypeDescription;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndex;
+
+import java.util.*;
+
+/**
+ * Describes which classes are affected by the change from one {@link InstrumentationConfiguration} to another.
+ * <p>
+ * If only rules have been added, removed or changed, only the classes matched by the scopes of these rules
+ * (in their old or new version) are affected. This includes rules which (transitively) include a changed rule,
+ * as their hooks contain the actions of the included rules.
+ * Any other change, e.g. of the special sensors or the ignored packages, affects all classes.
+ */
+public class InstrumentationConfigurationDiff {
+
+    /**
+     * True, if all classes are affected by the change.
+     */
+    @Getter
+    private final boolean global;
+
+    /**
+     * The scopes of all affected rules. Only contains elements if {@link #global} is false.
+     */
+    @Getter
+    private final Set<InstrumentationScope> affectedScopes;
+
+    /**
+     * The names of all affected rules. Only contains elements if {@link #global} is false.
+     */
+    @Getter
+    private final Set<String> affectedRuleNames;
+
+    private final TypeIndex<InstrumentationScope> scopeIndex = new TypeIndex<>();
+
+    private InstrumentationConfigurationDiff(boolean global, Set<String> affectedRuleNames, Set<InstrumentationScope> affectedScopes) {
+        this.global = global;
+        this.affectedRuleNames = affectedRuleNames;
+        this.affectedScopes = affectedScopes;
+        affectedScopes.forEach(scope -> scopeIndex.add(scope.getIndexKey(), scope));
+    }
+
+    /**
+     * Computes the difference between the given configurations.
+     *
+     * @param oldConfig the previously active configuration, can be null
+     * @param newConfig the new configuration
+     * @return the diff
+     */
+    public static InstrumentationConfigurationDiff between(InstrumentationConfiguration oldConfig, InstrumentationConfiguration newConfig) {
+        if (oldConfig == null || !isRuleIndependentStateEqual(oldConfig, newConfig)) {
+            return new InstrumentationConfigurationDiff(true, Collections.emptySet(), Collections.emptySet());
+        }
+
+        Set<String> affectedRuleNames = new HashSet<>();
+        Set<String> ruleNames = new HashSet<>(oldConfig.getRulesMap().keySet());
+        ruleNames.addAll(newConfig.getRulesMap().keySet());
+        for (String name : ruleNames) {
+            if (!Objects.equals(oldConfig.getRulesMap().get(name), newConfig.getRulesMap().get(name))) {
+                affectedRuleNames.add(name);
+            }
+        }
+        addIncludingRules(oldConfig, affectedRuleNames);
+        addIncludingRules(newConfig, affectedRuleNames);
+
+        Set<InstrumentationScope> affectedScopes = new HashSet<>();
+        for (String name : affectedRuleNames) {
+            oldConfig.getRuleByName(name).ifPresent(rule -> affectedScopes.addAll(rule.getScopes()));
+            newConfig.getRuleByName(name).ifPresent(rule -> affectedScopes.addAll(rule.getScopes()));
+        }
+        return new InstrumentationConfigurationDiff(false, affectedRuleNames, affectedScopes);
+    }
+
+    /**
+     * Checks whether the given type might be affected by the change.
+     * Types which cannot be analysed are considered to be affected.
+     *
+     * @param type the type to check
+     * @return true, if the instrumentation or the hooks of the type might have changed
+     */
+    public boolean affects(TypeDescription type) {
+        if (global) {
+            return true;
+        }
+        if (affectedScopes.isEmpty()) {
+            return false;
+        }
+        try {
+            boolean[] matched = new boolean[1];
+            scopeIndex.forEachCandidate(type, scope -> {
+                if (!matched[0] && scope.getTypeMatcher().matches(type)) {
+                    matched[0] = true;
+                }
+            });
+            return matched[0];
+        } catch (Throwable t) {
+            return true;
+        }
+    }
+
+    /**
+     * Adds all rules of the given configuration which (transitively) include one of the given rules to the given set.
+     */
+    private static void addIncludingRules(InstrumentationConfiguration config, Set<String> ruleNames) {
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (InstrumentationRule rule : config.getRules()) {
+                if (!ruleNames.contains(rule.getName()) && !Collections.disjoint(rule.getIncludedRuleNames(), ruleNames)) {
+                    ruleNames.add(rule.getName());
+                    added = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares everything except the rules, scopes and actions, which are all reflected by the resolved rules.
+     */
+    private static boolean isRuleIndependentStateEqual(InstrumentationConfiguration oldConfig, InstrumentationConfiguration newConfig) {
+        if (oldConfig.isMetricsEnabled() != newConfig.isMetricsEnabled()
+                || oldConfig.isTracingEnabled() != newConfig.isTracingEnabled()
+                || !Objects.equals(oldConfig.getTracingSettings(), newConfig.getTracingSettings())
+                || !Objects.equals(oldConfig.getPropagationMetaData(), newConfig.getPropagationMetaData())) {
+            return false;
+        }
+        InstrumentationSettings oldSource = oldConfig.getSource();
+        InstrumentationSettings newSource = newConfig.getSource();
+        if (oldSource == null || newSource == null) {
+            return oldSource == newSource;
+        }
+        return Objects.equals(oldSource.getInternal(), newSource.getInternal())
+                && Objects.equals(oldSource.getSpecial(), newSource.getSpecial())
+                && Objects.equals(oldSource.getIgnoredBootstrapPackages(), newSource.getIgnoredBootstrapPackages())
+                && Objects.equals(oldSource.getIgnoredPackages(), newSource.getIgnoredPackages())
+                && Objects.equals(oldSource.getData(), newSource.getData())
+                && oldSource.isExcludeLambdas() == newSource.isExcludeLambdas();
+    }
+}
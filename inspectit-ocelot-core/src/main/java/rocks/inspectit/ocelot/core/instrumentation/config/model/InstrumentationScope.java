@@ -1,15 +1,28 @@
 package rocks.inspectit.ocelot.core.instrumentation.config.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndex;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndexKey;
 
 @Value
+@AllArgsConstructor
 public class InstrumentationScope {
 
     private ElementMatcher.Junction<TypeDescription> typeMatcher;
 
     private ElementMatcher.Junction<MethodDescription> methodMatcher;
 
+    /**
+     * The key under which this scope is stored in the {@link TypeIndex}, null if the scope can match any type.
+     */
+    private TypeIndexKey indexKey;
+
+    public InstrumentationScope(ElementMatcher.Junction<TypeDescription> typeMatcher, ElementMatcher.Junction<MethodDescription> methodMatcher) {
+        this(typeMatcher, methodMatcher, null);
+    }
+
 }
@@ -10,6 +10,7 @@ import rocks.inspectit.ocelot.config.model.instrumentation.rules.RuleTracingSett
 import rocks.inspectit.ocelot.core.instrumentation.hook.MethodHook;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * The configuration used to build a {@link MethodHook}
@@ -25,6 +26,12 @@ public class MethodHookConfiguration {
     @Builder.Default
     private RuleTracingSettings tracing = RuleTracingSettings.NO_TRACING_AND_ATTRIBUTES;
 
+    /**
+     * The name of the rule defining {@link RuleTracingSettings#getMaxSpansPerSecond()} of {@link #tracing}, null if no rate limit is defined.
+     * All hooks with the same rate limiting rule share the same budget.
+     */
+    private String rateLimitingRule;
+
     /**
      * Holds all actions executed in the specified order directly before the ones in {@link #entryActions}.
      */
@@ -71,4 +78,11 @@ public class MethodHookConfiguration {
      */
     @Builder.Default
     private Multiset<MetricRecordingSettings> metrics = HashMultiset.create();
+
+    /**
+     * The data keys which are only used for writing span attributes or the span status and are neither propagated nor used as tags.
+     * The actions providing these data keys are skipped if the span of the hook is not recorded.
+     */
+    @Singular
+    private Set<String> spanOnlyDataKeys;
 }
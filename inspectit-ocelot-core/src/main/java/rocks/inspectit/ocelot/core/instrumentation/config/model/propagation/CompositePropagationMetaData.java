@@ -1,5 +1,6 @@
 package rocks.inspectit.ocelot.core.instrumentation.config.model.propagation;
 
+import lombok.EqualsAndHashCode;
 import rocks.inspectit.ocelot.config.model.instrumentation.data.PropagationMode;
 
 import java.util.HashMap;
@@ -12,6 +13,7 @@ import java.util.Map;
  * If a value was not explicitly defined for a data key, the lookup is delegated to a "parent" {@link PropagationMetaData}
  * instance.
  */
+@EqualsAndHashCode
 class CompositePropagationMetaData implements PropagationMetaData {
 
     /**
@@ -1,5 +1,6 @@
 package rocks.inspectit.ocelot.core.instrumentation.config.model.propagation;
 
+import lombok.EqualsAndHashCode;
 import rocks.inspectit.ocelot.config.model.instrumentation.data.PropagationMode;
 
 import java.util.HashSet;
@@ -12,6 +13,7 @@ import java.util.Set;
  * Has an optimized {@link #copy()} which slightly reduces the performance of the resulting {@link PropagationMetaData},
  * it however provides a copy time proportional only to the number of changed settings.
  */
+@EqualsAndHashCode
 class RootPropagationMetaData implements PropagationMetaData {
 
     /**
@@ -10,8 +10,11 @@ import lombok.Value;
 import rocks.inspectit.ocelot.bootstrap.Instances;
 import rocks.inspectit.ocelot.bootstrap.context.ContextTuple;
 import rocks.inspectit.ocelot.bootstrap.context.IContextManager;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.InternalSettings;
 import rocks.inspectit.ocelot.core.config.spring.BootstrapInitializerConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
 import rocks.inspectit.ocelot.core.tags.CommonTagsManager;
 
 import java.util.concurrent.Callable;
@@ -45,6 +48,11 @@ public class ContextManager implements IContextManager {
      */
     private final ThreadLocal<Boolean> correlationFlag = ThreadLocal.withInitial(() -> false);
 
+    /**
+     * The pool used for creating contexts in case {@link InternalSettings#isContextPooling()} is enabled.
+     */
+    private final InspectitContextPool contextPool = new InspectitContextPool();
+
     public ContextManager(CommonTagsManager commonTagsManager, InstrumentationConfigurationResolver configProvider) {
         this.commonTagsManager = commonTagsManager;
         this.configProvider = configProvider;
@@ -52,21 +60,50 @@ public class ContextManager implements IContextManager {
 
     @Override
     public Runnable wrap(Runnable r) {
+        markCurrentContextEscaped();
         return Context.current().wrap(r);
     }
 
     @Override
     public <T> Callable<T> wrap(Callable<T> callable) {
+        markCurrentContextEscaped();
         return Context.current().wrap(callable);
     }
 
     @Override
     public InspectitContextImpl enterNewContext() {
-        return InspectitContextImpl.createFromCurrent(commonTagsManager.getCommonTagValueMap(), configProvider.getCurrentConfig().getPropagationMetaData(), IS_OPEN_CENSUS_ON_BOOTSTRAP);
+        InstrumentationConfiguration config = configProvider.getCurrentConfig();
+        InspectitContextPool pool = isContextPoolingEnabled(config) ? contextPool : null;
+        return InspectitContextImpl.createFromCurrent(commonTagsManager.getCommonTagValueMap(), config.getPropagationMetaData(), IS_OPEN_CENSUS_ON_BOOTSTRAP, pool);
+    }
+
+    /**
+     * @return true, if {@link InternalSettings#isContextPooling()} is enabled in the current configuration
+     */
+    public boolean isContextPoolingEnabled() {
+        return isContextPoolingEnabled(configProvider.getCurrentConfig());
+    }
+
+    private boolean isContextPoolingEnabled(InstrumentationConfiguration config) {
+        InstrumentationSettings settings = config.getSource();
+        return settings != null && settings.getInternal() != null && settings.getInternal().isContextPooling();
+    }
+
+    /**
+     * The currently active context is captured together with the GRPC context, so it can be accessed by other threads
+     * even after it has been closed. Therefore, it has to be excluded from pooling.
+     */
+    private void markCurrentContextEscaped() {
+        InspectitContextImpl.ContextReference reference = InspectitContextImpl.INSPECTIT_KEY.get();
+        InspectitContextImpl current = reference == null ? null : reference.get();
+        if (current != null) {
+            current.markEscaped();
+        }
     }
 
     @Override
     public void storeContext(Object target, boolean invalidateAfterRestoring) {
+        markCurrentContextEscaped();
         InvalidationContext invalidationContext = new InvalidationContext(invalidateAfterRestoring, Context.current());
         contextCache.put(target, invalidationContext);
     }
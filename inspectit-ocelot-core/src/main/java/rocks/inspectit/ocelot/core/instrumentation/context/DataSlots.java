@@ -0,0 +1,84 @@
+package rocks.inspectit.ocelot.core.instrumentation.context;
+
+import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns data keys into integer slots.
+ * <p>
+ * The set of data keys used by the instrumentation is known as soon as a configuration has been resolved.
+ * Therefore the {@link InstrumentationConfigurationResolver} registers all data keys of a configuration,
+ * so that hooks can access the data of an {@link InspectitContextImpl} via the slot of a key instead of hashing the key on each access.
+ * <p>
+ * Slots are never reassigned: once registered, a slot stays valid for the lifetime of the agent, even if the key is not
+ * used anymore by the active configuration. This way, accessors bound to a slot never become stale when the configuration changes.
+ * <p>
+ * Keys which are only known at runtime (e.g. tags read from the application's tag context) are not registered,
+ * as this would allow an unbounded growth of the registry. {@link InspectitContextImpl} stores these keys separately.
+ */
+public class DataSlots {
+
+    /**
+     * Returned by {@link #getSlot(String)} for keys which have not been registered.
+     */
+    public static final int NO_SLOT = -1;
+
+    private static final ConcurrentHashMap<String, Integer> SLOTS_BY_KEY = new ConcurrentHashMap<>();
+
+    /**
+     * Contains the key of each slot at the index of the slot.
+     * The array is replaced on each registration, so that it can be read without locking.
+     */
+    private static volatile String[] keys = new String[0];
+
+    private DataSlots() {
+    }
+
+    /**
+     * Returns the slot of the given data key, registering the key if it has no slot yet.
+     * Should only be called when a configuration is resolved or a hook is built, not for keys derived at runtime.
+     *
+     * @param key the data key
+     *
+     * @return the slot of the key
+     */
+    public static int getOrCreateSlot(String key) {
+        Integer slot = SLOTS_BY_KEY.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (DataSlots.class) {
+            slot = SLOTS_BY_KEY.get(key);
+            if (slot == null) {
+                slot = keys.length;
+                String[] newKeys = Arrays.copyOf(keys, slot + 1);
+                newKeys[slot] = key;
+                // publish the key before the slot, so that getKey() succeeds for every slot returned by getSlot()
+                keys = newKeys;
+                SLOTS_BY_KEY.put(key, slot);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * @param key the data key
+     *
+     * @return the slot of the given data key or {@link #NO_SLOT} if the key has not been registered
+     */
+    public static int getSlot(String key) {
+        Integer slot = SLOTS_BY_KEY.get(key);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    /**
+     * @param slot a slot returned by {@link #getSlot(String)} or {@link #getOrCreateSlot(String)}
+     *
+     * @return the data key of the given slot
+     */
+    public static String getKey(int slot) {
+        return keys[slot];
+    }
+}
@@ -15,6 +15,7 @@ import rocks.inspectit.ocelot.core.instrumentation.config.model.propagation.Prop
 import rocks.inspectit.ocelot.core.tags.TagUtils;
 
 import java.util.*;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -35,7 +36,7 @@ import java.util.stream.Stream;
  * There is one exception to the data immutability: child contexts perform the data up-propagation during this contexts active phase.
  * <p>
  * All synchronous child contexts are opened and closed during the "active" phase of their parent.
- * When such a child context is closed, it writes the up-propagated data it changed to the parent by calling {@link #performUpPropagation(Map)}.
+ * When such a child context is closed, it writes the up-propagated data it changed to the parent by calling {@link #performUpPropagation(InspectitContextImpl)}.
  * Note that this only happens if the child context is synchronous, no up-propagation is performed for asynchronous children!
  * <p>
  * The up-propagation does not have an effect on the tag-context opened by the parent during the "active" phase.
@@ -68,6 +69,11 @@ import java.util.stream.Stream;
  * In addition, an {@link InspectitContextImpl} instance can be used for tracing. Hereby, one instance can record exactly one span.
  * To do this {@link #enterSpan(Span)} must be called BEFORE {@link #makeActive()}.
  * The span is automatically finished when {@link #close()} is called.
+ * <p>
+ * If context pooling is enabled, instances are taken from an {@link InspectitContextPool} and are reset and returned to it on {@link #close()}.
+ * Therefore, a context must not be used anymore after it has been closed, unless it has been marked via {@link #markEscaped()}.
+ * The GRPC context does not reference the context directly but through a {@link ContextReference}, which is cleared when the context is recycled.
+ * This way, GRPC contexts captured without our knowledge (e.g. by the application) never expose a context which is reused by another call tree.
  */
 @Slf4j
 public class InspectitContextImpl implements InternalInspectitContext {
@@ -77,7 +83,12 @@ public class InspectitContextImpl implements InternalInspectitContext {
      */
     private static final Set<Class<?>> ALLOWED_TAG_TYPES = new HashSet<>(Arrays.asList(String.class, Character.class, Long.class, Integer.class, Short.class, Byte.class, Double.class, Float.class, Boolean.class));
 
-    static final Context.Key<InspectitContextImpl> INSPECTIT_KEY = Context.key("inspectit-context");
+    static final Context.Key<ContextReference> INSPECTIT_KEY = Context.key("inspectit-context");
+
+    /**
+     * The initial capacity of the arrays storing the data overwrites, see {@link #overwrittenSlots}.
+     */
+    private static final int INITIAL_OVERWRITES_CAPACITY = 4;
 
     /**
      * Points to the parent from which this context inherits its data and to which potential up-propagation is performed.
@@ -96,19 +107,36 @@ public class InspectitContextImpl implements InternalInspectitContext {
      * If this is true, the context will inherit all values from the current {@link TagContext} which was opened by the target application.
      * In addition if this value is true makeActive will open a TagContext containing all down propagated tags stored in this InspectIT context.
      */
-    private final boolean interactWithApplicationTagContexts;
+    private boolean interactWithApplicationTagContexts;
 
     /**
      * Contains the thread in which this context was created.
      * This is used to identify async traces by comparing their thread against the thread of their parent.
      */
-    private final Thread openingThread;
+    private Thread openingThread;
+
+    /**
+     * The pool to which this context is returned when it is closed, null if this context is not pooled.
+     */
+    private final InspectitContextPool pool;
+
+    /**
+     * True, if this context might be accessed after it has been closed, e.g. because it was captured for a
+     * propagation to another thread or because an asynchronous child has been created for it.
+     * Escaped contexts are never returned to the {@link #pool}.
+     */
+    private volatile boolean escaped;
 
     /**
      * Holds the previous GRPC context which was overridden when attaching this context as active in GRPC.
      */
     private Context overriddenGrpcContext;
 
+    /**
+     * The reference stored in the GRPC context by {@link #makeActive()}.
+     */
+    private ContextReference activeReference;
+
     /**
      * The span which was (potentially) opened by invoking {@link #enterSpan(Span)}
      */
@@ -120,7 +148,7 @@ public class InspectitContextImpl implements InternalInspectitContext {
      * Note that this tag context is not necessarily owned by this {@link InspectitContextImpl}.
      * If it did not change any value, the context can simply keep the current context and reference it using this variable.
      * <p>
-     * The tag context is guaranteed to contain the same tags as returned by {@link #getPostEntryPhaseTags()}
+     * The tag context is guaranteed to contain the same tags as present in {@link #postEntryPhaseDownPropagatedData}
      */
     private TagContext activePhaseDownPropagationTagContext;
 
@@ -140,7 +168,7 @@ public class InspectitContextImpl implements InternalInspectitContext {
 
     /**
      * When a new context is created, this map contains the down-propagated data it inherited from its parent context.
-     * During the entry phase, data updates are written to {@link #dataOverwrites}
+     * During the entry phase, data updates are written to the data overwrites (see {@link #overwrittenSlots})
      * When the entry phase terminates with a call to {@link #makeActive()}, this map is replaced with a new
      * one containing also the down-propagated data which has been newly written during the entry phase.
      * <p>
@@ -153,20 +181,42 @@ public class InspectitContextImpl implements InternalInspectitContext {
     private Map<String, Object> postEntryPhaseDownPropagatedData;
 
     /**
-     * Contains all writes performed via {@link #setData(String, Object)} during any life-cycle phase of the context.
-     * This means that this map represents all data which has been altered during the lifetime of this context.
+     * Together with {@link #overwrittenValues} and {@link #unslottedDataOverwrites} this contains all writes performed
+     * via {@link #setData(String, Object)} during any life-cycle phase of the context.
+     * This means that these "data overwrites" represent all data which has been altered during the lifetime of this context.
      * This also includes any writes performed due to the up-propagation of children.
      * <p>
-     * The combination of {@link #postEntryPhaseDownPropagatedData} overwritten by this map therefore presents all current data.
+     * The combination of {@link #postEntryPhaseDownPropagatedData} overwritten by the data overwrites therefore presents all current data.
+     * <p>
+     * For keys which have a slot in {@link DataSlots}, the first {@link #overwrittenCount} elements of this array contain the slots
+     * and the same elements of {@link #overwrittenValues} the written values.
+     * As a context usually only writes a few data keys, scanning these arrays is cheaper than hashing the keys.
+     * Both arrays are allocated on the first write.
      * <p>
-     * Note that this map may contain null values: a null value indicates that the corresponding value has been cleared.
+     * Note that the values may be null: a null value indicates that the corresponding value has been cleared.
      * This is required for example to ensure clearing data is propagated up correctly.
      */
-    private final Map<String, Object> dataOverwrites;
+    private int[] overwrittenSlots;
+
+    /**
+     * The values written for the slots in {@link #overwrittenSlots}.
+     */
+    private Object[] overwrittenValues;
+
+    /**
+     * The number of used elements in {@link #overwrittenSlots} and {@link #overwrittenValues}.
+     */
+    private int overwrittenCount;
+
+    /**
+     * Contains the writes for data keys which have no slot in {@link DataSlots}, e.g. tags inherited from the application's tag context.
+     * Is null until the first such key is written.
+     */
+    private Map<String, Object> unslottedDataOverwrites;
 
     /**
      * When a synchronous child context is opened during the active phase of its parent,
-     * it inherits all {@link #postEntryPhaseDownPropagatedData} in combination with all down-propagated data from {@link #dataOverwrites}
+     * it inherits all {@link #postEntryPhaseDownPropagatedData} in combination with all down-propagated data from the data overwrites
      * With a naive implementation this result map would be recomputed for every child context, even if nothing has changed.
      * <p>
      * This map only changes when an-up propagation of data occurs which also is down propagated.
@@ -179,17 +229,27 @@ public class InspectitContextImpl implements InternalInspectitContext {
      */
     private Map<String, Object> cachedActivePhaseDownPropagatedData = null;
 
-    private InspectitContextImpl(InspectitContextImpl parent, PropagationMetaData defaultPropagation, boolean interactWithApplicationTagContexts) {
+    /**
+     * Creates a new context, which has to be initialized via {@link #enterEntryPhase(InspectitContextImpl, PropagationMetaData, boolean)}.
+     *
+     * @param pool the pool to which the context is returned when it is closed, null if the context should not be pooled
+     */
+    InspectitContextImpl(InspectitContextPool pool) {
+        this.pool = pool;
+    }
+
+    private void enterEntryPhase(InspectitContextImpl parent, PropagationMetaData defaultPropagation, boolean interactWithApplicationTagContexts) {
         this.parent = parent;
         propagation = parent == null ? defaultPropagation : parent.propagation;
         this.interactWithApplicationTagContexts = interactWithApplicationTagContexts;
-        dataOverwrites = new HashMap<>();
         openingThread = Thread.currentThread();
 
         if (parent == null) {
             postEntryPhaseDownPropagatedData = Collections.emptyMap();
         } else {
             if (isInDifferentThreadThanParentOrIsParentClosed()) {
+                // the parent can now be accessed from outside of its call tree
+                parent.markEscaped();
                 postEntryPhaseDownPropagatedData = parent.postEntryPhaseDownPropagatedData;
             } else {
                 //no copying required as the returned object is guaranteed to be immutable
@@ -209,8 +269,25 @@ public class InspectitContextImpl implements InternalInspectitContext {
      * @return the newly created context
      */
     public static InspectitContextImpl createFromCurrent(Map<String, String> commonTags, PropagationMetaData defaultPropagation, boolean interactWithApplicationTagContexts) {
-        InspectitContextImpl parent = INSPECTIT_KEY.get();
-        InspectitContextImpl result = new InspectitContextImpl(parent, defaultPropagation, interactWithApplicationTagContexts);
+        return createFromCurrent(commonTags, defaultPropagation, interactWithApplicationTagContexts, null);
+    }
+
+    /**
+     * Creates a new context which enters its "entry" lifecycle phase, see {@link #createFromCurrent(Map, PropagationMetaData, boolean)}.
+     * If a pool is given, the context is taken from the pool and returned to it when it is closed.
+     *
+     * @param commonTags                         the common tags used to populate the data if this is a root context
+     * @param defaultPropagation                 the data propagation settings to use if this is a root context. Otherwise the parent context's settings will be inherited.
+     * @param interactWithApplicationTagContexts if true, data from the currently active {@link TagContext} will be inherited and makeActive will publish the data as a TagContext
+     * @param pool                               the pool to take the context from, null if a new unpooled context should be created
+     *
+     * @return the newly created or recycled context
+     */
+    static InspectitContextImpl createFromCurrent(Map<String, String> commonTags, PropagationMetaData defaultPropagation, boolean interactWithApplicationTagContexts, InspectitContextPool pool) {
+        ContextReference parentReference = INSPECTIT_KEY.get();
+        InspectitContextImpl parent = parentReference == null ? null : parentReference.getForChild();
+        InspectitContextImpl result = pool == null ? new InspectitContextImpl(null) : pool.acquire();
+        result.enterEntryPhase(parent, defaultPropagation, interactWithApplicationTagContexts);
 
         if (parent == null) {
             commonTags.forEach(result::setData);
@@ -263,16 +340,20 @@ public class InspectitContextImpl implements InternalInspectitContext {
         }
         cachedActivePhaseDownPropagatedData = postEntryPhaseDownPropagatedData;
 
-        overriddenGrpcContext = Context.current().withValue(INSPECTIT_KEY, this).attach();
+        activeReference = new ContextReference(this);
+        overriddenGrpcContext = Context.current().withValue(INSPECTIT_KEY, activeReference).attach();
 
         if (interactWithApplicationTagContexts) {
             Tagger tagger = Tags.getTagger();
             //check if we can reuse the parent context
             if (anyDownPropagatedDataOverwritten || (parent != null && parent.isActivePhaseDownPropagationTagContextStale)) {
+                // the tag context must not reference this InspectitContext, as it can outlive it (e.g. when metrics are recorded asynchronously)
+                Map<String, Object> postEntryPhaseData = postEntryPhaseDownPropagatedData;
+                PropagationMetaData postEntryPhasePropagation = propagation;
                 openedDownPropagationScope = tagger.withTagContext(new TagContext() {
                     @Override
                     protected Iterator<Tag> getIterator() {
-                        return getPostEntryPhaseTags();
+                        return getTags(postEntryPhaseData, postEntryPhasePropagation);
                     }
                 });
             }
@@ -281,11 +362,18 @@ public class InspectitContextImpl implements InternalInspectitContext {
     }
 
     private boolean anyDownPropagatedDataOverridden() {
-        for (String key : dataOverwrites.keySet()) {
-            if (propagation.isPropagatedDownWithinJVM(key)) {
+        for (int i = 0; i < overwrittenCount; i++) {
+            if (propagation.isPropagatedDownWithinJVM(DataSlots.getKey(overwrittenSlots[i]))) {
                 return true;
             }
         }
+        if (unslottedDataOverwrites != null) {
+            for (String key : unslottedDataOverwrites.keySet()) {
+                if (propagation.isPropagatedDownWithinJVM(key)) {
+                    return true;
+                }
+            }
+        }
         return false;
     }
 
@@ -300,6 +388,15 @@ public class InspectitContextImpl implements InternalInspectitContext {
         return () -> getDataAsStream().iterator();
     }
 
+    /**
+     * Marks this context as escaped, meaning that it might be accessed after it has been closed.
+     * Escaped contexts are not recycled by the {@link InspectitContextPool}.
+     * Must be called whenever the context is captured for a propagation to another thread.
+     */
+    void markEscaped() {
+        escaped = true;
+    }
+
     /**
      * @return true, if {@link #makeActive()} was called but {@link #close()} was not called yet
      */
@@ -346,8 +443,32 @@ public class InspectitContextImpl implements InternalInspectitContext {
      */
     @Override
     public Object getData(String key) {
-        if (dataOverwrites.containsKey(key)) {
-            return dataOverwrites.get(key);
+        int slot = DataSlots.getSlot(key);
+        if (slot != DataSlots.NO_SLOT) {
+            return getData(slot);
+        }
+        return getUnslottedData(key);
+    }
+
+    /**
+     * Same as {@link #getData(String)}, but the data is identified by its slot.
+     *
+     * @param slot the slot of the data key to query, see {@link DataSlots}
+     *
+     * @return the data element which is related to the given slot or `null` if it doesn't exist
+     */
+    public Object getData(int slot) {
+        int index = indexOfOverwrittenSlot(slot);
+        if (index != -1) {
+            return overwrittenValues[index];
+        }
+        // the key might have been written before it was registered
+        return getUnslottedData(DataSlots.getKey(slot));
+    }
+
+    private Object getUnslottedData(String key) {
+        if (unslottedDataOverwrites != null && unslottedDataOverwrites.containsKey(key)) {
+            return unslottedDataOverwrites.get(key);
         } else {
             return postEntryPhaseDownPropagatedData.get(key);
         }
@@ -357,14 +478,62 @@ public class InspectitContextImpl implements InternalInspectitContext {
      * /**
      * Sets the value for a given data key.
      * If this is called during the entry phase of the context, the changed datum will be reflected
-     * in postEntryPhaseDownPropagatedData and {@link #getPostEntryPhaseTags()}.
+     * in postEntryPhaseDownPropagatedData and the tags published by {@link #makeActive()}.
      *
      * @param key   the key of the data to set
      * @param value the value to set
      */
     @Override
     public void setData(String key, Object value) {
-        dataOverwrites.put(key, value);
+        int slot = DataSlots.getSlot(key);
+        if (slot != DataSlots.NO_SLOT) {
+            setData(slot, value);
+        } else {
+            if (unslottedDataOverwrites == null) {
+                unslottedDataOverwrites = new HashMap<>();
+            }
+            unslottedDataOverwrites.put(key, value);
+        }
+    }
+
+    /**
+     * Same as {@link #setData(String, Object)}, but the data is identified by its slot.
+     *
+     * @param slot  the slot of the data key to set, see {@link DataSlots}
+     * @param value the value to set
+     */
+    public void setData(int slot, Object value) {
+        int index = indexOfOverwrittenSlot(slot);
+        if (index == -1) {
+            if (overwrittenSlots == null) {
+                overwrittenSlots = new int[INITIAL_OVERWRITES_CAPACITY];
+                overwrittenValues = new Object[INITIAL_OVERWRITES_CAPACITY];
+            } else if (overwrittenCount == overwrittenSlots.length) {
+                overwrittenSlots = Arrays.copyOf(overwrittenSlots, overwrittenCount * 2);
+                overwrittenValues = Arrays.copyOf(overwrittenValues, overwrittenCount * 2);
+            }
+            index = overwrittenCount++;
+            overwrittenSlots[index] = slot;
+        }
+        overwrittenValues[index] = value;
+        if (unslottedDataOverwrites != null) {
+            // the key might have been written before it was registered
+            unslottedDataOverwrites.remove(DataSlots.getKey(slot));
+        }
+    }
+
+    private int indexOfOverwrittenSlot(int slot) {
+        for (int i = 0; i < overwrittenCount; i++) {
+            if (overwrittenSlots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isOverwritten(String key) {
+        int slot = DataSlots.getSlot(key);
+        return (slot != DataSlots.NO_SLOT && indexOfOverwrittenSlot(slot) != -1) || (unslottedDataOverwrites != null && unslottedDataOverwrites.containsKey(key));
     }
 
     /**
@@ -388,33 +557,83 @@ public class InspectitContextImpl implements InternalInspectitContext {
         }
 
         if (parent != null && !isInDifferentThreadThanParentOrIsParentClosed()) {
-            parent.performUpPropagation(dataOverwrites);
+            parent.performUpPropagation(this);
         }
         //clear the references to prevent memory leaks
         openedDownPropagationScope = null;
         currentSpanScope = null;
         parent = null;
         overriddenGrpcContext = null;
+
+        // contexts are only recycled by their opening thread, as the pools are thread local
+        if (pool != null && !escaped && openingThread == Thread.currentThread()) {
+            ContextReference reference = activeReference;
+            activeReference = null;
+            if (reference == null) {
+                recycle();
+            } else {
+                // a child in another thread marks the context as escaped before checking the reference again, see ContextReference#getForChild
+                reference.context = null;
+                if (!escaped) {
+                    recycle();
+                } else {
+                    reference.context = this;
+                }
+            }
+        }
     }
 
-    private void performUpPropagation(Map<String, Object> dataWrittenByChild) {
-        for (Map.Entry<String, Object> entry : dataWrittenByChild.entrySet()) {
-            if (propagation.isPropagatedUpWithinJVM(entry.getKey())) {
+    /**
+     * Resets the state of this closed context and returns it to its {@link #pool}.
+     */
+    private void recycle() {
+        propagation = null;
+        openingThread = null;
+        activePhaseDownPropagationTagContext = null;
+        isActivePhaseDownPropagationTagContextStale = false;
+        postEntryPhaseDownPropagatedData = null;
+        cachedActivePhaseDownPropagatedData = null;
+        if (overwrittenCount > 0) {
+            Arrays.fill(overwrittenValues, 0, overwrittenCount, null);
+            overwrittenCount = 0;
+        }
+        unslottedDataOverwrites = null;
+        pool.release(this);
+    }
+
+    private void performUpPropagation(InspectitContextImpl child) {
+        for (int i = 0; i < child.overwrittenCount; i++) {
+            int slot = child.overwrittenSlots[i];
+            String key = DataSlots.getKey(slot);
+            if (propagation.isPropagatedUpWithinJVM(key)) {
+                Object value = child.overwrittenValues[i];
+                setData(slot, value);
+                onDataUpPropagated(key, value);
+            }
+        }
+        if (child.unslottedDataOverwrites != null) {
+            for (Map.Entry<String, Object> entry : child.unslottedDataOverwrites.entrySet()) {
                 String key = entry.getKey();
-                Object value = entry.getValue();
-                dataOverwrites.put(key, value);
-                if (propagation.isPropagatedDownWithinJVM(key)) {
-                    if (propagation.isTag(key)) {
-                        isActivePhaseDownPropagationTagContextStale = true;
-                    }
-                    if (cachedActivePhaseDownPropagatedData != null && cachedActivePhaseDownPropagatedData.get(key) != value) {
-                        cachedActivePhaseDownPropagatedData = null;
-                    }
+                if (propagation.isPropagatedUpWithinJVM(key)) {
+                    Object value = entry.getValue();
+                    setData(key, value);
+                    onDataUpPropagated(key, value);
                 }
             }
         }
     }
 
+    private void onDataUpPropagated(String key, Object value) {
+        if (propagation.isPropagatedDownWithinJVM(key)) {
+            if (propagation.isTag(key)) {
+                isActivePhaseDownPropagationTagContextStale = true;
+            }
+            if (cachedActivePhaseDownPropagatedData != null && cachedActivePhaseDownPropagatedData.get(key) != value) {
+                cachedActivePhaseDownPropagatedData = null;
+            }
+        }
+    }
+
     @Override
     public Map<String, String> getDownPropagationHeaders() {
         SpanContext spanContext = Tracing.getTracer().getCurrentSpan().getContext();
@@ -523,11 +742,19 @@ public class InspectitContextImpl implements InternalInspectitContext {
     private Stream<Map.Entry<String, Object>> getDataAsStream() {
         return Stream.concat(postEntryPhaseDownPropagatedData.entrySet()
                 .stream()
-                .filter(e -> !dataOverwrites.containsKey(e.getKey())), dataOverwrites.entrySet()
-                .stream()
+                .filter(e -> !isOverwritten(e.getKey())), getDataOverwritesAsStream()
                 .filter(e -> e.getValue() != null));
     }
 
+    private Stream<Map.Entry<String, Object>> getDataOverwritesAsStream() {
+        Stream<Map.Entry<String, Object>> slottedOverwrites = IntStream.range(0, overwrittenCount)
+                .<Map.Entry<String, Object>>mapToObj(i -> new AbstractMap.SimpleImmutableEntry<>(DataSlots.getKey(overwrittenSlots[i]), overwrittenValues[i]));
+        if (unslottedDataOverwrites == null) {
+            return slottedOverwrites;
+        }
+        return Stream.concat(slottedOverwrites, unslottedDataOverwrites.entrySet().stream());
+    }
+
     private Map<String, Object> getOrComputeActivePhaseDownPropagatedData() {
         if (cachedActivePhaseDownPropagatedData == null) {
             cachedActivePhaseDownPropagatedData = getDownPropagatedDataAsNewMap();
@@ -538,23 +765,30 @@ public class InspectitContextImpl implements InternalInspectitContext {
     private HashMap<String, Object> getDownPropagatedDataAsNewMap() {
         val result = new HashMap<>(postEntryPhaseDownPropagatedData);
 
-        for (Map.Entry<String, Object> e : dataOverwrites.entrySet()) {
-            val key = e.getKey();
-            if (propagation.isPropagatedDownWithinJVM(key)) {
-                val value = e.getValue();
-                if (value != null) {
-                    result.put(key, value);
-                } else {
-                    result.remove(key);
-                }
+        for (int i = 0; i < overwrittenCount; i++) {
+            putDownPropagatedOverwrite(result, DataSlots.getKey(overwrittenSlots[i]), overwrittenValues[i]);
+        }
+        if (unslottedDataOverwrites != null) {
+            for (Map.Entry<String, Object> e : unslottedDataOverwrites.entrySet()) {
+                putDownPropagatedOverwrite(result, e.getKey(), e.getValue());
             }
         }
 
         return result;
     }
 
-    private Iterator<Tag> getPostEntryPhaseTags() {
-        return postEntryPhaseDownPropagatedData.entrySet()
+    private void putDownPropagatedOverwrite(Map<String, Object> result, String key, Object value) {
+        if (propagation.isPropagatedDownWithinJVM(key)) {
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                result.remove(key);
+            }
+        }
+    }
+
+    private static Iterator<Tag> getTags(Map<String, Object> data, PropagationMetaData propagation) {
+        return data.entrySet()
                 .stream()
                 .filter(e -> propagation.isTag(e.getKey()))
                 .filter(e -> ALLOWED_TAG_TYPES.contains(e.getValue().getClass()))
@@ -563,4 +797,45 @@ public class InspectitContextImpl implements InternalInspectitContext {
                 .iterator();
     }
 
+    /**
+     * The value stored for {@link #INSPECTIT_KEY} in the GRPC context when a context is made active.
+     * A new reference is created on each activation and cleared when the context is recycled,
+     * so that GRPC contexts captured before only see that their inspectIT context is gone.
+     */
+    static final class ContextReference {
+
+        /**
+         * The referenced context, null if it has been recycled.
+         */
+        private volatile InspectitContextImpl context;
+
+        private ContextReference(InspectitContextImpl context) {
+            this.context = context;
+        }
+
+        /**
+         * @return the referenced context, null if it has been recycled
+         */
+        InspectitContextImpl get() {
+            return context;
+        }
+
+        /**
+         * Returns the referenced context for being used as parent of a new context.
+         * If the new context is created in a different thread than the pooled parent, the parent is marked as escaped.
+         * As the parent might be recycled concurrently, the reference is checked again afterwards.
+         *
+         * @return the referenced context, null if it has been recycled
+         */
+        InspectitContextImpl getForChild() {
+            InspectitContextImpl current = context;
+            if (current != null && current.pool != null && current.openingThread != Thread.currentThread()) {
+                current.markEscaped();
+                if (context != current) {
+                    return null;
+                }
+            }
+            return current;
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package rocks.inspectit.ocelot.core.instrumentation.context;
+
+import rocks.inspectit.ocelot.config.model.instrumentation.InternalSettings;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread pool of {@link InspectitContextImpl} instances, used if {@link InternalSettings#isContextPooling()} is enabled.
+ * <p>
+ * Contexts are acquired when a hook is entered and handed back to the pool of their opening thread when they are closed.
+ * As contexts are opened and closed in a strictly nested order within a thread, the pool behaves like a stack:
+ * a call tree of depth n requires at most n contexts, independent of the number of invoked methods.
+ * <p>
+ * Contexts which escaped their thread (see {@link InspectitContextImpl#markEscaped()}) are never returned to the pool,
+ * because asynchronous children may still access them after they have been closed.
+ */
+class InspectitContextPool {
+
+    /**
+     * The maximum number of unused contexts kept per thread.
+     * Limits the memory retained by threads which once executed a very deep call tree.
+     */
+    static final int MAX_POOLED_CONTEXTS_PER_THREAD = 64;
+
+    private final ThreadLocal<ArrayDeque<InspectitContextImpl>> freeContexts = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * @return a reset context taken from the pool of the current thread, or a new context if the pool is empty
+     */
+    InspectitContextImpl acquire() {
+        InspectitContextImpl context = freeContexts.get().pollLast();
+        if (context == null) {
+            context = new InspectitContextImpl(this);
+        }
+        return context;
+    }
+
+    /**
+     * Returns the given context to the pool of the current thread.
+     * The context must have been reset and must not be referenced anywhere anymore.
+     *
+     * @param context the context to recycle
+     */
+    void release(InspectitContextImpl context) {
+        ArrayDeque<InspectitContextImpl> contexts = freeContexts.get();
+        if (contexts.size() < MAX_POOLED_CONTEXTS_PER_THREAD) {
+            contexts.addLast(context);
+        }
+    }
+}
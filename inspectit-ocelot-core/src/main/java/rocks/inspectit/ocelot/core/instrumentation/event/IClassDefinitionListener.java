@@ -17,6 +17,7 @@ public interface IClassDefinitionListener {
      *
      * @param className the className provided to ClassFileTransformer.transform
      * @param loader    the loader provided to ClassFileTransformer.transform
+     * @param bytecode  the bytecode provided to ClassFileTransformer.transform, must not be modified
      */
-    void onNewClassDefined(String className, ClassLoader loader);
+    void onNewClassDefined(String className, ClassLoader loader, byte[] bytecode);
 }
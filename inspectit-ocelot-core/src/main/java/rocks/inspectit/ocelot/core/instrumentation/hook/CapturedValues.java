@@ -0,0 +1,52 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook;
+
+import lombok.Value;
+
+/**
+ * Defines which values of an instrumented method are captured by the {@link DispatchHookAdvices} and passed to the {@link MethodHook}.
+ * Values which are not captured are passed as null to the hook.
+ * Not capturing the arguments avoids allocating the argument array, not capturing the return value avoids boxing it.
+ */
+@Value
+public class CapturedValues {
+
+    /**
+     * Captures the arguments as well as the return value.
+     */
+    public static final CapturedValues ALL = new CapturedValues(true, true);
+
+    /**
+     * Captures neither the arguments nor the return value.
+     */
+    public static final CapturedValues NONE = new CapturedValues(false, false);
+
+    /**
+     * If true, the arguments of the instrumented method are passed to the hook.
+     */
+    private boolean arguments;
+
+    /**
+     * If true, the value returned by the instrumented method is passed to the hook.
+     */
+    private boolean returnValue;
+
+    /**
+     * Combines these captured values with the given ones.
+     *
+     * @param other the values to combine with
+     * @return the values captured by either this or the given instance
+     */
+    public CapturedValues or(CapturedValues other) {
+        return new CapturedValues(arguments || other.arguments, returnValue || other.returnValue);
+    }
+
+    /**
+     * Checks whether all values captured by the given instance are also captured by this one.
+     *
+     * @param other the values to check
+     * @return true, if this instance captures at least the given values
+     */
+    public boolean includes(CapturedValues other) {
+        return (arguments || !other.arguments) && (returnValue || !other.returnValue);
+    }
+}
@@ -2,13 +2,23 @@ package rocks.inspectit.ocelot.core.instrumentation.hook;
 
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
 import net.bytebuddy.matcher.ElementMatcher;
 import rocks.inspectit.ocelot.bootstrap.Instances;
 import rocks.inspectit.ocelot.bootstrap.context.InternalInspectitContext;
 import rocks.inspectit.ocelot.bootstrap.instrumentation.IMethodHook;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
 import static net.bytebuddy.matcher.ElementMatchers.*;
 
 /**
@@ -20,45 +30,121 @@ import static net.bytebuddy.matcher.ElementMatchers.*;
  */
 public class DispatchHookAdvices {
 
+    /**
+     * Marks the advice parameter which receives the hook id of the instrumented method.
+     * The id is resolved at transformation time and is inserted as a constant into the bytecode.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    @interface HookId {
+
+    }
+
+    /**
+     * Applies the dispatch advices on the given methods.
+     * For each method an advice is chosen which captures only the values required by its hook.
+     *
+     * @param builder        the builder of the class to instrument
+     * @param methods        the methods to instrument
+     * @param hookIdResolver resolves the hook id for each instrumented method, see {@link HookManager#getHookId(Class, String)}
+     * @param valuesResolver resolves the values to capture for each instrumented method
+     * @param <T>            the type of the instrumented class
+     * @return the builder with the advices applied
+     */
+    public static <T> DynamicType.Builder<T> adviceOn(DynamicType.Builder<T> builder, ElementMatcher<? super MethodDescription> methods,
+                                                      ToIntFunction<MethodDescription> hookIdResolver, Function<MethodDescription, CapturedValues> valuesResolver) {
+        Advice.WithCustomMapping mapping = Advice.withCustomMapping()
+                .bind(HookId.class, new HookIdOffsetMapping(hookIdResolver));
+
+        ElementMatcher.Junction<MethodDescription> capturingArguments = capturing(valuesResolver, CapturedValues::isArguments);
+        ElementMatcher.Junction<MethodDescription> capturingReturnValue = capturing(valuesResolver, CapturedValues::isReturnValue);
 
-    public static <T> DynamicType.Builder<T> adviceOn(DynamicType.Builder<T> builder, ElementMatcher<? super MethodDescription> methods) {
         // @formatter:off
         builder = builder.visit(
-                Advice.to(NonStaticMethodAdvice.class)
-                        .on(not(isStatic())
-                                .and(not(isConstructor()))
-                                .and(methods))
-        );
+                mapping.to(MethodAdvice.class)
+                        .on(not(isConstructor())
+                                .and(methods)
+                                .and(capturingArguments)
+                                .and(capturingReturnValue)));
+
+        builder = builder.visit(
+                mapping.to(MethodAdviceWithoutArguments.class)
+                        .on(not(isConstructor())
+                                .and(methods)
+                                .and(not(capturingArguments))
+                                .and(capturingReturnValue)));
+
+        builder = builder.visit(
+                mapping.to(MethodAdviceWithoutReturnValue.class)
+                        .on(not(isConstructor())
+                                .and(methods)
+                                .and(capturingArguments)
+                                .and(not(capturingReturnValue))));
 
         builder = builder.visit(
-                Advice.to(StaticMethodAdvice.class)
-                        .on(isStatic()
-                                .and(methods)));
+                mapping.to(MethodAdviceWithoutArgumentsAndReturnValue.class)
+                        .on(not(isConstructor())
+                                .and(methods)
+                                .and(not(capturingArguments))
+                                .and(not(capturingReturnValue))));
 
         builder = builder.visit(
-                Advice.to(ConstructorAdvice.class)
+                mapping.to(ConstructorAdvice.class)
                         .on(isConstructor()
-                                .and(methods)));
+                                .and(methods)
+                                .and(capturingArguments)));
+
+        builder = builder.visit(
+                mapping.to(ConstructorAdviceWithoutArguments.class)
+                        .on(isConstructor()
+                                .and(methods)
+                                .and(not(capturingArguments))));
         // @formatter:on
         return builder;
     }
 
-    private static class NonStaticMethodAdvice {
+    private static ElementMatcher.Junction<MethodDescription> capturing(Function<MethodDescription, CapturedValues> valuesResolver, Predicate<CapturedValues> capture) {
+        return new ElementMatcher.Junction.AbstractBase<MethodDescription>() {
+            @Override
+            public boolean matches(MethodDescription method) {
+                return capture.test(valuesResolver.apply(method));
+            }
+        };
+    }
+
+    /**
+     * Resolves parameters annotated with {@link HookId} to the constant hook id of the instrumented method.
+     */
+    private static class HookIdOffsetMapping implements Advice.OffsetMapping {
+
+        private final ToIntFunction<MethodDescription> hookIdResolver;
+
+        private HookIdOffsetMapping(ToIntFunction<MethodDescription> hookIdResolver) {
+            this.hookIdResolver = hookIdResolver;
+        }
+
+        @Override
+        public Target resolve(TypeDescription instrumentedType, MethodDescription instrumentedMethod, Assigner assigner, Advice.ArgumentHandler argumentHandler, Sort sort) {
+            int hookId = hookIdResolver.applyAsInt(instrumentedMethod);
+            return new Target.ForStackManipulation(IntegerConstant.forValue(hookId));
+        }
+    }
+
+    private static class MethodAdvice {
 
         @Advice.OnMethodEnter
-        public static void onEnter(@Advice.Origin Class<?> declaringClass,
-                                   @Advice.Origin("#m#s") String signature,
+        public static void onEnter(@HookId int hookId,
                                    @Advice.AllArguments Object[] args,
-                                   @Advice.This Object thiz,
+                                   @Advice.This(optional = true) Object thiz,
                                    @Advice.Local("hook") IMethodHook hook,
                                    @Advice.Local("context") InternalInspectitContext context) {
-            hook = Instances.hookManager.getHook(declaringClass, signature);
+            hook = Instances.hookManager.getHook(hookId);
             context = hook.onEnter(args, thiz);
         }
 
         @Advice.OnMethodExit(onThrowable = Throwable.class)
         public static void onExit(@Advice.AllArguments Object[] args,
-                                  @Advice.This Object thiz,
+                                  @Advice.This(optional = true) Object thiz,
                                   @Advice.Return(typing = Assigner.Typing.DYNAMIC) Object returnValue,
                                   @Advice.Thrown Throwable thrown,
                                   @Advice.Local("hook") IMethodHook hook,
@@ -67,16 +153,77 @@ public class DispatchHookAdvices {
         }
     }
 
+    private static class MethodAdviceWithoutArguments {
+
+        @Advice.OnMethodEnter
+        public static void onEnter(@HookId int hookId,
+                                   @Advice.This(optional = true) Object thiz,
+                                   @Advice.Local("hook") IMethodHook hook,
+                                   @Advice.Local("context") InternalInspectitContext context) {
+            hook = Instances.hookManager.getHook(hookId);
+            context = hook.onEnter(null, thiz);
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        public static void onExit(@Advice.This(optional = true) Object thiz,
+                                  @Advice.Return(typing = Assigner.Typing.DYNAMIC) Object returnValue,
+                                  @Advice.Thrown Throwable thrown,
+                                  @Advice.Local("hook") IMethodHook hook,
+                                  @Advice.Local("context") InternalInspectitContext context) {
+            hook.onExit(null, thiz, returnValue, thrown, context);
+        }
+    }
+
+    private static class MethodAdviceWithoutReturnValue {
+
+        @Advice.OnMethodEnter
+        public static void onEnter(@HookId int hookId,
+                                   @Advice.AllArguments Object[] args,
+                                   @Advice.This(optional = true) Object thiz,
+                                   @Advice.Local("hook") IMethodHook hook,
+                                   @Advice.Local("context") InternalInspectitContext context) {
+            hook = Instances.hookManager.getHook(hookId);
+            context = hook.onEnter(args, thiz);
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        public static void onExit(@Advice.AllArguments Object[] args,
+                                  @Advice.This(optional = true) Object thiz,
+                                  @Advice.Thrown Throwable thrown,
+                                  @Advice.Local("hook") IMethodHook hook,
+                                  @Advice.Local("context") InternalInspectitContext context) {
+            hook.onExit(args, thiz, null, thrown, context);
+        }
+    }
+
+    private static class MethodAdviceWithoutArgumentsAndReturnValue {
+
+        @Advice.OnMethodEnter
+        public static void onEnter(@HookId int hookId,
+                                   @Advice.This(optional = true) Object thiz,
+                                   @Advice.Local("hook") IMethodHook hook,
+                                   @Advice.Local("context") InternalInspectitContext context) {
+            hook = Instances.hookManager.getHook(hookId);
+            context = hook.onEnter(null, thiz);
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        public static void onExit(@Advice.This(optional = true) Object thiz,
+                                  @Advice.Thrown Throwable thrown,
+                                  @Advice.Local("hook") IMethodHook hook,
+                                  @Advice.Local("context") InternalInspectitContext context) {
+            hook.onExit(null, thiz, null, thrown, context);
+        }
+    }
 
     private static class ConstructorAdvice {
 
         @Advice.OnMethodEnter
-        public static void onEnter(@Advice.Origin Class<?> declaringClass,
-                                   @Advice.Origin("#m#s") String signature,
+        public static void onEnter(@HookId int hookId,
                                    @Advice.AllArguments Object[] args,
                                    @Advice.Local("hook") IMethodHook hook,
                                    @Advice.Local("context") InternalInspectitContext context) {
-            hook = Instances.hookManager.getHook(declaringClass, signature);
+            hook = Instances.hookManager.getHook(hookId);
             context = hook.onEnter(args, null);
         }
 
@@ -89,27 +236,22 @@ public class DispatchHookAdvices {
         }
     }
 
-    private static class StaticMethodAdvice {
+    private static class ConstructorAdviceWithoutArguments {
 
         @Advice.OnMethodEnter
-        public static void onEnter(@Advice.Origin Class<?> declaringClass,
-                                   @Advice.Origin("#m#s") String signature,
-                                   @Advice.AllArguments Object[] args,
+        public static void onEnter(@HookId int hookId,
                                    @Advice.Local("hook") IMethodHook hook,
                                    @Advice.Local("context") InternalInspectitContext context) {
-            hook = Instances.hookManager.getHook(declaringClass, signature);
-            context = hook.onEnter(args, null);
+            hook = Instances.hookManager.getHook(hookId);
+            context = hook.onEnter(null, null);
         }
 
-        @Advice.OnMethodExit(onThrowable = Throwable.class)
-        public static void onExit(@Advice.AllArguments Object[] args,
-                                  @Advice.Return(typing = Assigner.Typing.DYNAMIC) Object returnValue,
-                                  @Advice.Thrown Throwable thrown,
+        @Advice.OnMethodExit
+        public static void onExit(@Advice.This Object thiz,
                                   @Advice.Local("hook") IMethodHook hook,
                                   @Advice.Local("context") InternalInspectitContext context) {
-            hook.onExit(args, null, returnValue, thrown, context);
+            hook.onExit(null, thiz, null, null, context);
         }
     }
 
-
 }
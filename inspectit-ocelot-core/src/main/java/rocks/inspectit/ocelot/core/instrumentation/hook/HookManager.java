@@ -18,12 +18,21 @@ import rocks.inspectit.ocelot.core.utils.CoreUtils;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Implementation for {@link IHookManager}.
  * However, this class does not directly implement the interface to avoid issues with spring annotation scanning.
- * Instead it assigns a lambda referring to HookManager{@link #getHook(Class, String)} to {@link Instances#hookManager}.
+ * Instead it assigns an instance of {@link HookManagerDelegate} to {@link Instances#hookManager}, which refers to
+ * HookManager{@link #getHook(int)} and HookManager{@link #getHook(Class, String)}.
+ * <p>
+ * Every hooked method gets an integer id assigned (see {@link #getHookId(Class, String)}), which is baked into
+ * the instrumented bytecode. This allows the advices to fetch their hook via a single array access instead of a
+ * class and signature based map lookup.
+ * The id stays stable as long as the method is instrumented. Ids of methods which are no longer instrumented or whose
+ * classes have been garbage collected are reused, so that the size of the hook array is bounded by the number of
+ * instrumented methods.
  */
 @Slf4j
 @Service
@@ -49,9 +58,40 @@ public class HookManager {
      */
     private volatile Map<Class<?>, Map<String, MethodHook>> hooks = Collections.emptyMap();
 
+    /**
+     * Holds the currently active hooks indexed by their hook id, see {@link #getHookId(Class, String)}.
+     * Slots for methods without an active hook are null.
+     * <p>
+     * Just like {@link #hooks}, this array is not modified but instead replaced entirely when an update is committed.
+     */
+    private volatile IMethodHook[] hookSlots = new IMethodHook[0];
+
+    /**
+     * Maps each class to the ids which have been assigned to its methods.
+     * The keys are weakly referenced to prevent memory leaks, all accesses must be synchronized on this map.
+     * <p>
+     * An id which has been compiled into the bytecode of a method stays valid across any number of hook updates,
+     * until a retransformation removes the instrumentation of the method (see {@link #setCapturedValues(Class, Map)}).
+     */
+    private final Map<Class<?>, Map<String, Integer>> hookIds = new WeakHashMap<>();
+
+    /**
+     * Contains all ids which are currently assigned, including the ids of classes which have been garbage collected
+     * or of methods which have been deinstrumented since the last commit.
+     * Ids are only freed when an update is committed (see {@link #reclaimHookIds()}), so that a released id is
+     * never reused before at least one further update has been committed. All accesses must be synchronized on {@link #hookIds}.
+     */
+    private final BitSet assignedHookIds = new BitSet();
+
+    /**
+     * Stores for each hook id which values are captured by the instrumentation currently applied to the method.
+     * Hooks are only activated if their method captures all values they require, see {@link HookUpdate#updateHooksForClass(Class)}.
+     */
+    private final Map<Integer, CapturedValues> capturedValues = new ConcurrentHashMap<>();
+
     @PostConstruct
     void init() {
-        Instances.hookManager = this::getHook;
+        Instances.hookManager = new HookManagerDelegate();
     }
 
     @PreDestroy
@@ -77,6 +117,124 @@ public class HookManager {
         return NoopMethodHook.INSTANCE;
     }
 
+    /**
+     * Actual implementation for {@link IHookManager#getHook(int)}.
+     *
+     * @param hookId the id of the method to query the hook for, as returned by {@link #getHookId(Class, String)}
+     * @return the active hook or a no-operation hook if no hook is active for the given id
+     */
+    private IMethodHook getHook(int hookId) {
+        IMethodHook[] slots = hookSlots;
+        if (hookId >= 0 && hookId < slots.length) {
+            IMethodHook hook = slots[hookId];
+            if (hook != null) {
+                return hook;
+            }
+        }
+        return NoopMethodHook.INSTANCE;
+    }
+
+    /**
+     * Returns the id for the given method of the given class, assigning a new one if the method does not have an id yet.
+     * This id is used by the instrumented bytecode to fetch the hook via {@link IHookManager#getHook(int)}.
+     *
+     * @param clazz           the class declaring the method
+     * @param methodSignature the signature of the method in the form of name(parametertype,parametertype,..)
+     * @return the id of the method, which is stable as long as the method stays instrumented
+     */
+    public int getHookId(Class<?> clazz, String methodSignature) {
+        synchronized (hookIds) {
+            return hookIds.computeIfAbsent(clazz, (c) -> new HashMap<>())
+                    .computeIfAbsent(methodSignature, (sig) -> {
+                        int id = assignedHookIds.nextClearBit(0);
+                        assignedHookIds.set(id);
+                        return id;
+                    });
+        }
+    }
+
+    /**
+     * Determines which values the instrumentation of the given method has to capture.
+     * In addition to the values required by the hook for the given configuration, the values required by the currently
+     * active hook are included. This way the active hook keeps working until it is replaced by an update.
+     *
+     * @param clazz           the class declaring the method
+     * @param methodSignature the signature of the method in the form of name(parametertype,parametertype,..)
+     * @param config          the hook configuration for the method, can be null if the method won't be hooked
+     * @return the values to capture
+     */
+    public CapturedValues getValuesToCapture(Class<?> clazz, String methodSignature, MethodHookConfiguration config) {
+        CapturedValues result = CapturedValues.NONE;
+        if (config != null) {
+            result = hookGenerator.getValuesToCapture(config);
+        }
+        Map<String, MethodHook> activeMethodHooks = hooks.get(clazz);
+        if (activeMethodHooks != null) {
+            MethodHook activeHook = activeMethodHooks.get(methodSignature);
+            if (activeHook != null) {
+                result = result.or(hookGenerator.getValuesToCapture(activeHook.getSourceConfiguration()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remembers the values captured by the instrumentation which has been applied to the methods of the given class.
+     * Must be called after the class has been transformed successfully.
+     * The ids of all methods of the class which are not instrumented anymore are released.
+     *
+     * @param clazz              the transformed class
+     * @param valuesBySignature  maps the signatures of the instrumented methods to the values captured for them
+     */
+    public void setCapturedValues(Class<?> clazz, Map<String, CapturedValues> valuesBySignature) {
+        synchronized (hookIds) {
+            Map<String, Integer> methodIds = hookIds.get(clazz);
+            if (methodIds != null) {
+                methodIds.entrySet().removeIf(entry -> {
+                    boolean deinstrumented = !valuesBySignature.containsKey(entry.getKey());
+                    if (deinstrumented) {
+                        capturedValues.remove(entry.getValue());
+                    }
+                    return deinstrumented;
+                });
+                if (methodIds.isEmpty()) {
+                    hookIds.remove(clazz);
+                }
+            }
+        }
+        valuesBySignature.forEach((signature, values) -> capturedValues.put(getHookId(clazz, signature), values));
+    }
+
+    /**
+     * Frees all assigned ids which are not used anymore, meaning that their method has been deinstrumented
+     * or their class has been garbage collected. Must be called while holding the lock on {@link #hookIds}.
+     */
+    private void reclaimHookIds() {
+        BitSet usedIds = new BitSet();
+        hookIds.values().forEach(methodIds -> methodIds.values().forEach(usedIds::set));
+        assignedHookIds.and(usedIds);
+        capturedValues.keySet().removeIf(id -> !usedIds.get(id));
+    }
+
+    /**
+     * Builds the array of hooks indexed by their hook id for the given hooks.
+     *
+     * @param activeHooks the hooks to place in the array, structured like {@link #hooks}
+     * @return the array to use as {@link #hookSlots}
+     */
+    private IMethodHook[] buildHookSlots(Map<Class<?>, Map<String, MethodHook>> activeHooks) {
+        synchronized (hookIds) {
+            reclaimHookIds();
+            Map<Integer, MethodHook> hooksById = new HashMap<>();
+            activeHooks.forEach((clazz, methodHooks) ->
+                    methodHooks.forEach((signature, hook) -> hooksById.put(getHookId(clazz, signature), hook))
+            );
+            IMethodHook[] slots = new IMethodHook[assignedHookIds.length()];
+            hooksById.forEach((id, hook) -> slots[id] = hook);
+            return slots;
+        }
+    }
+
     /**
      * Starts an update of the hook configurations.
      * The returned HookUpdate copies all currently active hooks and resets them.
@@ -111,6 +269,12 @@ public class HookManager {
 
         private boolean committed = false;
 
+        /**
+         * Set by {@link #addOrReplaceHooks(Class, Map)} if a hook could not be activated because its method does not
+         * capture the required values.
+         */
+        private boolean retransformationRequired;
+
         /**
          * Copies the currently active hooks into a mutable, local state.
          * The hooks are reset when copied to reenable actions which have been deactivated due to runtime errors.
@@ -128,26 +292,52 @@ public class HookManager {
 
         /**
          * Adds, removes or updates hooks for the given class based on the current instrumentation configuration.
+         * <p>
+         * If the instrumentation of a method does not capture all values required by its new hook, the currently active
+         * hook is kept and the class has to be retransformed. Afterwards the class has to be updated again.
          *
          * @param clazz the class to check
+         * @return true, if the class needs to be retransformed before all of its hooks can be updated
          */
-        public void updateHooksForClass(Class<?> clazz) {
+        public boolean updateHooksForClass(Class<?> clazz) {
             ensureNotCommitted();
             try (val sm = selfMonitoring.withDurationSelfMonitoring("hookmanager-update-class")) {
-                Map<MethodDescription, MethodHookConfiguration> hookConfigs = configResolver.getHookConfigurations(clazz);
-                removeObsoleteHooks(clazz, hookConfigs.keySet());
-                addOrReplaceHooks(clazz, hookConfigs);
+                return applyHookConfigurations(clazz, configResolver.getHookConfigurations(clazz));
             }
         }
 
+        /**
+         * Same as {@link #updateHooksForClass(Class)}, but using already resolved hook configurations.
+         * This allows resolving the configurations of multiple classes concurrently, while the update itself is not thread safe.
+         *
+         * @param clazz       the class to update
+         * @param hookConfigs the hook configurations resolved for the methods of the class
+         * @return true, if the class needs to be retransformed before all of its hooks can be updated
+         */
+        public boolean updateHooksForClass(Class<?> clazz, Map<MethodDescription, MethodHookConfiguration> hookConfigs) {
+            ensureNotCommitted();
+            try (val sm = selfMonitoring.withDurationSelfMonitoring("hookmanager-update-class")) {
+                return applyHookConfigurations(clazz, hookConfigs);
+            }
+        }
+
+        private boolean applyHookConfigurations(Class<?> clazz, Map<MethodDescription, MethodHookConfiguration> hookConfigs) {
+            removeObsoleteHooks(clazz, hookConfigs.keySet());
+            retransformationRequired = false;
+            addOrReplaceHooks(clazz, hookConfigs);
+            return retransformationRequired;
+        }
+
         /**
          * Activates all changes made via {@link #updateHooksForClass(Class)} and reenables all disables actions of all hooks
          * on the {@link HookManager}.
-         * After this method is called, {@link #getHook(Class, String)} will return the updated hooks.
+         * After this method is called, {@link #getHook(Class, String)} and {@link #getHook(int)} will return the updated hooks.
          */
         public void commitUpdate() {
             ensureNotCommitted();
+            IMethodHook[] newHookSlots = buildHookSlots(newHooks);
             hooks = newHooks;
+            hookSlots = newHookSlots;
             committed = true;
         }
 
@@ -164,6 +354,8 @@ public class HookManager {
         }
 
         private void setHook(Class<?> declaringClass, String methodSignature, MethodHook newHook) {
+            // make sure the id is assigned before the class gets retransformed and the hook gets committed
+            getHookId(declaringClass, methodSignature);
             newHooks.computeIfAbsent(declaringClass, (v) -> new HashMap<>())
                     .put(methodSignature, newHook);
         }
@@ -197,6 +389,11 @@ public class HookManager {
                         .map(MethodHook::getSourceConfiguration)
                         .orElse(null);
                 if (!Objects.equals(newConfig, oldConfig)) {
+                    if (!areRequiredValuesCaptured(clazz, signature, newConfig)) {
+                        log.debug("Postponing hook update for {} of {} until the class has been retransformed", signature, clazz.getName());
+                        retransformationRequired = true;
+                        return;
+                    }
                     if (log.isDebugEnabled()) {
                         log.debug("Adding/updating hook for {} of {}", signature, clazz.getName());
                     }
@@ -210,6 +407,16 @@ public class HookManager {
             });
         }
 
+        /**
+         * Checks if the applied instrumentation of the given method captures all values required by the given configuration.
+         * Methods which have not been instrumented yet are considered to capture everything, as the values to capture
+         * are derived from the current configuration when they get instrumented.
+         */
+        private boolean areRequiredValuesCaptured(Class<?> clazz, String methodSignature, MethodHookConfiguration config) {
+            CapturedValues captured = capturedValues.get(getHookId(clazz, methodSignature));
+            return captured == null || captured.includes(hookGenerator.getValuesToCapture(config));
+        }
+
         /**
          * Removes hooks for methods which have previously been instrumented but are not instrumented in the current configuration.
          * E.g. if a user instruments MyClass.myMethod but then later removes this instrumentation, the hooks also needs to be removed.
@@ -231,4 +438,20 @@ public class HookManager {
             }
         }
     }
+
+    /**
+     * The {@link IHookManager} published via {@link Instances#hookManager}, delegating to the {@link HookManager}.
+     */
+    private class HookManagerDelegate implements IHookManager {
+
+        @Override
+        public IMethodHook getHook(int hookId) {
+            return HookManager.this.getHook(hookId);
+        }
+
+        @Override
+        public IMethodHook getHook(Class<?> clazz, String methodSignature) {
+            return HookManager.this.getHook(clazz, methodSignature);
+        }
+    }
 }
@@ -10,6 +10,7 @@ import rocks.inspectit.ocelot.bootstrap.instrumentation.IMethodHook;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.MethodHookConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.context.ContextManager;
 import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.ExecutionContextPool;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
 
 import java.util.ArrayList;
@@ -78,7 +79,8 @@ public class MethodHook implements IMethodHook {
     @Override
     public InternalInspectitContext onEnter(Object[] args, Object thiz) {
         val inspectitContext = inspectitContextManager.enterNewContext();
-        val executionContext = new IHookAction.ExecutionContext(args, thiz, null, null, this, inspectitContext);
+        val executionContextPool = inspectitContextManager.isContextPoolingEnabled() ? ExecutionContextPool.get() : null;
+        val executionContext = executionContextPool != null ? executionContextPool.acquire(args, thiz, null, null, this, inspectitContext) : new IHookAction.ExecutionContext(args, thiz, null, null, this, inspectitContext);
 
         for (val action : activeEntryActions) {
             try {
@@ -89,6 +91,9 @@ public class MethodHook implements IMethodHook {
                 activeEntryActions.remove(action);
             }
         }
+        if (executionContextPool != null) {
+            executionContextPool.release(executionContext);
+        }
 
         inspectitContext.makeActive();
         return inspectitContext;
@@ -96,7 +101,8 @@ public class MethodHook implements IMethodHook {
 
     @Override
     public void onExit(Object[] args, Object thiz, Object returnValue, Throwable thrown, InternalInspectitContext context) {
-        val executionContext = new IHookAction.ExecutionContext(args, thiz, returnValue, thrown, this, (InspectitContextImpl) context);
+        val executionContextPool = inspectitContextManager.isContextPoolingEnabled() ? ExecutionContextPool.get() : null;
+        val executionContext = executionContextPool != null ? executionContextPool.acquire(args, thiz, returnValue, thrown, this, (InspectitContextImpl) context) : new IHookAction.ExecutionContext(args, thiz, returnValue, thrown, this, (InspectitContextImpl) context);
         for (val action : activeExitActions) {
             try {
                 action.execute(executionContext);
@@ -106,6 +112,9 @@ public class MethodHook implements IMethodHook {
                 activeExitActions.remove(action);
             }
         }
+        if (executionContextPool != null) {
+            executionContextPool.release(executionContext);
+        }
         context.close();
     }
 
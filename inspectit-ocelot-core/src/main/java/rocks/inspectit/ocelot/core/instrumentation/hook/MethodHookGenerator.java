@@ -1,6 +1,7 @@
 package rocks.inspectit.ocelot.core.instrumentation.hook;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.opencensus.stats.Measure;
 import io.opencensus.trace.Sampler;
 import io.opencensus.trace.samplers.Samplers;
 import lombok.extern.slf4j.Slf4j;
@@ -8,11 +9,18 @@ import lombok.val;
 import net.bytebuddy.description.method.MethodDescription;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.config.model.instrumentation.actions.ActionCallSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.actions.ConditionalActionSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.actions.GenericActionSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.MetricRecordingSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.RuleTracingSettings;
 import rocks.inspectit.ocelot.core.instrumentation.autotracing.StackTraceSampler;
+import rocks.inspectit.ocelot.core.instrumentation.config.event.InstrumentationConfigurationChangedEvent;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.ActionCallConfig;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.GenericActionConfig;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationRule;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.MethodHookConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.context.ContextManager;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.ConditionalHookAction;
@@ -23,10 +31,13 @@ import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.*;
 import rocks.inspectit.ocelot.core.instrumentation.hook.tags.CommonTagsToAttributesManager;
 import rocks.inspectit.ocelot.core.metrics.MeasuresAndViewsManager;
 import rocks.inspectit.ocelot.core.privacy.obfuscation.ObfuscationManager;
+import rocks.inspectit.ocelot.core.selfmonitoring.TagContextCacheMetricsRecorder;
 import rocks.inspectit.ocelot.core.tags.CommonTagsManager;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class is responsible for translating {@link MethodHookConfiguration}s
@@ -60,6 +71,14 @@ public class MethodHookGenerator {
     @Autowired
     private StackTraceSampler stackTraceSampler;
 
+    @Autowired
+    private TagContextCacheMetricsRecorder tagContextCacheMetricsRecorder;
+
+    /**
+     * The rate limiting samplers of the rules, with the rule names as keys.
+     */
+    private final ConcurrentHashMap<String, RateLimitingSampler> rateLimitingSamplers = new ConcurrentHashMap<>();
+
     /**
      * Builds a executable method hook based on the given configuration.
      *
@@ -79,25 +98,98 @@ public class MethodHookGenerator {
 
         RuleTracingSettings tracingSettings = config.getTracing();
 
-        builder.entryActions(buildActionCalls(config.getPreEntryActions(), methodInfo));
-        builder.entryActions(buildActionCalls(config.getEntryActions(), methodInfo));
+        Set<String> spanOnlyDataKeys = config.getSpanOnlyDataKeys();
+
+        builder.entryActions(buildActionCalls(config.getPreEntryActions(), methodInfo, Collections.emptySet()));
+        builder.entryActions(buildActionCalls(config.getEntryActions(), methodInfo, Collections.emptySet()));
         if (tracingSettings != null) {
-            builder.entryActions(buildTracingEntryActions(tracingSettings));
+            builder.entryActions(buildTracingEntryActions(tracingSettings, config.getRateLimitingRule()));
         }
-        builder.entryActions(buildActionCalls(config.getPostEntryActions(), methodInfo));
+        builder.entryActions(buildActionCalls(config.getPostEntryActions(), methodInfo, spanOnlyDataKeys));
 
-        builder.exitActions(buildActionCalls(config.getPreExitActions(), methodInfo));
-        builder.exitActions(buildActionCalls(config.getExitActions(), methodInfo));
+        builder.exitActions(buildActionCalls(config.getPreExitActions(), methodInfo, spanOnlyDataKeys));
+        builder.exitActions(buildActionCalls(config.getExitActions(), methodInfo, spanOnlyDataKeys));
         if (tracingSettings != null) {
             builder.exitActions(buildTracingExitActions(tracingSettings));
         }
         buildMetricsRecorder(config).ifPresent(builder::exitAction);
-        builder.exitActions(buildActionCalls(config.getPostExitActions(), methodInfo));
+        builder.exitActions(buildActionCalls(config.getPostExitActions(), methodInfo, Collections.emptySet()));
 
         return builder.build();
     }
 
-    private List<IHookAction> buildTracingEntryActions(RuleTracingSettings tracing) {
+    /**
+     * Determines which values of the instrumented method are required by the hook built from the given configuration.
+     * This allows the instrumentation to skip capturing the arguments and return value of the method if they are not used.
+     *
+     * @param config the configuration of the hook
+     *
+     * @return the values the instrumentation has to pass to the hook
+     */
+    public CapturedValues getValuesToCapture(MethodHookConfiguration config) {
+        boolean arguments = false;
+        boolean returnValue = false;
+
+        List<ActionCallConfig> actionCalls = Stream.of(config.getPreEntryActions(), config.getEntryActions(), config.getPostEntryActions(),
+                config.getPreExitActions(), config.getExitActions(), config.getPostExitActions())
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+        for (ActionCallConfig call : actionCalls) {
+            GenericActionConfig action = call.getAction();
+            arguments |= action.isUsesArgsArray() || !action.getExpectedArgumentTypes().isEmpty();
+            returnValue |= action.getExpectedReturnValueType() != null;
+        }
+
+        List<String> variables = new ArrayList<>();
+        for (ActionCallConfig call : actionCalls) {
+            ActionCallSettings callSettings = call.getCallSettings();
+            addConditionVariables(callSettings, variables);
+            if (callSettings != null && callSettings.getDataInput() != null) {
+                variables.addAll(callSettings.getDataInput().values());
+            }
+        }
+        addTracingVariables(config.getTracing(), variables);
+        for (MetricRecordingSettings metric : config.getMetrics()) {
+            variables.add(metric.getValue());
+            if (metric.getDataTags() != null) {
+                variables.addAll(metric.getDataTags().values());
+            }
+        }
+
+        for (String variable : variables) {
+            if (variable != null) {
+                arguments |= variable.equals(GenericActionSettings.ARGS_VARIABLE)
+                        || GenericActionSettings.ARG_VARIABLE_REGEX.matcher(variable).matches();
+                returnValue |= variable.equals(GenericActionSettings.RETURN_VALUE_VARIABLE);
+            }
+        }
+        return new CapturedValues(arguments, returnValue);
+    }
+
+    private void addTracingVariables(RuleTracingSettings tracing, List<String> variables) {
+        if (tracing != null) {
+            variables.add(tracing.getName());
+            variables.add(tracing.getContinueSpan());
+            variables.add(tracing.getErrorStatus());
+            variables.add(tracing.getSampleProbability());
+            variables.addAll(tracing.getAttributes().values());
+            addConditionVariables(tracing.getStartSpanConditions(), variables);
+            addConditionVariables(tracing.getContinueSpanConditions(), variables);
+            addConditionVariables(tracing.getEndSpanConditions(), variables);
+            addConditionVariables(tracing.getAttributeConditions(), variables);
+        }
+    }
+
+    private void addConditionVariables(ConditionalActionSettings conditions, List<String> variables) {
+        if (conditions != null) {
+            variables.add(conditions.getOnlyIfTrue());
+            variables.add(conditions.getOnlyIfFalse());
+            variables.add(conditions.getOnlyIfNull());
+            variables.add(conditions.getOnlyIfNotNull());
+        }
+    }
+
+    private List<IHookAction> buildTracingEntryActions(RuleTracingSettings tracing, String rateLimitingRule) {
         if (tracing.getStartSpan() || tracing.getContinueSpan() != null) {
 
             val actionBuilder = ContinueOrStartSpanAction.builder();
@@ -110,7 +202,7 @@ public class MethodHookGenerator {
                         .startSpanCondition(ConditionalHookAction.getAsPredicate(tracing.getStartSpanConditions(), variableAccessorFactory))
                         .nameAccessor(name)
                         .spanKind(tracing.getKind());
-                configureSampling(tracing, actionBuilder);
+                configureSampling(tracing, rateLimitingRule, actionBuilder);
             } else {
                 actionBuilder.startSpanCondition(ctx -> false);
             }
@@ -149,7 +241,7 @@ public class MethodHookGenerator {
         }
     }
 
-    private void configureSampling(RuleTracingSettings tracing, ContinueOrStartSpanAction.ContinueOrStartSpanActionBuilder actionBuilder) {
+    private void configureSampling(RuleTracingSettings tracing, String rateLimitingRule, ContinueOrStartSpanAction.ContinueOrStartSpanActionBuilder actionBuilder) {
         String sampleProbability = tracing.getSampleProbability();
         if (!StringUtils.isBlank(sampleProbability)) {
             try {
@@ -161,6 +253,48 @@ public class MethodHookGenerator {
                 actionBuilder.dynamicSampleProbabilityAccessor(probabilityAccessor);
             }
         }
+        if (tracing.getMaxSpansPerSecond() != null) {
+            actionBuilder.rateLimitingSampler(getRateLimitingSampler(rateLimitingRule, tracing.getMaxSpansPerSecond()));
+        }
+    }
+
+    /**
+     * Returns the sampler for the given rule, so that all hooks of a rule share the same budget and the budget is kept when hooks are rebuilt.
+     * If the limit of the rule has changed, a new sampler is created.
+     *
+     * @param ruleName          the name of the rule defining the limit, null if unknown
+     * @param maxSpansPerSecond the limit of the rule
+     *
+     * @return the sampler to use
+     */
+    @VisibleForTesting
+    RateLimitingSampler getRateLimitingSampler(String ruleName, double maxSpansPerSecond) {
+        if (ruleName == null) {
+            return new RateLimitingSampler(maxSpansPerSecond);
+        }
+        return rateLimitingSamplers.compute(ruleName, (name, existing) -> {
+            if (existing != null && existing.getMaxSpansPerSecond() == maxSpansPerSecond) {
+                return existing;
+            }
+            return new RateLimitingSampler(maxSpansPerSecond);
+        });
+    }
+
+    /**
+     * Removes the rate limiting samplers of all rules which do not exist anymore or do not limit their spans anymore.
+     * Hooks which have been built with a removed sampler keep using it until they are replaced.
+     *
+     * @param event the event containing the new instrumentation configuration
+     */
+    @EventListener
+    void removeObsoleteRateLimitingSamplers(InstrumentationConfigurationChangedEvent event) {
+        Set<String> rateLimitingRules = event.getNewConfig()
+                .getRules()
+                .stream()
+                .filter(rule -> rule.getTracing().getMaxSpansPerSecond() != null)
+                .map(InstrumentationRule::getName)
+                .collect(Collectors.toSet());
+        rateLimitingSamplers.keySet().retainAll(rateLimitingRules);
     }
 
     @VisibleForTesting
@@ -172,7 +306,7 @@ public class MethodHookGenerator {
 
             if (StringUtils.isNotBlank(tracing.getErrorStatus())) {
                 VariableAccessor accessor = variableAccessorFactory.getVariableAccessor(tracing.getErrorStatus());
-                result.add(new SetSpanStatusAction(accessor));
+                result.add(new RecordingSpanOnlyAction(new SetSpanStatusAction(accessor)));
             }
 
             val attributes = tracing.getAttributes();
@@ -181,7 +315,7 @@ public class MethodHookGenerator {
                 attributes.forEach((attribute, variable) -> attributeAccessors.put(attribute, variableAccessorFactory.getVariableAccessor(variable)));
                 IHookAction endTraceAction = new WriteSpanAttributesAction(attributeAccessors, obfuscationManager.obfuscatorySupplier());
                 IHookAction actionWithConditions = ConditionalHookAction.wrapWithConditionChecks(tracing.getAttributeConditions(), endTraceAction, variableAccessorFactory);
-                result.add(actionWithConditions);
+                result.add(new RecordingSpanOnlyAction(actionWithConditions));
             }
 
             if (tracing.getEndSpan()) {
@@ -220,15 +354,30 @@ public class MethodHookGenerator {
         Map<String, VariableAccessor> tagAccessors = metricSettings.getDataTags().entrySet().stream()
                 .collect(Collectors.toMap(Map.Entry::getKey, entry -> variableAccessorFactory.getVariableAccessor(entry.getValue())));
 
-        return new MetricAccessor(metricSettings.getMetric(), valueAccessor, metricSettings.getConstantTags(), tagAccessors);
+        String metric = metricSettings.getMetric();
+        Measure measure = metricsManager.getMeasure(metric).orElse(null);
+        return new MetricAccessor(metric, measure, valueAccessor, metricSettings.getConstantTags(), tagAccessors, tagContextCacheMetricsRecorder);
     }
 
-    private List<IHookAction> buildActionCalls(List<ActionCallConfig> calls, MethodReflectionInformation methodInfo) {
+    /**
+     * Builds the actions for the given calls.
+     *
+     * @param calls            the calls to build
+     * @param methodInfo       the method for which the actions are built
+     * @param spanOnlyDataKeys the data keys whose actions are only executed if the span of the hook is recorded
+     *
+     * @return the built actions
+     */
+    private List<IHookAction> buildActionCalls(List<ActionCallConfig> calls, MethodReflectionInformation methodInfo, Set<String> spanOnlyDataKeys) {
 
         List<IHookAction> result = new ArrayList<>();
         for (val call : calls) {
             try {
-                result.add(actionCallGenerator.generateAndBindGenericAction(methodInfo, call));
+                IHookAction action = actionCallGenerator.generateAndBindGenericAction(methodInfo, call);
+                if (spanOnlyDataKeys.contains(call.getName())) {
+                    action = new RecordingSpanOnlyAction(action);
+                }
+                result.add(action);
             } catch (Exception e) {
                 log.error("Failed to build action {} for data {} on method {}, no value will be assigned",
                         call.getAction().getName(), call.getName(), methodInfo.getMethodFQN(), e);
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import rocks.inspectit.ocelot.bootstrap.exposed.ObjectAttachments;
+import rocks.inspectit.ocelot.core.instrumentation.context.DataSlots;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
 
 import static rocks.inspectit.ocelot.config.model.instrumentation.actions.GenericActionSettings.*;
@@ -28,6 +29,7 @@ public class VariableAccessorFactory {
      * Creates a {@link VariableAccessor} for a given fixed variable.
      * If the variable is a special variable (it starts with an underscore), {@link #getSpecialVariableAccessor(String)} will be returned.
      * Otherwise a {@link VariableAccessor} is created which performs a lookup of the given variable in the {@link rocks.inspectit.ocelot.bootstrap.exposed.InspectitContext}.
+     * The accessor is bound to the slot of the variable (see {@link DataSlots}), so that no lookup by name is required when it is invoked.
      *
      * @param variable the name of the variable to create an accessor for
      * @return the {@link VariableAccessor} for the given variable, never null
@@ -41,7 +43,8 @@ public class VariableAccessorFactory {
                 return specialVariableAccessor;
             }
         } else {
-            return (context) -> context.getInspectitContext().getData(variable);
+            int slot = DataSlots.getOrCreateSlot(variable);
+            return (context) -> context.getInspectitContext().getData(slot);
         }
     }
 
@@ -0,0 +1,68 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook.actions;
+
+import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
+import rocks.inspectit.ocelot.core.instrumentation.hook.MethodHook;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread pool of {@link IHookAction.ExecutionContext}s, used by the {@link MethodHook} if context pooling is enabled.
+ * <p>
+ * An execution context is only used while the actions of a single hook are executed.
+ * As these actions may invoke other instrumented methods, the execution contexts of a thread are managed as a stack.
+ */
+public class ExecutionContextPool {
+
+    private static final ThreadLocal<ExecutionContextPool> POOLS = ThreadLocal.withInitial(ExecutionContextPool::new);
+
+    /**
+     * The pooled execution contexts, the first {@link #depth} elements are currently in use.
+     */
+    private IHookAction.ExecutionContext[] contexts = new IHookAction.ExecutionContext[8];
+
+    private int depth = 0;
+
+    private ExecutionContextPool() {
+    }
+
+    /**
+     * @return the pool of the current thread
+     */
+    public static ExecutionContextPool get() {
+        return POOLS.get();
+    }
+
+    /**
+     * Takes an execution context from the pool and initializes it with the given values.
+     * The returned context has to be handed back via {@link #release(IHookAction.ExecutionContext)} once all actions have been executed.
+     *
+     * @return the initialized execution context
+     */
+    public IHookAction.ExecutionContext acquire(Object[] methodArguments, Object thiz, Object returnValue, Throwable thrown, MethodHook hook, InspectitContextImpl inspectitContext) {
+        if (depth == contexts.length) {
+            contexts = Arrays.copyOf(contexts, depth * 2);
+        }
+        IHookAction.ExecutionContext context = contexts[depth];
+        if (context == null) {
+            context = new IHookAction.ExecutionContext(methodArguments, thiz, returnValue, thrown, hook, inspectitContext);
+            contexts[depth] = context;
+        } else {
+            context.set(methodArguments, thiz, returnValue, thrown, hook, inspectitContext);
+        }
+        depth++;
+        return context;
+    }
+
+    /**
+     * Returns the most recently acquired execution context to the pool.
+     * All references held by the context are cleared to not prevent the garbage collection of the application's objects.
+     *
+     * @param context the context to release, has to be the one most recently returned by {@link #acquire(Object[], Object, Object, Throwable, MethodHook, InspectitContextImpl)}
+     */
+    public void release(IHookAction.ExecutionContext context) {
+        if (depth > 0 && contexts[depth - 1] == context) {
+            context.set(null, null, null, null, null, null);
+            depth--;
+        }
+    }
+}
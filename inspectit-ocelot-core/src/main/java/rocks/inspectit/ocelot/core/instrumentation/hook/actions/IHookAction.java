@@ -1,7 +1,9 @@
 package rocks.inspectit.ocelot.core.instrumentation.hook.actions;
 
-import lombok.Value;
-import lombok.experimental.NonFinal;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
 import rocks.inspectit.ocelot.core.instrumentation.hook.MethodHook;
 
@@ -29,9 +31,14 @@ public interface IHookAction {
     /**
      * Simple container object storing all possible context information which may be
      * accessed by the hook action.
+     * <p>
+     * If context pooling is enabled, instances are reused via the {@link ExecutionContextPool}.
+     * Therefore, hook actions must not keep references to the execution context after they have been executed.
      */
-    @Value
-    @NonFinal
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @ToString
     class ExecutionContext {
 
         /**
@@ -66,5 +73,17 @@ public interface IHookAction {
          */
         private InspectitContextImpl inspectitContext;
 
+        /**
+         * Reinitializes this instance with the given values. Only used by the {@link ExecutionContextPool}.
+         */
+        void set(Object[] methodArguments, Object thiz, Object returnValue, Throwable thrown, MethodHook hook, InspectitContextImpl inspectitContext) {
+            this.methodArguments = methodArguments;
+            this.thiz = thiz;
+            this.returnValue = returnValue;
+            this.thrown = thrown;
+            this.hook = hook;
+            this.inspectitContext = inspectitContext;
+        }
+
     }
 }
@@ -1,19 +1,23 @@
 package rocks.inspectit.ocelot.core.instrumentation.hook.actions;
 
+import io.opencensus.stats.Measure;
+import io.opencensus.stats.MeasureMap;
 import io.opencensus.tags.TagContext;
 import io.opencensus.tags.TagContextBuilder;
 import io.opencensus.tags.TagKey;
+import io.opencensus.tags.TagValue;
 import io.opencensus.tags.Tags;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
+import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.model.MetricAccessor;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.model.TagContextCache;
 import rocks.inspectit.ocelot.core.metrics.MeasuresAndViewsManager;
 import rocks.inspectit.ocelot.core.tags.CommonTagsManager;
 import rocks.inspectit.ocelot.core.tags.TagUtils;
 
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Hook action responsible for recording measurements at the exit of an instrumented method
@@ -39,48 +43,187 @@ public class MetricsRecorder implements IHookAction {
 
     @Override
     public void execute(ExecutionContext context) {
-        // then iterate all metrics and enter new scope for metric collection
+        // measurements sharing the same tags are recorded together using a single measure map
+        // a measure map can contain only one value per measure, so a measure recorded twice with the same tags requires a second map
+        MeasurementGroups groups = null;
+
         for (MetricAccessor metricAccessor : metrics) {
             Object value = metricAccessor.getVariableAccessor().get(context);
             if (value != null) {
                 if (value instanceof Number) {
                     // only record metrics where a value is present
                     // this allows to disable the recording of a metric depending on the results of action executions
+                    Number number = (Number) value;
                     TagContext tagContext = getTagContext(context, metricAccessor);
-                    metricsManager.tryRecordingMeasurement(metricAccessor.getName(), (Number) value, tagContext);
+                    Measure measure = getMeasure(metricAccessor);
+                    if (measure != null) {
+                        if (groups == null) {
+                            groups = new MeasurementGroups(metrics.size());
+                        }
+                        metricsManager.putMeasurement(groups.getMeasureMap(tagContext, measure), measure, number);
+                    }
+                    metricsManager.recordPercentileMeasurement(metricAccessor.getName(), number.doubleValue(), tagContext);
                 }
             }
         }
+
+        if (groups != null) {
+            groups.record();
+        }
+    }
+
+    /**
+     * @return the measure resolved when the hook was built or the currently defined measure, if it was not defined at that time
+     */
+    private Measure getMeasure(MetricAccessor metricAccessor) {
+        Measure measure = metricAccessor.getMeasure();
+        if (measure == null) {
+            measure = metricsManager.getMeasure(metricAccessor.getName()).orElse(null);
+        }
+        return measure;
     }
 
     private TagContext getTagContext(ExecutionContext context, MetricAccessor metricAccessor) {
         InspectitContextImpl inspectitContext = context.getInspectitContext();
 
+        List<TagKey> commonTagKeys = commonTagsManager.getCommonTagKeys();
+        VariableAccessor[] dataTagAccessors = metricAccessor.getDataTagValueAccessors();
+        int commonTagCount = commonTagKeys.size();
+
+        // resolve the values of the common tags followed by the data tags, null for values which are not present
+        String[] tagValues = new String[commonTagCount + dataTagAccessors.length];
+        for (int i = 0; i < commonTagCount; i++) {
+            tagValues[i] = toStringOrNull(inspectitContext.getData(commonTagKeys.get(i).getName()));
+        }
+        for (int i = 0; i < dataTagAccessors.length; i++) {
+            tagValues[commonTagCount + i] = toStringOrNull(dataTagAccessors[i].get(context));
+        }
+
+        TagContextCache cache = metricAccessor.getTagContextCache();
+        TagContextCache.Key cacheKey = new TagContextCache.Key(commonTagKeys, tagValues);
+        TagContext tagContext = cache.get(cacheKey);
+        if (tagContext == null) {
+            tagContext = buildTagContext(commonTagKeys, tagValues, metricAccessor);
+            cache.put(cacheKey, tagContext);
+        }
+        return tagContext;
+    }
+
+    private TagContext buildTagContext(List<TagKey> commonTagKeys, String[] tagValues, MetricAccessor metricAccessor) {
         // create builder
         TagContextBuilder builder = Tags.getTagger().emptyBuilder();
 
         // first common tags to allow overwrite by constant or data tags
-        commonTagsManager.getCommonTagKeys()
-                .forEach(commonTagKey -> Optional.ofNullable(inspectitContext.getData(commonTagKey.getName()))
-                        .ifPresent(value -> builder.putLocal(commonTagKey, TagUtils.createTagValue(commonTagKey.getName(), value
-                                .toString()))));
+        int commonTagCount = commonTagKeys.size();
+        for (int i = 0; i < commonTagCount; i++) {
+            putIfPresent(builder, commonTagKeys.get(i), tagValues[i]);
+        }
 
         // then constant tags to allow overwrite by data
-        metricAccessor.getConstantTags()
-                .forEach((key, value) -> builder.putLocal(TagKey.create(key), TagUtils.createTagValue(key, value)));
+        TagKey[] constantTagKeys = metricAccessor.getConstantTagKeys();
+        TagValue[] constantTagValues = metricAccessor.getConstantTagValues();
+        for (int i = 0; i < constantTagKeys.length; i++) {
+            builder.putLocal(constantTagKeys[i], constantTagValues[i]);
+        }
 
-        // go over data tags and match the value to the key from the contextTags (if available)
-        metricAccessor.getDataTagAccessors()
-                .forEach((key, accessor) -> Optional.ofNullable(accessor.get(context))
-                        .ifPresent(tagValue -> builder.putLocal(TagKey.create(key), TagUtils.createTagValue(key, tagValue
-                                .toString()))));
+        // finally the data tags which are available
+        TagKey[] dataTagKeys = metricAccessor.getDataTagKeys();
+        for (int i = 0; i < dataTagKeys.length; i++) {
+            putIfPresent(builder, dataTagKeys[i], tagValues[commonTagCount + i]);
+        }
 
         // build and return
         return builder.build();
     }
 
+    private void putIfPresent(TagContextBuilder builder, TagKey key, String value) {
+        if (value != null) {
+            builder.putLocal(key, TagUtils.createTagValue(key.getName(), value));
+        }
+    }
+
+    private String toStringOrNull(Object value) {
+        return value == null ? null : value.toString();
+    }
+
     @Override
     public String getName() {
         return "Metrics Recorder";
     }
+
+    /**
+     * Groups the measurements of a single {@link #execute(ExecutionContext)} invocation by their tags.
+     * As a hook usually records only a few metrics, the groups are searched linearly.
+     */
+    private class MeasurementGroups {
+
+        private final TagContext[] groupTags;
+
+        private final MeasureMap[] groupMeasureMaps;
+
+        private int groupCount = 0;
+
+        /**
+         * The measures added so far, together with the index of the group they have been added to.
+         */
+        private final Measure[] measures;
+
+        private final int[] measureGroups;
+
+        private int measureCount = 0;
+
+        private MeasurementGroups(int maxMeasurements) {
+            groupTags = new TagContext[maxMeasurements];
+            groupMeasureMaps = new MeasureMap[maxMeasurements];
+            measures = new Measure[maxMeasurements];
+            measureGroups = new int[maxMeasurements];
+        }
+
+        /**
+         * Returns the measure map to add a measurement of the given measure with the given tags to.
+         *
+         * @param tagContext the tags of the measurement
+         * @param measure    the measure of the measurement
+         *
+         * @return a map recorded with the given tags which does not contain the given measure yet
+         */
+        private MeasureMap getMeasureMap(TagContext tagContext, Measure measure) {
+            int group = findGroup(tagContext, measure);
+            if (group == groupCount) {
+                groupTags[group] = tagContext;
+                groupMeasureMaps[group] = metricsManager.newMeasureMap();
+                groupCount++;
+            }
+            measures[measureCount] = measure;
+            measureGroups[measureCount] = group;
+            measureCount++;
+            return groupMeasureMaps[group];
+        }
+
+        private int findGroup(TagContext tagContext, Measure measure) {
+            for (int i = 0; i < groupCount; i++) {
+                // contexts taken from the same cache are identical, so check the identity first
+                TagContext tags = groupTags[i];
+                if ((tags == tagContext || tags.equals(tagContext)) && !containsMeasure(i, measure)) {
+                    return i;
+                }
+            }
+            return groupCount;
+        }
+
+        private boolean containsMeasure(int group, Measure measure) {
+            for (int i = 0; i < measureCount; i++) {
+                if (measureGroups[i] == group && measures[i].getName().equals(measure.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void record() {
+            for (int i = 0; i < groupCount; i++) {
+                groupMeasureMaps[i].record(groupTags[i]);
+            }
+        }
+    }
 }
@@ -1,7 +1,14 @@
 package rocks.inspectit.ocelot.core.instrumentation.hook.actions.model;
 
+import io.opencensus.stats.Measure;
+import io.opencensus.tags.TagKey;
+import io.opencensus.tags.TagValue;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
+import rocks.inspectit.ocelot.core.selfmonitoring.TagContextCacheMetricsRecorder;
+import rocks.inspectit.ocelot.core.tags.TagUtils;
 
 import java.util.Map;
 
@@ -10,6 +17,8 @@ import java.util.Map;
  * <p>
  * Besides the accessor that defines the value, this class wraps name of the metric as well as the constant and data
  * tags that should be recorded with the metric.
+ * The {@link TagKey}s and the constant {@link TagValue}s are created once when the accessor is built,
+ * the resulting tag contexts are cached in the {@link #tagContextCache}.
  */
 @Value
 public class MetricAccessor {
@@ -19,6 +28,12 @@ public class MetricAccessor {
      */
     private final String name;
 
+    /**
+     * The measure of the metric, resolved when the accessor is built.
+     * Null if the metric was not defined at that time, in this case the measure is looked up on each recording.
+     */
+    private final Measure measure;
+
     /**
      * Metric value variable accessors.
      */
@@ -34,4 +49,78 @@ public class MetricAccessor {
      */
     private final Map<String, VariableAccessor> dataTagAccessors;
 
+    /**
+     * The keys of the {@link #constantTags}.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final TagKey[] constantTagKeys;
+
+    /**
+     * The values of the {@link #constantTags}, in the order of {@link #constantTagKeys}.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final TagValue[] constantTagValues;
+
+    /**
+     * The keys of the {@link #dataTagAccessors}.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final TagKey[] dataTagKeys;
+
+    /**
+     * The {@link #dataTagAccessors}, in the order of {@link #dataTagKeys}.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final VariableAccessor[] dataTagValueAccessors;
+
+    /**
+     * Cache for the tag contexts recorded with this metric.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final TagContextCache tagContextCache;
+
+    public MetricAccessor(String name, VariableAccessor variableAccessor, Map<String, String> constantTags, Map<String, VariableAccessor> dataTagAccessors) {
+        this(name, null, variableAccessor, constantTags, dataTagAccessors, null);
+    }
+
+    /**
+     * @param name                 the name of the metric
+     * @param measure              the measure of the metric, null if it is not defined
+     * @param variableAccessor     the accessor for the metric value
+     * @param constantTags         the constant tags
+     * @param dataTagAccessors     the accessors for the data tags
+     * @param cacheMetricsRecorder the recorder for the statistics of the {@link #tagContextCache}, can be null
+     */
+    public MetricAccessor(String name, Measure measure, VariableAccessor variableAccessor, Map<String, String> constantTags, Map<String, VariableAccessor> dataTagAccessors, TagContextCacheMetricsRecorder cacheMetricsRecorder) {
+        this.name = name;
+        this.measure = measure;
+        this.variableAccessor = variableAccessor;
+        this.constantTags = constantTags;
+        this.dataTagAccessors = dataTagAccessors;
+
+        constantTagKeys = new TagKey[constantTags.size()];
+        constantTagValues = new TagValue[constantTags.size()];
+        int i = 0;
+        for (Map.Entry<String, String> constantTag : constantTags.entrySet()) {
+            constantTagKeys[i] = TagKey.create(constantTag.getKey());
+            constantTagValues[i] = TagUtils.createTagValue(constantTag.getKey(), constantTag.getValue());
+            i++;
+        }
+
+        dataTagKeys = new TagKey[dataTagAccessors.size()];
+        dataTagValueAccessors = new VariableAccessor[dataTagAccessors.size()];
+        int j = 0;
+        for (Map.Entry<String, VariableAccessor> dataTag : dataTagAccessors.entrySet()) {
+            dataTagKeys[j] = TagKey.create(dataTag.getKey());
+            dataTagValueAccessors[j] = dataTag.getValue();
+            j++;
+        }
+
+        tagContextCache = new TagContextCache(cacheMetricsRecorder);
+    }
 }
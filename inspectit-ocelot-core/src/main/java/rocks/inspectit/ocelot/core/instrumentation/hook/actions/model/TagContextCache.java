@@ -0,0 +1,132 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook.actions.model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagKey;
+import rocks.inspectit.ocelot.core.selfmonitoring.TagContextCacheMetricsRecorder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded cache of the {@link TagContext}s recorded for a single {@link MetricAccessor}.
+ * <p>
+ * The tags of a recording only depend on the common tag keys, the values of the common tags and the values of the data tags,
+ * as the constant tags are the same for all recordings of a metric accessor.
+ * Therefore the tag contexts are cached by the tuple of these values, see {@link Key}.
+ * <p>
+ * The number of cached contexts is limited to protect the agent against tags with an unbounded cardinality.
+ * When the limit is reached, the least recently used contexts are evicted.
+ */
+public class TagContextCache {
+
+    /**
+     * The maximum number of tag contexts cached per {@link MetricAccessor}.
+     */
+    public static final int MAX_CACHED_TAG_CONTEXTS = 256;
+
+    private final Cache<Key, TagContext> tagContexts;
+
+    /**
+     * Receives the hits, misses and evictions of this cache, can be null.
+     */
+    private final TagContextCacheMetricsRecorder metricsRecorder;
+
+    /**
+     * @param metricsRecorder the recorder to report hits, misses and evictions to, can be null
+     */
+    public TagContextCache(TagContextCacheMetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TAG_CONTEXTS);
+        if (metricsRecorder != null) {
+            builder.removalListener(notification -> {
+                if (notification.getCause() == RemovalCause.SIZE) {
+                    metricsRecorder.recordEviction();
+                }
+            });
+        }
+        tagContexts = builder.build();
+    }
+
+    /**
+     * @param key the resolved tag values
+     *
+     * @return the cached context for the given tag values or null, if it has not been cached yet
+     */
+    public TagContext get(Key key) {
+        TagContext tagContext = tagContexts.getIfPresent(key);
+        if (metricsRecorder != null) {
+            if (tagContext != null) {
+                metricsRecorder.recordHit();
+            } else {
+                metricsRecorder.recordMiss();
+            }
+        }
+        return tagContext;
+    }
+
+    /**
+     * Caches the context built for the given tag values.
+     *
+     * @param key        the resolved tag values
+     * @param tagContext the context containing the tags for the given values
+     */
+    public void put(Key key, TagContext tagContext) {
+        tagContexts.put(key, tagContext);
+    }
+
+    /**
+     * @return the number of currently cached contexts
+     */
+    public long size() {
+        return tagContexts.size();
+    }
+
+    /**
+     * The tuple of resolved tag values a {@link TagContext} is cached for.
+     * <p>
+     * The values are stored in the order of the given common tag keys followed by the order of {@link MetricAccessor#getDataTagKeys()}.
+     * The common tag keys are compared by identity: the {@link rocks.inspectit.ocelot.core.tags.CommonTagsManager} creates
+     * a new list whenever the common tags change, so that contexts created for previous common tags are never reused.
+     */
+    public static class Key {
+
+        private final List<TagKey> commonTagKeys;
+
+        /**
+         * The string representation of the tag values, null for values which are not present.
+         */
+        private final String[] values;
+
+        private final int hashCode;
+
+        /**
+         * @param commonTagKeys the common tag keys, the first values belong to
+         * @param values        the values of the common tags followed by the values of the data tags, may contain nulls
+         */
+        public Key(List<TagKey> commonTagKeys, String[] values) {
+            this.commonTagKeys = commonTagKeys;
+            this.values = values;
+            hashCode = 31 * System.identityHashCode(commonTagKeys) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode && commonTagKeys == other.commonTagKeys && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
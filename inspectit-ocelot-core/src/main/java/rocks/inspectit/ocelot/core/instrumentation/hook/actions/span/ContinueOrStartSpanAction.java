@@ -16,6 +16,7 @@ import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
 import rocks.inspectit.ocelot.core.instrumentation.hook.tags.CommonTagsToAttributesManager;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 /**
@@ -26,6 +27,17 @@ import java.util.function.Predicate;
 @Slf4j
 public class ContinueOrStartSpanAction implements IHookAction {
 
+    /**
+     * The maximum number of samplers cached in {@link #dynamicSamplers} and {@link #rateLimitedSamplers}.
+     * If exceeded, further samplers are created on demand.
+     */
+    private static final int MAX_CACHED_SAMPLERS = 64;
+
+    /**
+     * The name used for spans which are known to not be sampled, as their name is never exported.
+     */
+    private static final String UNSAMPLED_SPAN_NAME = "unsampled";
+
     private StackTraceSampler stackTraceSampler;
 
     /**
@@ -60,6 +72,22 @@ public class ContinueOrStartSpanAction implements IHookAction {
      */
     private final VariableAccessor dynamicSampleProbabilityAccessor;
 
+    /**
+     * If not null, the number of traces started by this action is limited by this sampler.
+     * The sampler resulting from {@link #staticSampler} or {@link #dynamicSampleProbabilityAccessor} is used as its delegate.
+     */
+    private final RateLimitingSampler rateLimitingSampler;
+
+    /**
+     * Caches the probability samplers created for the values of {@link #dynamicSampleProbabilityAccessor}.
+     */
+    private final ConcurrentHashMap<Double, Sampler> dynamicSamplers = new ConcurrentHashMap<>();
+
+    /**
+     * Caches the samplers combining {@link #rateLimitingSampler} with a probability sampler.
+     */
+    private final ConcurrentHashMap<Sampler, Sampler> rateLimitedSamplers = new ConcurrentHashMap<>();
+
     /**
      * The condition which defines if this actions attempts to continue the span defined by {@link #continueSpanDataKey}.
      * An attempt to continue a span has higher priority than an attempt to start a span.
@@ -113,24 +141,28 @@ public class ContinueOrStartSpanAction implements IHookAction {
             InspectitContextImpl ctx = context.getInspectitContext();
 
             MethodReflectionInformation methodInfo = context.getHook().getMethodInformation();
-            String spanName = getSpanName(context, methodInfo);
 
             // load remote parent if it exist
             SpanContext remoteParent = ctx.getAndClearCurrentRemoteSpanContext();
             boolean hasLocalParent = false;
+            boolean hasUnsampledLocalParent = false;
             if (remoteParent == null) {
                 Span currentSpan = Tracing.getTracer().getCurrentSpan();
                 hasLocalParent = currentSpan != BlankSpan.INSTANCE;
+                hasUnsampledLocalParent = hasLocalParent && !currentSpan.getContext().getTraceOptions().isSampled();
             }
 
             Sampler sampler = getSampler(context);
+            // without a span-scoped sampler, the sampling decision of the parent is inherited, so the name is never used
+            String spanName = hasUnsampledLocalParent && sampler == null ? UNSAMPLED_SPAN_NAME : getSpanName(context, methodInfo);
             AutoCloseable spanCtx = Instances.logTraceCorrelator.startCorrelatedSpanScope(() ->
                     stackTraceSampler.createAndEnterSpan(spanName, remoteParent, sampler, spanKind, methodInfo, autoTrace)
             );
             ctx.setSpanScope(spanCtx);
-            commonTagsToAttributesManager.writeCommonTags(Tracing.getTracer()
-                    .getCurrentSpan(), remoteParent != null, hasLocalParent);
-
+            Span span = Tracing.getTracer().getCurrentSpan();
+            if (RecordingSpanOnlyAction.isRecording(span)) {
+                commonTagsToAttributesManager.writeCommonTags(span, remoteParent != null, hasLocalParent);
+            }
         }
     }
 
@@ -138,6 +170,7 @@ public class ContinueOrStartSpanAction implements IHookAction {
      * If configured, returns a span-scoped sampler to set for the newly created span.
      * This can be either {@link #staticSampler} if a constant sampling probability was specified,
      * or a probability read from {@link InspectitContext} for a given data-key.
+     * If a rate limit is configured, the resulting sampler is combined with {@link #rateLimitingSampler}.
      * If neither is specified, null will be returned.
      *
      * @param context the context used to query a dynamic probability
@@ -148,7 +181,41 @@ public class ContinueOrStartSpanAction implements IHookAction {
         if (dynamicSampleProbabilityAccessor != null) {
             Object probability = dynamicSampleProbabilityAccessor.get(context);
             if (probability instanceof Number) {
-                sampler = Samplers.probabilitySampler(Math.min(1, Math.max(0, ((Number) probability).doubleValue())));
+                sampler = getProbabilitySampler(Math.min(1, Math.max(0, ((Number) probability).doubleValue())));
+            }
+        }
+        if (rateLimitingSampler != null) {
+            sampler = getRateLimitedSampler(sampler);
+        }
+        return sampler;
+    }
+
+    private Sampler getProbabilitySampler(double probability) {
+        Sampler sampler = dynamicSamplers.get(probability);
+        if (sampler == null) {
+            sampler = Samplers.probabilitySampler(probability);
+            if (dynamicSamplers.size() < MAX_CACHED_SAMPLERS) {
+                Sampler previous = dynamicSamplers.putIfAbsent(probability, sampler);
+                if (previous != null) {
+                    sampler = previous;
+                }
+            }
+        }
+        return sampler;
+    }
+
+    private Sampler getRateLimitedSampler(Sampler probabilitySampler) {
+        if (probabilitySampler == null) {
+            return rateLimitingSampler;
+        }
+        Sampler sampler = rateLimitedSamplers.get(probabilitySampler);
+        if (sampler == null) {
+            sampler = rateLimitingSampler.withDelegate(probabilitySampler);
+            if (rateLimitedSamplers.size() < MAX_CACHED_SAMPLERS) {
+                Sampler previous = rateLimitedSamplers.putIfAbsent(probabilitySampler, sampler);
+                if (previous != null) {
+                    sampler = previous;
+                }
             }
         }
         return sampler;
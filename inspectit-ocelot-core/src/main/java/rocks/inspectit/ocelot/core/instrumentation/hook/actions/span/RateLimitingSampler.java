@@ -0,0 +1,171 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook.actions.span;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.opencensus.trace.*;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A sampler which limits the number of traces started per second, separately for each span name.
+ * <p>
+ * Each span name has its own lock-free token bucket, which is refilled continuously with the configured rate
+ * and holds at most the tokens of one second. A new trace is only sampled if a token is available.
+ * Spans with a sampled parent are always sampled without consuming a token, so that traces are not cut apart.
+ * <p>
+ * Optionally, a delegate sampler (e.g. a probability sampler) can be given, which is asked before a token is consumed.
+ */
+public class RateLimitingSampler extends Sampler {
+
+    /**
+     * The maximum number of span names for which separate budgets are maintained.
+     * All further span names share a single budget.
+     */
+    @VisibleForTesting
+    static final int MAX_SPAN_NAMES = 256;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double maxSpansPerSecond;
+
+    /**
+     * The time in nanoseconds after which a new token becomes available.
+     */
+    private final long intervalNanos;
+
+    /**
+     * The capacity of each bucket expressed in nanoseconds: the number of tokens times {@link #intervalNanos}.
+     */
+    private final long capacityNanos;
+
+    /**
+     * The budgets for the individual span names, shared with all samplers created via {@link #withDelegate(Sampler)}.
+     */
+    private final ConcurrentHashMap<String, Budget> budgets;
+
+    /**
+     * The budget shared by all span names exceeding {@link #MAX_SPAN_NAMES}.
+     */
+    private final Budget overflowBudget;
+
+    /**
+     * The sampler which is asked before a token is consumed, can be null.
+     */
+    private final Sampler delegate;
+
+    private final LongSupplier nanoClock;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSpansPerSecond the maximum number of traces started per second and span name, must be positive
+     */
+    public RateLimitingSampler(double maxSpansPerSecond) {
+        this(maxSpansPerSecond, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    RateLimitingSampler(double maxSpansPerSecond, LongSupplier nanoClock) {
+        if (!(maxSpansPerSecond > 0)) {
+            throw new IllegalArgumentException("The maximum number of spans per second must be positive!");
+        }
+        this.maxSpansPerSecond = maxSpansPerSecond;
+        intervalNanos = Math.max(1, (long) (NANOS_PER_SECOND / maxSpansPerSecond));
+        capacityNanos = intervalNanos * Math.max(1, (long) maxSpansPerSecond);
+        budgets = new ConcurrentHashMap<>();
+        this.nanoClock = nanoClock;
+        overflowBudget = new Budget(nanoClock.getAsLong());
+        delegate = null;
+    }
+
+    private RateLimitingSampler(RateLimitingSampler original, Sampler delegate) {
+        maxSpansPerSecond = original.maxSpansPerSecond;
+        intervalNanos = original.intervalNanos;
+        capacityNanos = original.capacityNanos;
+        budgets = original.budgets;
+        overflowBudget = original.overflowBudget;
+        nanoClock = original.nanoClock;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a sampler which shares the budgets with this sampler, but asks the given sampler before consuming a token.
+     *
+     * @param delegate the sampler to ask first, null if only the rate limit shall be applied
+     *
+     * @return the new sampler or this instance if it already uses the given delegate
+     */
+    public RateLimitingSampler withDelegate(Sampler delegate) {
+        if (delegate == this.delegate) {
+            return this;
+        }
+        return new RateLimitingSampler(this, delegate);
+    }
+
+    @Override
+    public boolean shouldSample(SpanContext parentContext, Boolean hasRemoteParent, TraceId traceId, SpanId spanId, String name, List<Span> parentLinks) {
+        if (parentContext != null && parentContext.getTraceOptions().isSampled()) {
+            return true;
+        }
+        if (delegate != null && !delegate.shouldSample(parentContext, hasRemoteParent, traceId, spanId, name, parentLinks)) {
+            return false;
+        }
+        return getBudget(name).tryAcquire();
+    }
+
+    /**
+     * @return the maximum number of traces started per second and span name
+     */
+    public double getMaxSpansPerSecond() {
+        return maxSpansPerSecond;
+    }
+
+    @Override
+    public String getDescription() {
+        return String.format("RateLimitingSampler{%.2f/s}", maxSpansPerSecond);
+    }
+
+    private Budget getBudget(String name) {
+        Budget budget = budgets.get(name);
+        if (budget == null) {
+            if (budgets.size() >= MAX_SPAN_NAMES) {
+                return overflowBudget;
+            }
+            budget = budgets.computeIfAbsent(name, key -> new Budget(nanoClock.getAsLong()));
+        }
+        return budget;
+    }
+
+    /**
+     * A token bucket implemented via the generic cell rate algorithm:
+     * instead of counting tokens, the time at which the bucket is empty again is stored and advanced via CAS.
+     */
+    private class Budget {
+
+        /**
+         * The point in time at which all tokens handed out so far are "paid back".
+         */
+        private final AtomicLong emptyUntil;
+
+        Budget(long now) {
+            // start with a full bucket
+            emptyUntil = new AtomicLong(now - capacityNanos);
+        }
+
+        boolean tryAcquire() {
+            long now = nanoClock.getAsLong();
+            while (true) {
+                long current = emptyUntil.get();
+                long next = Math.max(current, now - capacityNanos) + intervalNanos;
+                if (next - now > 0) {
+                    return false;
+                }
+                if (emptyUntil.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook.actions.span;
+
+import io.opencensus.trace.Span;
+import io.opencensus.trace.Tracing;
+import lombok.Value;
+import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
+
+/**
+ * Executes the wrapped action only if the hook has entered a span (see {@link InspectitContextImpl#enterSpan(Span)})
+ * and this span records events, e.g. because it has been sampled.
+ * Used for actions whose only purpose is to enrich the span.
+ */
+@Value
+public class RecordingSpanOnlyAction implements IHookAction {
+
+    private IHookAction action;
+
+    @Override
+    public void execute(ExecutionContext context) {
+        if (context.getInspectitContext().hasEnteredSpan() && isRecording(Tracing.getTracer().getCurrentSpan())) {
+            action.execute(context);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return action.getName();
+    }
+
+    /**
+     * @param span the span to check
+     *
+     * @return true, if the given span records events and therefore may be exported
+     */
+    public static boolean isRecording(Span span) {
+        return span.getOptions().contains(Span.Options.RECORD_EVENTS);
+    }
+}
@@ -9,12 +9,17 @@ import lombok.val;
 import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
 import rocks.inspectit.ocelot.core.privacy.obfuscation.IObfuscatory;
+import rocks.inspectit.ocelot.core.privacy.obfuscation.SpanAttributeWriter;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /**
  * Reads specified data keys from the current context and attaches them to the current span as attributes.
+ * <p>
+ * The data keys are only read if the current span records events, e.g. because it has been sampled.
+ * The obfuscation of the attributes is resolved once per attribute and {@link IObfuscatory}.
  */
 @AllArgsConstructor
 @Builder
@@ -25,14 +30,22 @@ public class WriteSpanAttributesAction implements IHookAction {
 
     private final Supplier<IObfuscatory> obfuscatorySupplier;
 
+    /**
+     * The writers resolved for the currently active {@link IObfuscatory}, null if not resolved yet.
+     */
+    private final AtomicReference<AttributeWriters> attributeWriters = new AtomicReference<>();
+
     @Override
     public void execute(ExecutionContext context) {
         if (context.getInspectitContext().hasEnteredSpan()) {
             Span span = Tracing.getTracer().getCurrentSpan();
-            for (val entry : attributeAccessors.entrySet()) {
-                Object value = entry.getValue().get(context);
-                if (value != null) {
-                    obfuscatorySupplier.get().putSpanAttribute(span, entry.getKey(), value);
+            if (span.getOptions().contains(Span.Options.RECORD_EVENTS)) {
+                AttributeWriters writers = getAttributeWriters();
+                for (int i = 0; i < writers.accessors.length; i++) {
+                    Object value = writers.accessors[i].get(context);
+                    if (value != null) {
+                        writers.writers[i].putSpanAttribute(span, value);
+                    }
                 }
             }
         }
@@ -42,4 +55,41 @@ public class WriteSpanAttributesAction implements IHookAction {
     public String getName() {
         return "Span attribute writing";
     }
+
+    /**
+     * @return the writers for the currently active obfuscatory, which are resolved if the obfuscatory has changed
+     */
+    private AttributeWriters getAttributeWriters() {
+        IObfuscatory obfuscatory = obfuscatorySupplier.get();
+        AttributeWriters writers = attributeWriters.get();
+        if (writers == null || writers.obfuscatory != obfuscatory) {
+            writers = new AttributeWriters(obfuscatory, attributeAccessors);
+            attributeWriters.set(writers);
+        }
+        return writers;
+    }
+
+    /**
+     * The accessors of the attributes together with the writers resolved for them by a specific {@link IObfuscatory}.
+     */
+    private static class AttributeWriters {
+
+        private final IObfuscatory obfuscatory;
+
+        private final VariableAccessor[] accessors;
+
+        private final SpanAttributeWriter[] writers;
+
+        AttributeWriters(IObfuscatory obfuscatory, Map<String, VariableAccessor> attributeAccessors) {
+            this.obfuscatory = obfuscatory;
+            accessors = new VariableAccessor[attributeAccessors.size()];
+            writers = new SpanAttributeWriter[attributeAccessors.size()];
+            int i = 0;
+            for (val entry : attributeAccessors.entrySet()) {
+                accessors[i] = entry.getValue();
+                writers[i] = obfuscatory.getSpanAttributeWriter(entry.getKey());
+                i++;
+            }
+        }
+    }
 }
@@ -11,7 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
 import rocks.inspectit.ocelot.config.model.metrics.MetricsSettings;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
 import rocks.inspectit.ocelot.config.model.metrics.definition.MetricDefinitionSettings;
 import rocks.inspectit.ocelot.config.model.metrics.definition.ViewDefinitionSettings;
 import rocks.inspectit.ocelot.core.config.InspectitConfigChangedEvent;
@@ -61,7 +63,8 @@ public class MeasuresAndViewsManager {
     /**
      * If a measure with the given name is defined via {@link MetricsSettings#getDefinitions()},
      * it is returned by this method.
-     * You should not cache the result of this method to make sure that dynamic updates are not missed.
+     * You should not cache an empty result of this method to make sure that dynamic updates are not missed.
+     * A present measure can be cached, as OpenCensus does not allow to change measures once they have been created.
      *
      * @param name the name of the measure (=the name of the {@link MetricDefinitionSettings}
      *
@@ -117,32 +120,79 @@ public class MeasuresAndViewsManager {
         tryRecordingMeasurement(measureName, value, Tags.getTagger().getCurrentTagContext());
     }
 
+    /**
+     * Records a measurement for the given measure with the given tags, if the measure exists.
+     * Depending on the measure type either {@link Number#doubleValue()}
+     * or {@link Number#longValue()} is used.
+     *
+     * @param measureName the name of the measure
+     * @param value       the measurement value for this measure
+     * @param tags        the tags to record the measurement with
+     */
     public void tryRecordingMeasurement(String measureName, Number value, TagContext tags) {
-        val measure = getMeasure(measureName);
-        if (measure.isPresent()) {
-            val m = measure.get();
-            if (m instanceof Measure.MeasureLong) {
-                MeasureMap result = statsRecorder.newMeasureMap();
-                result.put((Measure.MeasureLong) m, value.longValue());
-                result.record(tags);
-            } else if (m instanceof Measure.MeasureDouble) {
-                MeasureMap result = statsRecorder.newMeasureMap();
-                result.put((Measure.MeasureDouble) m, value.doubleValue());
-                result.record(tags);
-            }
+        Measure measure = cachedMeasures.get(measureName);
+        if (measure != null) {
+            MeasureMap result = statsRecorder.newMeasureMap();
+            putMeasurement(result, measure, value);
+            result.record(tags);
+        }
+        recordPercentileMeasurement(measureName, value.doubleValue(), tags);
+    }
+
+    /**
+     * Creates an empty {@link MeasureMap}, which can be used to record the measurements of multiple measures sharing the same tags at once.
+     * Measurements are added via {@link #putMeasurement(MeasureMap, Measure, Number)}.
+     * Note that the measurements additionally have to be passed to {@link #recordPercentileMeasurement(String, double, TagContext)}.
+     *
+     * @return a new measure map
+     */
+    public MeasureMap newMeasureMap() {
+        return statsRecorder.newMeasureMap();
+    }
+
+    /**
+     * Adds a measurement to the given {@link MeasureMap}.
+     * Depending on the measure type either {@link Number#doubleValue()}
+     * or {@link Number#longValue()} is used.
+     *
+     * @param measureMap the map to add the measurement to
+     * @param measure    the measure, e.g. obtained via {@link #getMeasure(String)}
+     * @param value      the measurement value for this measure
+     */
+    public void putMeasurement(MeasureMap measureMap, Measure measure, Number value) {
+        if (measure instanceof Measure.MeasureLong) {
+            measureMap.put((Measure.MeasureLong) measure, value.longValue());
+        } else if (measure instanceof Measure.MeasureDouble) {
+            measureMap.put((Measure.MeasureDouble) measure, value.doubleValue());
         }
-        percentileViewManager.recordMeasurement(measureName, value.doubleValue(), tags);
+    }
+
+    /**
+     * Passes a measurement to the percentile views of the given measure, if any exist.
+     * This is done automatically by {@link #tryRecordingMeasurement(String, Number, TagContext)},
+     * but has to be done manually for measurements recorded via {@link #newMeasureMap()}.
+     *
+     * @param measureName the name of the measure
+     * @param value       the measurement value for this measure
+     * @param tags        the tags to record the measurement with
+     */
+    public void recordPercentileMeasurement(String measureName, double value, TagContext tags) {
+        percentileViewManager.recordMeasurement(measureName, value, tags);
     }
 
     /**
      * Creates the measures and views defined via {@link MetricsSettings#getDefinitions()}.
      * OpenCensus does currently not allow the removal of views, therefore updating metrics is not possible.
+     * In addition, the recording mode of the percentile views is updated.
      */
     @EventListener(InspectitConfigChangedEvent.class)
     @Order(CommonTagsManager.CONFIG_EVENT_LISTENER_ORDER_PRIORITY + 1) //to ensure common tags are updated first
     @PostConstruct
     public void updateMetricDefinitions() {
         MetricsSettings metricsSettings = env.getCurrentConfig().getMetrics();
+        PercentilesSettings percentilesSettings = metricsSettings.getPercentiles();
+        percentileViewManager.setRecordingMode(percentilesSettings.getRecordingMode());
+        percentileViewManager.setBufferStorage(percentilesSettings.getBufferStorage(), percentilesSettings.getOffHeapMemoryBudget());
         if (metricsSettings.isEnabled()) {
             val newMetricDefinitions = metricsSettings.getDefinitions();
 
@@ -287,7 +337,7 @@ public class MeasuresAndViewsManager {
                 .collect(Collectors.toList());
         percentileViewManager.createOrUpdateView(measure.getName(), viewName, measure.getUnit(), def.getDescription(),
                 minEnabled, maxEnabled, percentilesFiltered, def.getTimeWindow()
-                        .toMillis(), tagsAsStrings, def.getMaxBufferedPoints());
+                        .toMillis(), tagsAsStrings, def.getMaxBufferedPoints(), def.getQuantileMode(), def.getSketchRelativeAccuracy());
     }
 
     private void registerNewView(String viewName, Measure measure, ViewDefinitionSettings def) {
@@ -0,0 +1,522 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A multiset of doubles which supports inserting, removing and selecting the value with a given rank in O(log n).
+ * <p>
+ * The values are stored in a treap (a binary search tree balanced by random priorities),
+ * where each node holds a distinct value, the number of its occurrences and the number of values in its subtree.
+ * The nodes are stored in parallel arrays which grow on demand, so that no objects are allocated per value.
+ * If an {@link OffHeapMemoryBudget} is given, the nodes are stored in a direct {@link ByteBuffer} instead,
+ * falling back to arrays while the budget is exhausted.
+ * The values are ordered according to {@link Double#compare(double, double)}.
+ * <p>
+ * This class is not thread safe.
+ */
+class OrderStatisticTree {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The index representing the absence of a node, the storage contains an unused dummy entry at this index.
+     */
+    private static final int NIL = 0;
+
+    /**
+     * The number of bytes used by a node within {@link #offHeapNodes} and the offsets of its fields.
+     */
+    private static final int BYTES_PER_NODE = 32;
+
+    private static final int VALUE_OFFSET = 0;
+
+    private static final int COUNT_OFFSET = 8;
+
+    private static final int SIZE_OFFSET = 12;
+
+    private static final int PRIORITY_OFFSET = 16;
+
+    private static final int LEFT_OFFSET = 20;
+
+    private static final int RIGHT_OFFSET = 24;
+
+    private double[] values;
+
+    /**
+     * The number of occurrences of the value of each node.
+     */
+    private int[] counts;
+
+    /**
+     * The total number of occurrences of all values in the subtree of each node.
+     */
+    private int[] sizes;
+
+    private int[] priorities;
+
+    private int[] left;
+
+    /**
+     * The right child of each node. For unused nodes, this is the next node of the free list.
+     */
+    private int[] right;
+
+    /**
+     * Holds all fields of the nodes if they are stored off-heap, in this case the arrays are null.
+     */
+    private ByteBuffer offHeapNodes;
+
+    /**
+     * The budget used for allocating {@link #offHeapNodes}, null if the nodes are always stored on the heap.
+     */
+    private OffHeapMemoryBudget offHeapBudget;
+
+    /**
+     * The number of nodes which fit into the current storage, including the dummy node.
+     */
+    private int capacity;
+
+    private int root = NIL;
+
+    /**
+     * The first unused node, {@link #NIL} if all nodes are in use.
+     */
+    private int freeList = NIL;
+
+    /**
+     * The number of nodes which have been in use at any time, excluding the dummy node.
+     */
+    private int allocatedNodes = 0;
+
+    /**
+     * State of the xorshift generator for the node priorities.
+     */
+    private int randomState = 0x2545F491;
+
+    OrderStatisticTree() {
+        this(null);
+    }
+
+    /**
+     * @param offHeapBudget if not null, the nodes are stored off-heap using memory of this budget
+     */
+    OrderStatisticTree(OffHeapMemoryBudget offHeapBudget) {
+        this.offHeapBudget = offHeapBudget;
+        allocateStorage(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the number of values in this tree
+     */
+    int size() {
+        return subtreeSize(root);
+    }
+
+    /**
+     * Adds an occurrence of the given value.
+     *
+     * @param value the value to add
+     */
+    void insert(double value) {
+        root = insert(root, value);
+    }
+
+    /**
+     * Removes an occurrence of the given value, if present.
+     * When the last value is removed, the memory of the nodes is released.
+     *
+     * @param value the value to remove
+     */
+    void remove(double value) {
+        root = remove(root, value);
+        if (root == NIL && capacity > INITIAL_CAPACITY) {
+            clear();
+        }
+    }
+
+    /**
+     * @return true, if the nodes of this tree are currently stored off-heap
+     */
+    boolean isOffHeap() {
+        return offHeapNodes != null;
+    }
+
+    /**
+     * Removes all values from this tree and returns the off-heap memory to the budget.
+     * Afterwards, the tree can still be used but stores its nodes on the heap.
+     */
+    void release() {
+        if (offHeapNodes != null) {
+            offHeapBudget.release(offHeapNodes);
+            offHeapNodes = null;
+        }
+        offHeapBudget = null;
+        clear();
+    }
+
+    private void clear() {
+        if (offHeapNodes != null) {
+            offHeapBudget.release(offHeapNodes);
+        }
+        allocateStorage(INITIAL_CAPACITY);
+        root = NIL;
+        freeList = NIL;
+        allocatedNodes = 0;
+    }
+
+    /**
+     * Returns the value with the given rank, i.e. the value which would be found at the given index if all values were sorted.
+     *
+     * @param rank the zero based rank in the range [0, size)
+     *
+     * @return the value with the given rank
+     */
+    double select(long rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " is out of range for size " + size());
+        }
+        int node = root;
+        while (true) {
+            int leftSize = subtreeSize(left(node));
+            if (rank < leftSize) {
+                node = left(node);
+            } else if (rank < leftSize + count(node)) {
+                return value(node);
+            } else {
+                rank -= leftSize + count(node);
+                node = right(node);
+            }
+        }
+    }
+
+    /**
+     * @param value the value to compare with
+     *
+     * @return the number of values which are less than or equal to the given value
+     */
+    long countLessOrEqual(double value) {
+        long result = 0;
+        int node = root;
+        while (node != NIL) {
+            if (Double.compare(value, value(node)) < 0) {
+                node = left(node);
+            } else {
+                result += subtreeSize(left(node)) + count(node);
+                node = right(node);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value with the given rank within the union of the given trees.
+     * If only a single tree is given, this takes O(log n) time.
+     * Otherwise the value is found through a binary search over the ordered bit representations of doubles,
+     * which takes O(64 * t * log n) time for t trees.
+     *
+     * @param trees the trees to select the value from, at least one tree must be non-empty
+     * @param rank  the zero based rank in the range [0, total size)
+     *
+     * @return the value with the given rank
+     */
+    static double select(List<OrderStatisticTree> trees, long rank) {
+        if (trees.size() == 1) {
+            return trees.get(0).select(rank);
+        }
+        long low = Long.MAX_VALUE;
+        long high = Long.MIN_VALUE;
+        for (OrderStatisticTree tree : trees) {
+            if (tree.size() > 0) {
+                low = Math.min(low, toOrderedBits(tree.select(0)));
+                high = Math.max(high, toOrderedBits(tree.select(tree.size() - 1)));
+            }
+        }
+        while (low < high) {
+            // overflow safe floor of (low + high) / 2
+            long middle = (low & high) + ((low ^ high) >> 1);
+            double middleValue = fromOrderedBits(middle);
+            long count = 0;
+            for (OrderStatisticTree tree : trees) {
+                count += tree.countLessOrEqual(middleValue);
+            }
+            if (count > rank) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return fromOrderedBits(low);
+    }
+
+    /**
+     * Maps the given double to a long, so that the order of the longs corresponds to {@link Double#compare(double, double)}.
+     */
+    private static long toOrderedBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static double fromOrderedBits(long orderedBits) {
+        return Double.longBitsToDouble(orderedBits ^ ((orderedBits >> 63) & Long.MAX_VALUE));
+    }
+
+    private int insert(int node, double value) {
+        if (node == NIL) {
+            return createNode(value);
+        }
+        int comparison = Double.compare(value, value(node));
+        if (comparison == 0) {
+            setCount(node, count(node) + 1);
+        } else if (comparison < 0) {
+            setLeft(node, insert(left(node), value));
+            if (priority(left(node)) > priority(node)) {
+                return rotateRight(node);
+            }
+        } else {
+            setRight(node, insert(right(node), value));
+            if (priority(right(node)) > priority(node)) {
+                return rotateLeft(node);
+            }
+        }
+        updateSize(node);
+        return node;
+    }
+
+    private int remove(int node, double value) {
+        if (node == NIL) {
+            return NIL;
+        }
+        int comparison = Double.compare(value, value(node));
+        if (comparison < 0) {
+            setLeft(node, remove(left(node), value));
+        } else if (comparison > 0) {
+            setRight(node, remove(right(node), value));
+        } else if (count(node) > 1) {
+            setCount(node, count(node) - 1);
+        } else {
+            int replacement = merge(left(node), right(node));
+            freeNode(node);
+            return replacement;
+        }
+        updateSize(node);
+        return node;
+    }
+
+    /**
+     * Merges two subtrees, where all values of the first one are less than the values of the second one.
+     */
+    private int merge(int lower, int upper) {
+        if (lower == NIL) {
+            return upper;
+        }
+        if (upper == NIL) {
+            return lower;
+        }
+        if (priority(lower) > priority(upper)) {
+            setRight(lower, merge(right(lower), upper));
+            updateSize(lower);
+            return lower;
+        } else {
+            setLeft(upper, merge(lower, left(upper)));
+            updateSize(upper);
+            return upper;
+        }
+    }
+
+    private int rotateRight(int node) {
+        int newRoot = left(node);
+        setLeft(node, right(newRoot));
+        setRight(newRoot, node);
+        updateSize(node);
+        updateSize(newRoot);
+        return newRoot;
+    }
+
+    private int rotateLeft(int node) {
+        int newRoot = right(node);
+        setRight(node, left(newRoot));
+        setLeft(newRoot, node);
+        updateSize(node);
+        updateSize(newRoot);
+        return newRoot;
+    }
+
+    private void updateSize(int node) {
+        setSubtreeSize(node, subtreeSize(left(node)) + count(node) + subtreeSize(right(node)));
+    }
+
+    private int createNode(double value) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = right(node);
+        } else {
+            node = ++allocatedNodes;
+            if (node == capacity) {
+                grow();
+            }
+        }
+        setValue(node, value);
+        setCount(node, 1);
+        setSubtreeSize(node, 1);
+        setPriority(node, nextPriority());
+        setLeft(node, NIL);
+        setRight(node, NIL);
+        return node;
+    }
+
+    private void freeNode(int node) {
+        setCount(node, 0);
+        setSubtreeSize(node, 0);
+        setLeft(node, NIL);
+        setRight(node, freeList);
+        freeList = node;
+    }
+
+    private void grow() {
+        int oldCapacity = capacity;
+        if (offHeapNodes == null && offHeapBudget == null) {
+            capacity = oldCapacity * 2;
+            values = Arrays.copyOf(values, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            return;
+        }
+        double[] oldValues = values;
+        int[] oldCounts = counts;
+        int[] oldSizes = sizes;
+        int[] oldPriorities = priorities;
+        int[] oldLeft = left;
+        int[] oldRight = right;
+        ByteBuffer oldOffHeapNodes = offHeapNodes;
+        allocateStorage(oldCapacity * 2);
+        for (int node = 0; node < oldCapacity; node++) {
+            if (oldOffHeapNodes == null) {
+                setNode(node, oldValues[node], oldCounts[node], oldSizes[node], oldPriorities[node], oldLeft[node], oldRight[node]);
+            } else {
+                int offset = node * BYTES_PER_NODE;
+                setNode(node, oldOffHeapNodes.getDouble(offset + VALUE_OFFSET), oldOffHeapNodes.getInt(offset + COUNT_OFFSET),
+                        oldOffHeapNodes.getInt(offset + SIZE_OFFSET), oldOffHeapNodes.getInt(offset + PRIORITY_OFFSET),
+                        oldOffHeapNodes.getInt(offset + LEFT_OFFSET), oldOffHeapNodes.getInt(offset + RIGHT_OFFSET));
+            }
+        }
+        if (oldOffHeapNodes != null) {
+            offHeapBudget.release(oldOffHeapNodes);
+        }
+    }
+
+    /**
+     * Replaces the storage of the nodes with a zeroed one of the given capacity.
+     * The storage is allocated off-heap if a budget is present and has enough memory left, otherwise on the heap.
+     * The off-heap memory of the current storage must be released by the caller.
+     */
+    private void allocateStorage(int newCapacity) {
+        capacity = newCapacity;
+        offHeapNodes = offHeapBudget == null ? null : offHeapBudget.allocate(newCapacity * BYTES_PER_NODE);
+        if (offHeapNodes == null) {
+            values = new double[newCapacity];
+            counts = new int[newCapacity];
+            sizes = new int[newCapacity];
+            priorities = new int[newCapacity];
+            left = new int[newCapacity];
+            right = new int[newCapacity];
+        } else {
+            values = null;
+            counts = null;
+            sizes = null;
+            priorities = null;
+            left = null;
+            right = null;
+        }
+    }
+
+    private void setNode(int node, double value, int count, int size, int priority, int leftChild, int rightChild) {
+        setValue(node, value);
+        setCount(node, count);
+        setSubtreeSize(node, size);
+        setPriority(node, priority);
+        setLeft(node, leftChild);
+        setRight(node, rightChild);
+    }
+
+    private double value(int node) {
+        return offHeapNodes == null ? values[node] : offHeapNodes.getDouble(node * BYTES_PER_NODE + VALUE_OFFSET);
+    }
+
+    private void setValue(int node, double value) {
+        if (offHeapNodes == null) {
+            values[node] = value;
+        } else {
+            offHeapNodes.putDouble(node * BYTES_PER_NODE + VALUE_OFFSET, value);
+        }
+    }
+
+    private int count(int node) {
+        return getInt(counts, node, COUNT_OFFSET);
+    }
+
+    private void setCount(int node, int count) {
+        setInt(counts, node, COUNT_OFFSET, count);
+    }
+
+    private int subtreeSize(int node) {
+        return getInt(sizes, node, SIZE_OFFSET);
+    }
+
+    private void setSubtreeSize(int node, int size) {
+        setInt(sizes, node, SIZE_OFFSET, size);
+    }
+
+    private int priority(int node) {
+        return getInt(priorities, node, PRIORITY_OFFSET);
+    }
+
+    private void setPriority(int node, int priority) {
+        setInt(priorities, node, PRIORITY_OFFSET, priority);
+    }
+
+    private int left(int node) {
+        return getInt(left, node, LEFT_OFFSET);
+    }
+
+    private void setLeft(int node, int child) {
+        setInt(left, node, LEFT_OFFSET, child);
+    }
+
+    private int right(int node) {
+        return getInt(right, node, RIGHT_OFFSET);
+    }
+
+    private void setRight(int node, int child) {
+        setInt(right, node, RIGHT_OFFSET, child);
+    }
+
+    /**
+     * Reads an int field of a node either from the given array or from {@link #offHeapNodes} at the given offset.
+     */
+    private int getInt(int[] heapField, int node, int offset) {
+        return offHeapNodes == null ? heapField[node] : offHeapNodes.getInt(node * BYTES_PER_NODE + offset);
+    }
+
+    private void setInt(int[] heapField, int node, int offset, int value) {
+        if (offHeapNodes == null) {
+            heapField[node] = value;
+        } else {
+            offHeapNodes.putInt(node * BYTES_PER_NODE + offset, value);
+        }
+    }
+
+    private int nextPriority() {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 17;
+        randomState ^= randomState << 5;
+        return randomState;
+    }
+}
@@ -11,7 +11,7 @@ import io.opencensus.tags.TagContext;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -20,6 +20,9 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -51,6 +54,13 @@ public class PercentileView {
      */
     private static final DecimalFormat PERCENTILE_TAG_FORMATTER = new DecimalFormat("#.#####", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
 
+    /**
+     * The number of shards each series is split into, see {@link SeriesShards}.
+     * Scales with the number of available processors, must be a power of two.
+     */
+    @VisibleForTesting
+    static final int SHARD_COUNT = Math.min(64, WindowedDoubleQueue.roundUpToPowerOfTwo(Runtime.getRuntime().availableProcessors()));
+
     /**
      * The descriptor of the metric for this view.
      */
@@ -85,7 +95,7 @@ public class PercentileView {
     /**
      * Stores the buffered data of the sliding time window for each time series.
      */
-    private ConcurrentHashMap<List<String>, WindowedDoubleQueue> seriesValues;
+    private ConcurrentHashMap<List<String>, SeriesShards> seriesValues;
 
     /**
      * Defines the size of the sliding window in milliseconds.
@@ -121,6 +131,17 @@ public class PercentileView {
 
     private boolean overflowWarningPrinted = false;
 
+    /**
+     * If not null, the buffers of this view are stored off-heap using memory of this budget.
+     */
+    @Getter
+    private OffHeapMemoryBudget offHeapBudget;
+
+    /**
+     * Set when this view is not used anymore, the buffers of all shards are released and no more points are accepted.
+     */
+    private volatile boolean released = false;
+
     /**
      * The current number of points stored in this view, limited by {@link #bufferLimit}.
      */
@@ -145,6 +166,24 @@ public class PercentileView {
      * @param bufferLimit      the maximum number of measurements to be buffered by this view
      */
     PercentileView(boolean includeMin, boolean includeMax, Set<Double> percentiles, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit) {
+        this(includeMin, includeMax, percentiles, tags, timeWindowMillis, viewName, unit, description, bufferLimit, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param includeMin       true, if the minimum value should be exposed as metric
+     * @param includeMax       true, if the maximum value should be exposed as metric
+     * @param percentiles      the set of percentiles in the range (0,1) which shall be provided as metrics
+     * @param tags             the tags to use for this view
+     * @param timeWindowMillis the time range in milliseconds to use for computing minimum / maximum and percentile values
+     * @param viewName         the prefix to use for the names of all exposed metrics
+     * @param unit             the unit of the measure
+     * @param description      the description of this view
+     * @param bufferLimit      the maximum number of measurements to be buffered by this view
+     * @param offHeapBudget    if not null, the buffered measurements are stored off-heap using memory of this budget
+     */
+    PercentileView(boolean includeMin, boolean includeMax, Set<Double> percentiles, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit, OffHeapMemoryBudget offHeapBudget) {
         validateConfiguration(includeMin, includeMax, percentiles, timeWindowMillis, viewName, unit, description, bufferLimit);
         assignTagIndices(tags);
         seriesValues = new ConcurrentHashMap<>();
@@ -154,6 +193,7 @@ public class PercentileView {
         this.description = description;
         this.percentiles = new HashSet<>(percentiles);
         this.bufferLimit = bufferLimit;
+        this.offHeapBudget = offHeapBudget;
         numberOfPoints = new AtomicInteger(0);
         lastCleanupTimeMs = new AtomicLong(0);
 
@@ -216,16 +256,29 @@ public class PercentileView {
      * @return true, if the point could be added, false otherwise.
      */
     boolean insertValue(double value, Timestamp time, TagContext tagContext) {
+        if (Double.isNaN(value)) {
+            return false;
+        }
         removeStalePointsIfTimeThresholdExceeded(time);
         List<String> tags = getTagsList(tagContext);
-        WindowedDoubleQueue queue = seriesValues.computeIfAbsent(tags, (key) -> new WindowedDoubleQueue(timeWindowMillis));
-        synchronized (queue) {
-            long timeMillis = getInMillis(time);
-            int removed = queue.removeStaleValues(timeMillis);
+        // computeIfAbsent locks the bin even if the key is present, therefore the lookup is done first
+        SeriesShards shards = seriesValues.get(tags);
+        if (shards == null) {
+            shards = seriesValues.computeIfAbsent(tags, (key) -> new SeriesShards());
+        }
+        Shard shard = shards.getShardOfCurrentThread();
+        synchronized (shard) {
+            // threads sharing a shard can acquire the lock in a different order than they have taken their timestamps
+            long timeMillis = Math.max(getInMillis(time), shard.getMostRecentTimestamp());
+            int removed = shard.removeStaleValues(timeMillis);
             int currentSize = numberOfPoints.addAndGet(-removed);
-            if (currentSize < bufferLimit) {
+            if (released) {
+                // the shard might have been created after the view has been released
+                shard.release();
+                return false;
+            } else if (currentSize < bufferLimit) {
                 numberOfPoints.incrementAndGet();
-                queue.insert(value, timeMillis);
+                shard.insert(value, timeMillis);
             } else {
                 if (!overflowWarningPrinted) {
                     overflowWarningPrinted = true;
@@ -239,6 +292,19 @@ public class PercentileView {
         return true;
     }
 
+    /**
+     * Releases the buffers of this view, returning their off-heap memory to the budget.
+     * Afterwards the view does not accept any points anymore.
+     * This method must be called when the view is not used anymore.
+     */
+    void release() {
+        released = true;
+        for (SeriesShards shards : seriesValues.values()) {
+            shards.forEachShard(Shard::release);
+        }
+        numberOfPoints.set(0);
+    }
+
     /**
      * Returns the name of the series exposed by this view.
      * This can be up to three series, depending on whether min/max and quantiles are enabled.
@@ -267,11 +333,11 @@ public class PercentileView {
     private void removeStalePoints(Timestamp time) {
         long timeMillis = getInMillis(time);
         lastCleanupTimeMs.set(timeMillis);
-        for (WindowedDoubleQueue queue : seriesValues.values()) {
-            synchronized (queue) {
-                int removed = queue.removeStaleValues(timeMillis);
+        for (SeriesShards shards : seriesValues.values()) {
+            shards.forEachShard(shard -> {
+                int removed = shard.removeStaleValues(timeMillis);
                 numberOfPoints.getAndAdd(-removed);
-            }
+            });
         }
     }
 
@@ -286,7 +352,8 @@ public class PercentileView {
         long timeMillis = getInMillis(time);
         long lastCleanupTime = lastCleanupTimeMs.get();
         boolean timeThresholdExceeded = timeMillis - lastCleanupTime > CLEANUP_INTERVAL.toMillis();
-        if (timeThresholdExceeded && numberOfPoints.get() >= bufferLimit) {
+        // only one of the concurrently recording threads performs the cleanup
+        if (timeThresholdExceeded && numberOfPoints.get() >= bufferLimit && lastCleanupTimeMs.compareAndSet(lastCleanupTime, timeMillis)) {
             removeStalePoints(time);
         }
     }
@@ -306,22 +373,8 @@ public class PercentileView {
      * @return the metrics containing the percentiles and min / max
      */
     Collection<Metric> computeMetrics(Timestamp time) {
-        removeStalePoints(time);
         ResultSeriesCollector resultSeries = new ResultSeriesCollector();
-        for (Map.Entry<List<String>, WindowedDoubleQueue> series : seriesValues.entrySet()) {
-            List<String> tagValues = series.getKey();
-            WindowedDoubleQueue queue = series.getValue();
-            double[] data = null;
-            synchronized (queue) {
-                int size = queue.size();
-                if (size > 0) {
-                    data = queue.copy();
-                }
-            }
-            if (data != null) {
-                computeSeries(tagValues, data, time, resultSeries);
-            }
-        }
+        collectSeries(time, resultSeries);
         List<Metric> resultMetrics = new ArrayList<>();
         if (!percentiles.isEmpty()) {
             resultMetrics.add(Metric.create(percentileMetricDescriptor, resultSeries.percentileSeries));
@@ -335,6 +388,20 @@ public class PercentileView {
         return resultMetrics;
     }
 
+    /**
+     * Computes the percentile and min / max values of all series and passes them to the given collector.
+     *
+     * @param time         the current timestamp
+     * @param resultSeries the collector for the computed values
+     */
+    void collectSeries(Timestamp time, ResultSeriesCollector resultSeries) {
+        removeStalePoints(time);
+        for (Map.Entry<List<String>, SeriesShards> series : seriesValues.entrySet()) {
+            List<String> tagValues = series.getKey();
+            series.getValue().withAllShardsLocked(sortedValues -> computeSeries(tagValues, sortedValues, time, resultSeries));
+        }
+    }
+
     boolean isMinEnabled() {
         return minMetricDescriptor != null;
     }
@@ -343,37 +410,64 @@ public class PercentileView {
         return maxMetricDescriptor != null;
     }
 
-    private void computeSeries(List<String> tagValues, double[] data, Timestamp time, ResultSeriesCollector resultSeries) {
-        if (isMinEnabled() || isMaxEnabled()) {
-            double minValue = Double.MAX_VALUE;
-            double maxValue = -Double.MAX_VALUE;
-            for (double value : data) {
-                minValue = Math.min(minValue, value);
-                maxValue = Math.max(maxValue, value);
-            }
-            if (isMinEnabled()) {
-                resultSeries.addMinimum(minValue, time, tagValues);
-            }
-            if (isMaxEnabled()) {
-                resultSeries.addMaximum(maxValue, time, tagValues);
-            }
+    /**
+     * Computes the min / max and percentile values of a single series.
+     *
+     * @param tagValues    the tags of the series
+     * @param sortedValues the non-empty sorted values of all shards of the series
+     * @param time         the current timestamp
+     * @param resultSeries the collector for the computed values
+     */
+    private void computeSeries(List<String> tagValues, List<OrderStatisticTree> sortedValues, Timestamp time, ResultSeriesCollector resultSeries) {
+        long size = 0;
+        for (OrderStatisticTree values : sortedValues) {
+            size += values.size();
         }
-        if (!percentiles.isEmpty()) {
-            Percentile percentileComputer = new Percentile();
-            percentileComputer.setData(data);
-            for (double percentile : percentiles) {
-                double percentileValue = percentileComputer.evaluate(percentile * 100);
-                resultSeries.addPercentile(percentileValue, time, tagValues, percentile);
-            }
+        if (size == 0) {
+            return;
+        }
+        if (isMinEnabled()) {
+            resultSeries.addMinimum(OrderStatisticTree.select(sortedValues, 0), time, tagValues);
+        }
+        if (isMaxEnabled()) {
+            resultSeries.addMaximum(OrderStatisticTree.select(sortedValues, size - 1), time, tagValues);
+        }
+        for (double percentile : percentiles) {
+            resultSeries.addPercentile(computePercentile(sortedValues, size, percentile), time, tagValues, percentile);
         }
     }
 
+    /**
+     * Computes the given percentile of the values in the same way as the default estimation of commons-math's {@link org.apache.commons.math3.stat.descriptive.rank.Percentile},
+     * but selects the required values from the sorted values instead of sorting them.
+     *
+     * @param sortedValues the sorted values
+     * @param size         the total number of values
+     * @param percentile   the percentile in the range (0,1)
+     *
+     * @return the percentile value
+     */
+    private double computePercentile(List<OrderStatisticTree> sortedValues, long size, double percentile) {
+        double position = percentile * (size + 1);
+        if (position < 1) {
+            return OrderStatisticTree.select(sortedValues, 0);
+        }
+        if (position >= size) {
+            return OrderStatisticTree.select(sortedValues, size - 1);
+        }
+        long lowerRank = (long) position;
+        double fraction = position - lowerRank;
+        double lower = OrderStatisticTree.select(sortedValues, lowerRank - 1);
+        double upper = OrderStatisticTree.select(sortedValues, lowerRank);
+        return lower + fraction * (upper - lower);
+    }
+
     @VisibleForTesting
     static String getPercentileTag(double percentile) {
         return PERCENTILE_TAG_FORMATTER.format(percentile);
     }
 
-    private List<String> getTagsList(TagContext tagContext) {
+    List<String> getTagsList(TagContext tagContext) {
         String[] tagValues = new String[tagIndices.size()];
         Arrays.fill(tagValues, "");
         for (Iterator<Tag> it = InternalUtils.getTags(tagContext); it.hasNext(); ) {
@@ -413,11 +507,108 @@ public class PercentileView {
         return Arrays.asList(keys);
     }
 
-    private long getInMillis(Timestamp time) {
+    long getInMillis(Timestamp time) {
         return Duration.ofSeconds(time.getSeconds()).toMillis() + Duration.ofNanos(time.getNanos()).toMillis();
     }
 
-    private class ResultSeriesCollector {
+    /**
+     * The buffered data of a single series, split into {@link #SHARD_COUNT} shards.
+     * Each thread records into the shard selected by its id, so that threads recording the same series concurrently
+     * usually do not contend for the same lock. As the order of the points is irrelevant for computing percentiles,
+     * the percentiles are computed over the union of the shards.
+     * The shards are created lazily, as usually only few threads record a given series.
+     */
+    private class SeriesShards {
+
+        private final AtomicReferenceArray<Shard> shards = new AtomicReferenceArray<>(SHARD_COUNT);
+
+        private Shard getShardOfCurrentThread() {
+            int index = (int) Thread.currentThread().getId() & (SHARD_COUNT - 1);
+            Shard shard = shards.get(index);
+            if (shard == null) {
+                shards.compareAndSet(index, null, new Shard());
+                shard = shards.get(index);
+            }
+            return shard;
+        }
+
+        /**
+         * Invokes the given consumer for each existing shard while holding the lock of the shard.
+         */
+        private void forEachShard(Consumer<Shard> consumer) {
+            for (int i = 0; i < SHARD_COUNT; i++) {
+                Shard shard = shards.get(i);
+                if (shard != null) {
+                    synchronized (shard) {
+                        consumer.accept(shard);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Invokes the given consumer with the sorted values of all non-empty shards while holding the locks of all shards,
+         * so that the values do not change in between.
+         * The locks are always acquired in the order of the shard indices.
+         */
+        private void withAllShardsLocked(Consumer<List<OrderStatisticTree>> consumer) {
+            withShardsLocked(0, new ArrayList<>(), consumer);
+        }
+
+        private void withShardsLocked(int index, List<OrderStatisticTree> sortedValues, Consumer<List<OrderStatisticTree>> consumer) {
+            if (index == SHARD_COUNT) {
+                if (!sortedValues.isEmpty()) {
+                    consumer.accept(sortedValues);
+                }
+                return;
+            }
+            Shard shard = shards.get(index);
+            if (shard == null) {
+                withShardsLocked(index + 1, sortedValues, consumer);
+            } else {
+                synchronized (shard) {
+                    if (shard.sortedValues.size() > 0) {
+                        sortedValues.add(shard.sortedValues);
+                    }
+                    withShardsLocked(index + 1, sortedValues, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * The data of a single shard.
+     * The points are kept ordered by time in a {@link WindowedDoubleQueue} for evicting them when they leave the time window
+     * and ordered by value in a {@link OrderStatisticTree} for computing the percentiles without sorting.
+     */
+    private class Shard {
+
+        private final WindowedDoubleQueue queue = new WindowedDoubleQueue(timeWindowMillis, offHeapBudget);
+
+        private final OrderStatisticTree sortedValues = new OrderStatisticTree(offHeapBudget);
+
+        private final DoubleConsumer removeFromSortedValues = sortedValues::remove;
+
+        private long getMostRecentTimestamp() {
+            return queue.getMostRecentTimestamp();
+        }
+
+        private void insert(double value, long timeMillis) {
+            queue.insert(value, timeMillis);
+            sortedValues.insert(value);
+        }
+
+        private int removeStaleValues(long timeMillis) {
+            return queue.removeStaleValues(timeMillis, removeFromSortedValues);
+        }
+
+        private void release() {
+            queue.release();
+            sortedValues.release();
+        }
+    }
+
+    class ResultSeriesCollector {
 
         private List<TimeSeries> minSeries = new ArrayList<>();
 
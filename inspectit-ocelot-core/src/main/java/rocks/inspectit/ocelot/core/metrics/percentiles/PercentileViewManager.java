@@ -8,7 +8,12 @@ import io.opencensus.metrics.export.MetricProducer;
 import io.opencensus.stats.MeasureMap;
 import io.opencensus.tags.TagContext;
 import io.opencensus.tags.Tags;
+import lombok.Getter;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
+import rocks.inspectit.ocelot.config.model.metrics.definition.ViewDefinitionSettings;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -53,12 +58,30 @@ public class PercentileViewManager {
 
     /**
      * Recording observation takes amortized O(1) time.
-     * However, the worst-case time of a recording is O(n), which is why we decouple the recording from the application threads.
-     * This worker maintains a fixed-size queue of observations which are then added via {@link #recordSynchronous(String, double, Timestamp, TagContext)}.
+     * However, the worst-case time of a recording is O(n), which is why the recording can be decoupled from the application threads.
+     * In {@link PercentilesSettings.RecordingMode#ASYNC} mode, this worker maintains a fixed-size queue of observations which are then added via {@link #recordSynchronous(String, double, Timestamp, TagContext)}.
      */
     @VisibleForTesting
     AsyncMetricRecorder worker = new AsyncMetricRecorder(this::recordSynchronous);
 
+    /**
+     * Defines whether observations are recorded directly in the calling thread or via the {@link #worker}.
+     * In {@link PercentilesSettings.RecordingMode#SHARDED} mode the contention of concurrently recording threads is avoided by the sharding of {@link PercentileView}s.
+     */
+    private volatile PercentilesSettings.RecordingMode recordingMode = PercentilesSettings.RecordingMode.ASYNC;
+
+    /**
+     * The budget for the off-heap buffers of all views, only used in {@link PercentilesSettings.BufferStorage#OFF_HEAP} mode.
+     */
+    @Getter
+    private final OffHeapMemoryBudget offHeapBudget = new OffHeapMemoryBudget(0);
+
+    /**
+     * Defines whether the buffers of newly created views are stored on the heap or off-heap.
+     */
+    @Getter
+    private volatile PercentilesSettings.BufferStorage bufferStorage = PercentilesSettings.BufferStorage.HEAP;
+
     public PercentileViewManager() {
         this(System::currentTimeMillis);
     }
@@ -99,8 +122,49 @@ public class PercentileViewManager {
      */
     public void recordMeasurement(String measureName, double value, TagContext tags) {
         if (areAnyViewsRegisteredForMeasure(measureName)) {
-            synchronized (this) {
-                worker.record(measureName, value, getCurrentTime(), tags);
+            if (recordingMode == PercentilesSettings.RecordingMode.ASYNC) {
+                // the worker expects the observations ordered by time
+                synchronized (this) {
+                    worker.record(measureName, value, getCurrentTime(), tags);
+                }
+            } else {
+                recordSynchronous(measureName, value, getCurrentTime(), tags);
+            }
+        }
+    }
+
+    /**
+     * Changes how observations are recorded.
+     * Observations which have already been passed to the asynchronous worker are still processed after switching to {@link PercentilesSettings.RecordingMode#SHARDED}.
+     *
+     * @param recordingMode the new recording mode
+     */
+    public void setRecordingMode(PercentilesSettings.RecordingMode recordingMode) {
+        this.recordingMode = recordingMode;
+    }
+
+    /**
+     * Changes where the buffers of the views are stored.
+     * If the storage changes, all existing views which buffer observations are recreated, so that all buffered observations are lost.
+     * Views using sketches are always kept on the heap, as their memory usage is small and constant.
+     *
+     * @param bufferStorage the storage of the buffers
+     * @param offHeapLimit  the maximum amount of memory which may be allocated off-heap by all views
+     */
+    public synchronized void setBufferStorage(PercentilesSettings.BufferStorage bufferStorage, DataSize offHeapLimit) {
+        offHeapBudget.setLimitBytes(offHeapLimit.toBytes());
+        if (this.bufferStorage != bufferStorage) {
+            this.bufferStorage = bufferStorage;
+            measuresToViewsMap.values().forEach(views -> views.replaceAll(view -> {
+                if (view instanceof SketchPercentileView) {
+                    return view;
+                }
+                view.release();
+                return createView(view.getViewName(), view.getUnit(), view.getDescription(), view.isMinEnabled(), view.isMaxEnabled(),
+                        view.getPercentiles(), view.getTimeWindowMillis(), view.getTagKeys(), view.getBufferLimit(), ViewDefinitionSettings.QuantileMode.EXACT, 0);
+            }));
+            if (bufferStorage == PercentilesSettings.BufferStorage.HEAP) {
+                offHeapBudget.releasePooledBuffers();
             }
         }
     }
@@ -121,7 +185,29 @@ public class PercentileViewManager {
      * @param tags             the tags to use for the view
      * @param bufferLimit      the maximum number of points this view is allowed to buffer
      */
-    public synchronized void createOrUpdateView(String measureName, String viewName, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit) {
+    public void createOrUpdateView(String measureName, String viewName, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit) {
+        createOrUpdateView(measureName, viewName, unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit, ViewDefinitionSettings.QuantileMode.EXACT, 0);
+    }
+
+    /**
+     * Creates a new percentile view if no view with the given name exists for the given measure.
+     * If a view with the given name already exists for the given measure, it is updated instead.
+     * When a view is updated, all buffered observation are lost.
+     *
+     * @param measureName      the name of the measure, e.g. "http/responsetime"
+     * @param viewName         the name of the view, e.g. "http/responsetime/distribution"
+     * @param unit             the unit of the view
+     * @param description      the description for the view
+     * @param minEnabled       true, if the minimum shall be exposed as metric
+     * @param maxEnabled       true, if the minimum shall be exposed as metric
+     * @param percentiles      specified which percentiles shall be exposed as metric, values are in the range (0,1)
+     * @param timeWindowMillis the length of the sliding time window to use for computing min / max and the percentiles
+     * @param tags             the tags to use for the view
+     * @param bufferLimit      the maximum number of points this view is allowed to buffer, only used in EXACT mode
+     * @param mode             defines whether the observations are buffered or aggregated in sketches
+     * @param relativeAccuracy the maximum relative error of the percentiles, only used in SKETCH mode
+     */
+    public synchronized void createOrUpdateView(String measureName, String viewName, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit, ViewDefinitionSettings.QuantileMode mode, double relativeAccuracy) {
 
         List<PercentileView> views = measuresToViewsMap.computeIfAbsent(measureName, (name) -> new CopyOnWriteArrayList<>());
         Optional<PercentileView> existingView = views.stream()
@@ -129,12 +215,15 @@ public class PercentileViewManager {
                 .findFirst();
         Optional<PercentileView> updatedView;
         if (existingView.isPresent()) {
-            updatedView = updateView(existingView.get(), unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit);
+            updatedView = updateView(existingView.get(), unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit, mode, relativeAccuracy);
         } else {
-            updatedView = Optional.of(createView(viewName, unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit));
+            updatedView = Optional.of(createView(viewName, unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit, mode, relativeAccuracy));
         }
         if (updatedView.isPresent()) {
-            existingView.ifPresent(views::remove);
+            existingView.ifPresent(view -> {
+                views.remove(view);
+                view.release();
+            });
             views.add(updatedView.get());
         }
         seriesToMeasuresCache = null;
@@ -176,6 +265,7 @@ public class PercentileViewManager {
                     .findFirst();
             if (existingView.isPresent()) {
                 views.remove(existingView.get());
+                existingView.get().release();
                 if (views.isEmpty()) {
                     measuresToViewsMap.remove(measureName);
                 }
@@ -230,8 +320,15 @@ public class PercentileViewManager {
         return Timestamp.fromMillis(clock.get());
     }
 
-    private Optional<PercentileView> updateView(PercentileView existingView, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit) {
-        Supplier<PercentileView> creator = () -> createView(existingView.getViewName(), unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit);
+    private Optional<PercentileView> updateView(PercentileView existingView, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit, ViewDefinitionSettings.QuantileMode mode, double relativeAccuracy) {
+        Supplier<PercentileView> creator = () -> createView(existingView.getViewName(), unit, description, minEnabled, maxEnabled, percentiles, timeWindowMillis, tags, bufferLimit, mode, relativeAccuracy);
+        boolean isSketch = existingView instanceof SketchPercentileView;
+        if (isSketch != (mode == ViewDefinitionSettings.QuantileMode.SKETCH)) {
+            return Optional.of(creator.get());
+        }
+        if (isSketch && ((SketchPercentileView) existingView).getRelativeAccuracy() != relativeAccuracy) {
+            return Optional.of(creator.get());
+        }
         if (!unit.equals(existingView.getUnit())) {
             return Optional.of(creator.get());
         }
@@ -259,8 +356,12 @@ public class PercentileViewManager {
         return Optional.empty();
     }
 
-    private PercentileView createView(String viewName, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit) {
-        return new PercentileView(minEnabled, maxEnabled, new HashSet<>(percentiles), new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit);
+    private PercentileView createView(String viewName, String unit, String description, boolean minEnabled, boolean maxEnabled, Collection<Double> percentiles, long timeWindowMillis, Collection<String> tags, int bufferLimit, ViewDefinitionSettings.QuantileMode mode, double relativeAccuracy) {
+        if (mode == ViewDefinitionSettings.QuantileMode.SKETCH) {
+            return new SketchPercentileView(minEnabled, maxEnabled, new HashSet<>(percentiles), new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit, relativeAccuracy);
+        }
+        OffHeapMemoryBudget budget = bufferStorage == PercentilesSettings.BufferStorage.OFF_HEAP ? offHeapBudget : null;
+        return new PercentileView(minEnabled, maxEnabled, new HashSet<>(percentiles), new HashSet<>(tags), timeWindowMillis, viewName, unit, description, bufferLimit, budget);
     }
 
     @VisibleForTesting
@@ -0,0 +1,296 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch for estimating quantiles with a guaranteed relative accuracy, based on the DDSketch algorithm.
+ * <p>
+ * Observations are counted in logarithmically sized buckets: a value v is counted in the bucket with the index
+ * ceil(log_gamma(v)) with gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy).
+ * Any quantile is then estimated by the center of the bucket which contains it, which deviates by at most
+ * the relative accuracy from the exact value.
+ * <p>
+ * The number of buckets is limited by {@link #maxBuckets} per sign, so that the memory of the sketch is bounded.
+ * If the observed values span more buckets, the buckets of the values closest to zero are collapsed,
+ * which only reduces the accuracy of the lowest quantiles.
+ * <p>
+ * This class is not thread safe.
+ */
+class QuantileSketch {
+
+    private final double relativeAccuracy;
+
+    private final double gamma;
+
+    private final double logGamma;
+
+    /**
+     * Values with an absolute value lower than this one are counted as zero.
+     */
+    private final double minIndexableValue;
+
+    private final int maxBuckets;
+
+    private final BucketStore positiveValues;
+
+    /**
+     * Stores the buckets of the absolute values of negative observations.
+     */
+    private final BucketStore negativeValues;
+
+    private long zeroCount;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param relativeAccuracy the maximum relative error of the computed quantiles in the range (0,1)
+     * @param maxBuckets       the maximum number of buckets for the positive and the negative values respectively
+     */
+    QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("The relative accuracy must be in the range (0,1)!");
+        }
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("The maximum number of buckets must be greater than or equal to 1!");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        logGamma = Math.log(gamma);
+        minIndexableValue = Double.MIN_NORMAL * gamma;
+        positiveValues = new BucketStore(maxBuckets);
+        negativeValues = new BucketStore(maxBuckets);
+    }
+
+    /**
+     * Adds the given observation. NaN values are ignored.
+     *
+     * @param value the observed value
+     */
+    void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value >= minIndexableValue) {
+            positiveValues.add(getIndex(value), 1);
+        } else if (value <= -minIndexableValue) {
+            negativeValues.add(getIndex(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all observations of the given sketch to this sketch.
+     *
+     * @param other the sketch to merge, must have the same relative accuracy as this sketch
+     */
+    void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Only sketches with the same relative accuracy can be merged!");
+        }
+        if (other.getCount() == 0) {
+            return;
+        }
+        positiveValues.merge(other.positiveValues);
+        negativeValues.merge(other.negativeValues);
+        zeroCount += other.zeroCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all observations from this sketch.
+     */
+    void clear() {
+        positiveValues.clear();
+        negativeValues.clear();
+        zeroCount = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return the number of observations added to this sketch
+     */
+    long getCount() {
+        return positiveValues.getTotalCount() + negativeValues.getTotalCount() + zeroCount;
+    }
+
+    /**
+     * @return the exact minimum of the observations, {@link Double#POSITIVE_INFINITY} if the sketch is empty
+     */
+    double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the exact maximum of the observations, {@link Double#NEGATIVE_INFINITY} if the sketch is empty
+     */
+    double getMax() {
+        return max;
+    }
+
+    /**
+     * Estimates the given quantile of the observations.
+     *
+     * @param quantile the quantile in the range [0,1]
+     *
+     * @return the estimated quantile or NaN if the sketch is empty
+     */
+    double getQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double rank = quantile * (count - 1);
+        long negativeCount = negativeValues.getTotalCount();
+        double result;
+        if (rank < negativeCount) {
+            // the most negative values are found in the buckets with the highest indices
+            result = -getValue(negativeValues.getIndexAtRank(negativeCount - 1 - rank));
+        } else if (rank < negativeCount + zeroCount) {
+            result = 0;
+        } else {
+            result = getValue(positiveValues.getIndexAtRank(rank - negativeCount - zeroCount));
+        }
+        return Math.max(min, Math.min(max, result));
+    }
+
+    private int getIndex(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /**
+     * @return the value representing the bucket with the given index, which has the same relative distance to both bucket boundaries
+     */
+    private double getValue(int index) {
+        return Math.exp(index * logGamma) * 2 / (1 + gamma);
+    }
+
+    /**
+     * Dense storage of the counts of consecutive bucket indices.
+     * The counts are stored in an array which grows on demand up to {@link #maxBuckets}.
+     * If an index would exceed this range, the lowest buckets are collapsed.
+     */
+    private static class BucketStore {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private static final long[] EMPTY = new long[0];
+
+        private final int maxBuckets;
+
+        /**
+         * counts[i] holds the count of the bucket with the index {@link #offset} + i.
+         */
+        private long[] counts = EMPTY;
+
+        private int offset;
+
+        /**
+         * The lowest bucket index within the range of {@link #counts} which is currently in use.
+         */
+        private int minIndex;
+
+        /**
+         * The highest bucket index within the range of {@link #counts} which is currently in use.
+         */
+        private int maxIndex;
+
+        private long totalCount;
+
+        private BucketStore(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        private void add(int index, long count) {
+            if (totalCount == 0) {
+                if (counts.length == 0) {
+                    counts = new long[Math.min(INITIAL_CAPACITY, maxBuckets)];
+                }
+                offset = index - counts.length / 2;
+                minIndex = index;
+                maxIndex = index;
+            } else if (index < minIndex) {
+                // values below the retainable range are counted in the lowest retainable bucket
+                index = Math.max(index, maxIndex - maxBuckets + 1);
+                extendRange(index, maxIndex);
+            } else if (index > maxIndex) {
+                int newMinIndex = Math.max(minIndex, index - maxBuckets + 1);
+                long collapsedCount = 0;
+                for (int i = minIndex; i < newMinIndex && i <= maxIndex; i++) {
+                    collapsedCount += counts[i - offset];
+                    counts[i - offset] = 0;
+                }
+                extendRange(newMinIndex, index);
+                counts[newMinIndex - offset] += collapsedCount;
+            }
+            counts[index - offset] += count;
+            totalCount += count;
+        }
+
+        /**
+         * Changes the range of used indices to the given one, the counts within the intersection of the old and new range are kept.
+         */
+        private void extendRange(int newMinIndex, int newMaxIndex) {
+            if (newMinIndex < offset || newMaxIndex >= offset + counts.length) {
+                int requiredCapacity = newMaxIndex - newMinIndex + 1;
+                int capacity = counts.length;
+                while (capacity < requiredCapacity) {
+                    capacity *= 2;
+                }
+                capacity = Math.min(capacity, maxBuckets);
+                long[] newCounts = new long[capacity];
+                int newOffset = newMinIndex - (capacity - requiredCapacity) / 2;
+                int copyFrom = Math.max(minIndex, newMinIndex);
+                int copyTo = Math.min(maxIndex, newMaxIndex);
+                if (copyFrom <= copyTo) {
+                    System.arraycopy(counts, copyFrom - offset, newCounts, copyFrom - newOffset, copyTo - copyFrom + 1);
+                }
+                counts = newCounts;
+                offset = newOffset;
+            }
+            minIndex = newMinIndex;
+            maxIndex = newMaxIndex;
+        }
+
+        private void merge(BucketStore other) {
+            for (int i = other.minIndex; other.totalCount > 0 && i <= other.maxIndex; i++) {
+                long count = other.counts[i - other.offset];
+                if (count > 0) {
+                    add(i, count);
+                }
+            }
+        }
+
+        /**
+         * @param rank the zero based rank in the range [0, totalCount)
+         *
+         * @return the index of the bucket containing the value with the given rank
+         */
+        private int getIndexAtRank(double rank) {
+            long cumulativeCount = 0;
+            for (int i = minIndex; i <= maxIndex; i++) {
+                cumulativeCount += counts[i - offset];
+                if (cumulativeCount > rank) {
+                    return i;
+                }
+            }
+            return maxIndex;
+        }
+
+        private void clear() {
+            Arrays.fill(counts, 0);
+            totalCount = 0;
+        }
+
+        private long getTotalCount() {
+            return totalCount;
+        }
+    }
+}
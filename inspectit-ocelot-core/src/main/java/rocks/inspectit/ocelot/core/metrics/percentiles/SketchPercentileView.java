@@ -0,0 +1,103 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import io.opencensus.common.Timestamp;
+import io.opencensus.tags.TagContext;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PercentileView} which does not buffer the observations but aggregates them in {@link WindowedQuantileSketch}es.
+ * <p>
+ * The percentiles are estimated with a fixed relative accuracy, while the minimum and maximum are exact.
+ * As the memory used per series is constant, observations are never rejected, the buffer limit of the view is not used.
+ */
+public class SketchPercentileView extends PercentileView {
+
+    /**
+     * The maximum number of buckets per sketch and sign.
+     * With a relative accuracy of 1% this allows values spanning eight orders of magnitude without any loss of accuracy.
+     */
+    static final int MAX_BUCKETS = 1024;
+
+    /**
+     * The maximum relative error of the computed percentiles.
+     */
+    @Getter
+    private final double relativeAccuracy;
+
+    /**
+     * Stores the sketches of the sliding time window for each time series.
+     */
+    private final ConcurrentHashMap<List<String>, WindowedQuantileSketch> seriesSketches = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param includeMin       true, if the minimum value should be exposed as metric
+     * @param includeMax       true, if the maximum value should be exposed as metric
+     * @param percentiles      the set of percentiles in the range (0,1) which shall be provided as metrics
+     * @param tags             the tags to use for this view
+     * @param timeWindowMillis the time range in milliseconds to use for computing minimum / maximum and percentile values
+     * @param viewName         the prefix to use for the names of all exposed metrics
+     * @param unit             the unit of the measure
+     * @param description      the description of this view
+     * @param bufferLimit      the buffer limit of the view, which is not used for sketches
+     * @param relativeAccuracy the maximum relative error of the computed percentiles in the range (0,1)
+     */
+    SketchPercentileView(boolean includeMin, boolean includeMax, Set<Double> percentiles, Set<String> tags, long timeWindowMillis, String viewName, String unit, String description, int bufferLimit, double relativeAccuracy) {
+        super(includeMin, includeMax, percentiles, tags, timeWindowMillis, viewName, unit, description, bufferLimit);
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("The relative accuracy must be in the range (0,1)!");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+    }
+
+    /**
+     * Adds the provided value to the sketch of the current time window.
+     *
+     * @param value      the value of the measure
+     * @param time       the timestamp when this value was observed
+     * @param tagContext the tags with which this value was observed
+     *
+     * @return always true, as sketches never reject values
+     */
+    @Override
+    boolean insertValue(double value, Timestamp time, TagContext tagContext) {
+        List<String> tags = getTagsList(tagContext);
+        WindowedQuantileSketch sketch = seriesSketches.get(tags);
+        if (sketch == null) {
+            sketch = seriesSketches.computeIfAbsent(tags, (key) -> new WindowedQuantileSketch(getTimeWindowMillis(), relativeAccuracy, MAX_BUCKETS));
+        }
+        synchronized (sketch) {
+            sketch.insert(value, getInMillis(time));
+        }
+        return true;
+    }
+
+    @Override
+    void collectSeries(Timestamp time, ResultSeriesCollector resultSeries) {
+        long timeMillis = getInMillis(time);
+        for (Map.Entry<List<String>, WindowedQuantileSketch> series : seriesSketches.entrySet()) {
+            List<String> tagValues = series.getKey();
+            QuantileSketch sketch;
+            synchronized (series.getValue()) {
+                sketch = series.getValue().getSketch(timeMillis);
+            }
+            if (sketch.getCount() > 0) {
+                if (isMinEnabled()) {
+                    resultSeries.addMinimum(sketch.getMin(), time, tagValues);
+                }
+                if (isMaxEnabled()) {
+                    resultSeries.addMaximum(sketch.getMax(), time, tagValues);
+                }
+                for (double percentile : getPercentiles()) {
+                    resultSeries.addPercentile(sketch.getQuantile(percentile), time, tagValues, percentile);
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package rocks.inspectit.ocelot.core.metrics.percentiles;
 
 import com.google.common.annotations.VisibleForTesting;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+
+import java.nio.ByteBuffer;
+import java.util.function.DoubleConsumer;
 
 /**
  * A circular, array based FIFO-queue for remembering measurement values in a sliding window over time.
@@ -12,6 +16,11 @@ import com.google.common.annotations.VisibleForTesting;
  * Similar to an ArrayList this queue is not bounded in size. It grows as needed.
  * However in contrast to an ArrayList, this queue also deallocates memory when less than 25% of it is occupied.
  * <p>
+ * If an {@link OffHeapMemoryBudget} is given, the points are stored in a direct {@link ByteBuffer} outside of the heap instead of arrays.
+ * When the budget is exhausted, the queue falls back to arrays until its next resize.
+ * The buffers released when the queue grows or shrinks are pooled by the budget, so that a queue whose size oscillates
+ * reuses its previous buffers instead of allocating new direct memory.
+ * <p>
  * This data structure is not thread safe!
  */
 public class WindowedDoubleQueue {
@@ -25,7 +34,12 @@ public class WindowedDoubleQueue {
     private static final int CAPACITY_SCALING_FACTOR = 2;
 
     /**
-     * Holds the values inserted into the queue.
+     * The number of bytes used by a point within {@link #offHeapPoints}: the value followed by the timestamp.
+     */
+    private static final int BYTES_PER_POINT = Double.BYTES + Long.BYTES;
+
+    /**
+     * Holds the values inserted into the queue, null if the points are stored in {@link #offHeapPoints}.
      * values[startIndex] is the older value, values[(startIndex+size)%values.length] is the most recent one.
      */
     private double[] values;
@@ -36,6 +50,22 @@ public class WindowedDoubleQueue {
      */
     private long[] timeStamps;
 
+    /**
+     * Holds the values and timestamps of the points if they are stored off-heap, null otherwise.
+     * The point with index i is found at the byte offset i * {@link #BYTES_PER_POINT}.
+     */
+    private ByteBuffer offHeapPoints;
+
+    /**
+     * The budget used for allocating {@link #offHeapPoints}, null if the points are always stored on the heap.
+     */
+    private OffHeapMemoryBudget offHeapBudget;
+
+    /**
+     * The number of points which fit into the current storage, always a power of two.
+     */
+    private int capacity;
+
     /**
      * The index of the first (= the oldest) element in the queue within {@link #values}.
      */
@@ -59,9 +89,19 @@ public class WindowedDoubleQueue {
      *                  and {@link #removeStaleValues(long)}
      */
     public WindowedDoubleQueue(long timeRange) {
-        values = new double[MIN_CAPACITY];
-        timeStamps = new long[MIN_CAPACITY];
+        this(timeRange, null);
+    }
+
+    /**
+     * Creates a new queue, covering the given amount of time.
+     *
+     * @param timeRange     the time after which old values will be evicted from the queue.
+     * @param offHeapBudget if not null, the points are stored off-heap using memory of this budget
+     */
+    public WindowedDoubleQueue(long timeRange, OffHeapMemoryBudget offHeapBudget) {
         this.timeRange = timeRange;
+        this.offHeapBudget = offHeapBudget;
+        allocateStorage(MIN_CAPACITY);
     }
 
     /**
@@ -79,15 +119,20 @@ public class WindowedDoubleQueue {
      * @param timeStamp the timestamp of the point to insert
      */
     public void insert(double value, long timeStamp) {
-        if (size > 0 && timeStamps[normalizeIndex(startIndex + size - 1)] > timeStamp) {
+        if (size > 0 && getTimeStamp(normalizeIndex(startIndex + size - 1)) > timeStamp) {
             throw new IllegalArgumentException("The provided timestamp is older than the most recent timestamp present in the queue");
         }
         if (size == capacity()) {
             increaseCapacity();
         }
         int insertIdx = normalizeIndex(startIndex + size);
-        values[insertIdx] = value;
-        timeStamps[insertIdx] = timeStamp;
+        if (offHeapPoints == null) {
+            values[insertIdx] = value;
+            timeStamps[insertIdx] = timeStamp;
+        } else {
+            offHeapPoints.putDouble(insertIdx * BYTES_PER_POINT, value);
+            offHeapPoints.putLong(insertIdx * BYTES_PER_POINT + Double.BYTES, timeStamp);
+        }
         size++;
     }
 
@@ -100,10 +145,25 @@ public class WindowedDoubleQueue {
      * @return the number of points which have been removed from this queue
      */
     public int removeStaleValues(long nowTimeStamp) {
+        return removeStaleValues(nowTimeStamp, null);
+    }
+
+    /**
+     * Evicts all points from the queue which have fallen out of the time window.
+     *
+     * @param nowTimeStamp  the time stamp which represents the current point in time.
+     * @param removedValues if not null, receives the values of all removed points from the oldest to the most recent one
+     *
+     * @return the number of points which have been removed from this queue
+     */
+    public int removeStaleValues(long nowTimeStamp, DoubleConsumer removedValues) {
         long timeLimit = nowTimeStamp - timeRange;
         int removedCount = 0;
         while (size > 0) {
-            if (timeStamps[startIndex] <= timeLimit) {
+            if (getTimeStamp(startIndex) <= timeLimit) {
+                if (removedValues != null) {
+                    removedValues.accept(getValue(startIndex));
+                }
                 startIndex = normalizeIndex(startIndex + 1);
                 size--;
                 removedCount++;
@@ -115,6 +175,35 @@ public class WindowedDoubleQueue {
         return removedCount;
     }
 
+    /**
+     * @return the timestamp of the most recent point in this queue or {@link Long#MIN_VALUE} if the queue is empty
+     */
+    public long getMostRecentTimestamp() {
+        if (size == 0) {
+            return Long.MIN_VALUE;
+        }
+        return getTimeStamp(normalizeIndex(startIndex + size - 1));
+    }
+
+    /**
+     * @return true, if the points of this queue are currently stored off-heap
+     */
+    public boolean isOffHeap() {
+        return offHeapPoints != null;
+    }
+
+    /**
+     * Removes all points from this queue and returns the off-heap memory to the budget.
+     * Afterwards, the queue can still be used but stores its points on the heap.
+     */
+    public void release() {
+        releaseOffHeapPoints();
+        offHeapBudget = null;
+        size = 0;
+        startIndex = 0;
+        allocateStorage(MIN_CAPACITY);
+    }
+
     /**
      * @return the number of points currently contained in this queue
      */
@@ -146,12 +235,20 @@ public class WindowedDoubleQueue {
 
     @VisibleForTesting
     int capacity() {
-        return values.length;
+        return capacity;
     }
 
     private int normalizeIndex(int idx) {
-        // this is the same as idx % values.length, because capacity is always a power of 2
-        return idx & (capacity() - 1);
+        // this is the same as idx % capacity, because capacity is always a power of 2
+        return idx & (capacity - 1);
+    }
+
+    private double getValue(int idx) {
+        return offHeapPoints == null ? values[idx] : offHeapPoints.getDouble(idx * BYTES_PER_POINT);
+    }
+
+    private long getTimeStamp(int idx) {
+        return offHeapPoints == null ? timeStamps[idx] : offHeapPoints.getLong(idx * BYTES_PER_POINT + Double.BYTES);
     }
 
     private void increaseCapacity() {
@@ -166,34 +263,94 @@ public class WindowedDoubleQueue {
     }
 
     private void resize(int newCapacity) {
-        double[] newValues = new double[newCapacity];
-        long[] newTimeStamps = new long[newCapacity];
-        copyValues(newValues);
-        copyTimestamps(newTimeStamps);
-        values = newValues;
-        timeStamps = newTimeStamps;
+        double[] oldValues = values;
+        long[] oldTimeStamps = timeStamps;
+        ByteBuffer oldOffHeapPoints = offHeapPoints;
+        int oldStartIndex = startIndex;
+        int oldCapacity = capacity;
+        allocateStorage(newCapacity);
         startIndex = 0;
+        if (oldOffHeapPoints == null && offHeapPoints == null) {
+            copyValues(oldValues, oldStartIndex, oldCapacity, values);
+            copyTimestamps(oldTimeStamps, oldStartIndex, oldCapacity, timeStamps);
+        } else {
+            // at least one of the storages is off-heap, therefore the points are copied individually
+            for (int i = 0; i < size; i++) {
+                int oldIdx = (oldStartIndex + i) & (oldCapacity - 1);
+                double value;
+                long timeStamp;
+                if (oldOffHeapPoints == null) {
+                    value = oldValues[oldIdx];
+                    timeStamp = oldTimeStamps[oldIdx];
+                } else {
+                    value = oldOffHeapPoints.getDouble(oldIdx * BYTES_PER_POINT);
+                    timeStamp = oldOffHeapPoints.getLong(oldIdx * BYTES_PER_POINT + Double.BYTES);
+                }
+                if (offHeapPoints == null) {
+                    values[i] = value;
+                    timeStamps[i] = timeStamp;
+                } else {
+                    offHeapPoints.putDouble(i * BYTES_PER_POINT, value);
+                    offHeapPoints.putLong(i * BYTES_PER_POINT + Double.BYTES, timeStamp);
+                }
+            }
+        }
+        if (oldOffHeapPoints != null) {
+            offHeapBudget.release(oldOffHeapPoints);
+        }
+    }
+
+    /**
+     * Replaces the current storage with an empty one of the given capacity.
+     * The storage is allocated off-heap if a budget is present and has enough memory left, otherwise on the heap.
+     * The off-heap memory of the current storage must be released by the caller.
+     */
+    private void allocateStorage(int newCapacity) {
+        capacity = newCapacity;
+        offHeapPoints = offHeapBudget == null ? null : offHeapBudget.allocate(newCapacity * BYTES_PER_POINT);
+        if (offHeapPoints == null) {
+            values = new double[newCapacity];
+            timeStamps = new long[newCapacity];
+        } else {
+            values = null;
+            timeStamps = null;
+        }
+    }
+
+    private void releaseOffHeapPoints() {
+        if (offHeapPoints != null) {
+            offHeapBudget.release(offHeapPoints);
+            offHeapPoints = null;
+        }
     }
 
     private void copyValues(double[] destination) {
-        int capacity = capacity();
-        if ((startIndex + size) <= capacity) {
-            System.arraycopy(values, startIndex, destination, 0, size);
+        if (offHeapPoints != null) {
+            for (int i = 0; i < size; i++) {
+                destination[i] = getValue(normalizeIndex(startIndex + i));
+            }
+        } else {
+            copyValues(values, startIndex, capacity, destination);
+        }
+    }
+
+    private void copyValues(double[] source, int sourceStartIndex, int sourceCapacity, double[] destination) {
+        if ((sourceStartIndex + size) <= sourceCapacity) {
+            System.arraycopy(source, sourceStartIndex, destination, 0, size);
         } else { //our circular buffer overlaps the end of the array
-            int count = capacity - startIndex;
-            System.arraycopy(values, startIndex, destination, 0, count);
-            System.arraycopy(values, 0, destination, count, size - count);
+            int count = sourceCapacity - sourceStartIndex;
+            System.arraycopy(source, sourceStartIndex, destination, 0, count);
+            System.arraycopy(source, 0, destination, count, size - count);
         }
     }
 
-    private void copyTimestamps(long[] destination) {
-        int capacity = capacity();
-        if ((startIndex + size) <= capacity) {
-            System.arraycopy(timeStamps, startIndex, destination, 0, size);
+    private void copyTimestamps(long[] source, int sourceStartIndex, int sourceCapacity, long[] destination) {
+        if ((sourceStartIndex + size) <= sourceCapacity) {
+            System.arraycopy(source, sourceStartIndex, destination, 0, size);
         } else { //our circular buffer overlaps the end of the array
-            int count = capacity - startIndex;
-            System.arraycopy(timeStamps, startIndex, destination, 0, count);
-            System.arraycopy(timeStamps, 0, destination, count, size - count);
+            int count = sourceCapacity - sourceStartIndex;
+            System.arraycopy(source, sourceStartIndex, destination, 0, count);
+            System.arraycopy(source, 0, destination, count, size - count);
         }
     }
 
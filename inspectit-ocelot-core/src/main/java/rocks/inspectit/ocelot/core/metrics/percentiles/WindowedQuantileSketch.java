@@ -0,0 +1,85 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+/**
+ * A sliding time window of {@link QuantileSketch}es.
+ * <p>
+ * The time window is split into {@link #SUB_WINDOWS} consecutive sub-windows of equal length, each of which has its own sketch.
+ * When an observation arrives for a sub-window whose sketch still contains the data of an expired sub-window, the sketch is reset.
+ * Therefore the memory used is constant, independent of the number of observations.
+ * Note that the covered time range is only accurate to the length of a single sub-window.
+ * <p>
+ * This class is not thread safe.
+ */
+class WindowedQuantileSketch {
+
+    /**
+     * The number of sub-windows the time window is split into.
+     */
+    static final int SUB_WINDOWS = 6;
+
+    private final double relativeAccuracy;
+
+    private final int maxBuckets;
+
+    private final long subWindowMillis;
+
+    private final QuantileSketch[] sketches = new QuantileSketch[SUB_WINDOWS];
+
+    /**
+     * The number of the sub-window, i.e. time / {@link #subWindowMillis}, whose data is held in the sketch with the same index.
+     */
+    private final long[] sketchSubWindows = new long[SUB_WINDOWS];
+
+    /**
+     * @param timeWindowMillis the length of the sliding time window in milliseconds
+     * @param relativeAccuracy the maximum relative error of the computed quantiles in the range (0,1)
+     * @param maxBuckets       the maximum number of buckets per sketch and sign
+     */
+    WindowedQuantileSketch(long timeWindowMillis, double relativeAccuracy, int maxBuckets) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        subWindowMillis = Math.max(1, timeWindowMillis / SUB_WINDOWS);
+    }
+
+    /**
+     * Adds the given observation to the sub-window of the given time.
+     * Observations which are older than the time window are ignored.
+     *
+     * @param value      the observed value
+     * @param timeMillis the time of the observation
+     */
+    void insert(double value, long timeMillis) {
+        long subWindow = timeMillis / subWindowMillis;
+        int index = (int) (subWindow % SUB_WINDOWS);
+        QuantileSketch sketch = sketches[index];
+        if (sketch == null) {
+            sketch = new QuantileSketch(relativeAccuracy, maxBuckets);
+            sketches[index] = sketch;
+            sketchSubWindows[index] = subWindow;
+        } else if (sketchSubWindows[index] < subWindow) {
+            sketch.clear();
+            sketchSubWindows[index] = subWindow;
+        } else if (sketchSubWindows[index] > subWindow) {
+            return;
+        }
+        sketch.add(value);
+    }
+
+    /**
+     * Merges the sketches of all sub-windows which are within the time window at the given time.
+     *
+     * @param timeMillis the current time
+     *
+     * @return a new sketch containing the observations of the time window
+     */
+    QuantileSketch getSketch(long timeMillis) {
+        long currentSubWindow = timeMillis / subWindowMillis;
+        QuantileSketch result = new QuantileSketch(relativeAccuracy, maxBuckets);
+        for (int i = 0; i < SUB_WINDOWS; i++) {
+            if (sketches[i] != null && sketchSubWindows[i] > currentSubWindow - SUB_WINDOWS && sketchSubWindows[i] <= currentSubWindow) {
+                result.merge(sketches[i]);
+            }
+        }
+        return result;
+    }
+}
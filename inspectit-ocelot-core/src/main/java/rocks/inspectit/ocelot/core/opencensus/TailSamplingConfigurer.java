@@ -0,0 +1,131 @@
+package rocks.inspectit.ocelot.core.opencensus;
+
+import io.opencensus.implcore.trace.RecordEventsSpanImpl;
+import io.opencensus.implcore.trace.TracerImpl;
+import io.opencensus.implcore.trace.export.RunningSpanStoreImpl;
+import io.opencensus.trace.Tracing;
+import io.opencensus.trace.export.RunningSpanStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.config.model.tracing.TailSamplingSettings;
+import rocks.inspectit.ocelot.core.config.InspectitConfigChangedEvent;
+import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Installs the {@link TailSamplingSpanHandler} into the OpenCensus tracer, so that ended spans pass through it before being exported.
+ * The handler is always installed, if tail sampling is disabled it passes all spans on.
+ * <p>
+ * In addition, this class periodically evicts expired traces from the buffer of the handler and reports its usage to the {@link SelfMonitoringService}.
+ */
+@Component
+@Slf4j
+public class TailSamplingConfigurer {
+
+    private static final String DECISION_TAG = "decision";
+
+    @Autowired
+    private InspectitEnvironment env;
+
+    @Autowired
+    private SelfMonitoringService selfMonitoringService;
+
+    @Autowired
+    private ScheduledExecutorService executor;
+
+    /**
+     * The installed handler, null if it could not be installed.
+     */
+    private TailSamplingSpanHandler handler;
+
+    private ScheduledFuture<?> maintenanceTask;
+
+    @PostConstruct
+    private void init() {
+        try {
+            handler = installHandler();
+        } catch (Exception e) {
+            log.error("Could not install the tail sampling span handler, tail sampling will not be available", e);
+            return;
+        }
+        updateSettings();
+        long frequencyMillis = env.getCurrentConfig().getMetrics().getFrequency().toMillis();
+        maintenanceTask = executor.scheduleWithFixedDelay(this::doMaintenance, frequencyMillis, frequencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel(false);
+        }
+        if (handler != null) {
+            // keep all spans which are still buffered
+            handler.configure(new TailSamplingSettings());
+        }
+    }
+
+    @EventListener(InspectitConfigChangedEvent.class)
+    void updateSettings() {
+        if (handler != null) {
+            TailSamplingSettings settings = env.getCurrentConfig().getTracing().getTailSampling();
+            handler.configure(settings);
+        }
+    }
+
+    /**
+     * Wraps the {@link RecordEventsSpanImpl.StartEndHandler} used by the global tracer with a {@link TailSamplingSpanHandler}.
+     *
+     * @return the installed handler
+     */
+    private TailSamplingSpanHandler installHandler() throws ReflectiveOperationException {
+        Field optionsField = TracerImpl.class.getDeclaredField("spanBuilderOptions");
+        optionsField.setAccessible(true);
+        Object options = optionsField.get(Tracing.getTracer());
+        Field handlerField = options.getClass().getDeclaredField("startEndHandler");
+        handlerField.setAccessible(true);
+
+        RecordEventsSpanImpl.StartEndHandler currentHandler = (RecordEventsSpanImpl.StartEndHandler) handlerField.get(options);
+        if (currentHandler instanceof TailSamplingSpanHandler) {
+            return (TailSamplingSpanHandler) currentHandler;
+        }
+        TailSamplingSpanHandler tailSamplingHandler = new TailSamplingSpanHandler(currentHandler, this::removeFromRunningSpans);
+        handlerField.set(options, tailSamplingHandler);
+        return tailSamplingHandler;
+    }
+
+    /**
+     * Removes a dropped span from the running span store, which is otherwise done by the original handler when the span ends.
+     */
+    private void removeFromRunningSpans(RecordEventsSpanImpl span) {
+        RunningSpanStore runningSpanStore = Tracing.getExportComponent().getRunningSpanStore();
+        if (runningSpanStore instanceof RunningSpanStoreImpl) {
+            ((RunningSpanStoreImpl) runningSpanStore).onEnd(span);
+        }
+    }
+
+    private void doMaintenance() {
+        try {
+            handler.evictExpiredTraces();
+            selfMonitoringService.recordMeasurement("tail-sampling-buffered-spans", handler.getBufferedSpans());
+            recordTraces("kept", handler.getAndResetKeptTraces());
+            recordTraces("dropped", handler.getAndResetDroppedTraces());
+            selfMonitoringService.recordMeasurement("tail-sampling-evicted-traces", handler.getAndResetEvictedTraces());
+        } catch (Exception e) {
+            log.error("Error maintaining the tail sampling buffer", e);
+        }
+    }
+
+    private void recordTraces(String decision, long count) {
+        selfMonitoringService.recordMeasurement("tail-sampling-traces", count, Collections.singletonMap(DECISION_TAG, decision));
+    }
+}
@@ -0,0 +1,369 @@
+package rocks.inspectit.ocelot.core.opencensus;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.opencensus.common.Functions;
+import io.opencensus.implcore.trace.RecordEventsSpanImpl;
+import io.opencensus.trace.AttributeValue;
+import io.opencensus.trace.TraceId;
+import rocks.inspectit.ocelot.config.model.tracing.TailSamplingSettings;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link RecordEventsSpanImpl.StartEndHandler} which buffers the ended spans of each trace, until all spans of the trace
+ * which have been started in this JVM have ended. Afterwards, it is decided based on the {@link TailSamplingSettings} whether
+ * the spans are passed on to the actual handler (and therefore exported) or are discarded.
+ * <p>
+ * The memory used by the buffer is bounded by {@link TailSamplingSettings#getMaxBufferedSpans()}:
+ * if the buffer is full, a trace is decided on as soon as another one of its spans ends.
+ * Traces are also decided on if they exceed {@link TailSamplingSettings#getMaxTraceDuration()}, which is checked by {@link #evictExpiredTraces()}.
+ * <p>
+ * Spans ending after the decision for their trace has been made are handled according to this decision,
+ * as long as it is still remembered.
+ */
+public class TailSamplingSpanHandler implements RecordEventsSpanImpl.StartEndHandler {
+
+    /**
+     * The handler to which the spans are passed on.
+     */
+    private final RecordEventsSpanImpl.StartEndHandler delegate;
+
+    /**
+     * Invoked for spans which are not passed on to the {@link #delegate} because their trace has been dropped.
+     */
+    private final Consumer<RecordEventsSpanImpl> discardedSpanHandler;
+
+    /**
+     * The currently active policy, null if tail sampling is disabled.
+     */
+    private volatile Policy policy;
+
+    /**
+     * The buffered traces for which no decision has been made yet.
+     */
+    private final ConcurrentHashMap<TraceId, TraceBuffer> traces = new ConcurrentHashMap<>();
+
+    /**
+     * The decisions made for recently finished traces, used for handling spans which end after their trace has been decided on.
+     */
+    private volatile Cache<TraceId, Boolean> decisions = createDecisionCache(1, 1);
+
+    /**
+     * The number of spans currently held in the buffer.
+     */
+    private final AtomicInteger bufferedSpans = new AtomicInteger();
+
+    private final LongAdder keptTraces = new LongAdder();
+
+    private final LongAdder droppedTraces = new LongAdder();
+
+    private final LongAdder evictedTraces = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param delegate             the handler to which the spans of kept traces are passed on
+     * @param discardedSpanHandler invoked for each span of a dropped trace, e.g. for cleaning up data the delegate stored in {@link RecordEventsSpanImpl.StartEndHandler#onStart(RecordEventsSpanImpl)}
+     */
+    public TailSamplingSpanHandler(RecordEventsSpanImpl.StartEndHandler delegate, Consumer<RecordEventsSpanImpl> discardedSpanHandler) {
+        this.delegate = delegate;
+        this.discardedSpanHandler = discardedSpanHandler;
+    }
+
+    /**
+     * Applies the given settings. If tail sampling is disabled, all currently buffered traces are kept.
+     *
+     * @param settings the settings to apply
+     */
+    public synchronized void configure(TailSamplingSettings settings) {
+        if (settings.isEnabled()) {
+            Policy newPolicy = new Policy(settings);
+            Policy previous = policy;
+            if (previous == null || previous.maxBufferedSpans != newPolicy.maxBufferedSpans || previous.maxTraceDurationNanos != newPolicy.maxTraceDurationNanos) {
+                decisions = createDecisionCache(newPolicy.maxBufferedSpans, newPolicy.maxTraceDurationNanos);
+            }
+            policy = newPolicy;
+        } else {
+            policy = null;
+            evictExpiredTraces();
+        }
+    }
+
+    /**
+     * @return the number of spans currently held in the buffer
+     */
+    public int getBufferedSpans() {
+        return bufferedSpans.get();
+    }
+
+    /**
+     * @return the number of traces which are currently buffered
+     */
+    public int getBufferedTraces() {
+        return traces.size();
+    }
+
+    /**
+     * @return the number of traces which have been kept since the last invocation
+     */
+    public long getAndResetKeptTraces() {
+        return keptTraces.sumThenReset();
+    }
+
+    /**
+     * @return the number of traces which have been dropped since the last invocation
+     */
+    public long getAndResetDroppedTraces() {
+        return droppedTraces.sumThenReset();
+    }
+
+    /**
+     * @return the number of traces which have been decided on before all of their spans ended, since the last invocation
+     */
+    public long getAndResetEvictedTraces() {
+        return evictedTraces.sumThenReset();
+    }
+
+    @Override
+    public void onStart(RecordEventsSpanImpl span) {
+        delegate.onStart(span);
+        if (policy != null && span.getContext().getTraceOptions().isSampled()) {
+            TraceId traceId = span.getContext().getTraceId();
+            if (decisions.getIfPresent(traceId) == null) {
+                // if the buffer has been closed concurrently, the decision has been made and is used when the span ends
+                traces.computeIfAbsent(traceId, id -> new TraceBuffer(id, System.nanoTime())).spanStarted();
+            }
+        }
+    }
+
+    @Override
+    public void onEnd(RecordEventsSpanImpl span) {
+        if (!span.getContext().getTraceOptions().isSampled()) {
+            delegate.onEnd(span);
+            return;
+        }
+        TraceId traceId = span.getContext().getTraceId();
+        TraceBuffer buffer = traces.get(traceId);
+        if (buffer == null || !buffer.spanEnded(span)) {
+            Boolean keep = decisions.getIfPresent(traceId);
+            if (keep == null || keep) {
+                delegate.onEnd(span);
+            } else {
+                discardedSpanHandler.accept(span);
+            }
+        }
+    }
+
+    /**
+     * Makes the decision for all traces which have exceeded the {@link TailSamplingSettings#getMaxTraceDuration()}.
+     * If tail sampling is disabled, the decision is made for all traces and all of them are kept.
+     * This method should be invoked periodically.
+     */
+    public void evictExpiredTraces() {
+        long now = System.nanoTime();
+        for (TraceBuffer buffer : traces.values()) {
+            Policy currentPolicy = policy;
+            if (currentPolicy == null || now - buffer.startNanos >= currentPolicy.maxTraceDurationNanos) {
+                buffer.evict();
+            }
+        }
+    }
+
+    private static Cache<TraceId, Boolean> createDecisionCache(int maximumSize, long expireAfterNanos) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterNanos, TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    /**
+     * The criteria for keeping a trace, derived from the {@link TailSamplingSettings}.
+     */
+    private static class Policy {
+
+        private final int maxBufferedSpans;
+
+        private final long maxTraceDurationNanos;
+
+        /**
+         * The latency threshold in nanoseconds, or a negative value if the latency is not considered.
+         */
+        private final long latencyThresholdNanos;
+
+        private final boolean keepErrors;
+
+        private final Map<String, Pattern> keepAttributes;
+
+        private final double keepProbability;
+
+        Policy(TailSamplingSettings settings) {
+            maxBufferedSpans = settings.getMaxBufferedSpans();
+            maxTraceDurationNanos = settings.getMaxTraceDuration().toNanos();
+            latencyThresholdNanos = settings.getLatencyThreshold() == null ? -1 : settings.getLatencyThreshold().toNanos();
+            keepErrors = settings.isKeepErrors();
+            keepAttributes = settings.getKeepAttributes().entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> Pattern.compile(entry.getValue())));
+            keepProbability = settings.getKeepProbability();
+        }
+
+        /**
+         * Decides whether the given spans of a trace shall be kept.
+         *
+         * @param spans         the ended spans of the trace
+         * @param traceDuration the time since the first span of the trace has been started, in nanoseconds
+         *
+         * @return true, if the trace shall be kept
+         */
+        boolean shouldKeep(List<RecordEventsSpanImpl> spans, long traceDuration) {
+            if (latencyThresholdNanos >= 0 && traceDuration >= latencyThresholdNanos) {
+                return true;
+            }
+            for (RecordEventsSpanImpl span : spans) {
+                if (keepErrors && !span.getStatus().isOk()) {
+                    return true;
+                }
+                if (latencyThresholdNanos >= 0 && span.getLatencyNs() >= latencyThresholdNanos) {
+                    return true;
+                }
+                if (!keepAttributes.isEmpty() && hasMatchingAttribute(span)) {
+                    return true;
+                }
+            }
+            return keepProbability > 0 && ThreadLocalRandom.current().nextDouble() < keepProbability;
+        }
+
+        private boolean hasMatchingAttribute(RecordEventsSpanImpl span) {
+            Map<String, AttributeValue> attributes = span.toSpanData().getAttributes().getAttributeMap();
+            for (Map.Entry<String, Pattern> keepAttribute : keepAttributes.entrySet()) {
+                AttributeValue value = attributes.get(keepAttribute.getKey());
+                if (value != null) {
+                    String stringValue = value.match(Functions.returnToString(), Functions.returnToString(),
+                            Functions.returnToString(), Functions.returnToString(), Functions.returnToString());
+                    if (keepAttribute.getValue().matcher(stringValue).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The spans of a trace which have ended while waiting for the decision.
+     */
+    private class TraceBuffer {
+
+        private final TraceId traceId;
+
+        private final long startNanos;
+
+        private final List<RecordEventsSpanImpl> spans = new ArrayList<>();
+
+        /**
+         * The number of spans of this trace which have been started but have not ended yet.
+         */
+        private int openSpans = 0;
+
+        /**
+         * True, if the decision has been made and this buffer is not used anymore.
+         */
+        private boolean closed = false;
+
+        TraceBuffer(TraceId traceId, long startNanos) {
+            this.traceId = traceId;
+            this.startNanos = startNanos;
+        }
+
+        synchronized void spanStarted() {
+            if (!closed) {
+                openSpans++;
+            }
+        }
+
+        /**
+         * Adds an ended span to this buffer. If this was the last open span of the trace or the buffer is full, the decision is made.
+         *
+         * @param span the ended span
+         *
+         * @return false, if this buffer has already been closed and the span therefore has not been added
+         */
+        boolean spanEnded(RecordEventsSpanImpl span) {
+            List<RecordEventsSpanImpl> decidedSpans;
+            boolean keep;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                openSpans--;
+                spans.add(span);
+                boolean bufferFull = bufferedSpans.incrementAndGet() > getMaxBufferedSpans();
+                if (openSpans > 0 && !bufferFull) {
+                    return true;
+                }
+                if (openSpans > 0) {
+                    evictedTraces.increment();
+                }
+                keep = close();
+                decidedSpans = new ArrayList<>(spans);
+            }
+            release(decidedSpans, keep);
+            return true;
+        }
+
+        /**
+         * Makes the decision for this trace with the spans which have ended so far.
+         */
+        void evict() {
+            List<RecordEventsSpanImpl> decidedSpans;
+            boolean keep;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                evictedTraces.increment();
+                keep = close();
+                decidedSpans = new ArrayList<>(spans);
+            }
+            release(decidedSpans, keep);
+        }
+
+        private int getMaxBufferedSpans() {
+            Policy currentPolicy = policy;
+            return currentPolicy == null ? 0 : currentPolicy.maxBufferedSpans;
+        }
+
+        /**
+         * Closes this buffer and makes the decision. Must be called while holding the lock of this buffer.
+         *
+         * @return true, if the trace shall be kept
+         */
+        private boolean close() {
+            closed = true;
+            Policy currentPolicy = policy;
+            boolean keep = currentPolicy == null || currentPolicy.shouldKeep(spans, System.nanoTime() - startNanos);
+            decisions.put(traceId, keep);
+            traces.remove(traceId, this);
+            return keep;
+        }
+
+        private void release(List<RecordEventsSpanImpl> decidedSpans, boolean keep) {
+            bufferedSpans.addAndGet(-decidedSpans.size());
+            if (keep) {
+                keptTraces.increment();
+                decidedSpans.forEach(delegate::onEnd);
+            } else {
+                droppedTraces.increment();
+                decidedSpans.forEach(discardedSpanHandler);
+            }
+        }
+    }
+}
@@ -15,20 +15,44 @@ public interface IObfuscatory {
      * @param value attribute value
      */
     default void putSpanAttribute(Span span, String key, Object value) {
-        AttributeValue attributeValue;
-        if(value instanceof String){
-            attributeValue = AttributeValue.stringAttributeValue((String)value);
-        } else if(value instanceof Double || value instanceof Float){
-            attributeValue = AttributeValue.doubleAttributeValue(((Number)value).doubleValue());
-        } else if (value instanceof Number){
-            attributeValue = AttributeValue.longAttributeValue(((Number)value).longValue());
-        } else if (value instanceof Boolean){
-            attributeValue = AttributeValue.booleanAttributeValue((Boolean)value);
+        span.putAttribute(key, toAttributeValue(value));
+    }
+
+    /**
+     * Returns a writer for the attribute with the given key, which can be reused for all values of this attribute
+     * as long as this obfuscatory is active.
+     * Implementations should resolve all checks which only depend on the key when the writer is created.
+     * <p>
+     * Default implementation performs no obfuscation.
+     *
+     * @param key attribute key
+     *
+     * @return the writer for the given key
+     */
+    default SpanAttributeWriter getSpanAttributeWriter(String key) {
+        return (span, value) -> span.putAttribute(key, toAttributeValue(value));
+    }
+
+    /**
+     * Converts the given value to an {@link AttributeValue} of the matching type.
+     * Values which are neither strings, numbers nor booleans are converted to strings.
+     *
+     * @param value the value to convert
+     *
+     * @return the attribute value
+     */
+    static AttributeValue toAttributeValue(Object value) {
+        if (value instanceof String) {
+            return AttributeValue.stringAttributeValue((String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            return AttributeValue.doubleAttributeValue(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            return AttributeValue.longAttributeValue(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            return AttributeValue.booleanAttributeValue((Boolean) value);
         } else {
-            attributeValue = AttributeValue.stringAttributeValue(value.toString());
+            return AttributeValue.stringAttributeValue(value.toString());
         }
-
-        span.putAttribute(key, attributeValue);
     }
 
 }
@@ -34,7 +34,7 @@ public class ObfuscationManager {
     @Autowired
     private SelfMonitoringService selfMonitoring;
 
-    private IObfuscatory obfuscatory = NoopObfuscatory.INSTANCE;
+    private volatile IObfuscatory obfuscatory = NoopObfuscatory.INSTANCE;
 
     public Supplier<IObfuscatory> obfuscatorySupplier() {
         return () -> this.obfuscatory;
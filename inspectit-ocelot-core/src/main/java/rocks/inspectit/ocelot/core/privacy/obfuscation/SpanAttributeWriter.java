@@ -0,0 +1,20 @@
+package rocks.inspectit.ocelot.core.privacy.obfuscation;
+
+import io.opencensus.trace.Span;
+
+/**
+ * Writes the values of a single span attribute, with all obfuscation decisions depending on the attribute key already resolved.
+ *
+ * @see IObfuscatory#getSpanAttributeWriter(String)
+ */
+@FunctionalInterface
+public interface SpanAttributeWriter {
+
+    /**
+     * Stores the given value as attribute at the given span, obfuscating it if needed.
+     *
+     * @param span  span to store attribute to
+     * @param value attribute value
+     */
+    void putSpanAttribute(Span span, Object value);
+}
@@ -3,17 +3,22 @@ package rocks.inspectit.ocelot.core.privacy.obfuscation.impl;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import io.opencensus.trace.Span;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 import rocks.inspectit.ocelot.core.privacy.obfuscation.IObfuscatory;
+import rocks.inspectit.ocelot.core.privacy.obfuscation.SpanAttributeWriter;
 
 import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
-@AllArgsConstructor
+/**
+ * Obfuscates span attributes whose key or value matches one of the configured patterns.
+ * <p>
+ * The checks of the keys are resolved once per key via {@link #getSpanAttributeWriter(String)}.
+ * Values are only converted to strings and checked if patterns for checking values exist.
+ */
 public class PatternObfuscatory implements IObfuscatory {
 
     private static final Function<String, Object> DEFAULT_OBFUSCATION_FUNCTION = (v) -> "***";
@@ -24,51 +29,52 @@ public class PatternObfuscatory implements IObfuscatory {
     private final Collection<PatternEntry> patternEntries;
 
     /**
-     * Map holding already checked keys as key and info if the data should be obfuscated or not.
+     * The patterns of {@link #patternEntries} which check the data.
      */
-    private final Cache<String, CheckedKeyObfuscationValue> checkedKeysMap = CacheBuilder.newBuilder().maximumSize(1000).build();
+    private final PatternEntry[] dataPatternEntries;
+
+    /**
+     * Map holding already checked keys as key and the resolved writer for this key as value.
+     */
+    private final Cache<String, SpanAttributeWriter> checkedKeysMap = CacheBuilder.newBuilder().maximumSize(1000).build();
+
+    public PatternObfuscatory(Collection<PatternEntry> patternEntries) {
+        this.patternEntries = patternEntries;
+        dataPatternEntries = patternEntries.stream().filter(PatternEntry::isCheckData).toArray(PatternEntry[]::new);
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public void putSpanAttribute(Span span, String key, Object value) {
-        final String strValue = value.toString();
-        Object obfuscatedValue = shouldObfuscate(key, strValue)
-                .map(function -> function.apply(strValue))
-                .orElse(value);
-
-        IObfuscatory.super.putSpanAttribute(span, key, obfuscatedValue);
+        SpanAttributeWriter writer = checkedKeysMap.getIfPresent(key);
+        if (writer == null) {
+            writer = getSpanAttributeWriter(key);
+            checkedKeysMap.put(key, writer);
+        }
+        writer.putSpanAttribute(span, value);
     }
 
-    private Optional<Function<String, Object>> shouldObfuscate(String key, String value) {
-        // get info from the map
-        CheckedKeyObfuscationValue keyObfuscationValue = checkedKeysMap.getIfPresent(key);
-
-        // if we know this should be obfuscated return immediately with function that was saved
-        if (null != keyObfuscationValue && keyObfuscationValue.shouldObfuscate) {
-            return Optional.of(keyObfuscationValue.obfuscationFunction);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SpanAttributeWriter getSpanAttributeWriter(String key) {
+        Optional<Function<String, Object>> keyBasedObfuscation = shouldObfuscateKey(key);
+        if (keyBasedObfuscation.isPresent()) {
+            Function<String, Object> obfuscationFunction = keyBasedObfuscation.get();
+            return (span, value) -> span.putAttribute(key, IObfuscatory.toAttributeValue(obfuscationFunction.apply(value.toString())));
         }
-
-        // if we have no information about this key before
-        if (null == keyObfuscationValue) {
-            // first run the check of the key and store to map result
-            Optional<Function<String, Object>> keyBasedObfuscation = shouldObfuscateKey(key);
-            CheckedKeyObfuscationValue.CheckedKeyObfuscationValueBuilder checkedKeyObfuscationValueBuilder = CheckedKeyObfuscationValue.builder();
-
-            // if function is present, then we know obfuscation is needed and we save both boolean and function to the map
-            keyBasedObfuscation.ifPresent(stringStringFunction -> checkedKeyObfuscationValueBuilder.shouldObfuscate(true).obfuscationFunction(stringStringFunction));
-            CheckedKeyObfuscationValue cacheValue = checkedKeyObfuscationValueBuilder.build();
-            checkedKeysMap.put(key, cacheValue);
-
-            // return resolved function if key obfuscation
-            if (cacheValue.shouldObfuscate) {
-                return keyBasedObfuscation;
-            }
+        if (dataPatternEntries.length == 0) {
+            return (span, value) -> span.putAttribute(key, IObfuscatory.toAttributeValue(value));
         }
-
-        // at the end check only data obfuscation
-        return shouldObfuscateData(value);
+        return (span, value) -> {
+            String strValue = value.toString();
+            Function<String, Object> obfuscationFunction = shouldObfuscateData(strValue);
+            Object obfuscatedValue = obfuscationFunction == null ? value : obfuscationFunction.apply(strValue);
+            span.putAttribute(key, IObfuscatory.toAttributeValue(obfuscatedValue));
+        };
     }
 
     private Optional<Function<String, Object>> shouldObfuscateKey(String key) {
@@ -78,30 +84,16 @@ public class PatternObfuscatory implements IObfuscatory {
                 .map(PatternEntry::getObfuscationFunction);
     }
 
-    private Optional<Function<String, Object>> shouldObfuscateData(String data) {
-        return patternEntries.stream()
-                .filter(p -> p.matchesData(data))
-                .findFirst()
-                .map(PatternEntry::getObfuscationFunction);
-    }
-
     /**
-     * Used in the cache as value.
+     * @return the obfuscation function of the first data pattern matching the given data, null if none matches
      */
-    @Builder
-    @Value
-    private static final class CheckedKeyObfuscationValue {
-
-        /**
-         * If key should be obfuscated
-         */
-        private final boolean shouldObfuscate;
-
-        /**
-         * What's the obfuscation function.
-         */
-        private final Function<String, Object> obfuscationFunction;
-
+    private Function<String, Object> shouldObfuscateData(String data) {
+        for (PatternEntry entry : dataPatternEntries) {
+            if (entry.matchesData(data)) {
+                return entry.getObfuscationFunction();
+            }
+        }
+        return null;
     }
 
     @Builder
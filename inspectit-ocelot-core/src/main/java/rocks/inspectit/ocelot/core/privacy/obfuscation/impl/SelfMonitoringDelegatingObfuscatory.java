@@ -4,6 +4,7 @@ import io.opencensus.common.Scope;
 import io.opencensus.trace.Span;
 import lombok.Value;
 import rocks.inspectit.ocelot.core.privacy.obfuscation.IObfuscatory;
+import rocks.inspectit.ocelot.core.privacy.obfuscation.SpanAttributeWriter;
 import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
 
 /**
@@ -31,4 +32,17 @@ public class SelfMonitoringDelegatingObfuscatory implements IObfuscatory {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public SpanAttributeWriter getSpanAttributeWriter(String key) {
+        SpanAttributeWriter delegatingWriter = delegatingObfuscatory.getSpanAttributeWriter(key);
+        String measureName = delegatingObfuscatory.getClass().getSimpleName();
+        return (span, value) -> {
+            try (Scope scope = selfMonitoringService.withDurationSelfMonitoring(measureName)) {
+                delegatingWriter.putSpanAttribute(span, value);
+            }
+        };
+    }
+
 }
@@ -0,0 +1,53 @@
+package rocks.inspectit.ocelot.core.selfmonitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for components which periodically report their state to the {@link SelfMonitoringService}.
+ * The reporting is scheduled on startup with the polling frequency of the metrics ({@code inspectit.metrics.frequency})
+ * and cancelled on shutdown.
+ */
+@Slf4j
+public abstract class AbstractPollingSelfMonitoringRecorder {
+
+    @Autowired
+    protected SelfMonitoringService selfMonitoringService;
+
+    @Autowired
+    private InspectitEnvironment env;
+
+    @Autowired
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> reportingTask;
+
+    /**
+     * Called periodically to report the current state to the {@link #selfMonitoringService}.
+     */
+    protected abstract void report();
+
+    @PostConstruct
+    private void scheduleReporting() {
+        long frequencyMillis = env.getCurrentConfig().getMetrics().getFrequency().toMillis();
+        reportingTask = executor.scheduleWithFixedDelay(() -> {
+            try {
+                report();
+            } catch (Exception e) {
+                log.error("Error reporting self monitoring measurements of {}", getClass().getSimpleName(), e);
+            }
+        }, frequencyMillis, frequencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void cancelReporting() {
+        reportingTask.cancel(false);
+    }
+}
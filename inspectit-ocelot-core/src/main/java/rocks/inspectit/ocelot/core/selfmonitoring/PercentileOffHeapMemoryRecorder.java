@@ -0,0 +1,43 @@
+package rocks.inspectit.ocelot.core.selfmonitoring;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
+import rocks.inspectit.ocelot.core.metrics.percentiles.PercentileViewManager;
+
+import java.util.Collections;
+
+/**
+ * Exposes the memory used by the off-heap buffers of the percentile views to the {@link SelfMonitoringService}.
+ * <p>
+ * The usage is reported periodically with the polling frequency of the metrics ({@code inspectit.metrics.frequency}),
+ * but only if the buffers are stored off-heap.
+ */
+@Component
+public class PercentileOffHeapMemoryRecorder extends AbstractPollingSelfMonitoringRecorder {
+
+    private static final String MEASURE_NAME = "percentile-off-heap-memory";
+
+    private static final String STATE_TAG = "state";
+
+    @Autowired
+    private PercentileViewManager percentileViewManager;
+
+    /**
+     * Reports the currently used and reserved off-heap memory and its limit.
+     */
+    @Override
+    protected void report() {
+        if (percentileViewManager.getBufferStorage() == PercentilesSettings.BufferStorage.OFF_HEAP) {
+            OffHeapMemoryBudget budget = percentileViewManager.getOffHeapBudget();
+            report("used", budget.getUsedBytes());
+            report("reserved", budget.getReservedBytes());
+            report("limit", budget.getLimitBytes());
+        }
+    }
+
+    private void report(String state, long bytes) {
+        selfMonitoringService.recordMeasurement(MEASURE_NAME, bytes, Collections.singletonMap(STATE_TAG, state));
+    }
+}
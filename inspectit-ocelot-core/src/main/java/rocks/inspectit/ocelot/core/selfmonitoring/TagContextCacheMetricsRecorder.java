@@ -0,0 +1,64 @@
+package rocks.inspectit.ocelot.core.selfmonitoring;
+
+import org.springframework.stereotype.Component;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.model.TagContextCache;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the hits, misses and evictions of all {@link TagContextCache}s and exposes them to the {@link SelfMonitoringService}.
+ * <p>
+ * The caches are accessed on every metric recording of an instrumented method, therefore the events are only counted there
+ * and are reported periodically with the polling frequency of the metrics ({@code inspectit.metrics.frequency}).
+ */
+@Component
+public class TagContextCacheMetricsRecorder extends AbstractPollingSelfMonitoringRecorder {
+
+    private static final String MEASURE_NAME = "tag-context-cache";
+
+    private static final String EVENT_TAG = "event";
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Records that a tag context was found in a cache.
+     */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * Records that a tag context was not found in a cache and had to be built.
+     */
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Records that a tag context was evicted from a cache because its cardinality limit was reached.
+     */
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    /**
+     * Reports the events counted since the last invocation.
+     */
+    @Override
+    protected void report() {
+        report("hit", hits.sumThenReset());
+        report("miss", misses.sumThenReset());
+        report("eviction", evictions.sumThenReset());
+    }
+
+    private void report(String event, long count) {
+        if (count > 0) {
+            selfMonitoringService.recordMeasurement(MEASURE_NAME, count, Collections.singletonMap(EVENT_TAG, event));
+        }
+    }
+}
@@ -55,17 +55,18 @@ public class CommonTagsManager {
     private TagContext commonTagContext = Tags.getTagger().emptyBuilder().build();
 
     /**
-     * List of common tag keys that can be used when creating the views.
+     * Unmodifiable list of common tag keys that can be used when creating the views.
      */
     private List<TagKey> commonTagKeys = Collections.emptyList();
 
     /**
      * Returns common tags keys that all view should register.
+     * The same list instance is returned until the common tags change, so callers can use its identity to detect changes.
      *
      * @return Returns common tags keys that all view should register.
      */
     public List<TagKey> getCommonTagKeys() {
-        return Collections.unmodifiableList(commonTagKeys);
+        return commonTagKeys;
     }
 
     /**
@@ -131,7 +132,7 @@ public class CommonTagsManager {
             newCommonTagKeys.add(key);
             tagContextBuilder.putLocal(key, TagUtils.createTagValue(key.getName(), v));
         });
-        commonTagKeys = newCommonTagKeys;
+        commonTagKeys = Collections.unmodifiableList(newCommonTagKeys);
         commonTagValueMap = newCommonTagValueMap;
         commonTagContext = tagContextBuilder.build();
     }
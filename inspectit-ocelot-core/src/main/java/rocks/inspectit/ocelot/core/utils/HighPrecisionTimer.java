@@ -113,8 +113,10 @@ public class HighPrecisionTimer {
         }
     }
 
-    @VisibleForTesting
-    synchronized boolean isStarted() {
+    /**
+     * @return true, if the timer is currently running
+     */
+    public synchronized boolean isStarted() {
         return timer != null;
     }
 
@@ -0,0 +1,58 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import io.opencensus.metrics.LabelValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CounterDeltaCacheTest {
+
+    private final CounterDeltaCache cache = new CounterDeltaCache();
+
+    private final List<LabelValue> labels = Collections.singletonList(LabelValue.create("a"));
+
+    @Test
+    void newSeriesReturnsValue() {
+        cache.startExport();
+
+        assertThat(cache.updateAndGetDelta("metric", labels, 5L)).isEqualTo(5L);
+        assertThat(cache.updateAndGetDelta("other", labels, 2.5)).isEqualTo(2.5);
+    }
+
+    @Test
+    void resetCounterReturnsValue() {
+        cache.startExport();
+        cache.updateAndGetDelta("metric", labels, 5L);
+        cache.finishExport();
+        cache.startExport();
+
+        assertThat(cache.updateAndGetDelta("metric", labels, 3L)).isEqualTo(3L);
+    }
+
+    @Test
+    void seriesIdentifiedByLabelValues() {
+        cache.startExport();
+        cache.updateAndGetDelta("metric", labels, 5L);
+        cache.finishExport();
+        cache.startExport();
+
+        assertThat(cache.updateAndGetDelta("metric", Collections.singletonList(LabelValue.create("a")), 7L)).isEqualTo(2L);
+        assertThat(cache.updateAndGetDelta("metric", Collections.singletonList(LabelValue.create("b")), 7L)).isEqualTo(7L);
+    }
+
+    @Test
+    void unseenSeriesRemoved() {
+        cache.startExport();
+        cache.updateAndGetDelta("metric", labels, 5L);
+        cache.updateAndGetDelta("other", labels, 5L);
+        cache.finishExport();
+        cache.startExport();
+        cache.updateAndGetDelta("metric", labels, 6L);
+        cache.finishExport();
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
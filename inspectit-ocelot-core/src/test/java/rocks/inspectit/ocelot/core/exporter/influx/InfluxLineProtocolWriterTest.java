@@ -0,0 +1,211 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import io.opencensus.common.Timestamp;
+import io.opencensus.metrics.LabelKey;
+import io.opencensus.metrics.LabelValue;
+import io.opencensus.metrics.export.*;
+import io.opencensus.stats.Aggregation;
+import io.opencensus.stats.Measure;
+import io.opencensus.stats.View;
+import io.opencensus.stats.ViewManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class InfluxLineProtocolWriterTest {
+
+    private static final long TIMESTAMP = 1000;
+
+    private static final Timestamp START = Timestamp.create(1, 0);
+
+    @Mock
+    private ViewManager viewManager;
+
+    private Map<String, String> percentileSeries;
+
+    private LineProtocolBuffer buffer;
+
+    private int completedLines;
+
+    @BeforeEach
+    void setup() {
+        percentileSeries = new HashMap<>();
+        buffer = new LineProtocolBuffer();
+        completedLines = 0;
+        View view = View.create(View.Name.create("my/measure/cool%data"), "", Measure.MeasureDouble.create("my/measure", "", "ms"), Aggregation.Sum.create(), Collections.emptyList());
+        lenient().when(viewManager.getAllExportedViews()).thenReturn(Collections.singleton(view));
+    }
+
+    private InfluxLineProtocolWriter createWriter(boolean countersAsDifferences) {
+        return new InfluxLineProtocolWriter(countersAsDifferences, percentileSeries::get, viewManager);
+    }
+
+    private static Metric metric(String name, MetricDescriptor.Type type, List<String> tagKeys, TimeSeries... series) {
+        List<LabelKey> keys = new ArrayList<>();
+        for (String key : tagKeys) {
+            keys.add(LabelKey.create(key, ""));
+        }
+        return Metric.create(MetricDescriptor.create(name, "", "", type, keys), Arrays.asList(series));
+    }
+
+    private static TimeSeries series(Value value, String... tagValues) {
+        List<LabelValue> labelValues = new ArrayList<>();
+        for (String tagValue : tagValues) {
+            labelValues.add(LabelValue.create(tagValue));
+        }
+        return TimeSeries.createWithOnePoint(labelValues, Point.create(value, START), START);
+    }
+
+    private String write(InfluxLineProtocolWriter writer, Metric... metrics) {
+        buffer.reset();
+        writer.startExport();
+        for (Metric metric : metrics) {
+            writer.write(metric, TIMESTAMP, buffer, () -> completedLines++);
+        }
+        writer.finishExport();
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    class Naming {
+
+        @Test
+        void viewWrittenToMeasureMeasurement() {
+            Metric metric = metric("my/measure/cool%data", MetricDescriptor.Type.GAUGE_DOUBLE, Collections.singletonList("my_tag"),
+                    series(Value.doubleValue(42.5), "myval"));
+
+            String result = write(createWriter(false), metric);
+
+            assertThat(result).isEqualTo("my_measure,my_tag=myval cool_data=42.5 1000\n");
+            assertThat(completedLines).isEqualTo(1);
+        }
+
+        @Test
+        void unknownMetricWrittenToValueField() {
+            Metric metric = metric("some/metric", MetricDescriptor.Type.GAUGE_INT64, Collections.emptyList(), series(Value.longValue(42)));
+
+            String result = write(createWriter(false), metric);
+
+            assertThat(result).isEqualTo("some_metric value=42i 1000\n");
+        }
+
+        @Test
+        void percentileSeriesWrittenToMeasureMeasurement() {
+            percentileSeries.put("my/other/measure/p90", "my/other/measure");
+            Metric metric = metric("my/other/measure/p90", MetricDescriptor.Type.GAUGE_DOUBLE, Collections.emptyList(), series(Value.doubleValue(0.25)));
+
+            String result = write(createWriter(false), metric);
+
+            assertThat(result).isEqualTo("my_other_measure p90=0.25 1000\n");
+        }
+
+        @Test
+        void tagsEscaped() {
+            Metric metric = metric("some/metric", MetricDescriptor.Type.GAUGE_DOUBLE, Arrays.asList("my tag", "empty", "unicode"),
+                    series(Value.doubleValue(1), "a b,c=d", "", "\u00e4\u20ac"));
+
+            String result = write(createWriter(false), metric);
+
+            assertThat(result).isEqualTo("some_metric,my\\ tag=a\\ b\\,c\\=d,unicode=\u00e4\u20ac value=1 1000\n");
+        }
+
+        @Test
+        void invalidValueSkipped() {
+            Metric metric = metric("some/metric", MetricDescriptor.Type.GAUGE_DOUBLE, Collections.emptyList(),
+                    series(Value.doubleValue(Double.NaN)));
+
+            String result = write(createWriter(false), metric);
+
+            assertThat(result).isEmpty();
+            assertThat(completedLines).isZero();
+        }
+    }
+
+    @Nested
+    class CountersAsDifferences {
+
+        private Metric counter(long value, String tagValue) {
+            return metric("some/counter", MetricDescriptor.Type.CUMULATIVE_INT64, Collections.singletonList("tag"), series(Value.longValue(value), tagValue));
+        }
+
+        @Test
+        void onlyIncreaseWritten() {
+            InfluxLineProtocolWriter writer = createWriter(true);
+
+            assertThat(write(writer, counter(10, "a"))).isEqualTo("some_counter,tag=a value=10i 1000\n");
+            assertThat(write(writer, counter(10, "a"))).isEmpty();
+            assertThat(write(writer, counter(15, "a"))).isEqualTo("some_counter,tag=a value=5i 1000\n");
+        }
+
+        @Test
+        void doubleCounter() {
+            InfluxLineProtocolWriter writer = createWriter(true);
+            Metric first = metric("some/counter", MetricDescriptor.Type.CUMULATIVE_DOUBLE, Collections.emptyList(), series(Value.doubleValue(1.5)));
+            Metric second = metric("some/counter", MetricDescriptor.Type.CUMULATIVE_DOUBLE, Collections.emptyList(), series(Value.doubleValue(4)));
+
+            assertThat(write(writer, first)).isEqualTo("some_counter value=1.5 1000\n");
+            assertThat(write(writer, second)).isEqualTo("some_counter value=2.5 1000\n");
+        }
+
+        @Test
+        void absoluteValuesWrittenIfDisabled() {
+            InfluxLineProtocolWriter writer = createWriter(false);
+
+            write(writer, counter(10, "a"));
+
+            assertThat(write(writer, counter(10, "a"))).isEqualTo("some_counter,tag=a value=10i 1000\n");
+            assertThat(writer.getCachedCounterSeries()).isZero();
+        }
+
+        @Test
+        void gaugesNotAffected() {
+            InfluxLineProtocolWriter writer = createWriter(true);
+            Metric gauge = metric("some/gauge", MetricDescriptor.Type.GAUGE_INT64, Collections.emptyList(), series(Value.longValue(7)));
+
+            write(writer, gauge);
+
+            assertThat(write(writer, gauge)).isEqualTo("some_gauge value=7i 1000\n");
+        }
+
+        @Test
+        void vanishedSeriesForgotten() {
+            InfluxLineProtocolWriter writer = createWriter(true);
+
+            write(writer, counter(10, "a"), counter(20, "b"));
+            assertThat(writer.getCachedCounterSeries()).isEqualTo(2);
+            write(writer, counter(10, "a"));
+
+            assertThat(writer.getCachedCounterSeries()).isEqualTo(1);
+            assertThat(write(writer, counter(20, "b"))).isEqualTo("some_counter,tag=b value=20i 1000\n");
+        }
+    }
+
+    @Nested
+    class Distributions {
+
+        @Test
+        void countSumAndBucketsWritten() {
+            Distribution distribution = Distribution.create(3, 60, 0, Distribution.BucketOptions.explicitOptions(Arrays.asList(10.0, 25.5)),
+                    Arrays.asList(Distribution.Bucket.create(1), Distribution.Bucket.create(0), Distribution.Bucket.create(2)));
+            Metric metric = metric("my/measure/cool%data", MetricDescriptor.Type.CUMULATIVE_DISTRIBUTION, Collections.singletonList("my_tag"),
+                    series(Value.distributionValue(distribution), "myval"));
+
+            String result = write(createWriter(true), metric);
+
+            assertThat(result).isEqualTo("my_measure,my_tag=myval cool_data_count=3i,cool_data_sum=60 1000\n"
+                    + "my_measure,my_tag=myval,le=10 cool_data_bucket=1i 1000\n"
+                    + "my_measure,my_tag=myval,le=25.5 cool_data_bucket=1i 1000\n"
+                    + "my_measure,my_tag=myval,le=+Inf cool_data_bucket=3i 1000\n");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package rocks.inspectit.ocelot.core.exporter.influx;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.BasicCredentials;
+import io.opencensus.common.Timestamp;
+import io.opencensus.metrics.export.*;
+import io.opencensus.stats.ViewManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.config.model.exporters.metrics.InfluxExporterSettings;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamingInfluxExporterTest {
+
+    @Mock
+    private MetricProducerManager metricProducerManager;
+
+    @Mock
+    private MetricProducer metricProducer;
+
+    @Mock
+    private ViewManager viewManager;
+
+    private WireMockServer influx;
+
+    private InfluxExporterSettings settings;
+
+    private StreamingInfluxExporter exporter;
+
+    @BeforeEach
+    void setup() {
+        influx = new WireMockServer(options().dynamicPort());
+        influx.start();
+        respondToWritesWith(204);
+        influx.stubFor(post(urlPathEqualTo("/query")).willReturn(aResponse().withStatus(200)));
+
+        settings = new InfluxExporterSettings();
+        settings.setUrl("http://localhost:" + influx.port());
+        settings.setDatabase("inspectit");
+        settings.setRetentionPolicy("autogen");
+        settings.setBufferSize(10);
+        settings.getStreaming().setEnabled(true);
+        settings.getStreaming().setMaxRequestSize(DataSize.ofKilobytes(1));
+
+        lenient().when(metricProducerManager.getAllMetricProducer()).thenReturn(Collections.singleton(metricProducer));
+        lenient().when(metricProducer.getMetrics()).thenReturn(Arrays.asList(gauge("first/metric", 42), gauge("second/metric", 7)));
+        lenient().when(viewManager.getAllExportedViews()).thenReturn(Collections.emptySet());
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (exporter != null) {
+            exporter.close();
+        }
+        influx.stop();
+    }
+
+    private void respondToWritesWith(int status) {
+        influx.stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(status)));
+    }
+
+    private static Metric gauge(String name, long value) {
+        MetricDescriptor descriptor = MetricDescriptor.create(name, "", "", MetricDescriptor.Type.GAUGE_INT64, Collections.emptyList());
+        TimeSeries series = TimeSeries.createWithOnePoint(Collections.emptyList(), Point.create(Value.longValue(value), Timestamp.create(1, 0)), null);
+        return Metric.createWithOneTimeSeries(descriptor, series);
+    }
+
+    private void startExporter() {
+        exporter = new StreamingInfluxExporter(settings, name -> null, metricProducerManager, viewManager);
+    }
+
+    @Nested
+    class Export {
+
+        @Test
+        void metricsWritten() {
+            startExporter();
+
+            exporter.export();
+
+            influx.verify(1, postRequestedFor(urlPathEqualTo("/write"))
+                    .withQueryParam("db", equalTo("inspectit"))
+                    .withQueryParam("rp", equalTo("autogen"))
+                    .withQueryParam("precision", equalTo("ms"))
+                    .withRequestBody(matching("first_metric value=42i \\d+\nsecond_metric value=7i \\d+\n")));
+            influx.verify(0, postRequestedFor(urlPathEqualTo("/query")));
+        }
+
+        @Test
+        void databaseCreatedOnce() {
+            settings.setCreateDatabase(true);
+            startExporter();
+
+            exporter.export();
+            exporter.export();
+
+            influx.verify(1, postRequestedFor(urlPathEqualTo("/query")).withRequestBody(containing("CREATE+DATABASE+%22inspectit%22")));
+        }
+
+        @Test
+        void credentialsSent() {
+            settings.setUser("user");
+            settings.setPassword("secret");
+            startExporter();
+
+            exporter.export();
+
+            influx.verify(1, postRequestedFor(urlPathEqualTo("/write")).withBasicAuth(new BasicCredentials("user", "secret")));
+        }
+
+        @Test
+        void largeExportSplitIntoChunks() {
+            settings.getStreaming().setMaxRequestSize(DataSize.ofBytes(1));
+            startExporter();
+
+            exporter.export();
+
+            influx.verify(1, postRequestedFor(urlPathEqualTo("/write")).withRequestBody(matching("first_metric value=42i \\d+\n")));
+            influx.verify(1, postRequestedFor(urlPathEqualTo("/write")).withRequestBody(matching("second_metric value=7i \\d+\n")));
+        }
+
+        @Test
+        void compressedRequest() {
+            settings.getStreaming().setCompression(true);
+            startExporter();
+
+            exporter.export();
+
+            influx.verify(1, postRequestedFor(urlPathEqualTo("/write")).withHeader("Content-Encoding", equalTo("gzip")));
+        }
+    }
+
+    @Nested
+    class Buffering {
+
+        @Test
+        void failedChunkWrittenWithNextExport() {
+            respondToWritesWith(503);
+            startExporter();
+
+            exporter.export();
+
+            assertThat(exporter.getFailedChunkCount()).isEqualTo(1);
+
+            respondToWritesWith(204);
+            exporter.export();
+
+            assertThat(exporter.getFailedChunkCount()).isZero();
+            influx.verify(3, postRequestedFor(urlPathEqualTo("/write")));
+        }
+
+        @Test
+        void oldestChunkDroppedIfBufferFull() {
+            respondToWritesWith(503);
+            settings.setBufferSize(2);
+            startExporter();
+
+            exporter.export();
+            exporter.export();
+            exporter.export();
+
+            assertThat(exporter.getFailedChunkCount()).isEqualTo(2);
+        }
+
+        @Test
+        void rejectedChunkNotRetried() {
+            respondToWritesWith(400);
+            startExporter();
+
+            exporter.export();
+
+            assertThat(exporter.getFailedChunkCount()).isZero();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DiskSpillBufferTest {
+
+    private Path file;
+
+    private DiskSpillBuffer buffer;
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = Files.createTempFile("spill", ".buffer");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        if (buffer != null) {
+            buffer.close();
+        }
+        Files.deleteIfExists(file);
+    }
+
+    private static SpanBatch batch(String content, int spanCount) {
+        return new SpanBatch(content.getBytes(StandardCharsets.UTF_8), spanCount, false);
+    }
+
+    private static String content(SpanBatch batch) {
+        return new String(batch.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the file size required for storing records with the given payload sizes
+     */
+    private static long sizeFor(int... payloadSizes) {
+        long size = DiskSpillBuffer.HEADER_SIZE;
+        for (int payloadSize : payloadSizes) {
+            size += DiskSpillBuffer.RECORD_HEADER_SIZE + payloadSize;
+        }
+        return size;
+    }
+
+    @Nested
+    class Queue {
+
+        @Test
+        void emptyBuffer() throws IOException {
+            buffer = new DiskSpillBuffer(file, 1024);
+
+            assertThat(buffer.peek()).isNull();
+            assertThat(buffer.getBatchCount()).isZero();
+            assertThat(buffer.getUsedBytes()).isZero();
+        }
+
+        @Test
+        void batchesReturnedInOrder() throws IOException {
+            buffer = new DiskSpillBuffer(file, 1024);
+
+            assertThat(buffer.offer(batch("first", 1))).isTrue();
+            assertThat(buffer.offer(new SpanBatch(new byte[]{1, 2, 3}, 2, true))).isTrue();
+
+            assertThat(buffer.getBatchCount()).isEqualTo(2);
+            assertThat(buffer.getSpanCount()).isEqualTo(3);
+            assertThat(buffer.getUsedBytes()).isEqualTo(sizeFor(5, 3) - DiskSpillBuffer.HEADER_SIZE);
+
+            SpanBatch first = buffer.peek();
+            assertThat(content(first)).isEqualTo("first");
+            assertThat(first.getSpanCount()).isEqualTo(1);
+            assertThat(first.isCompressed()).isFalse();
+            buffer.remove();
+
+            SpanBatch second = buffer.peek();
+            assertThat(second.getPayload()).containsExactly(1, 2, 3);
+            assertThat(second.getSpanCount()).isEqualTo(2);
+            assertThat(second.isCompressed()).isTrue();
+            buffer.remove();
+
+            assertThat(buffer.peek()).isNull();
+            assertThat(buffer.getSpanCount()).isZero();
+            assertThat(buffer.getUsedBytes()).isZero();
+        }
+
+        @Test
+        void fullBufferRejectsBatch() throws IOException {
+            buffer = new DiskSpillBuffer(file, sizeFor(10, 10));
+
+            assertThat(buffer.offer(batch("0123456789", 1))).isTrue();
+            assertThat(buffer.offer(batch("0123456789", 1))).isTrue();
+            assertThat(buffer.offer(batch("x", 1))).isFalse();
+
+            assertThat(buffer.getBatchCount()).isEqualTo(2);
+        }
+
+        @Test
+        void tooSmallFile() {
+            assertThatThrownBy(() -> new DiskSpillBuffer(file, DiskSpillBuffer.HEADER_SIZE)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class Wrapping {
+
+        @Test
+        void recordWrittenAtBeginning() throws IOException {
+            buffer = new DiskSpillBuffer(file, sizeFor(10, 10, 2));
+            buffer.offer(batch("aaaaaaaaaa", 1));
+            buffer.offer(batch("bbbbbbbbbb", 1));
+            buffer.remove();
+
+            // does not fit at the end, but in the space freed at the beginning
+            assertThat(buffer.offer(batch("cccccccccc", 1))).isTrue();
+            assertThat(buffer.offer(batch("d", 1))).isFalse();
+
+            assertThat(content(buffer.peek())).isEqualTo("bbbbbbbbbb");
+            buffer.remove();
+            assertThat(content(buffer.peek())).isEqualTo("cccccccccc");
+            buffer.remove();
+            assertThat(buffer.peek()).isNull();
+        }
+
+        @Test
+        void remainingSpaceAtEndSkipped() throws IOException {
+            buffer = new DiskSpillBuffer(file, sizeFor(10, 10, 10));
+            buffer.offer(batch("aaaaaaaaaa", 1));
+            buffer.offer(batch("bbbbbbbbbb", 1));
+            buffer.remove();
+
+            assertThat(buffer.offer(batch("cccccccccccccccccc", 1))).isFalse();
+            assertThat(buffer.offer(batch("cccc", 1))).isTrue();
+            // the space left at the end is smaller than a record header
+            assertThat(buffer.offer(batch("dddddddddd", 1))).isTrue();
+
+            buffer.remove();
+            assertThat(content(buffer.peek())).isEqualTo("cccc");
+            buffer.remove();
+            assertThat(content(buffer.peek())).isEqualTo("dddddddddd");
+        }
+
+        @Test
+        void behavesLikeQueue() throws IOException {
+            buffer = new DiskSpillBuffer(file, 256);
+            Deque<String> expected = new ArrayDeque<>();
+            Random random = new Random(42);
+
+            for (int i = 0; i < 10000; i++) {
+                if (random.nextBoolean()) {
+                    String content = StringUtils.repeat('x', random.nextInt(40)) + i;
+                    if (buffer.offer(batch(content, 1))) {
+                        expected.addLast(content);
+                    } else {
+                        assertThat(expected).isNotEmpty();
+                    }
+                } else if (!expected.isEmpty()) {
+                    assertThat(content(buffer.peek())).isEqualTo(expected.pollFirst());
+                    buffer.remove();
+                }
+                assertThat(buffer.getBatchCount()).isEqualTo(expected.size());
+            }
+        }
+    }
+
+    @Nested
+    class Persistence {
+
+        @Test
+        void batchesRestoredAfterReopen() throws IOException {
+            buffer = new DiskSpillBuffer(file, 1024);
+            buffer.offer(batch("first", 1));
+            buffer.offer(batch("second", 2));
+            buffer.remove();
+            buffer.close();
+
+            buffer = new DiskSpillBuffer(file, 1024);
+
+            assertThat(buffer.getBatchCount()).isEqualTo(1);
+            assertThat(buffer.getSpanCount()).isEqualTo(2);
+            assertThat(content(buffer.peek())).isEqualTo("second");
+        }
+
+        @Test
+        void contentDiscardedIfSizeChanged() throws IOException {
+            buffer = new DiskSpillBuffer(file, 1024);
+            buffer.offer(batch("first", 1));
+            buffer.close();
+
+            buffer = new DiskSpillBuffer(file, 512);
+
+            assertThat(buffer.getBatchCount()).isZero();
+            assertThat(buffer.peek()).isNull();
+            assertThat(Files.size(file)).isEqualTo(512);
+        }
+
+        @Test
+        void closedBufferRejectsBatches() throws IOException {
+            buffer = new DiskSpillBuffer(file, 1024);
+            buffer.close();
+
+            assertThat(buffer.offer(batch("first", 1))).isFalse();
+            assertThat(buffer.peek()).isNull();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package rocks.inspectit.ocelot.core.exporter.pipeline;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.config.model.exporters.trace.SpanExportPipelineSettings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class SpanExportPipelineTest {
+
+    private static final String PATH = "/api/v2/spans";
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    private WireMockServer collector;
+
+    private SpanExportPipelineSettings settings;
+
+    private SpanExportPipeline pipeline;
+
+    private Path spillFile;
+
+    @BeforeEach
+    void setup() {
+        collector = new WireMockServer(options().dynamicPort());
+        collector.start();
+        respondWith(200);
+
+        settings = new SpanExportPipelineSettings();
+        settings.setEnabled(true);
+        settings.setBatchSize(100);
+        settings.setFlushInterval(Duration.ofSeconds(5));
+        settings.setCompression(false);
+        settings.setTimeout(Duration.ofSeconds(5));
+        settings.setMaxBufferedBytes(DataSize.ofKilobytes(1));
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        collector.stop();
+        if (spillFile != null) {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    private void respondWith(int status) {
+        collector.stubFor(post(urlPathEqualTo(PATH)).willReturn(aResponse().withStatus(status)));
+    }
+
+    private void startPipeline(boolean withSpilling) throws IOException {
+        DiskSpillBuffer spillBuffer = null;
+        if (withSpilling) {
+            spillFile = Files.createTempFile("spans", ".buffer");
+            Files.delete(spillFile);
+            spillBuffer = new DiskSpillBuffer(spillFile, 4096);
+        }
+        HttpBatchSender sender = new HttpBatchSender("http://localhost:" + collector.port() + PATH, settings.getTimeout());
+        pipeline = new SpanExportPipeline(settings, sender, spillBuffer, executor);
+    }
+
+    private boolean add(String span) {
+        return pipeline.add(span.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nested
+    class Batching {
+
+        @Test
+        void spansSentAsJsonArray() throws IOException {
+            startPipeline(false);
+
+            add("{\"name\":\"first\"}");
+            add("{\"name\":\"second\"}");
+            pipeline.flush();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH))
+                    .withHeader("Content-Type", containing("application/json"))
+                    .withRequestBody(equalToJson("[{\"name\":\"first\"},{\"name\":\"second\"}]")));
+            assertThat(pipeline.getAndResetExportedSpans()).isEqualTo(2);
+            assertThat(pipeline.getAndResetSentBytes()).isPositive();
+            assertThat(pipeline.getBufferedBytes()).isZero();
+        }
+
+        @Test
+        void spansSplitIntoBatches() throws IOException {
+            settings.setBatchSize(2);
+            startPipeline(false);
+
+            add("{\"id\":1}");
+            add("{\"id\":2}");
+            add("{\"id\":3}");
+            pipeline.flush();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"id\":1},{\"id\":2}]")));
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"id\":3}]")));
+        }
+
+        @Test
+        void fullBatchTriggersFlush() throws IOException {
+            settings.setBatchSize(2);
+            startPipeline(false);
+
+            add("{\"id\":1}");
+            verify(executor, never()).execute(any());
+            add("{\"id\":2}");
+
+            verify(executor).execute(any());
+        }
+
+        @Test
+        void compressedBatch() throws IOException {
+            settings.setCompression(true);
+            startPipeline(false);
+
+            add("{\"name\":\"first\"}");
+            pipeline.flush();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withHeader("Content-Encoding", equalTo("gzip")));
+            assertThat(pipeline.getAndResetExportedSpans()).isEqualTo(1);
+        }
+
+        @Test
+        void remainingSpansSentOnClose() throws IOException {
+            startPipeline(false);
+
+            add("{\"name\":\"first\"}");
+            pipeline.close();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"name\":\"first\"}]")));
+            assertThat(add("{\"name\":\"second\"}")).isFalse();
+        }
+
+        @Test
+        void executorShutDownOnClose() throws IOException {
+            startPipeline(false);
+
+            pipeline.close();
+
+            verify(executor).shutdown();
+        }
+    }
+
+    @Nested
+    class Buffering {
+
+        @Test
+        void batchResentWhenBackendAvailable() throws IOException {
+            respondWith(503);
+            startPipeline(false);
+
+            add("{\"name\":\"first\"}");
+            pipeline.flush();
+
+            assertThat(pipeline.getAndResetExportedSpans()).isZero();
+            assertThat(pipeline.getBufferedBytes()).isPositive();
+
+            respondWith(200);
+            pipeline.flush();
+
+            collector.verify(2, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"name\":\"first\"}]")));
+            assertThat(pipeline.getAndResetExportedSpans()).isEqualTo(1);
+            assertThat(pipeline.getAndResetDroppedSpans()).isZero();
+            assertThat(pipeline.getBufferedBytes()).isZero();
+        }
+
+        @Test
+        void rejectedBatchDropped() throws IOException {
+            respondWith(400);
+            startPipeline(false);
+
+            add("{\"name\":\"first\"}");
+            pipeline.flush();
+            pipeline.flush();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)));
+            assertThat(pipeline.getAndResetDroppedSpans()).isEqualTo(1);
+            assertThat(pipeline.getBufferedBytes()).isZero();
+        }
+
+        @Test
+        void spansDroppedIfMemoryFull() throws IOException {
+            settings.setMaxBufferedBytes(DataSize.ofBytes(20));
+            startPipeline(false);
+
+            assertThat(add("{\"name\":\"first\"}")).isTrue();
+            assertThat(add("{\"name\":\"second\"}")).isFalse();
+
+            assertThat(pipeline.getAndResetDroppedSpans()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    class Spilling {
+
+        @Test
+        void unsentBatchSpilledAndReplayed() throws IOException {
+            respondWith(503);
+            startPipeline(true);
+
+            add("{\"name\":\"first\"}");
+            pipeline.flush();
+
+            assertThat(pipeline.getAndResetSpilledSpans()).isEqualTo(1);
+            assertThat(pipeline.getBufferedBytes()).isZero();
+            assertThat(pipeline.getSpilledBytes()).isPositive();
+
+            respondWith(200);
+            add("{\"name\":\"second\"}");
+            pipeline.flush();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"name\":\"second\"}]")));
+            collector.verify(2, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"name\":\"first\"}]")));
+            assertThat(pipeline.getAndResetExportedSpans()).isEqualTo(2);
+            assertThat(pipeline.getSpilledBytes()).isZero();
+        }
+
+        @Test
+        void memoryOverflowSpilled() throws IOException {
+            settings.setMaxBufferedBytes(DataSize.ofBytes(20));
+            startPipeline(true);
+
+            assertThat(add("{\"name\":\"first\"}")).isTrue();
+            assertThat(add("{\"name\":\"second\"}")).isTrue();
+
+            assertThat(pipeline.getAndResetSpilledSpans()).isEqualTo(1);
+            assertThat(pipeline.getAndResetDroppedSpans()).isZero();
+
+            pipeline.flush();
+
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"name\":\"first\"}]")));
+            collector.verify(1, postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("[{\"name\":\"second\"}]")));
+        }
+
+        @Test
+        void spilledBatchesReplayedAfterRestart() throws IOException {
+            respondWith(503);
+            startPipeline(true);
+            add("{\"name\":\"first\"}");
+            pipeline.close();
+
+            respondWith(200);
+            HttpBatchSender sender = new HttpBatchSender("http://localhost:" + collector.port() + PATH, settings.getTimeout());
+            pipeline = new SpanExportPipeline(settings, sender, new DiskSpillBuffer(spillFile, 4096), executor);
+            pipeline.flush();
+
+            assertThat(pipeline.getAndResetExportedSpans()).isEqualTo(1);
+            assertThat(pipeline.getSpilledBytes()).isZero();
+        }
+    }
+}
@@ -19,6 +19,8 @@ import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationR
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationScope;
 import rocks.inspectit.ocelot.core.instrumentation.event.ClassInstrumentedEvent;
 import rocks.inspectit.ocelot.core.instrumentation.event.IClassDefinitionListener;
+import rocks.inspectit.ocelot.core.instrumentation.hook.CapturedValues;
+import rocks.inspectit.ocelot.core.instrumentation.hook.HookManager;
 import rocks.inspectit.ocelot.core.instrumentation.injection.JigsawModuleInstrumenter;
 import rocks.inspectit.ocelot.core.instrumentation.special.ClassLoaderDelegation;
 import rocks.inspectit.ocelot.core.instrumentation.special.SpecialSensor;
@@ -56,6 +58,9 @@ public class AsyncClassTransformerTest {
     @Mock
     JigsawModuleInstrumenter moduleManager;
 
+    @Mock
+    HookManager hookManager;
+
     @InjectMocks
     AsyncClassTransformer transformer = new AsyncClassTransformer();
 
@@ -110,6 +115,7 @@ public class AsyncClassTransformerTest {
             when(configResolver.getClassInstrumentationConfiguration(any())).thenReturn(mockedConfig);
             when(classLoaderDelegation.getClassLoaderClassesRequiringRetransformation(any(), any()))
                     .thenReturn(new LinkedHashSet<>());
+            lenient().when(hookManager.getValuesToCapture(any(), any(), any())).thenReturn(CapturedValues.ALL);
 
             Class<AsyncClassTransformerTest> clazz = AsyncClassTransformerTest.class;
             String className = clazz.getName().replace('.', '/');
@@ -266,7 +272,7 @@ public class AsyncClassTransformerTest {
             ClassLoader loader = clazz.getClassLoader();
             transformer.transform(loader, className, null, null, bytecodeOfTest);
 
-            verify(listener).onNewClassDefined(className, loader);
+            verify(listener).onNewClassDefined(className, loader, bytecodeOfTest);
 
         }
 
@@ -288,7 +294,7 @@ public class AsyncClassTransformerTest {
             ClassLoader loader = clazz.getClassLoader();
             transformer.transform(loader, className, getClass(), null, bytecodeOfTest);
 
-            verify(listener, never()).onNewClassDefined(any(), any());
+            verify(listener, never()).onNewClassDefined(any(), any(), any());
         }
     }
 
@@ -10,6 +10,7 @@ import rocks.inspectit.ocelot.bootstrap.Instances;
 import rocks.inspectit.ocelot.bootstrap.instrumentation.IMethodHook;
 import rocks.inspectit.ocelot.bootstrap.instrumentation.noop.NoopMethodHook;
 import rocks.inspectit.ocelot.core.SpringTestBase;
+import rocks.inspectit.ocelot.core.instrumentation.hook.HookManager;
 import rocks.inspectit.ocelot.core.testutils.Dummy;
 import rocks.inspectit.ocelot.core.testutils.DummyClassLoader;
 
@@ -36,6 +37,9 @@ public class HookManagerIntTest extends SpringTestBase {
     @Autowired
     InstrumentationTriggerer triggerer;
 
+    @Autowired
+    HookManager hookManager;
+
     private Class<?> dummyClass;
 
     private Class<?> dummyClassWithoutBootstrapAccess;
@@ -139,4 +143,27 @@ public class HookManagerIntTest extends SpringTestBase {
         assertThat(newHookA).isNotSameAs(hookA);
     }
 
+    @Test
+    @DirtiesContext
+    void testHookLookupById() {
+        waitForHookingToFinish();
+
+        int idA = hookManager.getHookId(dummyClass, "methodA()");
+        int idB = hookManager.getHookId(dummyClass, "methodB()");
+        IMethodHook hookA = Instances.hookManager.getHook(idA);
+        assertThat(idA).isNotEqualTo(idB);
+        assertThat(hookA).isNotSameAs(NoopMethodHook.INSTANCE);
+        assertThat(hookA).isSameAs(Instances.hookManager.getHook(dummyClass, "methodA()"));
+        assertThat(Instances.hookManager.getHook(idB)).isSameAs(NoopMethodHook.INSTANCE);
+
+        updateProperties(ps ->
+                ps.setProperty("inspectit.instrumentation.rules.r1.scopes.scA", "false")
+        );
+
+        waitForHookingToFinish();
+
+        assertThat(hookManager.getHookId(dummyClass, "methodA()")).isEqualTo(idA);
+        assertThat(Instances.hookManager.getHook(idA)).isSameAs(NoopMethodHook.INSTANCE);
+    }
+
 }
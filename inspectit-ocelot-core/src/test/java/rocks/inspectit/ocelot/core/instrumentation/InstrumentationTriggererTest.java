@@ -9,6 +9,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import rocks.inspectit.ocelot.core.instrumentation.config.InstrumentationConfigurationResolver;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.ClassInstrumentationConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.hook.HookManager;
 import rocks.inspectit.ocelot.core.instrumentation.special.ClassLoaderDelegation;
 import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
@@ -17,12 +18,14 @@ import java.lang.instrument.Instrumentation;
 import java.net.URLClassLoader;
 import java.security.SecureClassLoader;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -51,6 +54,9 @@ public class InstrumentationTriggererTest {
     @Mock
     HookManager hookManager;
 
+    @Mock
+    HookManager.HookUpdate hookUpdate;
+
     @InjectMocks
     InstrumentationTriggerer triggerer;
 
@@ -188,5 +194,57 @@ public class InstrumentationTriggererTest {
             assertThat(classesSelectedForRetransform)
                     .doesNotContain(triggerer.pendingClasses.asMap().keySet().toArray(new Class[]{}));
         }
+
+        @Test
+        void testParallelAnalysis() {
+            TESTING_CLASSES.stream().forEach(cl -> triggerer.pendingClasses.put(cl, true));
+            ClassInstrumentationConfiguration config = mock(ClassInstrumentationConfiguration.class);
+            when(resolver.getClassInstrumentationConfiguration(any())).thenReturn(config);
+            when(resolver.getHookConfigurations(any())).thenReturn(Collections.emptyMap());
+            when(hookManager.startUpdate()).thenReturn(hookUpdate);
+            doReturn(true).when(instrumentationManager).doesClassRequireRetransformation(any(), same(config));
+            when(classLoaderDelegation.getClassLoaderClassesRequiringRetransformation(any(), any())).thenReturn(new LinkedHashSet<>());
+
+            triggerer.updateAnalysisPool(4);
+            try {
+                Set<Class<?>> classesSelectedForRetransform =
+                        triggerer.getBatchOfClassesToRetransform(
+                                new InstrumentationTriggerer.BatchSize(100, 100));
+
+                assertThat(classesSelectedForRetransform).containsExactlyInAnyOrder(TESTING_CLASSES.toArray(new Class[]{}));
+                assertThat(triggerer.pendingClasses.size()).isEqualTo(0);
+                for (Class<?> clazz : TESTING_CLASSES) {
+                    verify(hookUpdate).updateHooksForClass(clazz, Collections.emptyMap());
+                }
+                verify(hookUpdate).commitUpdate();
+                verify(instrumentationManager, never()).doesClassRequireRetransformation(any());
+            } finally {
+                triggerer.updateAnalysisPool(1);
+            }
+        }
+
+        @Test
+        void testParallelAnalysisRetransformationLimitCapped() {
+            TESTING_CLASSES.stream().forEach(cl -> triggerer.pendingClasses.put(cl, true));
+            ClassInstrumentationConfiguration config = mock(ClassInstrumentationConfiguration.class);
+            when(resolver.getClassInstrumentationConfiguration(any())).thenReturn(config);
+            when(resolver.getHookConfigurations(any())).thenReturn(Collections.emptyMap());
+            doReturn(true).when(instrumentationManager).doesClassRequireRetransformation(any(), same(config));
+            when(classLoaderDelegation.getClassLoaderClassesRequiringRetransformation(any(), any())).thenReturn(new LinkedHashSet<>());
+
+            triggerer.updateAnalysisPool(4);
+            try {
+                Set<Class<?>> classesSelectedForRetransform =
+                        triggerer.getBatchOfClassesToRetransform(
+                                new InstrumentationTriggerer.BatchSize(5, 2));
+
+                assertThat(classesSelectedForRetransform).hasSize(2);
+                assertThat(triggerer.pendingClasses.size()).isEqualTo(3);
+                assertThat(classesSelectedForRetransform)
+                        .doesNotContain(triggerer.pendingClasses.asMap().keySet().toArray(new Class[]{}));
+            } finally {
+                triggerer.updateAnalysisPool(1);
+            }
+        }
     }
 }
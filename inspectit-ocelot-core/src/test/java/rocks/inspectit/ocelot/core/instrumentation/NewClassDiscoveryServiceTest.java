@@ -109,7 +109,7 @@ public class NewClassDiscoveryServiceTest {
             }
             verify(mockListener, times(1)).onNewClassesDiscovered(eq(classes));
 
-            discovery.onNewClassDefined(Long.class.getName(), null);
+            discovery.onNewClassDefined(Long.class.getName(), null, null);
             classes.add(Long.class);
             when(instrumentation.getAllLoadedClasses()).thenReturn(classes.toArray(new Class[]{}));
 
@@ -138,7 +138,7 @@ public class NewClassDiscoveryServiceTest {
             Mockito.reset(instrumentation);
             when(instrumentation.getAllLoadedClasses()).thenReturn(new Class[]{});
 
-            discovery.onNewClassDefined(null, null);
+            discovery.onNewClassDefined(null, null, null);
             Runnable r = scheduledRunnable;
             scheduledRunnable = null;
             r.run();
@@ -157,4 +157,80 @@ public class NewClassDiscoveryServiceTest {
         }
 
     }
+
+    @Nested
+    public class EventDrivenDiscovery {
+
+        @BeforeEach
+        void enableEventDrivenDiscovery() {
+            timingsConfiguration.setEventDrivenClassDiscovery(true);
+            timingsConfiguration.setClassDiscoveryFullScanInterval(Duration.ofHours(1));
+        }
+
+        private void runScheduledTask() {
+            Runnable r = scheduledRunnable;
+            scheduledRunnable = null;
+            r.run();
+        }
+
+        @Test
+        void classesResolvedFromDefinitions() {
+            when(instrumentation.getAllLoadedClasses()).thenReturn(new Class[]{String.class});
+            when(instrumentation.getInitiatedClasses(null)).thenReturn(new Class[]{String.class, Long.class});
+            discovery.init();
+
+            discovery.onNewClassDefined("java/lang/Long", null, null);
+            runScheduledTask();
+
+            verify(mockListener).onNewClassesDiscovered(eq(new HashSet<>(Arrays.asList(Long.class))));
+            verify(instrumentation, times(1)).getAllLoadedClasses();
+        }
+
+        @Test
+        void unresolvedDefinitionRetried() {
+            timingsConfiguration.setNumClassDiscoveryTrials(2);
+            when(instrumentation.getAllLoadedClasses()).thenReturn(new Class[]{});
+            when(instrumentation.getInitiatedClasses(null)).thenReturn(new Class[]{}, new Class[]{Long.class});
+            discovery.init();
+
+            discovery.onNewClassDefined("java/lang/Long", null, null);
+            runScheduledTask();
+            runScheduledTask();
+
+            verify(mockListener).onNewClassesDiscovered(eq(new HashSet<>(Arrays.asList(Long.class))));
+            verify(instrumentation, times(2)).getInitiatedClasses(null);
+        }
+
+        @Test
+        void unresolvedDefinitionDroppedAfterTrials() {
+            timingsConfiguration.setNumClassDiscoveryTrials(1);
+            when(instrumentation.getAllLoadedClasses()).thenReturn(new Class[]{});
+            when(instrumentation.getInitiatedClasses(null)).thenReturn(new Class[]{});
+            discovery.init();
+
+            discovery.onNewClassDefined("java/lang/Long", null, null);
+            runScheduledTask();
+            runScheduledTask();
+
+            verify(instrumentation, times(1)).getInitiatedClasses(null);
+            verify(mockListener, times(1)).onNewClassesDiscovered(any());
+        }
+
+        @Test
+        void fullScanOnlyAfterDefinitions() {
+            timingsConfiguration.setClassDiscoveryFullScanInterval(Duration.ZERO);
+            when(instrumentation.getAllLoadedClasses()).thenReturn(new Class[]{}, new Class[]{Integer.class});
+            when(instrumentation.getInitiatedClasses(null)).thenReturn(new Class[]{Integer.class});
+            discovery.init();
+
+            runScheduledTask();
+            verify(instrumentation, times(1)).getAllLoadedClasses();
+
+            discovery.onNewClassDefined("java/lang/Integer", null, null);
+            runScheduledTask();
+
+            verify(instrumentation, times(2)).getAllLoadedClasses();
+            verify(mockListener, times(1)).onNewClassesDiscovered(eq(new HashSet<>(Arrays.asList(Integer.class))));
+        }
+    }
 }
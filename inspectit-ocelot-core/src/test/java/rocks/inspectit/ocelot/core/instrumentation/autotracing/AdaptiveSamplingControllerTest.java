@@ -0,0 +1,137 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import rocks.inspectit.ocelot.config.model.tracing.AutoTracingAdaptiveSettings;
+import rocks.inspectit.ocelot.config.model.tracing.AutoTracingSettings;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveSamplingControllerTest {
+
+    private static final long FREQUENCY_NANOS = Duration.ofMillis(50).toNanos();
+
+    private static final long MAXIMUM_PERIOD_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private static final long MILLI_NANOS = Duration.ofMillis(1).toNanos();
+
+    private AdaptiveSamplingController controller;
+
+    @BeforeEach
+    void init() {
+        controller = new AdaptiveSamplingController();
+    }
+
+    private static AutoTracingSettings settings(boolean adaptive) {
+        AutoTracingAdaptiveSettings adaptiveSettings = new AutoTracingAdaptiveSettings();
+        adaptiveSettings.setEnabled(adaptive);
+        adaptiveSettings.setOverheadBudget(0.01);
+        adaptiveSettings.setMaximumPeriod(Duration.ofNanos(MAXIMUM_PERIOD_NANOS));
+        AutoTracingSettings settings = new AutoTracingSettings();
+        settings.setFrequency(Duration.ofNanos(FREQUENCY_NANOS));
+        settings.setAdaptive(adaptiveSettings);
+        return settings;
+    }
+
+    @Nested
+    class Disabled {
+
+        @Test
+        void verifyConfiguredFrequencyUsed() {
+            controller.configure(settings(false));
+
+            controller.recordSample(100 * MILLI_NANOS, 10, 10);
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(FREQUENCY_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(Integer.MAX_VALUE);
+        }
+
+        @Test
+        void verifyDisablingResetsPeriod() {
+            controller.configure(settings(true));
+            controller.recordSample(MILLI_NANOS, 1, 1);
+
+            controller.configure(settings(false));
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(FREQUENCY_NANOS);
+        }
+    }
+
+    @Nested
+    class Enabled {
+
+        @Test
+        void verifyConfiguredFrequencyUsedInitially() {
+            controller.configure(settings(true));
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(FREQUENCY_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(Integer.MAX_VALUE);
+        }
+
+        @Test
+        void verifyConfiguredFrequencyUsedWithinBudget() {
+            controller.configure(settings(true));
+
+            controller.recordSample(MILLI_NANOS / 100, 1, 1);
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(FREQUENCY_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(Integer.MAX_VALUE);
+        }
+
+        @Test
+        void verifyPeriodIncreasedWhenExceedingBudget() {
+            controller.configure(settings(true));
+
+            controller.recordSample(MILLI_NANOS, 1, 1);
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(100 * MILLI_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(Integer.MAX_VALUE);
+        }
+
+        @Test
+        void verifyActiveThreadsConsidered() {
+            controller.configure(settings(true));
+
+            controller.recordSample(MILLI_NANOS, 1, 4);
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(400 * MILLI_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(Integer.MAX_VALUE);
+        }
+
+        @Test
+        void verifyThreadsLimitedAtMaximumPeriod() {
+            controller.configure(settings(true));
+
+            controller.recordSample(50 * MILLI_NANOS, 50, 50);
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(MAXIMUM_PERIOD_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(10);
+        }
+
+        @Test
+        void verifyAtLeastOneThreadSampled() {
+            controller.configure(settings(true));
+
+            controller.recordSample(100 * MILLI_NANOS, 1, 1);
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(MAXIMUM_PERIOD_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(1);
+        }
+
+        @Test
+        void verifyFrequencyRaisedWhenLoadDrops() {
+            controller.configure(settings(true));
+            controller.recordSample(50 * MILLI_NANOS, 50, 50);
+
+            for (int i = 0; i < 100; i++) {
+                controller.recordSample(MILLI_NANOS / 100, 1, 1);
+            }
+
+            assertThat(controller.getPeriodNanos()).isEqualTo(FREQUENCY_NANOS);
+            assertThat(controller.getThreadLimit()).isEqualTo(Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.config.model.tracing.AutoTracingExportSettings;
+import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SampledTraceExporterTest {
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private InspectitEnvironment env;
+
+    @Mock
+    private SelfMonitoringService selfMonitoring;
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    @InjectMocks
+    private SampledTraceExporter exporter;
+
+    private CountDownLatch releaseBlockingTrace;
+
+    @BeforeEach
+    void setupMocks() {
+        releaseBlockingTrace = new CountDownLatch(1);
+        when(env.getCurrentConfig().getMetrics().getFrequency()).thenReturn(Duration.ofSeconds(15));
+        doReturn(mock(ScheduledFuture.class)).when(executor).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+    }
+
+    @AfterEach
+    void shutdown() {
+        releaseBlockingTrace.countDown();
+        exporter.shutdown();
+    }
+
+    private void configure(int threads, int queueCapacity, AutoTracingExportSettings.OverflowPolicy policy) {
+        AutoTracingExportSettings settings = new AutoTracingExportSettings();
+        settings.setThreads(threads);
+        settings.setQueueCapacity(queueCapacity);
+        settings.setOverflowPolicy(policy);
+        when(env.getCurrentConfig().getTracing().getAutoTracing().getExport()).thenReturn(settings);
+    }
+
+    /**
+     * Creates a trace whose export blocks until {@link #releaseBlockingTrace} is counted down.
+     */
+    private SampledTrace blockingTrace() throws Exception {
+        SampledTrace trace = mock(SampledTrace.class);
+        doAnswer(invocation -> {
+            releaseBlockingTrace.await();
+            return null;
+        }).when(trace).export();
+        return trace;
+    }
+
+    @Nested
+    class Export {
+
+        @Test
+        void verifyTracesExportedByWorkers() {
+            configure(2, 10, AutoTracingExportSettings.OverflowPolicy.DROP_NEWEST);
+            exporter.init();
+            SampledTrace first = mock(SampledTrace.class);
+            SampledTrace second = mock(SampledTrace.class);
+
+            exporter.export(first);
+            exporter.export(second);
+
+            verify(first, timeout(5000)).export();
+            verify(second, timeout(5000)).export();
+            verify(selfMonitoring, timeout(5000).times(2)).recordMeasurement(eq("auto-tracing-export-latency"), anyDouble());
+        }
+
+        @Test
+        void verifyExceptionDoesNotStopWorker() {
+            configure(1, 10, AutoTracingExportSettings.OverflowPolicy.DROP_NEWEST);
+            exporter.init();
+            SampledTrace failing = mock(SampledTrace.class);
+            doThrow(new RuntimeException()).when(failing).export();
+            SampledTrace second = mock(SampledTrace.class);
+
+            exporter.export(failing);
+            exporter.export(second);
+
+            verify(second, timeout(5000)).export();
+        }
+    }
+
+    @Nested
+    class Overflow {
+
+        @Test
+        void verifyNewestDropped() throws Exception {
+            configure(1, 1, AutoTracingExportSettings.OverflowPolicy.DROP_NEWEST);
+            exporter.init();
+            SampledTrace blocking = blockingTrace();
+            SampledTrace queued = mock(SampledTrace.class);
+            SampledTrace dropped = mock(SampledTrace.class);
+
+            exporter.export(blocking);
+            exporter.export(queued);
+            exporter.export(dropped);
+            exporter.reportMetrics();
+            releaseBlockingTrace.countDown();
+
+            verify(queued, timeout(5000)).export();
+            verify(selfMonitoring).recordMeasurement("auto-tracing-export-queue-size", 1L);
+            verify(selfMonitoring).recordMeasurement("auto-tracing-export-drops", 1L);
+            verify(dropped, after(100).never()).export();
+        }
+
+        @Test
+        void verifyOldestDropped() throws Exception {
+            configure(1, 1, AutoTracingExportSettings.OverflowPolicy.DROP_OLDEST);
+            exporter.init();
+            SampledTrace blocking = blockingTrace();
+            SampledTrace dropped = mock(SampledTrace.class);
+            SampledTrace queued = mock(SampledTrace.class);
+
+            exporter.export(blocking);
+            exporter.export(dropped);
+            exporter.export(queued);
+            exporter.reportMetrics();
+            releaseBlockingTrace.countDown();
+
+            verify(queued, timeout(5000)).export();
+            verify(selfMonitoring).recordMeasurement("auto-tracing-export-drops", 1L);
+            verify(dropped, after(100).never()).export();
+        }
+
+        @Test
+        void verifyExportedInCaller() throws Exception {
+            configure(1, 1, AutoTracingExportSettings.OverflowPolicy.EXPORT_IN_CALLER);
+            exporter.init();
+            SampledTrace blocking = blockingTrace();
+            SampledTrace queued = mock(SampledTrace.class);
+            SampledTrace overflowing = mock(SampledTrace.class);
+
+            exporter.export(blocking);
+            exporter.export(queued);
+            exporter.export(overflowing);
+
+            verify(overflowing).export();
+            verify(queued, never()).export();
+            releaseBlockingTrace.countDown();
+            verify(queued, timeout(5000)).export();
+        }
+    }
+
+    @Nested
+    class UpdateWorkers {
+
+        @Test
+        void verifyQueuedTracesExportedAfterReconfiguration() throws Exception {
+            configure(1, 1, AutoTracingExportSettings.OverflowPolicy.DROP_NEWEST);
+            exporter.init();
+            SampledTrace blocking = blockingTrace();
+            SampledTrace queued = mock(SampledTrace.class);
+            exporter.export(blocking);
+            exporter.export(queued);
+
+            configure(1, 1, AutoTracingExportSettings.OverflowPolicy.DROP_OLDEST);
+            exporter.updateWorkers();
+            SampledTrace afterUpdate = mock(SampledTrace.class);
+            exporter.export(afterUpdate);
+
+            verify(afterUpdate, timeout(5000)).export();
+            verify(queued, never()).export();
+            releaseBlockingTrace.countDown();
+            verify(queued, timeout(5000)).export();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StackFrameDictionaryTest {
+
+    private StackFrameDictionary dictionary;
+
+    @BeforeEach
+    void init() {
+        dictionary = new StackFrameDictionary();
+    }
+
+    /**
+     * Creates a stack trace from the given frames in the format "class.method:line", starting with the root frame.
+     */
+    private static StackTrace createStackTrace(String... frames) {
+        StackTraceElement[] elements = Arrays.stream(frames).map(frame -> {
+            String method = frame.substring(0, frame.indexOf(':'));
+            int line = Integer.parseInt(frame.substring(frame.indexOf(':') + 1));
+            return new StackTraceElement(method.substring(0, method.lastIndexOf('.')), method.substring(method.lastIndexOf('.') + 1), "File.java", line);
+        }).toArray(StackTraceElement[]::new);
+        ArrayUtils.reverse(elements);
+        return new StackTrace(elements);
+    }
+
+    private static void assertSameFrames(InternedStackTrace interned, StackTrace original) {
+        assertThat(interned.size()).isEqualTo(original.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertThat(interned.get(i)).isEqualTo(original.get(i));
+        }
+    }
+
+    @Nested
+    class Intern {
+
+        @Test
+        void verifyFramesPreserved() {
+            StackTrace first = createStackTrace("Root.run:1", "A.a:10", "B.b:20");
+            StackTrace second = createStackTrace("Root.run:1", "C.c:30");
+            StackTrace third = createStackTrace("Root.run:1", "A.a:10", "B.b:20", "D.d:40");
+
+            InternedStackTrace internedFirst = dictionary.intern(first);
+            InternedStackTrace internedSecond = dictionary.intern(second);
+            InternedStackTrace internedThird = dictionary.intern(third);
+
+            assertSameFrames(internedFirst, first);
+            assertSameFrames(internedSecond, second);
+            assertSameFrames(internedThird, third);
+            assertThat(dictionary.size()).isEqualTo(5);
+        }
+
+        @Test
+        void verifyEqualFramesShareIds() {
+            InternedStackTrace first = dictionary.intern(createStackTrace("Root.run:1", "A.a:10", "B.b:20"));
+            InternedStackTrace second = dictionary.intern(createStackTrace("Root.run:1", "C.c:30", "A.a:10"));
+
+            assertThat(second.getFrameId(0)).isEqualTo(first.getFrameId(0));
+            assertThat(second.getFrameId(2)).isEqualTo(first.getFrameId(1));
+            assertThat(second.getFrameId(1)).isNotEqualTo(first.getFrameId(2));
+        }
+
+        @Test
+        void verifyMethodIdsIgnoreLineNumbers() {
+            InternedStackTrace first = dictionary.intern(createStackTrace("Root.run:1", "A.a:10"));
+            InternedStackTrace second = dictionary.intern(createStackTrace("Root.run:1", "A.a:11"));
+            InternedStackTrace third = dictionary.intern(createStackTrace("Root.run:1", "A.b:10"));
+
+            assertThat(second.getFrameId(1)).isNotEqualTo(first.getFrameId(1));
+            assertThat(second.getMethodId(1)).isEqualTo(first.getMethodId(1));
+            assertThat(third.getMethodId(1)).isNotEqualTo(first.getMethodId(1));
+        }
+
+        @Test
+        void verifySubTrace() {
+            StackTrace original = createStackTrace("Root.run:1", "A.a:10", "B.b:20");
+
+            InternedStackTrace subTrace = dictionary.intern(original).createSubTrace(2);
+
+            assertThat(subTrace.size()).isEqualTo(2);
+            assertThat(subTrace.get(0)).isEqualTo(original.get(0));
+            assertThat(subTrace.get(1)).isEqualTo(original.get(1));
+        }
+
+        @Test
+        void verifyDivergingSamplesDoNotCorruptEachOther() {
+            StackTrace first = createStackTrace("Root.run:1", "A.a:10", "B.b:20");
+            StackTrace shorter = createStackTrace("Root.run:1", "A.a:10");
+            StackTrace diverging = createStackTrace("Root.run:1", "A.a:10", "C.c:30", "D.d:40");
+            StackTrace deeper = createStackTrace("Root.run:1", "A.a:10", "C.c:30", "D.d:40", "E.e:50");
+
+            InternedStackTrace internedFirst = dictionary.intern(first);
+            InternedStackTrace internedShorter = dictionary.intern(shorter);
+            InternedStackTrace internedDiverging = dictionary.intern(diverging);
+            InternedStackTrace internedDeeper = dictionary.intern(deeper);
+
+            assertSameFrames(internedFirst, first);
+            assertSameFrames(internedShorter, shorter);
+            assertSameFrames(internedDiverging, diverging);
+            assertSameFrames(internedDeeper, deeper);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package rocks.inspectit.ocelot.core.instrumentation.autotracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StackTraceSourceTest {
+
+    private static CountDownLatch blocker;
+
+    private static CountDownLatch started;
+
+    private static Thread blockedThread;
+
+    @BeforeEach
+    void startBlockedThread() throws Exception {
+        blocker = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        blockedThread = new Thread(StackTraceSourceTest::blockingMethod);
+        blockedThread.start();
+        started.await();
+    }
+
+    @AfterEach
+    void stopBlockedThread() throws Exception {
+        blocker.countDown();
+        blockedThread.join();
+    }
+
+    private static void blockingMethod() {
+        started.countDown();
+        try {
+            blocker.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void verifySampledBlockingMethod(StackTraceSource source) {
+        Map<Thread, StackTrace> result = source.sample(Collections.singletonList(blockedThread));
+
+        assertThat(result).containsOnlyKeys(blockedThread);
+        StackTrace stackTrace = result.get(blockedThread);
+        assertThat(stackTrace.size()).isGreaterThan(1);
+        assertThat(stackTrace.get(0).getClassName()).isEqualTo(Thread.class.getName());
+        boolean containsBlockingMethod = false;
+        for (int i = 0; i < stackTrace.size(); i++) {
+            StackTraceElement element = stackTrace.get(i);
+            if (element.getClassName().equals(StackTraceSourceTest.class.getName()) && element.getMethodName()
+                    .equals("blockingMethod")) {
+                containsBlockingMethod = true;
+            }
+        }
+        assertThat(containsBlockingMethod).isTrue();
+    }
+
+    private static void verifyTerminatedThreadIgnored(StackTraceSource source) throws Exception {
+        Thread terminated = new Thread(() -> {
+        });
+        terminated.start();
+        terminated.join();
+
+        Map<Thread, StackTrace> result = source.sample(Arrays.asList(blockedThread, terminated));
+
+        assertThat(result).containsOnlyKeys(blockedThread);
+    }
+
+    @Nested
+    class ThreadMXBeanSource {
+
+        @Test
+        void verifyStackTraceCaptured() {
+            verifySampledBlockingMethod(new ThreadMXBeanStackTraceSource());
+        }
+
+        @Test
+        void verifyTerminatedThreadIgnored() throws Exception {
+            StackTraceSourceTest.verifyTerminatedThreadIgnored(new ThreadMXBeanStackTraceSource());
+        }
+    }
+
+    @Nested
+    class PerThreadSource {
+
+        @Test
+        void verifyStackTraceCaptured() {
+            verifySampledBlockingMethod(new PerThreadStackTraceSource());
+        }
+
+        @Test
+        void verifyTerminatedThreadIgnored() throws Exception {
+            StackTraceSourceTest.verifyTerminatedThreadIgnored(new PerThreadStackTraceSource());
+        }
+    }
+}
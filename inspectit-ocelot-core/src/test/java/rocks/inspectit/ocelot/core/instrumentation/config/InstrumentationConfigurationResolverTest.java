@@ -17,6 +17,7 @@ import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettin
 import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
 import rocks.inspectit.ocelot.core.instrumentation.FakeExecutor;
 import rocks.inspectit.ocelot.core.instrumentation.config.dummy.LambdaTestProvider;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndexKey;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.*;
 import rocks.inspectit.ocelot.core.instrumentation.special.SpecialSensor;
 import rocks.inspectit.ocelot.core.testutils.DummyClassLoader;
@@ -45,6 +46,9 @@ class InstrumentationConfigurationResolverTest {
     @Mock
     MethodHookConfigurationResolver hookResolver;
 
+    @Mock
+    InstrumentationDecisionCache decisionCache;
+
     @InjectMocks
     private InstrumentationConfigurationResolver resolver;
 
@@ -114,6 +118,50 @@ class InstrumentationConfigurationResolverTest {
                     .containsExactly(ElementMatchers.nameEndsWithIgnoreCase("object"), ElementMatchers.any());
         }
 
+        @Test
+        public void indexedScopes() throws IllegalAccessException {
+            ElementMatcher.Junction<MethodDescription> methodMatcher = ElementMatchers.named("toString");
+            InstrumentationScope scopeA = new InstrumentationScope(ElementMatchers.any(), methodMatcher, new TypeIndexKey(TypeIndexKey.Kind.SUPER_TYPE_NAME, "java.lang.Object"));
+            InstrumentationScope scopeB = new InstrumentationScope(ElementMatchers.any(), ElementMatchers.any(), new TypeIndexKey(TypeIndexKey.Kind.TYPE_NAME, "not.Matching"));
+            InstrumentationRule rule = InstrumentationRule.builder().name("name").scope(scopeA).scope(scopeB).build();
+            config = InstrumentationConfiguration.builder().source(settings).rule(rule).build();
+            FieldUtils.writeDeclaredField(resolver, "currentConfig", config, true);
+
+            ClassInstrumentationConfiguration result = resolver.getClassInstrumentationConfiguration(Object.class);
+
+            assertThat(result.getActiveRules())
+                    .hasSize(1)
+                    .flatExtracting(InstrumentationRule::getScopes)
+                    .containsExactly(scopeA);
+        }
+
+        @Test
+        public void decisionRecorded() throws IllegalAccessException {
+            InstrumentationScope scope = new InstrumentationScope(ElementMatchers.named("not.Matching"), ElementMatchers.any());
+            InstrumentationRule rule = InstrumentationRule.builder().name("name").scope(scope).build();
+            config = InstrumentationConfiguration.builder().source(settings).rule(rule).build();
+            FieldUtils.writeDeclaredField(resolver, "currentConfig", config, true);
+
+            ClassInstrumentationConfiguration result = resolver.getClassInstrumentationConfiguration(Object.class);
+
+            assertThat(result.isNoInstrumentation()).isTrue();
+            verify(decisionCache).recordDecision(Object.class, config, true);
+        }
+
+        @Test
+        public void cachedDecisionUsed() throws IllegalAccessException {
+            InstrumentationScope scope = new InstrumentationScope(ElementMatchers.any(), ElementMatchers.any());
+            InstrumentationRule rule = InstrumentationRule.builder().name("name").scope(scope).build();
+            config = InstrumentationConfiguration.builder().source(settings).rule(rule).build();
+            FieldUtils.writeDeclaredField(resolver, "currentConfig", config, true);
+            when(decisionCache.isUninstrumented(Object.class, config)).thenReturn(true);
+
+            ClassInstrumentationConfiguration result = resolver.getClassInstrumentationConfiguration(Object.class);
+
+            assertThat(result).isSameAs(ClassInstrumentationConfiguration.NO_INSTRUMENTATION);
+            verify(decisionCache, never()).recordDecision(any(), any(), anyBoolean());
+        }
+
     }
 
 
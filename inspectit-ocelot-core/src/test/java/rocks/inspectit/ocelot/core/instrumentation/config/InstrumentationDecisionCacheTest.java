@@ -0,0 +1,301 @@
+package rocks.inspectit.ocelot.core.instrumentation.config;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.config.model.instrumentation.DecisionCacheSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InstrumentationDecisionCacheTest {
+
+    private static final String CLASS_NAME = CachedClass.class.getName().replace('.', '/');
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private InspectitEnvironment env;
+
+    @Mock
+    private SelfMonitoringService selfMonitoring;
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    @Mock
+    private ScheduledFuture<?> saveTask;
+
+    private DecisionCacheSettings settings;
+
+    private Path file;
+
+    private byte[] bytecode;
+
+    private ClassLoader loader = CachedClass.class.getClassLoader();
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = Files.createTempFile("decisions", ".cache");
+        Files.delete(file);
+        settings = new DecisionCacheSettings();
+        settings.setEnabled(true);
+        settings.setPath(file.toString());
+        settings.setSaveInterval(Duration.ofMinutes(1));
+        lenient().when(env.getCurrentConfig().getInstrumentation().getInternal().getDecisionCache()).thenReturn(settings);
+        lenient().doReturn(saveTask).when(executor).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+
+        try (InputStream in = CachedClass.class.getResourceAsStream("/" + CLASS_NAME + ".class")) {
+            bytecode = IOUtils.toByteArray(in);
+        }
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private InstrumentationDecisionCache startCache() throws IllegalAccessException {
+        InstrumentationDecisionCache cache = new InstrumentationDecisionCache();
+        FieldUtils.writeDeclaredField(cache, "env", env, true);
+        FieldUtils.writeDeclaredField(cache, "selfMonitoring", selfMonitoring, true);
+        FieldUtils.writeDeclaredField(cache, "executor", executor, true);
+        cache.init();
+        return cache;
+    }
+
+    private InstrumentationConfiguration createConfiguration(boolean excludeLambdas) {
+        InstrumentationSettings source = new InstrumentationSettings();
+        source.setExcludeLambdas(excludeLambdas);
+        return InstrumentationConfiguration.builder().source(source).build();
+    }
+
+    /**
+     * Starts a cache, records the class as uninstrumented and stops the cache again.
+     */
+    private void storeDecision() throws IllegalAccessException {
+        InstrumentationConfiguration config = createConfiguration(true);
+        InstrumentationDecisionCache cache = startCache();
+        cache.setActiveConfiguration(config);
+        cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+
+        assertThat(cache.isUninstrumented(CachedClass.class, config)).isFalse();
+        cache.recordDecision(CachedClass.class, config, true);
+        assertThat(cache.isUninstrumented(CachedClass.class, config)).isTrue();
+
+        cache.destroy();
+        assertThat(file).exists();
+    }
+
+    @Nested
+    class IsUninstrumented {
+
+        @Test
+        void decisionRestored() throws Exception {
+            storeDecision();
+
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(cache.isUninstrumented(CachedClass.class, config)).isTrue();
+        }
+
+        @Test
+        void configurationChanged() throws Exception {
+            storeDecision();
+
+            InstrumentationConfiguration config = createConfiguration(false);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+
+            assertThat(cache.size()).isEqualTo(0);
+            assertThat(cache.isUninstrumented(CachedClass.class, config)).isFalse();
+        }
+
+        @Test
+        void bytecodeChanged() throws Exception {
+            storeDecision();
+
+            byte[] changedBytecode = bytecode.clone();
+            changedBytecode[changedBytecode.length - 1]++;
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, changedBytecode);
+
+            assertThat(cache.isUninstrumented(CachedClass.class, config)).isFalse();
+        }
+
+        @Test
+        void bytecodeUnknown() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+
+            cache.recordDecision(CachedClass.class, config, true);
+
+            assertThat(cache.size()).isEqualTo(0);
+            assertThat(cache.isUninstrumented(CachedClass.class, config)).isFalse();
+        }
+
+        @Test
+        void otherConfigurationInstance() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+            cache.recordDecision(CachedClass.class, config, true);
+
+            assertThat(cache.isUninstrumented(CachedClass.class, createConfiguration(true))).isFalse();
+        }
+
+        @Test
+        void positiveDecisionRemovesEntry() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+            cache.recordDecision(CachedClass.class, config, true);
+
+            cache.recordDecision(CachedClass.class, config, false);
+
+            assertThat(cache.isUninstrumented(CachedClass.class, config)).isFalse();
+        }
+
+        @Test
+        void ignoredPackageNotHashed() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            config.getSource().setIgnoredPackages(Collections.singletonMap(CachedClass.class.getPackage().getName() + ".", true));
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+
+            assertThat(cache.getDefinedClassesCount()).isZero();
+        }
+
+        @Test
+        void ignoredBootstrapPackageOnlyAppliesToBootstrapClasses() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            config.getSource().setIgnoredBootstrapPackages(Collections.singletonMap(CachedClass.class.getPackage().getName() + ".", true));
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+
+            cache.onNewClassDefined(CLASS_NAME, null, bytecode);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+
+            assertThat(cache.getDefinedClassesCount()).isEqualTo(1);
+        }
+
+        @Test
+        void hashRemovedOnLookup() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+            assertThat(cache.getDefinedClassesCount()).isEqualTo(1);
+
+            cache.isUninstrumented(CachedClass.class, config);
+
+            assertThat(cache.getDefinedClassesCount()).isZero();
+        }
+
+        @Test
+        void disabled() throws Exception {
+            settings.setEnabled(false);
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+            cache.recordDecision(CachedClass.class, config, true);
+
+            assertThat(cache.isUninstrumented(CachedClass.class, config)).isFalse();
+            cache.destroy();
+            assertThat(file).doesNotExist();
+            verifyZeroInteractions(executor);
+        }
+    }
+
+    @Nested
+    class SaveAndReport {
+
+        @Test
+        void hitsAndMissesReported() throws Exception {
+            InstrumentationConfiguration config = createConfiguration(true);
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(config);
+            cache.onNewClassDefined(CLASS_NAME, loader, bytecode);
+
+            cache.isUninstrumented(CachedClass.class, config);
+            cache.recordDecision(CachedClass.class, config, true);
+            cache.isUninstrumented(CachedClass.class, config);
+            cache.isUninstrumented(CachedClass.class, config);
+            cache.saveAndReport();
+
+            verify(selfMonitoring).recordMeasurement("instrumentation-decision-cache", 2L, Collections.singletonMap("event", "hit"));
+            verify(selfMonitoring).recordMeasurement("instrumentation-decision-cache", 1L, Collections.singletonMap("event", "miss"));
+            verifyNoMoreInteractions(selfMonitoring);
+        }
+
+        @Test
+        void nothingReportedWithoutLookups() throws Exception {
+            InstrumentationDecisionCache cache = startCache();
+            cache.setActiveConfiguration(createConfiguration(true));
+
+            cache.saveAndReport();
+
+            verify(selfMonitoring, never()).recordMeasurement(anyString(), anyLong(), anyMap());
+            assertThat(file).doesNotExist();
+        }
+    }
+
+    @Nested
+    class HashConfiguration {
+
+        @Test
+        void equalConfigurations() {
+            long first = InstrumentationDecisionCache.hashConfiguration(createConfiguration(true));
+            long second = InstrumentationDecisionCache.hashConfiguration(createConfiguration(true));
+
+            assertThat(first).isEqualTo(second);
+        }
+
+        @Test
+        void differentConfigurations() {
+            long first = InstrumentationDecisionCache.hashConfiguration(createConfiguration(true));
+            long second = InstrumentationDecisionCache.hashConfiguration(createConfiguration(false));
+
+            assertThat(first).isNotEqualTo(second);
+        }
+    }
+
+    private static class CachedClass {
+    }
+}
@@ -13,6 +13,7 @@ import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettin
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.InstrumentationRuleSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.scope.*;
 import rocks.inspectit.ocelot.core.instrumentation.config.matcher.IsAnnotatedMatcher;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndexKey;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationScope;
 
 import java.util.*;
@@ -157,6 +158,23 @@ class InstrumentationScopeResolverTest {
                             any());
         }
 
+        @Test
+        public void ruleWithScope_indexKey() {
+            String scopeKey = "scope-key";
+            setRuleSettings("rule-key", true, Collections.singletonMap(scopeKey, true));
+            ElementDescriptionMatcherSettings interfaceMatcher = new ElementDescriptionMatcherSettings();
+            interfaceMatcher.setName("interface.Interface");
+            ElementDescriptionMatcherSettings classMatcher = new ElementDescriptionMatcherSettings();
+            classMatcher.setName("class.");
+            classMatcher.setMatcherMode(MatcherMode.STARTS_WITH);
+            setScopeSettings(scopeKey, Collections.singletonList(interfaceMatcher), null, classMatcher, null, null);
+
+            Map<String, InstrumentationScope> result = scopeResolver.resolve(settings);
+
+            assertThat(result.get(scopeKey).getIndexKey())
+                    .isEqualTo(new TypeIndexKey(TypeIndexKey.Kind.SUPER_TYPE_NAME, "interface.Interface"));
+        }
+
         @Test
         public void ruleWithScope_emptyAdvanced() {
             String scopeKey = "scope-key";
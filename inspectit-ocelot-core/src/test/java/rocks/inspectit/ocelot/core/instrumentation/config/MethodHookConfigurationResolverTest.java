@@ -14,10 +14,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import rocks.inspectit.ocelot.config.model.instrumentation.actions.ActionCallSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.data.PropagationMode;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.MetricRecordingSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.RuleTracingSettings;
 import rocks.inspectit.ocelot.core.instrumentation.config.callsorting.GenericActionCallSorter;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.*;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.propagation.PropagationMetaData;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
@@ -185,6 +191,29 @@ public class MethodHookConfigurationResolverTest {
             assertThat(result.getSampleProbability()).isEqualTo("foo");
         }
 
+        @Test
+        void verifyRateLimitingRuleResolved() throws Exception {
+            config = InstrumentationConfiguration.builder().build();
+            InstrumentationRule r1 = InstrumentationRule.builder()
+                    .name("b_rule")
+                    .tracing(RuleTracingSettings.builder()
+                            .startSpan(true)
+                            .maxSpansPerSecond(5.0)
+                            .build())
+                    .build();
+            InstrumentationRule r2 = InstrumentationRule.builder()
+                    .name("a_rule")
+                    .tracing(RuleTracingSettings.builder()
+                            .maxSpansPerSecond(5.0)
+                            .build())
+                    .build();
+
+            MethodHookConfiguration result = resolver.buildHookConfiguration(config, Sets.newHashSet(r1, r2));
+
+            assertThat(result.getTracing().getMaxSpansPerSecond()).isEqualTo(5.0);
+            assertThat(result.getRateLimitingRule()).isEqualTo("a_rule");
+        }
+
         @Test
         void verifyNullSamplingProbabilityRespected() throws Exception {
             config = InstrumentationConfiguration.builder().build();
@@ -414,4 +443,135 @@ public class MethodHookConfigurationResolverTest {
 
     }
 
+    @Nested
+    class ResolveSpanOnlyDataKeys {
+
+        PropagationMetaData propagation = PropagationMetaData.builder()
+                .setUpPropagation("propagated", PropagationMode.JVM_LOCAL)
+                .setTag("tag", true)
+                .build();
+
+        RuleTracingSettings tracing = RuleTracingSettings.builder()
+                .startSpan(true)
+                .attributes(ImmutableMap.of("a", "attribute", "b", "propagated", "c", "tag", "d", "shared"))
+                .errorStatus("status")
+                .build();
+
+        private ActionCallConfig call(String dataKey, String... inputs) {
+            ActionCallSettings settings = new ActionCallSettings();
+            settings.setAction("provider");
+            Map<String, String> dataInput = new HashMap<>();
+            for (int i = 0; i < inputs.length; i++) {
+                dataInput.put("arg" + i, inputs[i]);
+            }
+            settings.setDataInput(dataInput);
+            return ActionCallConfig.builder()
+                    .name(dataKey)
+                    .callSettings(settings)
+                    .action(GenericActionConfig.builder().name("provider").sideEffectFree(true).build())
+                    .build();
+        }
+
+        @Test
+        void verifyOnlySpanDataKeysResolved() {
+            MetricRecordingSettings metric = MetricRecordingSettings.builder().metric("my_metric").value("shared").build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(tracing)
+                    .exitAction(call("attribute", "input"))
+                    .exitAction(call("input"))
+                    .exitAction(call("propagated"))
+                    .exitAction(call("tag"))
+                    .exitAction(call("shared"))
+                    .exitAction(call("status"))
+                    .metrics(ImmutableMultiset.of(metric))
+                    .build();
+
+            Set<String> result = resolver.resolveSpanOnlyDataKeys(config, propagation);
+
+            assertThat(result).containsExactlyInAnyOrder("attribute", "input", "status");
+        }
+
+        @Test
+        void verifyDataKeysReadByOtherActionsExcluded() {
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(tracing)
+                    .exitAction(call("input"))
+                    .exitAction(call("attribute", "input"))
+                    .postExitAction(call("other", "input"))
+                    .build();
+
+            Set<String> result = resolver.resolveSpanOnlyDataKeys(config, propagation);
+
+            assertThat(result).containsExactly("attribute");
+        }
+
+        @Test
+        void verifyEntryActionsExcluded() {
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(tracing)
+                    .entryAction(call("attribute"))
+                    .postEntryAction(call("status"))
+                    .build();
+
+            Set<String> result = resolver.resolveSpanOnlyDataKeys(config, propagation);
+
+            assertThat(result).containsExactly("status");
+        }
+
+        @Test
+        void verifyContextAccessingActionsExcluded() {
+            ActionCallConfig contextCall = ActionCallConfig.builder()
+                    .name("attribute")
+                    .callSettings(new ActionCallSettings())
+                    .action(GenericActionConfig.builder()
+                            .name("provider")
+                            .sideEffectFree(true)
+                            .additionalArgumentType("_context", "InspectitContext")
+                            .build())
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(tracing)
+                    .exitAction(contextCall)
+                    .build();
+
+            Set<String> result = resolver.resolveSpanOnlyDataKeys(config, propagation);
+
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void verifyActionsWithSideEffectsExcluded() {
+            ActionCallSettings settings = new ActionCallSettings();
+            settings.setAction("provider");
+            ActionCallConfig sideEffectCall = ActionCallConfig.builder()
+                    .name("attribute")
+                    .callSettings(settings)
+                    .action(GenericActionConfig.builder().name("provider").build())
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(tracing)
+                    .exitAction(sideEffectCall)
+                    .exitAction(call("status"))
+                    .build();
+
+            Set<String> result = resolver.resolveSpanOnlyDataKeys(config, propagation);
+
+            assertThat(result).containsExactly("status");
+        }
+
+        @Test
+        void verifyNoDataKeysWithoutSpan() {
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(RuleTracingSettings.builder()
+                            .startSpan(false)
+                            .attributes(ImmutableMap.of("a", "attribute"))
+                            .build())
+                    .exitAction(call("attribute"))
+                    .build();
+
+            Set<String> result = resolver.resolveSpanOnlyDataKeys(config, propagation);
+
+            assertThat(result).isEmpty();
+        }
+    }
 }
@@ -0,0 +1,179 @@
+package rocks.inspectit.ocelot.core.instrumentation.config.matcher;
+
+import net.bytebuddy.description.type.TypeDescription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.ElementDescriptionMatcherSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.InstrumentationScopeSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.MatcherMode;
+import rocks.inspectit.ocelot.config.model.instrumentation.scope.NameMatcherSettings;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndexKey.Kind.*;
+
+class TypeIndexTest {
+
+    private static final String PACKAGE = TypeIndexTest.class.getPackage().getName() + ".";
+
+    private TypeIndex<String> index;
+
+    @BeforeEach
+    void setup() {
+        index = new TypeIndex<>();
+    }
+
+    private List<String> getCandidates(Class<?> type) {
+        List<String> result = new ArrayList<>();
+        index.forEachCandidate(TypeDescription.ForLoadedType.of(type), result::add);
+        return result;
+    }
+
+    @Nested
+    class ForEachCandidate {
+
+        @Test
+        void unindexed() {
+            index.add(null, "any");
+
+            assertThat(getCandidates(Object.class)).containsExactly("any");
+        }
+
+        @Test
+        void typeName() {
+            index.add(new TypeIndexKey(TYPE_NAME, Sub.class.getName()), "sub");
+            index.add(new TypeIndexKey(TYPE_NAME, Base.class.getName()), "base");
+
+            assertThat(getCandidates(Sub.class)).containsExactly("sub");
+        }
+
+        @Test
+        void superTypeName() {
+            index.add(new TypeIndexKey(SUPER_TYPE_NAME, Base.class.getName()), "base");
+            index.add(new TypeIndexKey(SUPER_TYPE_NAME, Marker.class.getName()), "marker");
+            index.add(new TypeIndexKey(SUPER_TYPE_NAME, Serializable.class.getName()), "serializable");
+            index.add(new TypeIndexKey(SUPER_TYPE_NAME, Sub.class.getName()), "sub");
+
+            assertThat(getCandidates(Sub.class)).containsExactlyInAnyOrder("base", "marker", "sub");
+            assertThat(getCandidates(Base.class)).containsExactlyInAnyOrder("base", "marker");
+        }
+
+        @Test
+        void annotationName() {
+            index.add(new TypeIndexKey(ANNOTATION_NAME, Deprecated.class.getName()), "deprecated");
+
+            assertThat(getCandidates(Annotated.class)).containsExactly("deprecated");
+            assertThat(getCandidates(Sub.class)).isEmpty();
+        }
+
+        @Test
+        void typeNamePrefix() {
+            index.add(new TypeIndexKey(TYPE_NAME_PREFIX, PACKAGE), "package");
+            index.add(new TypeIndexKey(TYPE_NAME_PREFIX, "java."), "java");
+            index.add(new TypeIndexKey(TYPE_NAME_PREFIX, Sub.class.getName() + "Other"), "other");
+
+            assertThat(getCandidates(Sub.class)).containsExactly("package");
+            assertThat(getCandidates(Object.class)).containsExactly("java");
+        }
+
+        @Test
+        void superTypeNamePrefixReturnedOnce() {
+            index.add(new TypeIndexKey(SUPER_TYPE_NAME_PREFIX, PACKAGE), "package");
+            index.add(new TypeIndexKey(SUPER_TYPE_NAME_PREFIX, "java.lang.Obj"), "object");
+
+            assertThat(getCandidates(Sub.class)).containsExactlyInAnyOrder("package", "object");
+        }
+
+        @Test
+        void size() {
+            index.add(null, "any");
+            index.add(new TypeIndexKey(TYPE_NAME, "a"), "a");
+
+            assertThat(index.size()).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    class Of {
+
+        private InstrumentationScopeSettings settings;
+
+        @BeforeEach
+        void setup() {
+            settings = new InstrumentationScopeSettings();
+        }
+
+        private ElementDescriptionMatcherSettings matcher(String name, MatcherMode mode) {
+            ElementDescriptionMatcherSettings result = new ElementDescriptionMatcherSettings();
+            result.setName(name);
+            result.setMatcherMode(mode);
+            return result;
+        }
+
+        @Test
+        void emptyScope() {
+            assertThat(TypeIndexKey.of(settings)).isNull();
+        }
+
+        @Test
+        void notIndexable() {
+            settings.setType(matcher("Service", MatcherMode.ENDS_WITH));
+            settings.setSuperclass(matcher("", MatcherMode.STARTS_WITH));
+
+            assertThat(TypeIndexKey.of(settings)).isNull();
+        }
+
+        @Test
+        void exactTypeNamePreferred() {
+            settings.setType(matcher("my.Type", MatcherMode.EQUALS_FULLY));
+            settings.setSuperclass(matcher("my.Base", MatcherMode.EQUALS_FULLY));
+
+            assertThat(TypeIndexKey.of(settings)).isEqualTo(new TypeIndexKey(TYPE_NAME, "my.Type"));
+        }
+
+        @Test
+        void exactInterfaceName() {
+            settings.setType(matcher("my.", MatcherMode.STARTS_WITH));
+            settings.setInterfaces(Collections.singletonList(matcher("my.Interface", MatcherMode.EQUALS_FULLY)));
+
+            assertThat(TypeIndexKey.of(settings)).isEqualTo(new TypeIndexKey(SUPER_TYPE_NAME, "my.Interface"));
+        }
+
+        @Test
+        void annotation() {
+            NameMatcherSettings annotation = new NameMatcherSettings();
+            annotation.setName("my.Annotation");
+            ElementDescriptionMatcherSettings type = matcher("my.", MatcherMode.STARTS_WITH);
+            type.setAnnotations(Collections.singletonList(annotation));
+            settings.setType(type);
+
+            assertThat(TypeIndexKey.of(settings)).isEqualTo(new TypeIndexKey(ANNOTATION_NAME, "my.Annotation"));
+        }
+
+        @Test
+        void superclassPrefix() {
+            settings.setType(matcher("Impl", MatcherMode.ENDS_WITH));
+            settings.setSuperclass(matcher("my.", MatcherMode.STARTS_WITH));
+
+            assertThat(TypeIndexKey.of(settings)).isEqualTo(new TypeIndexKey(SUPER_TYPE_NAME_PREFIX, "my."));
+        }
+    }
+
+    interface Marker {
+    }
+
+    static class Base implements Marker {
+    }
+
+    static class Sub extends Base {
+    }
+
+    @Deprecated
+    static class Annotated {
+    }
+}
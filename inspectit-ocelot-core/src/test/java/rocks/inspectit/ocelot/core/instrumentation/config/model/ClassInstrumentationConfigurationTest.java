@@ -0,0 +1,45 @@
+package rocks.inspectit.ocelot.core.instrumentation.config.model;
+
+import net.bytebuddy.matcher.ElementMatchers;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClassInstrumentationConfigurationTest {
+
+    private final InstrumentationScope stringScope = new InstrumentationScope(ElementMatchers.named(String.class.getName()), ElementMatchers.any());
+
+    private final InstrumentationScope listScope = new InstrumentationScope(ElementMatchers.isSubTypeOf(java.util.List.class), ElementMatchers.any());
+
+    private InstrumentationConfiguration createConfig(InstrumentationRule rule) {
+        return InstrumentationConfiguration.builder().source(new InstrumentationSettings()).rule(rule).build();
+    }
+
+    @Nested
+    class IsSameAs {
+
+        @Test
+        void onlyActionsChanged() {
+            InstrumentationRule oldRule = InstrumentationRule.builder().name("r").scope(stringScope).build();
+            InstrumentationRule newRule = InstrumentationRule.builder().name("r").scope(stringScope).includedRuleName("other").build();
+            ClassInstrumentationConfiguration oldConfig = new ClassInstrumentationConfiguration(Collections.emptySet(), Collections.singleton(oldRule), createConfig(oldRule));
+            ClassInstrumentationConfiguration newConfig = new ClassInstrumentationConfiguration(Collections.emptySet(), Collections.singleton(newRule), createConfig(newRule));
+
+            assertThat(oldConfig.isSameAs(String.class, newConfig)).isTrue();
+        }
+
+        @Test
+        void scopesChanged() {
+            InstrumentationRule oldRule = InstrumentationRule.builder().name("r").scope(stringScope).build();
+            InstrumentationRule newRule = InstrumentationRule.builder().name("r").scope(stringScope).scope(listScope).build();
+            ClassInstrumentationConfiguration oldConfig = new ClassInstrumentationConfiguration(Collections.emptySet(), Collections.singleton(oldRule), createConfig(oldRule));
+            ClassInstrumentationConfiguration newConfig = new ClassInstrumentationConfiguration(Collections.emptySet(), Collections.singleton(newRule), createConfig(newRule));
+
+            assertThat(oldConfig.isSameAs(String.class, newConfig)).isFalse();
+        }
+    }
+}
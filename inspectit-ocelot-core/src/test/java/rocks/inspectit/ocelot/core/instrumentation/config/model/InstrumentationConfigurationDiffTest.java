@@ -0,0 +1,109 @@
+package rocks.inspectit.ocelot.core.instrumentation.config.model;
+
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import rocks.inspectit.ocelot.config.model.instrumentation.InstrumentationSettings;
+import rocks.inspectit.ocelot.core.instrumentation.config.matcher.TypeIndexKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstrumentationConfigurationDiffTest {
+
+    private final InstrumentationSettings source = new InstrumentationSettings();
+
+    private final InstrumentationScope stringScope = new InstrumentationScope(ElementMatchers.named(String.class.getName()), ElementMatchers.any(),
+            new TypeIndexKey(TypeIndexKey.Kind.TYPE_NAME, String.class.getName()));
+
+    private final InstrumentationScope integerScope = new InstrumentationScope(ElementMatchers.named(Integer.class.getName()), ElementMatchers.any(),
+            new TypeIndexKey(TypeIndexKey.Kind.TYPE_NAME, Integer.class.getName()));
+
+    private final InstrumentationScope listScope = new InstrumentationScope(ElementMatchers.isSubTypeOf(java.util.List.class), ElementMatchers.any());
+
+    private InstrumentationConfiguration createConfig(InstrumentationRule... rules) {
+        InstrumentationConfiguration.InstrumentationConfigurationBuilder builder = InstrumentationConfiguration.builder().source(source);
+        for (InstrumentationRule rule : rules) {
+            builder.rule(rule);
+        }
+        return builder.build();
+    }
+
+    private boolean affects(InstrumentationConfigurationDiff diff, Class<?> clazz) {
+        return diff.affects(TypeDescription.ForLoadedType.of(clazz));
+    }
+
+    @Nested
+    class Between {
+
+        @Test
+        void noPreviousConfiguration() {
+            InstrumentationConfigurationDiff diff = InstrumentationConfigurationDiff.between(null, createConfig());
+
+            assertThat(diff.isGlobal()).isTrue();
+            assertThat(affects(diff, Object.class)).isTrue();
+        }
+
+        @Test
+        void globalSettingChanged() {
+            InstrumentationConfiguration oldConfig = createConfig();
+            InstrumentationSettings newSource = new InstrumentationSettings();
+            newSource.setExcludeLambdas(!source.isExcludeLambdas());
+            InstrumentationConfiguration newConfig = InstrumentationConfiguration.builder().source(newSource).build();
+
+            InstrumentationConfigurationDiff diff = InstrumentationConfigurationDiff.between(oldConfig, newConfig);
+
+            assertThat(diff.isGlobal()).isTrue();
+        }
+
+        @Test
+        void nothingChanged() {
+            InstrumentationRule rule = InstrumentationRule.builder().name("r").scope(stringScope).build();
+
+            InstrumentationConfigurationDiff diff = InstrumentationConfigurationDiff.between(createConfig(rule), createConfig(rule));
+
+            assertThat(diff.isGlobal()).isFalse();
+            assertThat(diff.getAffectedRuleNames()).isEmpty();
+            assertThat(affects(diff, String.class)).isFalse();
+        }
+
+        @Test
+        void ruleAdded() {
+            InstrumentationRule unchanged = InstrumentationRule.builder().name("unchanged").scope(stringScope).build();
+            InstrumentationRule added = InstrumentationRule.builder().name("added").scope(integerScope).build();
+
+            InstrumentationConfigurationDiff diff = InstrumentationConfigurationDiff.between(createConfig(unchanged), createConfig(unchanged, added));
+
+            assertThat(diff.isGlobal()).isFalse();
+            assertThat(diff.getAffectedRuleNames()).containsExactly("added");
+            assertThat(affects(diff, Integer.class)).isTrue();
+            assertThat(affects(diff, String.class)).isFalse();
+        }
+
+        @Test
+        void ruleScopeChanged() {
+            InstrumentationRule oldRule = InstrumentationRule.builder().name("r").scope(stringScope).build();
+            InstrumentationRule newRule = InstrumentationRule.builder().name("r").scope(listScope).build();
+
+            InstrumentationConfigurationDiff diff = InstrumentationConfigurationDiff.between(createConfig(oldRule), createConfig(newRule));
+
+            assertThat(diff.getAffectedScopes()).containsExactlyInAnyOrder(stringScope, listScope);
+            assertThat(affects(diff, String.class)).isTrue();
+            assertThat(affects(diff, java.util.ArrayList.class)).isTrue();
+            assertThat(affects(diff, Integer.class)).isFalse();
+        }
+
+        @Test
+        void includedRuleChanged() {
+            InstrumentationRule including = InstrumentationRule.builder().name("including").scope(stringScope).includedRuleName("included").build();
+            InstrumentationRule oldIncluded = InstrumentationRule.builder().name("included").build();
+            InstrumentationRule newIncluded = InstrumentationRule.builder().name("included").includedRuleName("other").build();
+
+            InstrumentationConfigurationDiff diff = InstrumentationConfigurationDiff.between(createConfig(including, oldIncluded), createConfig(including, newIncluded));
+
+            assertThat(diff.getAffectedRuleNames()).containsExactlyInAnyOrder("including", "included");
+            assertThat(diff.getAffectedScopes()).containsExactly(stringScope);
+            assertThat(affects(diff, String.class)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package rocks.inspectit.ocelot.core.instrumentation.context;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataSlotsTest {
+
+    @Nested
+    public class GetOrCreateSlot {
+
+        @Test
+        void sameSlotForSameKey() {
+            int first = DataSlots.getOrCreateSlot("data-slots-test-same");
+            int second = DataSlots.getOrCreateSlot("data-slots-test-same");
+
+            assertThat(first).isEqualTo(second);
+            assertThat(DataSlots.getKey(first)).isEqualTo("data-slots-test-same");
+        }
+
+        @Test
+        void differentSlotsForDifferentKeys() {
+            int first = DataSlots.getOrCreateSlot("data-slots-test-first");
+            int second = DataSlots.getOrCreateSlot("data-slots-test-second");
+
+            assertThat(first).isNotEqualTo(second);
+            assertThat(DataSlots.getKey(first)).isEqualTo("data-slots-test-first");
+            assertThat(DataSlots.getKey(second)).isEqualTo("data-slots-test-second");
+        }
+    }
+
+    @Nested
+    public class GetSlot {
+
+        @Test
+        void unregisteredKey() {
+            assertThat(DataSlots.getSlot("data-slots-test-unregistered")).isEqualTo(DataSlots.NO_SLOT);
+        }
+
+        @Test
+        void registeredKey() {
+            int slot = DataSlots.getOrCreateSlot("data-slots-test-registered");
+
+            assertThat(DataSlots.getSlot("data-slots-test-registered")).isEqualTo(slot);
+        }
+    }
+}
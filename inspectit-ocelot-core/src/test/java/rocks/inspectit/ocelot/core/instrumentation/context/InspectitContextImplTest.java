@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -958,5 +959,200 @@ public class InspectitContextImplTest {
 
     }
 
+    @Nested
+    public class Pooling {
+
+        InspectitContextPool pool = new InspectitContextPool();
+
+        @Test
+        void verifyClosedContextRecycled() {
+            InspectitContextImpl first = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            first.setData("data", "value");
+            first.makeActive();
+            first.close();
+
+            InspectitContextImpl second = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+
+            assertThat(second).isSameAs(first);
+            assertThat(second.getData("data")).isNull();
+            assertThat(second.getData()).isEmpty();
+            second.makeActive();
+            second.close();
+        }
+
+        @Test
+        void verifyNestedContextsNotShared() {
+            InspectitContextImpl root = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            root.makeActive();
+            InspectitContextImpl child = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            child.makeActive();
+
+            assertThat(child).isNotSameAs(root);
+
+            child.close();
+            root.close();
+        }
+
+        @Test
+        void verifyContextWithAsyncChildNotRecycled() throws Exception {
+            lenient().doReturn(true).when(propagation).isPropagatedDownWithinJVM(any());
+
+            InspectitContextImpl root = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            root.setData("tag", "rootValue");
+            root.makeActive();
+
+            Thread asyncTask = new Thread(Context.current().wrap(() -> {
+                InspectitContextImpl asyncChild = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+                asyncChild.makeActive();
+                asyncChild.close();
+            }));
+            asyncTask.start();
+            asyncTask.join();
+
+            root.close();
+
+            InspectitContextImpl next = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            assertThat(next).isNotSameAs(root);
+            next.makeActive();
+            next.close();
+        }
+
+        @Test
+        void verifyEscapedContextNotRecycled() {
+            lenient().doReturn(true).when(propagation).isPropagatedDownWithinJVM(any());
+
+            InspectitContextImpl root = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            root.setData("tag", "rootValue");
+            root.makeActive();
+            root.markEscaped();
+            Runnable delayedTask = Context.current().wrap(() -> {
+                InspectitContextImpl delayedChild = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+                assertThat(delayedChild.getData("tag")).isEqualTo("rootValue");
+                delayedChild.makeActive();
+                delayedChild.close();
+            });
+            root.close();
+
+            InspectitContextImpl next = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            next.setData("tag", "otherValue");
+            next.makeActive();
+            next.close();
+
+            delayedTask.run();
+            assertThat(next).isNotSameAs(root);
+        }
+
+        @Test
+        void verifyUntrackedCaptureDoesNotExposeRecycledContext() {
+            lenient().doReturn(true).when(propagation).isPropagatedDownWithinJVM(any());
+
+            InspectitContextImpl root = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            root.setData("tag", "rootValue");
+            root.makeActive();
+            // captured without marking the context as escaped, e.g. by the application
+            Context captured = Context.current();
+            root.close();
+
+            InspectitContextImpl next = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+            next.setData("tag", "otherValue");
+            next.makeActive();
+            next.close();
+            assertThat(next).isSameAs(root);
+
+            Context previous = captured.attach();
+            try {
+                InspectitContextImpl child = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false, pool);
+                assertThat(child.getData("tag")).isNull();
+                child.makeActive();
+                child.close();
+            } finally {
+                captured.detach(previous);
+            }
+        }
+
+        @Test
+        void verifyPublishedTagContextUnaffectedByRecycling() {
+            lenient().doReturn(true).when(propagation).isPropagatedDownWithinJVM(any());
+            lenient().doReturn(true).when(propagation).isTag(any());
+
+            InspectitContextImpl first = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, true, pool);
+            first.setData("tag", "firstValue");
+            first.makeActive();
+            TagContext publishedTags = Tags.getTagger().getCurrentTagContext();
+            first.close();
+
+            InspectitContextImpl second = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, true, pool);
+            second.setData("tag", "secondValue");
+            second.makeActive();
+            second.close();
+
+            Map<String, String> publishedTagValues = new HashMap<>();
+            InternalUtils.getTags(publishedTags)
+                    .forEachRemaining(t -> publishedTagValues.put(t.getKey().getName(), t.getValue().asString()));
+            assertThat(second).isSameAs(first);
+            assertThat(publishedTagValues).containsOnly(entry("tag", "firstValue"));
+        }
+    }
+
+    @Nested
+    public class DataSlotAccess {
+
+        @Test
+        void verifySlotAndKeyAccessEquivalent() {
+            int slot = DataSlots.getOrCreateSlot("slotted");
+            InspectitContextImpl ctx = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false);
+
+            ctx.setData(slot, "first");
+            assertThat(ctx.getData("slotted")).isEqualTo("first");
+
+            ctx.setData("slotted", "second");
+            assertThat(ctx.getData(slot)).isEqualTo("second");
+
+            ctx.setData(slot, null);
+            assertThat(ctx.getData("slotted")).isNull();
+            assertThat(ctx.getData()).isEmpty();
+
+            ctx.makeActive();
+            ctx.close();
+        }
+
+        @Test
+        void verifyUnslottedKeyWrittenBeforeRegistration() {
+            InspectitContextImpl ctx = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false);
+            ctx.setData("late-registered", "value");
+
+            int slot = DataSlots.getOrCreateSlot("late-registered");
+
+            assertThat(ctx.getData(slot)).isEqualTo("value");
+            ctx.setData(slot, "newValue");
+            assertThat(ctx.getData("late-registered")).isEqualTo("newValue");
+            assertThat(ctx.getData()).containsExactly(entry("late-registered", (Object) "newValue"));
+
+            ctx.makeActive();
+            ctx.close();
+        }
+
+        @Test
+        void verifyUpAndDownPropagationOfSlottedAndUnslottedData() {
+            int slot = DataSlots.getOrCreateSlot("slotted-propagated");
+            doReturn(true).when(propagation).isPropagatedUpWithinJVM(any());
+            lenient().doReturn(true).when(propagation).isPropagatedDownWithinJVM(any());
+
+            InspectitContextImpl root = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false);
+            root.setData(slot, "rootValue");
+            root.makeActive();
+
+            InspectitContextImpl child = InspectitContextImpl.createFromCurrent(Collections.emptyMap(), propagation, false);
+            assertThat(child.getData(slot)).isEqualTo("rootValue");
+            child.setData(slot, "childValue");
+            child.setData("unslotted-propagated", "unslottedValue");
+            child.makeActive();
+            child.close();
+
+            assertThat(root.getData("slotted-propagated")).isEqualTo("childValue");
+            assertThat(root.getData("unslotted-propagated")).isEqualTo("unslottedValue");
+            root.close();
+        }
+    }
 
 }
@@ -0,0 +1,74 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.core.selfmonitoring.SelfMonitoringService;
+import rocks.inspectit.ocelot.core.testutils.Dummy;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+public class HookManagerTest {
+
+    @Mock
+    SelfMonitoringService selfMonitoring;
+
+    @InjectMocks
+    HookManager hookManager;
+
+    @Nested
+    class GetHookId {
+
+        @Test
+        void verifyIdsStable() {
+            int idA = hookManager.getHookId(Dummy.class, "methodA()");
+            int idB = hookManager.getHookId(Dummy.class, "methodB()");
+
+            assertThat(idA).isNotEqualTo(idB);
+            assertThat(hookManager.getHookId(Dummy.class, "methodA()")).isEqualTo(idA);
+        }
+
+        @Test
+        void verifyInstrumentedMethodsKeepIds() {
+            int idA = hookManager.getHookId(Dummy.class, "methodA()");
+            hookManager.setCapturedValues(Dummy.class, ImmutableMap.of("methodA()", CapturedValues.NONE));
+
+            hookManager.startUpdate().commitUpdate();
+
+            assertThat(hookManager.getHookId(Dummy.class, "methodA()")).isEqualTo(idA);
+        }
+
+        @Test
+        void verifyIdsOfDeinstrumentedMethodsReused() {
+            int idA = hookManager.getHookId(Dummy.class, "methodA()");
+            int idB = hookManager.getHookId(Dummy.class, "methodB()");
+            hookManager.setCapturedValues(Dummy.class, ImmutableMap.of("methodB()", CapturedValues.NONE));
+
+            // the released id must not be reused before the next commit
+            int idC = hookManager.getHookId(Dummy.class, "methodC()");
+            assertThat(idC).isNotIn(idA, idB);
+
+            hookManager.startUpdate().commitUpdate();
+
+            assertThat(hookManager.getHookId(Dummy.class, "doSomething()")).isEqualTo(idA);
+            assertThat(hookManager.getHookId(Dummy.class, "methodB()")).isEqualTo(idB);
+        }
+
+        @Test
+        void verifyIdsOfDeinstrumentedClassesReused() {
+            int idA = hookManager.getHookId(Dummy.class, "methodA()");
+            hookManager.setCapturedValues(Dummy.class, Collections.emptyMap());
+
+            hookManager.startUpdate().commitUpdate();
+
+            assertThat(hookManager.getHookId(String.class, "length()")).isEqualTo(idA);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package rocks.inspectit.ocelot.core.instrumentation.hook;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import io.opencensus.stats.Measure;
+import io.opencensus.trace.SpanId;
+import io.opencensus.trace.TraceId;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -10,20 +15,32 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.config.model.instrumentation.actions.ActionCallSettings;
+import rocks.inspectit.ocelot.config.model.instrumentation.actions.ConditionalActionSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.MetricRecordingSettings;
 import rocks.inspectit.ocelot.config.model.instrumentation.rules.RuleTracingSettings;
+import rocks.inspectit.ocelot.core.instrumentation.config.event.InstrumentationConfigurationChangedEvent;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.ActionCallConfig;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.GenericActionConfig;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationConfiguration;
+import rocks.inspectit.ocelot.core.instrumentation.config.model.InstrumentationRule;
 import rocks.inspectit.ocelot.core.instrumentation.config.model.MethodHookConfiguration;
 import rocks.inspectit.ocelot.core.instrumentation.context.ContextManager;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.model.MetricAccessor;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.ContinueOrStartSpanAction;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.EndSpanAction;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.RateLimitingSampler;
+import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.RecordingSpanOnlyAction;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.SetSpanStatusAction;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.span.WriteSpanAttributesAction;
+import rocks.inspectit.ocelot.core.metrics.MeasuresAndViewsManager;
 import rocks.inspectit.ocelot.core.privacy.obfuscation.ObfuscationManager;
 import rocks.inspectit.ocelot.core.testutils.Dummy;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
@@ -44,6 +61,9 @@ public class MethodHookGeneratorTest {
     @Mock
     ObfuscationManager obfuscation;
 
+    @Mock
+    MeasuresAndViewsManager metricsManager;
+
     @Nested
     class BuildHook {
 
@@ -99,6 +119,69 @@ public class MethodHookGeneratorTest {
 
             assertThat(result.getMethodInformation().getDeclaringClass()).isSameAs(Dummy.class);
         }
+
+        @Test
+        void rateLimitSharedByHooksOfSameRule() throws Exception {
+            RuleTracingSettings tracing = RuleTracingSettings.builder()
+                    .startSpan(true)
+                    .startSpanConditions(new ConditionalActionSettings())
+                    .maxSpansPerSecond(1.0)
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(tracing)
+                    .rateLimitingRule("rule")
+                    .build();
+
+            MethodHook first = generator.buildHook(Dummy.class, getMethod("methodA"), config);
+            MethodHook second = generator.buildHook(Dummy.class, getMethod("methodB"), config);
+
+            RateLimitingSampler firstSampler = getRateLimitingSampler(first);
+            RateLimitingSampler secondSampler = getRateLimitingSampler(second);
+            assertThat(firstSampler).isSameAs(secondSampler);
+            assertThat(firstSampler.shouldSample(null, null, TraceId.INVALID, SpanId.INVALID, "span", Collections.emptyList())).isTrue();
+            assertThat(secondSampler.shouldSample(null, null, TraceId.INVALID, SpanId.INVALID, "span", Collections.emptyList())).isFalse();
+        }
+
+        @Test
+        void rateLimitSamplerReplacedOnChangedLimit() {
+            RateLimitingSampler first = generator.getRateLimitingSampler("rule", 1.0);
+            RateLimitingSampler second = generator.getRateLimitingSampler("rule", 2.0);
+
+            assertThat(second).isNotSameAs(first);
+            assertThat(second.getMaxSpansPerSecond()).isEqualTo(2.0);
+            assertThat(generator.getRateLimitingSampler("rule", 2.0)).isSameAs(second);
+        }
+
+        @Test
+        void rateLimitSamplersOfRemovedRulesDiscarded() {
+            RateLimitingSampler kept = generator.getRateLimitingSampler("kept", 1.0);
+            RateLimitingSampler removed = generator.getRateLimitingSampler("removed", 1.0);
+            RateLimitingSampler unlimited = generator.getRateLimitingSampler("unlimited", 1.0);
+            InstrumentationConfiguration config = InstrumentationConfiguration.builder()
+                    .rule(InstrumentationRule.builder()
+                            .name("kept")
+                            .tracing(RuleTracingSettings.builder().maxSpansPerSecond(1.0).build())
+                            .build())
+                    .rule(InstrumentationRule.builder().name("unlimited").build())
+                    .build();
+
+            generator.removeObsoleteRateLimitingSamplers(new InstrumentationConfigurationChangedEvent(this, null, config, null));
+
+            assertThat(generator.getRateLimitingSampler("kept", 1.0)).isSameAs(kept);
+            assertThat(generator.getRateLimitingSampler("removed", 1.0)).isNotSameAs(removed);
+            assertThat(generator.getRateLimitingSampler("unlimited", 1.0)).isNotSameAs(unlimited);
+        }
+
+        private MethodDescription getMethod(String name) {
+            return dummyType.getDeclaredMethods().stream().filter(md -> md.getName().equals(name)).findFirst().get();
+        }
+
+        private RateLimitingSampler getRateLimitingSampler(MethodHook hook) throws IllegalAccessException {
+            ContinueOrStartSpanAction action = (ContinueOrStartSpanAction) hook.getEntryActions().stream()
+                    .filter(ContinueOrStartSpanAction.class::isInstance)
+                    .findFirst().get();
+            return (RateLimitingSampler) FieldUtils.readField(action, "rateLimitingSampler", true);
+        }
     }
 
     @Nested
@@ -159,6 +242,26 @@ public class MethodHookGeneratorTest {
             assertThat(accessor.getConstantTags()).isEmpty();
             assertThat(accessor.getDataTagAccessors()).containsOnly(entry("tag-key", mockAccessorB));
         }
+
+        @Test
+        public void measureResolved() {
+            Measure measure = Measure.MeasureDouble.create("name", "description", "unit");
+            when(metricsManager.getMeasure("name")).thenReturn(Optional.of(measure));
+            MetricRecordingSettings settings = MetricRecordingSettings.builder().metric("name").value("1.0").build();
+
+            MetricAccessor accessor = generator.buildMetricAccessor(settings);
+
+            assertThat(accessor.getMeasure()).isSameAs(measure);
+        }
+
+        @Test
+        public void measureNotDefined() {
+            MetricRecordingSettings settings = MetricRecordingSettings.builder().metric("name").value("1.0").build();
+
+            MetricAccessor accessor = generator.buildMetricAccessor(settings);
+
+            assertThat(accessor.getMeasure()).isNull();
+        }
     }
 
     @Nested
@@ -193,8 +296,10 @@ public class MethodHookGeneratorTest {
 
             assertThat(actions)
                     .hasSize(3)
-                    .anySatisfy((action) -> assertThat(action).isInstanceOf(SetSpanStatusAction.class))
-                    .anySatisfy((action) -> assertThat(action).isInstanceOf(WriteSpanAttributesAction.class))
+                    .anySatisfy((action) -> assertThat(action).isInstanceOfSatisfying(RecordingSpanOnlyAction.class, wrapper ->
+                            assertThat(wrapper.getAction()).isInstanceOf(SetSpanStatusAction.class)))
+                    .anySatisfy((action) -> assertThat(action).isInstanceOfSatisfying(RecordingSpanOnlyAction.class, wrapper ->
+                            assertThat(wrapper.getAction()).isInstanceOf(WriteSpanAttributesAction.class)))
                     .anySatisfy((action) -> assertThat(action).isInstanceOf(EndSpanAction.class));
         }
 
@@ -212,10 +317,125 @@ public class MethodHookGeneratorTest {
 
             assertThat(actions)
                     .hasSize(3)
-                    .anySatisfy((action) -> assertThat(action).isInstanceOf(SetSpanStatusAction.class))
-                    .anySatisfy((action) -> assertThat(action).isInstanceOf(WriteSpanAttributesAction.class))
+                    .anySatisfy((action) -> assertThat(action).isInstanceOfSatisfying(RecordingSpanOnlyAction.class, wrapper ->
+                            assertThat(wrapper.getAction()).isInstanceOf(SetSpanStatusAction.class)))
+                    .anySatisfy((action) -> assertThat(action).isInstanceOfSatisfying(RecordingSpanOnlyAction.class, wrapper ->
+                            assertThat(wrapper.getAction()).isInstanceOf(WriteSpanAttributesAction.class)))
                     .anySatisfy((action) -> assertThat(action).isInstanceOf(EndSpanAction.class));
         }
 
     }
+
+    @Nested
+    class GetValuesToCapture {
+
+        private ActionCallConfig callTo(GenericActionConfig action) {
+            ActionCallSettings settings = new ActionCallSettings();
+            settings.setAction(action.getName());
+            return ActionCallConfig.builder()
+                    .name("my_key")
+                    .callSettings(settings)
+                    .action(action)
+                    .build();
+        }
+
+        @Test
+        void nothingUsed() {
+            GenericActionConfig action = GenericActionConfig.builder()
+                    .name("action")
+                    .additionalArgumentType("data", "String")
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .entryAction(callTo(action))
+                    .tracing(RuleTracingSettings.builder().startSpan(true).name("data").build())
+                    .build();
+
+            CapturedValues result = generator.getValuesToCapture(config);
+
+            assertThat(result).isEqualTo(CapturedValues.NONE);
+        }
+
+        @Test
+        void argumentUsedByAction() {
+            GenericActionConfig action = GenericActionConfig.builder()
+                    .name("action")
+                    .expectedArgumentType(0, "String")
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .exitAction(callTo(action))
+                    .build();
+
+            CapturedValues result = generator.getValuesToCapture(config);
+
+            assertThat(result.isArguments()).isTrue();
+            assertThat(result.isReturnValue()).isFalse();
+        }
+
+        @Test
+        void argumentsArrayUsedByAction() {
+            GenericActionConfig action = GenericActionConfig.builder()
+                    .name("action")
+                    .usesArgsArray(true)
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .entryAction(callTo(action))
+                    .build();
+
+            CapturedValues result = generator.getValuesToCapture(config);
+
+            assertThat(result.isArguments()).isTrue();
+            assertThat(result.isReturnValue()).isFalse();
+        }
+
+        @Test
+        void returnValueUsedByAction() {
+            GenericActionConfig action = GenericActionConfig.builder()
+                    .name("action")
+                    .expectedReturnValueType("String")
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .exitAction(callTo(action))
+                    .build();
+
+            CapturedValues result = generator.getValuesToCapture(config);
+
+            assertThat(result.isArguments()).isFalse();
+            assertThat(result.isReturnValue()).isTrue();
+        }
+
+        @Test
+        void specialVariablesUsedAsDataInput() {
+            GenericActionConfig action = GenericActionConfig.builder()
+                    .name("action")
+                    .additionalArgumentType("request", "Object")
+                    .additionalArgumentType("result", "Object")
+                    .build();
+            ActionCallConfig call = callTo(action);
+            call.getCallSettings().setDataInput(ImmutableMap.of("request", "_arg0", "result", "_returnValue"));
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .exitAction(call)
+                    .build();
+
+            CapturedValues result = generator.getValuesToCapture(config);
+
+            assertThat(result).isEqualTo(CapturedValues.ALL);
+        }
+
+        @Test
+        void specialVariablesUsedByTracingAndMetrics() {
+            MetricRecordingSettings metric = MetricRecordingSettings.builder()
+                    .metric("my_metric")
+                    .value("1")
+                    .dataTags(ImmutableMap.of("tag", "_returnValue"))
+                    .build();
+            MethodHookConfiguration config = MethodHookConfiguration.builder()
+                    .tracing(RuleTracingSettings.builder().startSpan(true).attributes(ImmutableMap.of("attr", "_arg1")).build())
+                    .metrics(ImmutableMultiset.of(metric))
+                    .build();
+
+            CapturedValues result = generator.getValuesToCapture(config);
+
+            assertThat(result).isEqualTo(CapturedValues.ALL);
+        }
+    }
 }
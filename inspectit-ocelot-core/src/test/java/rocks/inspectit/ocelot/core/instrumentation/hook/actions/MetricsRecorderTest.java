@@ -1,5 +1,7 @@
 package rocks.inspectit.ocelot.core.instrumentation.hook.actions;
 
+import io.opencensus.stats.Measure;
+import io.opencensus.stats.MeasureMap;
 import io.opencensus.tags.TagContext;
 import io.opencensus.tags.TagKey;
 import io.opencensus.tags.TagValue;
@@ -8,6 +10,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -16,12 +19,15 @@ import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
 import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.model.MetricAccessor;
 import rocks.inspectit.ocelot.core.metrics.MeasuresAndViewsManager;
+import rocks.inspectit.ocelot.core.selfmonitoring.TagContextCacheMetricsRecorder;
 import rocks.inspectit.ocelot.core.tags.CommonTagsManager;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -40,10 +46,22 @@ public class MetricsRecorderTest {
     @Mock
     InspectitContextImpl inspectitContext;
 
+    @Mock
+    TagContextCacheMetricsRecorder cacheMetricsRecorder;
+
+    @Mock
+    MeasureMap measureMap;
+
     @BeforeEach
     void setupMock() {
         when(commonTagsManager.getCommonTagKeys()).thenReturn(Collections.emptyList());
         when(executionContext.getInspectitContext()).thenReturn(inspectitContext);
+        lenient().when(metricsManager.newMeasureMap()).thenReturn(measureMap);
+        lenient().when(metricsManager.getMeasure(any())).thenAnswer(invocation -> Optional.of(measure(invocation.getArgument(0))));
+    }
+
+    private static Measure measure(String name) {
+        return Measure.MeasureDouble.create(name, "description", "unit");
     }
 
     @Nested
@@ -59,17 +77,20 @@ public class MetricsRecorderTest {
 
             rec.execute(executionContext);
 
-            verify(metricsManager, never()).tryRecordingMeasurement(eq("my_metric"), any(Number.class));
-            verify(metricsManager, never()).tryRecordingMeasurement(eq("my_metric"), any(Number.class), any());
+            verify(metricsManager, never()).putMeasurement(any(), any(), any());
+            verify(metricsManager, never()).recordPercentileMeasurement(eq("my_metric"), anyDouble(), any());
+            verifyZeroInteractions(measureMap);
 
             when(variableAccess.get(any())).thenReturn(100L);
 
             rec.execute(executionContext);
 
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), any(Number.class), eq(Tags.getTagger()
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), anyDouble(), eq(Tags.getTagger()
                     .empty()));
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), eq((Number) 100L), eq(Tags.getTagger()
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(Tags.getTagger()
                     .empty()));
+            verify(metricsManager).putMeasurement(measureMap, measure("my_metric"), 100L);
+            verify(measureMap).record(Tags.getTagger().empty());
         }
 
         @Test
@@ -88,18 +109,20 @@ public class MetricsRecorderTest {
             rec.execute(executionContext);
 
             verify(dataB).get(any());
-            verify(metricsManager, times(1)).tryRecordingMeasurement(any(String.class), any(Number.class), eq(Tags.getTagger()
+            verify(metricsManager, times(1)).recordPercentileMeasurement(any(String.class), anyDouble(), eq(Tags.getTagger()
                     .empty()));
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric1"), eq((Number) 100.0d), eq(Tags.getTagger()
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric1"), eq(100.0), eq(Tags.getTagger()
                     .empty()));
 
             rec.execute(executionContext);
 
             verify(dataB, times(2)).get(any());
-            verify(metricsManager, times(2)).tryRecordingMeasurement(any(String.class), any(Number.class), eq(Tags.getTagger()
+            verify(metricsManager, times(2)).recordPercentileMeasurement(any(String.class), anyDouble(), eq(Tags.getTagger()
                     .empty()));
-            verify(metricsManager, times(2)).tryRecordingMeasurement(eq("my_metric1"), eq((Number) 100.0d), eq(Tags.getTagger()
+            verify(metricsManager, times(2)).recordPercentileMeasurement(eq("my_metric1"), eq(100.0), eq(Tags.getTagger()
                     .empty()));
+            verify(metricsManager, times(2)).putMeasurement(measureMap, measure("my_metric1"), 100.0);
+            verify(measureMap, times(2)).record(Tags.getTagger().empty());
         }
 
         @Test
@@ -120,7 +143,8 @@ public class MetricsRecorderTest {
                     .emptyBuilder()
                     .putLocal(TagKey.create("common"), TagValue.create("overwrite"))
                     .build();
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), eq((Number) 100L), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(expected));
+            verify(measureMap).record(expected);
             verifyNoMoreInteractions(inspectitContext);
         }
 
@@ -139,8 +163,8 @@ public class MetricsRecorderTest {
                     .emptyBuilder()
                     .putLocal(TagKey.create("constant"), TagValue.create("tag"))
                     .build();
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), any(Number.class), eq(expected));
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), eq((Number) 100L), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), anyDouble(), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(expected));
         }
 
         @Test
@@ -157,8 +181,8 @@ public class MetricsRecorderTest {
             rec.execute(executionContext);
 
             TagContext expected = Tags.getTagger().empty();
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), any(Number.class), eq(expected));
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), eq((Number) 100L), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), anyDouble(), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(expected));
         }
 
         @Test
@@ -179,8 +203,8 @@ public class MetricsRecorderTest {
                     .emptyBuilder()
                     .putLocal(TagKey.create("data"), TagValue.create("value"))
                     .build();
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), any(Number.class), eq(expected));
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), eq((Number) 100L), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), anyDouble(), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(expected));
         }
 
         @Test
@@ -211,24 +235,29 @@ public class MetricsRecorderTest {
 
             rec.execute(executionContext);
 
-            InOrder inOrder = inOrder(metricsManager);
+            InOrder inOrder = inOrder(metricsManager, measureMap);
             // first recording
             TagContext expected1 = Tags.getTagger().emptyBuilder()
                     .putLocal(TagKey.create("cA"), TagValue.create("100"))
                     .putLocal(TagKey.create("existing"), TagValue.create("data1"))
                     .build();
+            inOrder.verify(metricsManager).putMeasurement(measureMap, measure("my_metric1"), 100.0);
             inOrder.verify(metricsManager)
-                    .tryRecordingMeasurement(eq("my_metric1"), eq((Number) 100.0d), eq(expected1));
+                    .recordPercentileMeasurement(eq("my_metric1"), eq(100.0), eq(expected1));
             // second recording
             TagContext expected2 = Tags.getTagger().emptyBuilder()
                     .putLocal(TagKey.create("cA"), TagValue.create("200"))
                     .putLocal(TagKey.create("existing1"), TagValue.create("12"))
                     .putLocal(TagKey.create("existing2"), TagValue.create("false"))
                     .build();
+            inOrder.verify(metricsManager).putMeasurement(measureMap, measure("my_metric2"), 200.0);
             inOrder.verify(metricsManager, times(1))
-                    .tryRecordingMeasurement(eq("my_metric2"), eq((Number) 200.0d), eq(expected2));
-            // and no more
-            inOrder.verifyNoMoreInteractions();
+                    .recordPercentileMeasurement(eq("my_metric2"), eq(200.0), eq(expected2));
+            // the tags differ, so both measurements are recorded separately
+            inOrder.verify(measureMap).record(expected1);
+            inOrder.verify(measureMap).record(expected2);
+            verify(metricsManager, times(2)).newMeasureMap();
+            verifyNoMoreInteractions(measureMap);
         }
 
         @Test
@@ -249,8 +278,148 @@ public class MetricsRecorderTest {
                     .emptyBuilder()
                     .putLocal(TagKey.create("data"), TagValue.create("value"))
                     .build();
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), any(Number.class), eq(expected));
-            verify(metricsManager, times(1)).tryRecordingMeasurement(eq("my_metric"), eq((Number) 100L), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), anyDouble(), eq(expected));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(expected));
+        }
+
+        @Test
+        void sharedTagsRecordedTogether() {
+            VariableAccessor dataA = Mockito.mock(VariableAccessor.class);
+            VariableAccessor dataB = Mockito.mock(VariableAccessor.class);
+            when(dataA.get(any())).thenReturn(100.0);
+            when(dataB.get(any())).thenReturn(200L);
+            MetricAccessor metricAccessorA = new MetricAccessor("my_metric1", dataA, Collections.singletonMap("constant", "tag"), Collections
+                    .emptyMap());
+            MetricAccessor metricAccessorB = new MetricAccessor("my_metric2", dataB, Collections.singletonMap("constant", "tag"), Collections
+                    .emptyMap());
+            MetricsRecorder rec = new MetricsRecorder(Arrays.asList(metricAccessorA, metricAccessorB), commonTagsManager, metricsManager);
+
+            rec.execute(executionContext);
+
+            TagContext expected = Tags.getTagger()
+                    .emptyBuilder()
+                    .putLocal(TagKey.create("constant"), TagValue.create("tag"))
+                    .build();
+            verify(metricsManager, times(1)).newMeasureMap();
+            verify(metricsManager).putMeasurement(measureMap, measure("my_metric1"), 100.0);
+            verify(metricsManager).putMeasurement(measureMap, measure("my_metric2"), 200L);
+            verify(measureMap, times(1)).record(expected);
+            verifyNoMoreInteractions(measureMap);
+        }
+
+        @Test
+        void sameMeasureWithSameTagsRecordedSeparately() {
+            VariableAccessor dataA = Mockito.mock(VariableAccessor.class);
+            VariableAccessor dataB = Mockito.mock(VariableAccessor.class);
+            when(dataA.get(any())).thenReturn(100L);
+            when(dataB.get(any())).thenReturn(200L);
+            MetricAccessor metricAccessorA = new MetricAccessor("my_metric", dataA, Collections.emptyMap(), Collections.emptyMap());
+            MetricAccessor metricAccessorB = new MetricAccessor("my_metric", dataB, Collections.emptyMap(), Collections.emptyMap());
+            MetricsRecorder rec = new MetricsRecorder(Arrays.asList(metricAccessorA, metricAccessorB), commonTagsManager, metricsManager);
+
+            rec.execute(executionContext);
+
+            verify(metricsManager, times(2)).newMeasureMap();
+            verify(metricsManager).putMeasurement(measureMap, measure("my_metric"), 100L);
+            verify(metricsManager).putMeasurement(measureMap, measure("my_metric"), 200L);
+            verify(measureMap, times(2)).record(Tags.getTagger().empty());
+        }
+
+        @Test
+        void resolvedMeasureUsed() {
+            Measure measure = Measure.MeasureLong.create("my_metric", "description", "unit");
+            VariableAccessor variableAccess = Mockito.mock(VariableAccessor.class);
+            when(variableAccess.get(any())).thenReturn(100L);
+            MetricAccessor metricAccessor = new MetricAccessor("my_metric", measure, variableAccess, Collections.emptyMap(), Collections
+                    .emptyMap(), null);
+            MetricsRecorder rec = new MetricsRecorder(Collections.singletonList(metricAccessor), commonTagsManager, metricsManager);
+
+            rec.execute(executionContext);
+
+            verify(metricsManager, never()).getMeasure(any());
+            verify(metricsManager).putMeasurement(same(measureMap), same(measure), eq(100L));
+            verify(measureMap).record(Tags.getTagger().empty());
+        }
+    }
+
+    @Nested
+    class TagContextCaching {
+
+        @Test
+        void sameTagValuesReuseContext() {
+            VariableAccessor dataTagAccessor = mock(VariableAccessor.class);
+            when(dataTagAccessor.get(any())).thenReturn("value");
+            VariableAccessor variableAccess = mock(VariableAccessor.class);
+            when(variableAccess.get(any())).thenReturn(100L);
+
+            MetricAccessor metricAccessor = new MetricAccessor("my_metric", null, variableAccess, Collections.singletonMap("constant", "tag"), Collections
+                    .singletonMap("data", dataTagAccessor), cacheMetricsRecorder);
+            MetricsRecorder rec = new MetricsRecorder(Collections.singletonList(metricAccessor), commonTagsManager, metricsManager);
+
+            rec.execute(executionContext);
+            rec.execute(executionContext);
+
+            ArgumentCaptor<TagContext> tagContexts = ArgumentCaptor.forClass(TagContext.class);
+            verify(metricsManager, times(2)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), tagContexts.capture());
+            assertThat(tagContexts.getAllValues().get(1)).isSameAs(tagContexts.getAllValues().get(0));
+            assertThat(metricAccessor.getTagContextCache().size()).isEqualTo(1);
+            verify(cacheMetricsRecorder).recordMiss();
+            verify(cacheMetricsRecorder).recordHit();
+            verifyNoMoreInteractions(cacheMetricsRecorder);
+        }
+
+        @Test
+        void differentDataTagValues() {
+            VariableAccessor dataTagAccessor = mock(VariableAccessor.class);
+            when(dataTagAccessor.get(any())).thenReturn("first", "second", "first");
+            VariableAccessor variableAccess = mock(VariableAccessor.class);
+            when(variableAccess.get(any())).thenReturn(100L);
+
+            MetricAccessor metricAccessor = new MetricAccessor("my_metric", null, variableAccess, Collections.emptyMap(), Collections
+                    .singletonMap("data", dataTagAccessor), cacheMetricsRecorder);
+            MetricsRecorder rec = new MetricsRecorder(Collections.singletonList(metricAccessor), commonTagsManager, metricsManager);
+
+            rec.execute(executionContext);
+            rec.execute(executionContext);
+            rec.execute(executionContext);
+
+            TagContext first = Tags.getTagger()
+                    .emptyBuilder()
+                    .putLocal(TagKey.create("data"), TagValue.create("first"))
+                    .build();
+            TagContext second = Tags.getTagger()
+                    .emptyBuilder()
+                    .putLocal(TagKey.create("data"), TagValue.create("second"))
+                    .build();
+            verify(metricsManager, times(2)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(first));
+            verify(metricsManager, times(1)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(second));
+            assertThat(metricAccessor.getTagContextCache().size()).isEqualTo(2);
+            verify(cacheMetricsRecorder, times(2)).recordMiss();
+            verify(cacheMetricsRecorder).recordHit();
+        }
+
+        @Test
+        void changedCommonTagsNotReused() {
+            when(inspectitContext.getData("common")).thenReturn("value");
+            when(commonTagsManager.getCommonTagKeys()).thenReturn(Collections.singletonList(TagKey.create("common")), Collections
+                    .singletonList(TagKey.create("common")));
+            VariableAccessor variableAccess = mock(VariableAccessor.class);
+            when(variableAccess.get(any())).thenReturn(100L);
+
+            MetricAccessor metricAccessor = new MetricAccessor("my_metric", null, variableAccess, Collections.emptyMap(), Collections
+                    .emptyMap(), cacheMetricsRecorder);
+            MetricsRecorder rec = new MetricsRecorder(Collections.singletonList(metricAccessor), commonTagsManager, metricsManager);
+
+            rec.execute(executionContext);
+            rec.execute(executionContext);
+
+            TagContext expected = Tags.getTagger()
+                    .emptyBuilder()
+                    .putLocal(TagKey.create("common"), TagValue.create("value"))
+                    .build();
+            verify(metricsManager, times(2)).recordPercentileMeasurement(eq("my_metric"), eq(100.0), eq(expected));
+            verify(cacheMetricsRecorder, times(2)).recordMiss();
+            verifyNoMoreInteractions(cacheMetricsRecorder);
         }
     }
 }
@@ -0,0 +1,86 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook.actions.model;
+
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagKey;
+import io.opencensus.tags.Tags;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.core.selfmonitoring.TagContextCacheMetricsRecorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TagContextCacheTest {
+
+    @Mock
+    TagContextCacheMetricsRecorder metricsRecorder;
+
+    @Nested
+    class Get {
+
+        @Test
+        void hitAndMiss() {
+            TagContextCache cache = new TagContextCache(metricsRecorder);
+            List<TagKey> commonTagKeys = Collections.emptyList();
+            TagContext tagContext = Tags.getTagger().empty();
+
+            TagContext miss = cache.get(new TagContextCache.Key(commonTagKeys, new String[]{"a", null}));
+            cache.put(new TagContextCache.Key(commonTagKeys, new String[]{"a", null}), tagContext);
+            TagContext hit = cache.get(new TagContextCache.Key(commonTagKeys, new String[]{"a", null}));
+
+            assertThat(miss).isNull();
+            assertThat(hit).isSameAs(tagContext);
+            verify(metricsRecorder).recordMiss();
+            verify(metricsRecorder).recordHit();
+            verifyNoMoreInteractions(metricsRecorder);
+        }
+
+        @Test
+        void commonTagKeysComparedByIdentity() {
+            TagContextCache cache = new TagContextCache(metricsRecorder);
+            List<TagKey> commonTagKeys = new ArrayList<>();
+
+            cache.put(new TagContextCache.Key(commonTagKeys, new String[]{"a"}), Tags.getTagger().empty());
+            TagContext result = cache.get(new TagContextCache.Key(new ArrayList<>(), new String[]{"a"}));
+
+            assertThat(result).isNull();
+        }
+
+        @Test
+        void withoutMetricsRecorder() {
+            TagContextCache cache = new TagContextCache(null);
+            TagContextCache.Key key = new TagContextCache.Key(Collections.emptyList(), new String[0]);
+            TagContext tagContext = Tags.getTagger().empty();
+
+            cache.put(key, tagContext);
+
+            assertThat(cache.get(key)).isSameAs(tagContext);
+        }
+    }
+
+    @Nested
+    class Put {
+
+        @Test
+        void cardinalityLimited() {
+            TagContextCache cache = new TagContextCache(metricsRecorder);
+            List<TagKey> commonTagKeys = Collections.emptyList();
+
+            int count = TagContextCache.MAX_CACHED_TAG_CONTEXTS + 100;
+            for (int i = 0; i < count; i++) {
+                cache.put(new TagContextCache.Key(commonTagKeys, new String[]{String.valueOf(i)}), Tags.getTagger().empty());
+            }
+
+            assertThat(cache.size()).isLessThanOrEqualTo(TagContextCache.MAX_CACHED_TAG_CONTEXTS);
+            verify(metricsRecorder, times((int) (count - cache.size()))).recordEviction();
+        }
+    }
+}
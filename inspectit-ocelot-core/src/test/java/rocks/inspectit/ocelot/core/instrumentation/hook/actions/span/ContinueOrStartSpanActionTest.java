@@ -80,5 +80,52 @@ public class ContinueOrStartSpanActionTest {
             verifyNoMoreInteractions(context);
         }
 
+        @Test
+        void dynamicSamplerCached() {
+            VariableAccessor dynamicProbability = Mockito.mock(VariableAccessor.class);
+            when(dynamicProbability.get(any())).thenReturn(0.42, 0.42, 0.7);
+            ContinueOrStartSpanAction action = ContinueOrStartSpanAction.builder()
+                    .dynamicSampleProbabilityAccessor(dynamicProbability)
+                    .build();
+
+            Sampler first = action.getSampler(context);
+            Sampler second = action.getSampler(context);
+            Sampler third = action.getSampler(context);
+
+            assertThat(second).isSameAs(first);
+            assertThat(third).isNotSameAs(first);
+            Object configuredProbability = ReflectionTestUtils.invokeMethod(third, "getProbability");
+            assertThat((Double) configuredProbability).isEqualTo(0.7);
+        }
+
+        @Test
+        void rateLimitingSampler() {
+            RateLimitingSampler rateLimitingSampler = new RateLimitingSampler(10);
+
+            Sampler result = ContinueOrStartSpanAction.builder()
+                    .rateLimitingSampler(rateLimitingSampler)
+                    .build()
+                    .getSampler(context);
+
+            assertThat(result).isSameAs(rateLimitingSampler);
+            verifyZeroInteractions(context);
+        }
+
+        @Test
+        void rateLimitingSamplerWithStaticSampler() {
+            Sampler sampler = Samplers.probabilitySampler(0.5);
+            ContinueOrStartSpanAction action = ContinueOrStartSpanAction.builder()
+                    .staticSampler(sampler)
+                    .rateLimitingSampler(new RateLimitingSampler(10))
+                    .build();
+
+            Sampler first = action.getSampler(context);
+            Sampler second = action.getSampler(context);
+
+            assertThat(first).isInstanceOf(RateLimitingSampler.class);
+            assertThat(ReflectionTestUtils.getField(first, "delegate")).isSameAs(sampler);
+            assertThat(second).isSameAs(first);
+        }
+
     }
 }
@@ -0,0 +1,127 @@
+package rocks.inspectit.ocelot.core.instrumentation.hook.actions.span;
+
+import io.opencensus.trace.*;
+import io.opencensus.trace.samplers.Samplers;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RateLimitingSamplerTest {
+
+    private final Random random = new Random();
+
+    private final AtomicLong clock = new AtomicLong(42_000_000_000L);
+
+    private boolean sample(Sampler sampler, SpanContext parent, String name) {
+        return sampler.shouldSample(parent, false, TraceId.generateRandomId(random), SpanId.generateRandomId(random), name, Collections.emptyList());
+    }
+
+    private boolean sample(Sampler sampler, String name) {
+        return sample(sampler, null, name);
+    }
+
+    private int countSampled(Sampler sampler, String name, int attempts) {
+        int sampled = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (sample(sampler, name)) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+
+    @Nested
+    class ShouldSample {
+
+        @Test
+        void invalidRate() {
+            assertThatThrownBy(() -> new RateLimitingSampler(0)).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void burstLimitedToOneSecond() {
+            RateLimitingSampler sampler = new RateLimitingSampler(10, clock::get);
+
+            assertThat(countSampled(sampler, "span", 100)).isEqualTo(10);
+        }
+
+        @Test
+        void tokensRefilledOverTime() {
+            RateLimitingSampler sampler = new RateLimitingSampler(10, clock::get);
+            countSampled(sampler, "span", 100);
+
+            clock.addAndGet(250_000_000L);
+
+            assertThat(countSampled(sampler, "span", 100)).isEqualTo(2);
+
+            clock.addAndGet(60_000_000_000L);
+
+            assertThat(countSampled(sampler, "span", 100)).isEqualTo(10);
+        }
+
+        @Test
+        void fractionalRate() {
+            RateLimitingSampler sampler = new RateLimitingSampler(0.5, clock::get);
+
+            assertThat(countSampled(sampler, "span", 10)).isEqualTo(1);
+            clock.addAndGet(1_000_000_000L);
+            assertThat(countSampled(sampler, "span", 10)).isEqualTo(0);
+            clock.addAndGet(1_000_000_000L);
+            assertThat(countSampled(sampler, "span", 10)).isEqualTo(1);
+        }
+
+        @Test
+        void separateBudgetsPerSpanName() {
+            RateLimitingSampler sampler = new RateLimitingSampler(5, clock::get);
+
+            assertThat(countSampled(sampler, "first", 10)).isEqualTo(5);
+            assertThat(countSampled(sampler, "second", 10)).isEqualTo(5);
+        }
+
+        @Test
+        void spanNamesExceedingLimitShareBudget() {
+            RateLimitingSampler sampler = new RateLimitingSampler(1, clock::get);
+            for (int i = 0; i < RateLimitingSampler.MAX_SPAN_NAMES; i++) {
+                sample(sampler, "span" + i);
+            }
+
+            assertThat(sample(sampler, "overflow1")).isTrue();
+            assertThat(sample(sampler, "overflow2")).isFalse();
+        }
+
+        @Test
+        void sampledParentAlwaysSampled() {
+            RateLimitingSampler sampler = new RateLimitingSampler(1, clock::get);
+            SpanContext parent = SpanContext.create(TraceId.generateRandomId(random), SpanId.generateRandomId(random), TraceOptions.builder()
+                    .setIsSampled(true)
+                    .build(), Tracestate.builder().build());
+
+            assertThat(sample(sampler, "span")).isTrue();
+            assertThat(sample(sampler, parent, "span")).isTrue();
+            assertThat(sample(sampler, "span")).isFalse();
+        }
+
+        @Test
+        void delegateAskedFirst() {
+            RateLimitingSampler sampler = new RateLimitingSampler(1, clock::get);
+            RateLimitingSampler neverSampling = sampler.withDelegate(Samplers.neverSample());
+
+            assertThat(sample(neverSampling, "span")).isFalse();
+            assertThat(sample(sampler, "span")).isTrue();
+            assertThat(sample(sampler.withDelegate(Samplers.alwaysSample()), "span")).isFalse();
+        }
+
+        @Test
+        void withSameDelegateReturnsSameInstance() {
+            RateLimitingSampler sampler = new RateLimitingSampler(1, clock::get);
+
+            assertThat(sampler.withDelegate(null)).isSameAs(sampler);
+        }
+    }
+}
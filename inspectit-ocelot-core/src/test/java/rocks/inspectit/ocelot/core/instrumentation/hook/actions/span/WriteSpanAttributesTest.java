@@ -3,6 +3,7 @@ package rocks.inspectit.ocelot.core.instrumentation.hook.actions.span;
 import io.opencensus.common.Scope;
 import io.opencensus.trace.Span;
 import io.opencensus.trace.Tracing;
+import io.opencensus.trace.samplers.Samplers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -10,8 +11,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import rocks.inspectit.ocelot.core.instrumentation.context.InspectitContextImpl;
+import rocks.inspectit.ocelot.core.instrumentation.hook.VariableAccessor;
 import rocks.inspectit.ocelot.core.instrumentation.hook.actions.IHookAction;
 import rocks.inspectit.ocelot.core.privacy.obfuscation.IObfuscatory;
+import rocks.inspectit.ocelot.core.privacy.obfuscation.SpanAttributeWriter;
 
 import static org.mockito.Mockito.*;
 
@@ -28,11 +31,20 @@ public class WriteSpanAttributesTest {
     IObfuscatory obfuscatory;
 
     @Mock
+    SpanAttributeWriter fooWriter;
+
+    @Mock
+    SpanAttributeWriter helloWriter;
+
+    @Mock
+    SpanAttributeWriter nullWriter;
+
     Span span;
 
     @BeforeEach
     void setupMock() {
         doReturn(inspectitContext).when(executionContext).getInspectitContext();
+        span = Tracing.getTracer().spanBuilder("span").setSampler(Samplers.alwaysSample()).startSpan();
     }
 
     @Nested
@@ -56,6 +68,9 @@ public class WriteSpanAttributesTest {
         @Test
         void verifyAttributesWritten() {
             doReturn(true).when(inspectitContext).hasEnteredSpan();
+            doReturn(fooWriter).when(obfuscatory).getSpanAttributeWriter("foo");
+            doReturn(helloWriter).when(obfuscatory).getSpanAttributeWriter("hello");
+            doReturn(nullWriter).when(obfuscatory).getSpanAttributeWriter("iAmNull");
             WriteSpanAttributesAction action = WriteSpanAttributesAction.builder()
                     .obfuscatorySupplier(() -> obfuscatory)
                     .attributeAccessor("foo", (exec) -> "bar")
@@ -67,9 +82,47 @@ public class WriteSpanAttributesTest {
                 action.execute(executionContext);
             }
 
-            verify(obfuscatory).putSpanAttribute(same(span), eq("foo"), eq("bar"));
-            verify(obfuscatory).putSpanAttribute(same(span), eq("hello"), eq(Double.valueOf(2.0d)));
-            verifyNoMoreInteractions(obfuscatory);
+            verify(fooWriter).putSpanAttribute(same(span), eq("bar"));
+            verify(helloWriter).putSpanAttribute(same(span), eq(Double.valueOf(2.0d)));
+            verifyZeroInteractions(nullWriter);
+        }
+
+        @Test
+        void verifyWritersResolvedOncePerObfuscatory() {
+            doReturn(true).when(inspectitContext).hasEnteredSpan();
+            doReturn(fooWriter).when(obfuscatory).getSpanAttributeWriter("foo");
+            WriteSpanAttributesAction action = WriteSpanAttributesAction.builder()
+                    .obfuscatorySupplier(() -> obfuscatory)
+                    .attributeAccessor("foo", (exec) -> "bar")
+                    .build();
+
+            try (Scope s = Tracing.getTracer().withSpan(span)) {
+                action.execute(executionContext);
+                action.execute(executionContext);
+            }
+
+            verify(obfuscatory, times(1)).getSpanAttributeWriter("foo");
+            verify(fooWriter, times(2)).putSpanAttribute(same(span), eq("bar"));
+        }
+
+        @Test
+        void verifyNoAttributesReadIfSpanNotSampled() {
+            doReturn(true).when(inspectitContext).hasEnteredSpan();
+            VariableAccessor accessor = mock(VariableAccessor.class);
+            WriteSpanAttributesAction action = WriteSpanAttributesAction.builder()
+                    .obfuscatorySupplier(() -> obfuscatory)
+                    .attributeAccessor("foo", accessor)
+                    .build();
+            Span unsampledSpan = Tracing.getTracer()
+                    .spanBuilder("span")
+                    .setSampler(Samplers.neverSample())
+                    .startSpan();
+
+            try (Scope s = Tracing.getTracer().withSpan(unsampledSpan)) {
+                action.execute(executionContext);
+            }
+
+            verifyZeroInteractions(accessor, obfuscatory);
         }
 
     }
@@ -2,6 +2,7 @@ package rocks.inspectit.ocelot.core.metrics;
 
 import com.google.common.collect.ImmutableMap;
 import io.opencensus.stats.*;
+import io.opencensus.tags.TagContext;
 import io.opencensus.tags.TagKey;
 import io.opencensus.tags.Tags;
 import org.assertj.core.util.Maps;
@@ -12,6 +13,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
 import rocks.inspectit.ocelot.config.model.metrics.definition.MetricDefinitionSettings;
 import rocks.inspectit.ocelot.config.model.metrics.definition.ViewDefinitionSettings;
 import rocks.inspectit.ocelot.core.config.InspectitEnvironment;
@@ -73,6 +77,29 @@ public class MeasuresAndViewsManagerTest {
             View view = viewArg.getValue();
             assertThat(view.getName().asString()).isEqualTo(metricName);
         }
+
+        @Test
+        void verifyPercentileRecordingModeApplied() {
+            when(environment.getCurrentConfig()
+                    .getMetrics()
+                    .getPercentiles()
+                    .getRecordingMode()).thenReturn(PercentilesSettings.RecordingMode.ASYNC);
+
+            manager.updateMetricDefinitions();
+
+            verify(percentileViewManager).setRecordingMode(PercentilesSettings.RecordingMode.ASYNC);
+        }
+
+        @Test
+        void verifyPercentileBufferStorageApplied() {
+            PercentilesSettings percentiles = environment.getCurrentConfig().getMetrics().getPercentiles();
+            when(percentiles.getBufferStorage()).thenReturn(PercentilesSettings.BufferStorage.OFF_HEAP);
+            when(percentiles.getOffHeapMemoryBudget()).thenReturn(DataSize.ofMegabytes(8));
+
+            manager.updateMetricDefinitions();
+
+            verify(percentileViewManager).setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofMegabytes(8));
+        }
     }
 
     @Nested
@@ -173,6 +200,30 @@ public class MeasuresAndViewsManagerTest {
                     .getCurrentTagContext());
         }
 
+        @Test
+        void putMeasurementsIntoSingleMap() {
+            MeasureMap map = manager.newMeasureMap();
+            manager.putMeasurement(map, manager.getMeasure(LONG_METRIC).get(), 42.0);
+            manager.putMeasurement(map, manager.getMeasure(DOUBLE_METRIC).get(), 42L);
+
+            verify(recorder).newMeasureMap();
+            verify(measureMap).put(any(Measure.MeasureLong.class), eq(42L));
+            verify(measureMap).put(any(Measure.MeasureDouble.class), eq(42.0));
+            verifyNoMoreInteractions(recorder);
+            verifyNoMoreInteractions(measureMap);
+            verifyZeroInteractions(percentileViewManager);
+        }
+
+        @Test
+        void recordPercentileMeasurement() {
+            TagContext tags = Tags.getTagger().empty();
+
+            manager.recordPercentileMeasurement(DOUBLE_METRIC, 42.0, tags);
+
+            verify(percentileViewManager).recordMeasurement(DOUBLE_METRIC, 42.0, tags);
+            verifyZeroInteractions(recorder);
+        }
+
     }
 
     @Nested
@@ -395,8 +446,33 @@ public class MeasuresAndViewsManagerTest {
 
             verify(percentileViewManager, times(1)).createOrUpdateView(
                     metricName, "custom-view", "my-unit", "Cool view",
-                    true, false, Arrays.asList(0.5), 123, expectedTags, 345);
+                    true, false, Arrays.asList(0.5), 123, expectedTags, 345, ViewDefinitionSettings.QuantileMode.EXACT, 0.01);
+
+            verifyZeroInteractions(viewManager);
+        }
+
+        @Test
+        void testSketchQuantilesViewRegistration() {
+            when(commonTagsManager.getCommonTagKeys()).thenReturn(Collections.emptyList());
+
+            String metricName = "my-metric";
+            MetricDefinitionSettings metricDefinition = MetricDefinitionSettings.builder()
+                    .unit("my-unit")
+                    .view("custom-view", ViewDefinitionSettings.builder()
+                            .description("Cool view")
+                            .aggregation(ViewDefinitionSettings.Aggregation.QUANTILES)
+                            .quantiles(Arrays.asList(0.5, 1.0))
+                            .quantileMode(ViewDefinitionSettings.QuantileMode.SKETCH)
+                            .sketchRelativeAccuracy(0.05)
+                            .build())
+                    .build()
+                    .getCopyWithDefaultsPopulated(metricName, Duration.ofMillis(123));
+
+            manager.addOrUpdateAndCacheMeasureWithViews(metricName, metricDefinition, emptyMap(), emptyMap());
 
+            verify(percentileViewManager, times(1)).createOrUpdateView(
+                    metricName, "custom-view", "my-unit", "Cool view",
+                    false, true, Arrays.asList(0.5), 123, Collections.emptySet(), 16384, ViewDefinitionSettings.QuantileMode.SKETCH, 0.05);
             verifyZeroInteractions(viewManager);
         }
 
@@ -433,7 +509,7 @@ public class MeasuresAndViewsManagerTest {
 
             verify(percentileViewManager, times(1)).createOrUpdateView(
                     metricName, "custom-view", "my-unit", "Cool view",
-                    true, false, Arrays.asList(0.5), 123, expectedTags, 345);
+                    true, false, Arrays.asList(0.5), 123, expectedTags, 345, ViewDefinitionSettings.QuantileMode.EXACT, 0.01);
 
             verifyZeroInteractions(viewManager);
         }
@@ -0,0 +1,198 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OrderStatisticTreeTest {
+
+    private void assertSortedValues(OrderStatisticTree tree, List<Double> expected) {
+        List<Double> sorted = new ArrayList<>(expected);
+        Collections.sort(sorted);
+        assertThat(tree.size()).isEqualTo(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertThat(tree.select(i)).isEqualTo(sorted.get(i));
+        }
+    }
+
+    @Nested
+    class Select {
+
+        @Test
+        void emptyTree() {
+            OrderStatisticTree tree = new OrderStatisticTree();
+
+            assertThat(tree.size()).isEqualTo(0);
+            assertThatThrownBy(() -> tree.select(0)).isInstanceOf(IndexOutOfBoundsException.class);
+        }
+
+        @Test
+        void duplicateValues() {
+            OrderStatisticTree tree = new OrderStatisticTree();
+            tree.insert(5);
+            tree.insert(1);
+            tree.insert(5);
+            tree.insert(-3);
+
+            assertSortedValues(tree, Arrays.asList(5.0, 1.0, 5.0, -3.0));
+            assertThat(tree.countLessOrEqual(4.9)).isEqualTo(2);
+            assertThat(tree.countLessOrEqual(5)).isEqualTo(4);
+        }
+
+        @Test
+        void randomInsertsAndRemovals() {
+            OrderStatisticTree tree = new OrderStatisticTree();
+            List<Double> expected = new ArrayList<>();
+            Random random = new Random(42);
+
+            for (int i = 0; i < 5000; i++) {
+                if (!expected.isEmpty() && random.nextInt(3) == 0) {
+                    Double value = expected.remove(random.nextInt(expected.size()));
+                    tree.remove(value);
+                } else {
+                    double value = random.nextInt(1000) - 500;
+                    expected.add(value);
+                    tree.insert(value);
+                }
+            }
+
+            assertSortedValues(tree, expected);
+        }
+
+        @Test
+        void removeAllValues() {
+            OrderStatisticTree tree = new OrderStatisticTree();
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+            for (int i = 0; i < 100; i++) {
+                tree.remove(i);
+            }
+            tree.insert(42);
+
+            assertSortedValues(tree, Collections.singletonList(42.0));
+        }
+
+        @Test
+        void removeAbsentValue() {
+            OrderStatisticTree tree = new OrderStatisticTree();
+            tree.insert(1);
+            tree.remove(2);
+
+            assertSortedValues(tree, Collections.singletonList(1.0));
+        }
+    }
+
+    @Nested
+    class OffHeap {
+
+        @Test
+        void randomInsertsAndRemovals() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024 * 1024);
+            OrderStatisticTree tree = new OrderStatisticTree(budget);
+            List<Double> expected = new ArrayList<>();
+            Random random = new Random(42);
+
+            for (int i = 0; i < 5000; i++) {
+                if (!expected.isEmpty() && random.nextInt(3) == 0) {
+                    Double value = expected.remove(random.nextInt(expected.size()));
+                    tree.remove(value);
+                } else {
+                    double value = random.nextInt(1000) - 500;
+                    expected.add(value);
+                    tree.insert(value);
+                }
+            }
+
+            assertThat(tree.isOffHeap()).isTrue();
+            assertThat(budget.getUsedBytes()).isPositive();
+            assertSortedValues(tree, expected);
+        }
+
+        @Test
+        void fallbackToHeapWhenBudgetExhausted() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(2048);
+            OrderStatisticTree tree = new OrderStatisticTree(budget);
+            List<Double> expected = new ArrayList<>();
+
+            for (int i = 0; i < 100; i++) {
+                expected.add((double) i);
+                tree.insert(i);
+            }
+
+            assertThat(tree.isOffHeap()).isFalse();
+            assertThat(budget.getUsedBytes()).isZero();
+            assertSortedValues(tree, expected);
+        }
+
+        @Test
+        void releaseReturnsMemory() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024 * 1024);
+            OrderStatisticTree tree = new OrderStatisticTree(budget);
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+
+            tree.release();
+            tree.insert(42);
+
+            assertThat(budget.getUsedBytes()).isZero();
+            assertThat(tree.isOffHeap()).isFalse();
+            assertSortedValues(tree, Collections.singletonList(42.0));
+        }
+    }
+
+    @Nested
+    class SelectFromMultipleTrees {
+
+        @Test
+        void matchesSortedUnion() {
+            Random random = new Random(42);
+            List<Double> allValues = new ArrayList<>();
+            List<OrderStatisticTree> trees = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                OrderStatisticTree tree = new OrderStatisticTree();
+                for (int i = 0; i < 250; i++) {
+                    double value = random.nextGaussian() * 1000;
+                    allValues.add(value);
+                    tree.insert(value);
+                }
+                trees.add(tree);
+            }
+            Collections.sort(allValues);
+
+            for (int rank = 0; rank < allValues.size(); rank += 7) {
+                assertThat(OrderStatisticTree.select(trees, rank)).isEqualTo(allValues.get(rank));
+            }
+            assertThat(OrderStatisticTree.select(trees, allValues.size() - 1)).isEqualTo(allValues.get(allValues.size() - 1));
+        }
+
+        @Test
+        void signedZeroAndDuplicates() {
+            OrderStatisticTree first = new OrderStatisticTree();
+            OrderStatisticTree second = new OrderStatisticTree();
+            first.insert(-0.0);
+            first.insert(3);
+            second.insert(0.0);
+            second.insert(3);
+            second.insert(-7);
+
+            List<OrderStatisticTree> trees = Arrays.asList(first, second);
+
+            assertThat(OrderStatisticTree.select(trees, 0)).isEqualTo(-7);
+            assertThat(Double.compare(OrderStatisticTree.select(trees, 1), -0.0)).isZero();
+            assertThat(Double.compare(OrderStatisticTree.select(trees, 2), 0.0)).isZero();
+            assertThat(OrderStatisticTree.select(trees, 3)).isEqualTo(3);
+            assertThat(OrderStatisticTree.select(trees, 4)).isEqualTo(3);
+        }
+    }
+}
@@ -19,12 +19,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import rocks.inspectit.ocelot.config.model.metrics.PercentilesSettings;
+import rocks.inspectit.ocelot.config.model.metrics.definition.ViewDefinitionSettings;
 
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.lenient;
@@ -60,6 +64,20 @@ public class PercentileViewManagerTest {
     }
 
     private void assertContainsMetric(Collection<Metric> metrics, String name, double value, String... tagKeyValuePairs) {
+        TimeSeries ts = getTimeSeries(metrics, name, tagKeyValuePairs);
+        assertThat(ts.getPoints().get(0).getValue()).isEqualTo(Value.doubleValue(value));
+    }
+
+    private void assertContainsMetricCloseTo(Collection<Metric> metrics, String name, double value, double offset, String... tagKeyValuePairs) {
+        TimeSeries ts = getTimeSeries(metrics, name, tagKeyValuePairs);
+        double actual = ts.getPoints()
+                .get(0)
+                .getValue()
+                .match(d -> d, l -> Double.NaN, distribution -> Double.NaN, summary -> Double.NaN, other -> Double.NaN);
+        assertThat(actual).isCloseTo(value, within(offset));
+    }
+
+    private TimeSeries getTimeSeries(Collection<Metric> metrics, String name, String... tagKeyValuePairs) {
         assertThat(metrics).anySatisfy(m -> assertThat(m.getMetricDescriptor().getName()).isEqualTo(name));
         Metric metric = metrics.stream().filter(m -> m.getMetricDescriptor().getName().equals(name)).findFirst().get();
 
@@ -83,8 +101,7 @@ public class PercentileViewManagerTest {
                 .get();
 
         assertThat(ts.getPoints()).hasSize(1);
-        assertThat(ts.getPoints().get(0).getValue()).isEqualTo(Value.doubleValue(value));
-
+        return ts;
     }
 
     @Nested
@@ -310,6 +327,169 @@ public class PercentileViewManagerTest {
         }
     }
 
+    @Nested
+    class RecordingModes {
+
+        @Test
+        void asyncRecording() {
+            viewManager.setRecordingMode(PercentilesSettings.RecordingMode.ASYNC);
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, true, Collections.emptyList(), 15000, Collections
+                    .emptyList(), 100);
+
+            viewManager.recordMeasurement("my/measure", 42);
+            viewManager.recordMeasurement("my/measure", 7);
+            awaitMetricsProcessing();
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertThat(result).hasSize(2);
+            assertContainsMetric(result, "my/view_min", 7);
+            assertContainsMetric(result, "my/view_max", 42);
+        }
+
+        @Test
+        void concurrentShardedRecording() throws Exception {
+            viewManager.setRecordingMode(PercentilesSettings.RecordingMode.SHARDED);
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, true, Arrays.asList(0.5), 15000, Collections
+                    .emptyList(), 100000);
+
+            int threadCount = 8;
+            int pointsPerThread = 1000;
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threadCount; t++) {
+                    int offset = t * pointsPerThread;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 1; i <= pointsPerThread; i++) {
+                            viewManager.recordMeasurement("my/measure", offset + i);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertThat(result).hasSize(3);
+            assertContainsMetric(result, "my/view_min", 1);
+            assertContainsMetric(result, "my/view_max", threadCount * pointsPerThread);
+            assertContainsMetric(result, "my/view", 4000.5, "quantile", "0.5");
+        }
+    }
+
+    @Nested
+    class SketchMode {
+
+        @Test
+        void percentilesEstimated() {
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, true, Arrays.asList(0.5, 0.95), 15000, Collections
+                    .emptyList(), 1, ViewDefinitionSettings.QuantileMode.SKETCH, 0.01);
+
+            for (int i = 1; i <= 1000; i++) {
+                viewManager.recordMeasurement("my/measure", i);
+            }
+            awaitMetricsProcessing();
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertThat(result).hasSize(3);
+            assertContainsMetric(result, "my/view_min", 1);
+            assertContainsMetric(result, "my/view_max", 1000);
+            assertContainsMetricCloseTo(result, "my/view", 500, 5, "quantile", "0.5");
+            assertContainsMetricCloseTo(result, "my/view", 950, 9.5, "quantile", "0.95");
+        }
+
+        @Test
+        void switchToExactMode() {
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, false, Collections.emptyList(), 15000, Collections
+                    .emptyList(), 1, ViewDefinitionSettings.QuantileMode.SKETCH, 0.01);
+            viewManager.recordMeasurement("my/measure", 42);
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, false, Collections.emptyList(), 15000, Collections
+                    .emptyList(), 1, ViewDefinitionSettings.QuantileMode.EXACT, 0.01);
+            viewManager.recordMeasurement("my/measure", 7);
+            viewManager.recordMeasurement("my/measure", 100);
+            awaitMetricsProcessing();
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertThat(result).hasSize(1);
+            // the second point has been dropped due to the buffer limit
+            assertContainsMetric(result, "my/view_min", 7);
+        }
+    }
+
+    @Nested
+    class OffHeapStorage {
+
+        @BeforeEach
+        void recordSynchronously() {
+            viewManager.setRecordingMode(PercentilesSettings.RecordingMode.SHARDED);
+        }
+
+        @Test
+        void buffersAllocatedOffHeap() {
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofMegabytes(1));
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, true, Collections.singletonList(0.5), 15000, Collections
+                    .emptyList(), 1000);
+
+            for (int i = 1; i <= 100; i++) {
+                viewManager.recordMeasurement("my/measure", i);
+            }
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertContainsMetric(result, "my/view_min", 1);
+            assertContainsMetric(result, "my/view_max", 100);
+            assertContainsMetric(result, "my/view", 50.5, "quantile", "0.5");
+            assertThat(viewManager.getOffHeapBudget().getUsedBytes()).isPositive();
+        }
+
+        @Test
+        void memoryReleasedWhenViewRemoved() {
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofMegabytes(1));
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, false, Collections.emptyList(), 15000, Collections
+                    .emptyList(), 1000);
+            viewManager.recordMeasurement("my/measure", 42);
+
+            viewManager.removeView("my/measure", "my/view");
+
+            assertThat(viewManager.getOffHeapBudget().getUsedBytes()).isZero();
+        }
+
+        @Test
+        void switchToHeapStorage() {
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofMegabytes(1));
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, false, Collections.emptyList(), 15000, Collections
+                    .emptyList(), 1000);
+            viewManager.recordMeasurement("my/measure", 42);
+
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.HEAP, DataSize.ofMegabytes(1));
+            viewManager.recordMeasurement("my/measure", 7);
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            // the view has been recreated, so that the first point has been lost
+            assertContainsMetric(result, "my/view_min", 7);
+            assertThat(viewManager.getOffHeapBudget().getUsedBytes()).isZero();
+        }
+
+        @Test
+        void exhaustedBudget() {
+            viewManager.setBufferStorage(PercentilesSettings.BufferStorage.OFF_HEAP, DataSize.ofBytes(0));
+            viewManager.createOrUpdateView("my/measure", "my/view", "ms", "foo", true, false, Collections.emptyList(), 15000, Collections
+                    .emptyList(), 1000);
+
+            viewManager.recordMeasurement("my/measure", 42);
+
+            Collection<Metric> result = viewManager.computeMetrics();
+            assertContainsMetric(result, "my/view_min", 42);
+            assertThat(viewManager.getOffHeapBudget().getUsedBytes()).isZero();
+        }
+    }
+
     @Nested
     class CreateOrUpdateView {
 
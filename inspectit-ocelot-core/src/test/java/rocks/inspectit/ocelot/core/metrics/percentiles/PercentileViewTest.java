@@ -8,6 +8,7 @@ import io.opencensus.metrics.export.Metric;
 import io.opencensus.metrics.export.MetricDescriptor;
 import io.opencensus.metrics.export.Value;
 import io.opencensus.tags.*;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -322,5 +324,32 @@ public class PercentileViewTest {
 
         }
 
+        @Test
+        void checkPercentilesMatchFullSort() {
+            PercentileView view = new PercentileView(false, false, ImmutableSet.of(0.1, 0.5, 0.9, 0.99),
+                    Collections.emptySet(), 1000, "name", "unit", "description", 1000);
+
+            Random random = new Random(42);
+            double[] values = new double[999];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextInt(200) / 4.0;
+                view.insertValue(values[i], Timestamp.fromMillis(i), createTagContext());
+            }
+
+            Collection<Metric> results = view.computeMetrics(Timestamp.fromMillis(999));
+            assertThat(results).hasSize(1);
+            Metric result = results.iterator().next();
+
+            Percentile expected = new Percentile();
+            expected.setData(values);
+            assertThat(result.getTimeSeriesList()).hasSize(4);
+            for (double percentile : new double[]{0.1, 0.5, 0.9, 0.99}) {
+                assertThat(result.getTimeSeriesList()).anySatisfy(series -> {
+                    assertThat(series.getLabelValues()).containsExactly(LabelValue.create(PercentileView.getPercentileTag(percentile)));
+                    assertThat(series.getPoints().get(0).getValue()).isEqualTo(Value.doubleValue(expected.evaluate(percentile * 100)));
+                });
+            }
+        }
+
     }
 }
@@ -0,0 +1,144 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+
+    @Nested
+    class GetQuantile {
+
+        @Test
+        void emptySketch() {
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 1024);
+
+            assertThat(sketch.getCount()).isEqualTo(0);
+            assertThat(sketch.getQuantile(0.5)).isNaN();
+        }
+
+        @Test
+        void relativeAccuracyMaintained() {
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 1024);
+            Random random = new Random(42);
+            double[] values = new double[10000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.exp(random.nextDouble() * 10);
+                sketch.add(values[i]);
+            }
+            Arrays.sort(values);
+
+            assertThat(sketch.getCount()).isEqualTo(values.length);
+            assertThat(sketch.getMin()).isEqualTo(values[0]);
+            assertThat(sketch.getMax()).isEqualTo(values[values.length - 1]);
+            for (double quantile : new double[]{0.1, 0.5, 0.9, 0.95, 0.99}) {
+                double expected = values[(int) (quantile * (values.length - 1))];
+                assertThat(sketch.getQuantile(quantile)).isCloseTo(expected, within(expected * ACCURACY));
+            }
+        }
+
+        @Test
+        void negativeAndZeroValues() {
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 1024);
+            sketch.add(-100);
+            sketch.add(-10);
+            sketch.add(0);
+            sketch.add(10);
+            sketch.add(100);
+
+            assertThat(sketch.getQuantile(0)).isCloseTo(-100, within(100 * ACCURACY));
+            assertThat(sketch.getQuantile(0.25)).isCloseTo(-10, within(10 * ACCURACY));
+            assertThat(sketch.getQuantile(0.5)).isEqualTo(0);
+            assertThat(sketch.getQuantile(0.75)).isCloseTo(10, within(10 * ACCURACY));
+            assertThat(sketch.getQuantile(1)).isCloseTo(100, within(100 * ACCURACY));
+        }
+
+        @Test
+        void nanIgnored() {
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 1024);
+            sketch.add(Double.NaN);
+            sketch.add(42);
+
+            assertThat(sketch.getCount()).isEqualTo(1);
+            assertThat(sketch.getQuantile(0.5)).isEqualTo(42);
+        }
+
+        @Test
+        void lowestBucketsCollapsed() {
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 16);
+            for (int i = 1; i <= 1000; i++) {
+                sketch.add(i);
+            }
+
+            assertThat(sketch.getCount()).isEqualTo(1000);
+            assertThat(sketch.getQuantile(0.99)).isCloseTo(990, within(990 * ACCURACY));
+            // the lowest values have been collapsed into the lowest retained bucket
+            assertThat(sketch.getQuantile(0.01)).isGreaterThan(10 * (1 + ACCURACY));
+        }
+
+        @Test
+        void invalidAccuracy() {
+            assertThatThrownBy(() -> new QuantileSketch(0, 1024)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new QuantileSketch(1, 1024)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class Merge {
+
+        @Test
+        void mergeEqualsCombinedInsert() {
+            QuantileSketch first = new QuantileSketch(ACCURACY, 1024);
+            QuantileSketch second = new QuantileSketch(ACCURACY, 1024);
+            QuantileSketch combined = new QuantileSketch(ACCURACY, 1024);
+            for (int i = 1; i <= 500; i++) {
+                first.add(i);
+                combined.add(i);
+            }
+            for (int i = 5000; i >= 100; i--) {
+                second.add(i);
+                combined.add(i);
+            }
+
+            first.merge(second);
+
+            assertThat(first.getCount()).isEqualTo(combined.getCount());
+            assertThat(first.getMin()).isEqualTo(1);
+            assertThat(first.getMax()).isEqualTo(5000);
+            for (double quantile : new double[]{0.01, 0.5, 0.9, 0.99}) {
+                assertThat(first.getQuantile(quantile)).isEqualTo(combined.getQuantile(quantile));
+            }
+        }
+
+        @Test
+        void mergeIntoCleared() {
+            QuantileSketch first = new QuantileSketch(ACCURACY, 1024);
+            QuantileSketch second = new QuantileSketch(ACCURACY, 1024);
+            first.add(1000);
+            first.clear();
+            second.add(1);
+
+            first.merge(second);
+
+            assertThat(first.getCount()).isEqualTo(1);
+            assertThat(first.getMax()).isEqualTo(1);
+            assertThat(first.getQuantile(0.5)).isEqualTo(1);
+        }
+
+        @Test
+        void differentAccuracy() {
+            QuantileSketch first = new QuantileSketch(ACCURACY, 1024);
+            QuantileSketch second = new QuantileSketch(ACCURACY * 2, 1024);
+
+            assertThatThrownBy(() -> first.merge(second)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
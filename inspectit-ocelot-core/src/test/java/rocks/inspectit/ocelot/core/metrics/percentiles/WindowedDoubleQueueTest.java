@@ -2,7 +2,10 @@ package rocks.inspectit.ocelot.core.metrics.percentiles;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import rocks.inspectit.ocelot.commons.memory.OffHeapMemoryBudget;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -95,11 +98,36 @@ public class WindowedDoubleQueueTest {
             queue.insert(1.0, 10);
             assertThatThrownBy(() -> queue.insert(2.0, 9)).isInstanceOf(IllegalArgumentException.class);
         }
+
+        @Test
+        void mostRecentTimestamp() {
+            WindowedDoubleQueue queue = new WindowedDoubleQueue(42);
+
+            assertThat(queue.getMostRecentTimestamp()).isEqualTo(Long.MIN_VALUE);
+            queue.insert(1.0, 10);
+            queue.insert(2.0, 15);
+            assertThat(queue.getMostRecentTimestamp()).isEqualTo(15);
+        }
     }
 
     @Nested
     class RemoveStaleValues {
 
+        @Test
+        void removedValuesPassedToConsumer() {
+            WindowedDoubleQueue queue = new WindowedDoubleQueue(10);
+            queue.insert(1.0, 0);
+            queue.insert(2.0, 5);
+            queue.insert(3.0, 12);
+            List<Double> removedValues = new ArrayList<>();
+
+            int removed = queue.removeStaleValues(15, removedValues::add);
+
+            assertThat(removed).isEqualTo(2);
+            assertThat(removedValues).containsExactly(1.0, 2.0);
+            assertThat(queue.size()).isEqualTo(1);
+        }
+
         @Test
         void removeAllValues() {
             WindowedDoubleQueue queue = new WindowedDoubleQueue(1);
@@ -174,6 +202,63 @@ public class WindowedDoubleQueueTest {
 
     }
 
+    @Nested
+    class OffHeap {
+
+        @Test
+        void matchesHeapQueue() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024 * 1024);
+            WindowedDoubleQueue heapQueue = new WindowedDoubleQueue(100);
+            WindowedDoubleQueue offHeapQueue = new WindowedDoubleQueue(100, budget);
+
+            for (int time = 0; time < 1000; time++) {
+                assertThat(offHeapQueue.removeStaleValues(time)).isEqualTo(heapQueue.removeStaleValues(time));
+                for (int i = 0; i < time % 7; i++) {
+                    heapQueue.insert(time * 10 + i, time);
+                    offHeapQueue.insert(time * 10 + i, time);
+                }
+            }
+
+            assertThat(offHeapQueue.isOffHeap()).isTrue();
+            assertThat(offHeapQueue.capacity()).isEqualTo(heapQueue.capacity());
+            assertThat(offHeapQueue.getMostRecentTimestamp()).isEqualTo(heapQueue.getMostRecentTimestamp());
+            assertThat(offHeapQueue.copy()).isEqualTo(heapQueue.copy());
+            assertThat(budget.getUsedBytes()).isEqualTo(offHeapQueue.capacity() * 16L);
+        }
+
+        @Test
+        void fallbackToHeapWhenBudgetExhausted() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(WindowedDoubleQueue.MIN_CAPACITY * 16);
+            WindowedDoubleQueue queue = new WindowedDoubleQueue(1, budget);
+            assertThat(queue.isOffHeap()).isTrue();
+
+            for (int i = 0; i <= WindowedDoubleQueue.MIN_CAPACITY; i++) {
+                queue.insert(i, 0);
+            }
+
+            double[] expectedResult = IntStream.rangeClosed(0, WindowedDoubleQueue.MIN_CAPACITY).mapToDouble(i -> i).toArray();
+            assertThat(queue.isOffHeap()).isFalse();
+            assertThat(queue.copy()).isEqualTo(expectedResult);
+            assertThat(budget.getUsedBytes()).isZero();
+        }
+
+        @Test
+        void releaseReturnsMemory() {
+            OffHeapMemoryBudget budget = new OffHeapMemoryBudget(1024 * 1024);
+            WindowedDoubleQueue queue = new WindowedDoubleQueue(1, budget);
+            for (int i = 0; i < 100; i++) {
+                queue.insert(i, 0);
+            }
+
+            queue.release();
+            queue.insert(42, 1);
+
+            assertThat(budget.getUsedBytes()).isZero();
+            assertThat(queue.isOffHeap()).isFalse();
+            assertThat(queue.copy()).containsExactly(42);
+        }
+    }
+
     @Nested
     class Copy {
 
@@ -0,0 +1,63 @@
+package rocks.inspectit.ocelot.core.metrics.percentiles;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WindowedQuantileSketchTest {
+
+    @Nested
+    class GetSketch {
+
+        @Test
+        void valuesWithinWindowIncluded() {
+            WindowedQuantileSketch windowedSketch = new WindowedQuantileSketch(6000, 0.01, 1024);
+            windowedSketch.insert(1, 1000);
+            windowedSketch.insert(2, 3500);
+            windowedSketch.insert(3, 5999);
+
+            QuantileSketch sketch = windowedSketch.getSketch(5999);
+
+            assertThat(sketch.getCount()).isEqualTo(3);
+            assertThat(sketch.getMin()).isEqualTo(1);
+            assertThat(sketch.getMax()).isEqualTo(3);
+        }
+
+        @Test
+        void expiredSubWindowsExcluded() {
+            WindowedQuantileSketch windowedSketch = new WindowedQuantileSketch(6000, 0.01, 1024);
+            windowedSketch.insert(1, 1000);
+            windowedSketch.insert(2, 3500);
+
+            QuantileSketch sketch = windowedSketch.getSketch(7000);
+
+            assertThat(sketch.getCount()).isEqualTo(1);
+            assertThat(sketch.getMin()).isEqualTo(2);
+        }
+
+        @Test
+        void expiredSubWindowsReused() {
+            WindowedQuantileSketch windowedSketch = new WindowedQuantileSketch(6000, 0.01, 1024);
+            windowedSketch.insert(1, 1000);
+            windowedSketch.insert(2, 7000);
+
+            QuantileSketch sketch = windowedSketch.getSketch(7000);
+
+            assertThat(sketch.getCount()).isEqualTo(1);
+            assertThat(sketch.getMin()).isEqualTo(2);
+        }
+
+        @Test
+        void outdatedValuesIgnored() {
+            WindowedQuantileSketch windowedSketch = new WindowedQuantileSketch(6000, 0.01, 1024);
+            windowedSketch.insert(2, 7000);
+            windowedSketch.insert(1, 1000);
+
+            QuantileSketch sketch = windowedSketch.getSketch(7000);
+
+            assertThat(sketch.getCount()).isEqualTo(1);
+            assertThat(sketch.getMax()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package rocks.inspectit.ocelot.core.opencensus;
+
+import io.opencensus.implcore.common.MillisClock;
+import io.opencensus.implcore.trace.RecordEventsSpanImpl;
+import io.opencensus.trace.*;
+import io.opencensus.trace.config.TraceParams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.config.model.tracing.TailSamplingSettings;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TailSamplingSpanHandlerTest {
+
+    @Mock
+    private RecordEventsSpanImpl.StartEndHandler delegate;
+
+    @Mock
+    private Consumer<RecordEventsSpanImpl> discardedSpanHandler;
+
+    private TailSamplingSpanHandler handler;
+
+    private TailSamplingSettings settings;
+
+    private final Random random = new Random();
+
+    @BeforeEach
+    void setup() {
+        handler = new TailSamplingSpanHandler(delegate, discardedSpanHandler);
+        settings = new TailSamplingSettings();
+        settings.setEnabled(true);
+        settings.setMaxBufferedSpans(100);
+        settings.setMaxTraceDuration(Duration.ofMinutes(1));
+        settings.setLatencyThreshold(null);
+        settings.setKeepErrors(true);
+        settings.setKeepProbability(0.0);
+    }
+
+    private RecordEventsSpanImpl startSpan(TraceId traceId, boolean sampled) {
+        TraceOptions options = sampled ? TraceOptions.builder().setIsSampled(true).build() : TraceOptions.DEFAULT;
+        SpanContext context = SpanContext.create(traceId, SpanId.generateRandomId(random), options, Tracestate.builder().build());
+        return RecordEventsSpanImpl.startSpan(context, "span", null, null, false, TraceParams.DEFAULT, handler, null, MillisClock.getInstance());
+    }
+
+    private RecordEventsSpanImpl startSpan(TraceId traceId) {
+        return startSpan(traceId, true);
+    }
+
+    @Nested
+    class Disabled {
+
+        @Test
+        void spansPassedOnImmediately() {
+            settings.setEnabled(false);
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            RecordEventsSpanImpl child = startSpan(traceId);
+            child.end();
+
+            verify(delegate).onEnd(child);
+            assertThat(handler.getBufferedSpans()).isZero();
+        }
+
+        @Test
+        void bufferedSpansFlushedWhenDisabled() {
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+            RecordEventsSpanImpl root = startSpan(traceId);
+            RecordEventsSpanImpl child = startSpan(traceId);
+            child.end();
+            verify(delegate, never()).onEnd(any());
+
+            settings.setEnabled(false);
+            handler.configure(settings);
+
+            verify(delegate).onEnd(child);
+            assertThat(handler.getBufferedSpans()).isZero();
+
+            root.end();
+            verify(delegate).onEnd(root);
+        }
+    }
+
+    @Nested
+    class Decision {
+
+        @Test
+        void unsampledSpansPassedOn() {
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl span = startSpan(traceId, false);
+            span.end();
+
+            verify(delegate).onEnd(span);
+            assertThat(handler.getBufferedTraces()).isZero();
+        }
+
+        @Test
+        void okTraceDropped() {
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            RecordEventsSpanImpl child = startSpan(traceId);
+            child.end();
+            root.end();
+
+            verify(delegate, never()).onEnd(any());
+            verify(discardedSpanHandler).accept(child);
+            verify(discardedSpanHandler).accept(root);
+            assertThat(handler.getBufferedSpans()).isZero();
+            assertThat(handler.getBufferedTraces()).isZero();
+            assertThat(handler.getAndResetDroppedTraces()).isEqualTo(1);
+            assertThat(handler.getAndResetKeptTraces()).isZero();
+        }
+
+        @Test
+        void errorTraceKept() {
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            RecordEventsSpanImpl child = startSpan(traceId);
+            child.setStatus(Status.INTERNAL);
+            child.end();
+
+            verify(delegate, never()).onEnd(any());
+            assertThat(handler.getBufferedSpans()).isEqualTo(1);
+
+            root.end();
+
+            verify(delegate).onEnd(child);
+            verify(delegate).onEnd(root);
+            verifyZeroInteractions(discardedSpanHandler);
+            assertThat(handler.getBufferedSpans()).isZero();
+            assertThat(handler.getAndResetKeptTraces()).isEqualTo(1);
+        }
+
+        @Test
+        void slowTraceKept() throws Exception {
+            settings.setKeepErrors(false);
+            settings.setLatencyThreshold(Duration.ofMillis(10));
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            Thread.sleep(20);
+            root.end();
+
+            verify(delegate).onEnd(root);
+        }
+
+        @Test
+        void matchingAttributeKept() {
+            settings.getKeepAttributes().put("http.status", "5\\d\\d");
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            root.putAttribute("http.status", AttributeValue.longAttributeValue(503));
+            root.end();
+
+            verify(delegate).onEnd(root);
+        }
+
+        @Test
+        void nonMatchingAttributeDropped() {
+            settings.getKeepAttributes().put("http.status", "5\\d\\d");
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            root.putAttribute("http.status", AttributeValue.longAttributeValue(200));
+            root.end();
+
+            verify(delegate, never()).onEnd(any());
+            verify(discardedSpanHandler).accept(root);
+        }
+
+        @Test
+        void keepProbabilityApplied() {
+            settings.setKeepProbability(1.0);
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            root.end();
+
+            verify(delegate).onEnd(root);
+        }
+
+        @Test
+        void lateSpanHandledAccordingToDecision() {
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            RecordEventsSpanImpl child = startSpan(traceId);
+            child.end();
+            root.end();
+            RecordEventsSpanImpl lateSpan = startSpan(traceId);
+            lateSpan.setStatus(Status.INTERNAL);
+            lateSpan.end();
+
+            verify(delegate, never()).onEnd(any());
+            verify(discardedSpanHandler).accept(lateSpan);
+        }
+    }
+
+    @Nested
+    class Eviction {
+
+        @Test
+        void fullBufferEvictsTrace() {
+            settings.setMaxBufferedSpans(1);
+            handler.configure(settings);
+            TraceId first = TraceId.generateRandomId(random);
+            TraceId second = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl firstRoot = startSpan(first);
+            RecordEventsSpanImpl firstChild = startSpan(first);
+            RecordEventsSpanImpl secondRoot = startSpan(second);
+            RecordEventsSpanImpl secondChild = startSpan(second);
+            firstChild.setStatus(Status.INTERNAL);
+            firstChild.end();
+            secondChild.end();
+
+            verify(delegate, never()).onEnd(any());
+            verify(discardedSpanHandler).accept(secondChild);
+            assertThat(handler.getBufferedSpans()).isEqualTo(1);
+            assertThat(handler.getAndResetEvictedTraces()).isEqualTo(1);
+
+            firstRoot.end();
+            verify(delegate).onEnd(firstChild);
+            verify(delegate).onEnd(firstRoot);
+            assertThat(handler.getBufferedSpans()).isZero();
+            assertThat(handler.getAndResetEvictedTraces()).isZero();
+        }
+
+        @Test
+        void expiredTraceEvicted() {
+            settings.setMaxTraceDuration(Duration.ZERO);
+            handler.configure(settings);
+            TraceId traceId = TraceId.generateRandomId(random);
+
+            RecordEventsSpanImpl root = startSpan(traceId);
+            RecordEventsSpanImpl child = startSpan(traceId);
+            child.setStatus(Status.INTERNAL);
+            child.end();
+            handler.evictExpiredTraces();
+
+            verify(delegate).onEnd(child);
+            assertThat(handler.getBufferedTraces()).isZero();
+            assertThat(handler.getAndResetEvictedTraces()).isEqualTo(1);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import rocks.inspectit.ocelot.core.privacy.obfuscation.SpanAttributeWriter;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -158,5 +159,56 @@ class PatternObfuscatoryTest {
 
     }
 
+    @Nested
+    class GetSpanAttributeWriter {
+
+        @Mock
+        Span span;
+
+        Pattern p1 = Pattern.compile("[a-z]+");
+
+        @Test
+        public void keyObfuscationResolvedOnce() {
+            PatternObfuscatory.PatternEntry.PatternEntryBuilder entryBuilder = PatternObfuscatory.PatternEntry.builder();
+            entryBuilder.pattern(p1);
+            entryBuilder.checkKey(true);
+            PatternObfuscatory patternObfuscatory = new PatternObfuscatory(Collections.singleton(entryBuilder.build()));
+
+            SpanAttributeWriter writer = patternObfuscatory.getSpanAttributeWriter("abc");
+            writer.putSpanAttribute(span, "belgrade");
+            writer.putSpanAttribute(span, 42L);
+
+            verify(span, times(2)).putAttribute("abc", AttributeValue.stringAttributeValue("***"));
+            verifyNoMoreInteractions(span);
+        }
+
+        @Test
+        public void noDataPatternsKeepsType() {
+            PatternObfuscatory.PatternEntry.PatternEntryBuilder entryBuilder = PatternObfuscatory.PatternEntry.builder();
+            entryBuilder.pattern(p1);
+            entryBuilder.checkKey(true);
+            PatternObfuscatory patternObfuscatory = new PatternObfuscatory(Collections.singleton(entryBuilder.build()));
+
+            patternObfuscatory.getSpanAttributeWriter("011").putSpanAttribute(span, 42L);
 
-}
\ No newline at end of file
+            verify(span).putAttribute("011", AttributeValue.longAttributeValue(42L));
+            verifyNoMoreInteractions(span);
+        }
+
+        @Test
+        public void dataObfuscation() {
+            PatternObfuscatory.PatternEntry.PatternEntryBuilder entryBuilder = PatternObfuscatory.PatternEntry.builder();
+            entryBuilder.pattern(p1);
+            entryBuilder.checkData(true);
+            PatternObfuscatory patternObfuscatory = new PatternObfuscatory(Collections.singleton(entryBuilder.build()));
+
+            SpanAttributeWriter writer = patternObfuscatory.getSpanAttributeWriter("abc");
+            writer.putSpanAttribute(span, "belgrade");
+            writer.putSpanAttribute(span, "011");
+
+            verify(span).putAttribute("abc", AttributeValue.stringAttributeValue("***"));
+            verify(span).putAttribute("abc", AttributeValue.stringAttributeValue("011"));
+            verifyNoMoreInteractions(span);
+        }
+    }
+}